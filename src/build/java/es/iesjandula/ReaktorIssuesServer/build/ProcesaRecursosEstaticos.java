@@ -0,0 +1,458 @@
+package es.iesjandula.ReaktorIssuesServer.build;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Prepara los recursos estáticos para producción. Se ejecuta desde Maven en la fase
+ * {@code process-classes}, después de copiar {@code src/main/resources}, como programa de un solo fichero
+ * ({@code java ProcesaRecursosEstaticos.java <origen> <destino> <prefijo>}), por lo que no forma parte del
+ * jar.
+ * <p>
+ * Cada recurso que no es HTML se copia a {@code <destino>/<prefijo>/} con la misma ruta relativa y un
+ * resumen de su contenido en el nombre ({@code css/incidencias.css} pasa a
+ * {@code recursos/css/incidencias.0123456789abcdef.css}). Las referencias {@code href} y {@code src} de
+ * los HTML y las {@code url()} de las hojas de estilo se reescriben hacia esas copias. Como el nombre
+ * cambia con el contenido, el servidor puede servirlas con caché inmutable.
+ * </p>
+ * <p>
+ * Las copias de texto se comprimen además con gzip ({@code .gz}) y con brotli ({@code .br}); cada
+ * variante se conserva solo si ocupa menos que el original. Los HTML y los recursos originales se dejan
+ * sin comprimir para que, en desarrollo, una copia nueva de un fichero nunca conviva con una variante
+ * comprimida antigua.
+ * </p>
+ * <p>
+ * La JDK no incluye un compresor brotli, así que se usa el ejecutable {@code brotli} del {@code PATH}.
+ * Si no está, se avisa en la salida de error y se generan solo las variantes gzip; con
+ * {@code -Drecursos.brotli.obligatorio=true} (perfil Maven {@code recursos-brotli}) la compilación falla.
+ * </p>
+ */
+public class ProcesaRecursosEstaticos
+{
+	/** Caracteres del resumen del contenido que se incluyen en el nombre. */
+	private static final int LONG_RESUMEN = 16;
+
+	/** Tamaño a partir del cual compensa precomprimir. */
+	private static final int MIN_COMPRIMIR = 256;
+
+	/** Propiedad del sistema que hace fallar la compilación si no hay ejecutable de brotli. */
+	private static final String PROPIEDAD_BROTLI_OBLIGATORIO = "recursos.brotli.obligatorio";
+
+	/** Extensiones de los documentos cuyas referencias se reescriben. */
+	private static final Set<String> EXTENSIONES_HTML = Set.of("html", "htm");
+
+	/** Extensiones de texto que se precomprimen. El resto (imágenes, fuentes) ya vienen comprimidas. */
+	private static final Set<String> EXTENSIONES_TEXTO = Set.of("css", "js", "mjs", "map", "json", "svg", "txt", "xml");
+
+	/** Atributos {@code href} y {@code src} entre comillas. */
+	private static final Pattern ATRIBUTO = Pattern.compile("(\\b(?:href|src)\\s*=\\s*)([\"'])(.*?)\\2",
+			Pattern.CASE_INSENSITIVE);
+
+	/** Referencias {@code url()} de las hojas de estilo. */
+	private static final Pattern URL_CSS = Pattern.compile("url\\(\\s*([\"']?)([^\"')]+)\\1\\s*\\)");
+
+	/** Directorio de los recursos originales. */
+	private final Path origen;
+
+	/** Directorio de los recursos en {@code target/classes}. */
+	private final Path destino;
+
+	/** Directorio de las copias con resumen dentro de {@link #destino}. */
+	private final Path destinoVersionado;
+
+	/** Nombre del directorio de las copias con resumen. */
+	private final String prefijo;
+
+	/** Ruta de cada copia con resumen por ruta del original, ambas relativas a {@link #origen}. */
+	private final Map<String, String> versiones = new LinkedHashMap<String, String>();
+
+	/** Ejecutable de brotli, o {@code null} si no está disponible. */
+	private final String brotli;
+
+	/** Bytes antes y después de precomprimir, para el resumen final. */
+	private long bytesOriginales, bytesGzip, bytesBrotli;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param origen  Directorio de los recursos originales.
+	 * @param destino Directorio de los recursos en {@code target/classes}.
+	 * @param prefijo Nombre del directorio de las copias con resumen.
+	 */
+	private ProcesaRecursosEstaticos(Path origen, Path destino, String prefijo)
+	{
+		this.origen = origen;
+		this.destino = destino;
+		this.prefijo = prefijo;
+		this.destinoVersionado = destino.resolve(prefijo);
+		this.brotli = buscaEjecutable("brotli");
+	}
+
+	/**
+	 * @param args Directorio de origen, directorio de destino y nombre del directorio de las copias.
+	 * @throws IOException Si falla la lectura o escritura de algún fichero.
+	 */
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length != 3)
+		{
+			System.err.println("Uso: java ProcesaRecursosEstaticos.java <origen> <destino> <prefijo>");
+			System.exit(2);
+		}
+
+		Path origen = Paths.get(args[0]).toAbsolutePath().normalize();
+		if (!Files.isDirectory(origen))
+		{
+			System.out.println("[recursos] No hay recursos estaticos en " + origen);
+			return;
+		}
+		ProcesaRecursosEstaticos procesador = new ProcesaRecursosEstaticos(origen,
+				Paths.get(args[1]).toAbsolutePath().normalize(), args[2]);
+		if (procesador.brotli == null)
+		{
+			if (Boolean.getBoolean(PROPIEDAD_BROTLI_OBLIGATORIO))
+			{
+				System.err.println("[ERROR] [recursos] No hay un ejecutable brotli en el PATH y "
+						+ PROPIEDAD_BROTLI_OBLIGATORIO + "=true. Instala brotli o compila sin el perfil recursos-brotli.");
+				System.exit(1);
+			}
+			System.err.println("[WARNING] [recursos] No hay un ejecutable brotli en el PATH: los recursos solo se "
+					+ "precomprimen con gzip. Instala brotli o usa el perfil recursos-brotli para exigirlo.");
+		}
+		procesador.procesa();
+	}
+
+	/**
+	 * Genera las copias con resumen, reescribe los HTML y precomprime.
+	 *
+	 * @throws IOException Si falla la lectura o escritura de algún fichero.
+	 */
+	private void procesa() throws IOException
+	{
+		// Las copias de una compilación anterior se regeneran siempre.
+		this.borraDirectorio(this.destinoVersionado);
+
+		List<String> html = new ArrayList<String>();
+		List<String> css = new ArrayList<String>();
+		List<String> otros = new ArrayList<String>();
+		try (Stream<Path> ficheros = Files.walk(this.origen))
+		{
+			for (Path fichero : (Iterable<Path>) ficheros.filter(Files::isRegularFile).sorted()::iterator)
+			{
+				String ruta = this.relativa(this.origen, fichero);
+				String extension = extension(ruta);
+				if (ruta.startsWith(this.prefijo + "/"))
+				{
+					continue;
+				}
+				if (EXTENSIONES_HTML.contains(extension))
+				{
+					html.add(ruta);
+				}
+				else if ("css".equals(extension))
+				{
+					css.add(ruta);
+				}
+				else
+				{
+					otros.add(ruta);
+				}
+			}
+		}
+
+		// Las hojas de estilo van al final porque su contenido, y por tanto su resumen, incluye los nombres
+		// ya versionados de las imágenes y fuentes que referencian.
+		for (String ruta : otros)
+		{
+			this.versiona(ruta, Files.readAllBytes(this.origen.resolve(ruta)));
+		}
+		for (String ruta : css)
+		{
+			String contenido = Files.readString(this.origen.resolve(ruta), StandardCharsets.UTF_8);
+			this.versiona(ruta, this.reescribe(URL_CSS, 2, contenido, ruta, true).getBytes(StandardCharsets.UTF_8));
+		}
+		for (String ruta : html)
+		{
+			String contenido = Files.readString(this.origen.resolve(ruta), StandardCharsets.UTF_8);
+			escribe(this.destino.resolve(ruta), this.reescribe(ATRIBUTO, 3, contenido, ruta, false)
+					.getBytes(StandardCharsets.UTF_8));
+		}
+
+		System.out.println("[recursos] " + this.versiones.size() + " recursos versionados en " + this.destinoVersionado
+				+ ", " + html.size() + " HTML reescritos. Texto precomprimido: " + this.bytesOriginales + " -> gzip "
+				+ this.bytesGzip + (this.brotli == null ? " (brotli no disponible)" : " / brotli " + this.bytesBrotli)
+				+ " bytes.");
+	}
+
+	/**
+	 * Escribe la copia con resumen de un recurso y sus variantes comprimidas.
+	 *
+	 * @param ruta      Ruta del original relativa a {@link #origen}.
+	 * @param contenido Contenido de la copia.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private void versiona(String ruta, byte[] contenido) throws IOException
+	{
+		String resumen = HexFormat.of().formatHex(sha256(contenido)).substring(0, LONG_RESUMEN);
+		int punto = ruta.lastIndexOf('.');
+		String versionada = punto > ruta.lastIndexOf('/')
+				? ruta.substring(0, punto) + "." + resumen + ruta.substring(punto)
+				: ruta + "." + resumen;
+
+		Path fichero = this.destinoVersionado.resolve(versionada);
+		escribe(fichero, contenido);
+		this.versiones.put(ruta, versionada);
+
+		if (EXTENSIONES_TEXTO.contains(extension(ruta)) && contenido.length >= MIN_COMPRIMIR)
+		{
+			this.precomprime(fichero, contenido);
+		}
+	}
+
+	/**
+	 * Reescribe las referencias a recursos versionados de un HTML o de una hoja de estilo.
+	 *
+	 * @param patron     Patrón de las referencias.
+	 * @param grupo      Grupo del patrón con la referencia.
+	 * @param contenido  Contenido del documento.
+	 * @param ruta       Ruta del documento relativa a {@link #origen}.
+	 * @param versionado Si el documento se escribe también en {@link #destinoVersionado}.
+	 * @return El contenido reescrito.
+	 */
+	private String reescribe(Pattern patron, int grupo, String contenido, String ruta, boolean versionado)
+	{
+		Matcher matcher = patron.matcher(contenido);
+		StringBuilder resultado = new StringBuilder(contenido.length());
+		while (matcher.find())
+		{
+			String nueva = this.resuelve(matcher.group(grupo).trim(), ruta, versionado);
+			String sustitucion = nueva == null ? matcher.group()
+					: contenido.substring(matcher.start(), matcher.start(grupo)) + nueva
+							+ contenido.substring(matcher.end(grupo), matcher.end());
+			matcher.appendReplacement(resultado, Matcher.quoteReplacement(sustitucion));
+		}
+		matcher.appendTail(resultado);
+		return resultado.toString();
+	}
+
+	/**
+	 * Calcula la referencia a la copia versionada de un recurso.
+	 *
+	 * @param referencia Referencia tal y como aparece en el documento.
+	 * @param documento  Ruta del documento relativa a {@link #origen}.
+	 * @param versionado Si el documento está en {@link #destinoVersionado}.
+	 * @return La referencia nueva, o {@code null} si no apunta a un recurso versionado.
+	 */
+	private String resuelve(String referencia, String documento, boolean versionado)
+	{
+		// Se respetan las URL absolutas, las de otro esquema (data:, mailto:...) y los anclas.
+		if (referencia.isEmpty() || referencia.startsWith("//") || referencia.startsWith("#")
+				|| referencia.matches("^[a-zA-Z][a-zA-Z0-9+.-]*:.*"))
+		{
+			return null;
+		}
+
+		int corte = referencia.length();
+		for (char separador : new char[] { '?', '#' })
+		{
+			int posicion = referencia.indexOf(separador);
+			if (posicion >= 0)
+			{
+				corte = Math.min(corte, posicion);
+			}
+		}
+		String camino = referencia.substring(0, corte);
+		String sufijo = referencia.substring(corte);
+
+		boolean absoluta = camino.startsWith("/");
+		Path base = absoluta ? this.origen : this.origen.resolve(documento).getParent();
+		Path objetivo = base.resolve(absoluta ? camino.substring(1) : camino).normalize();
+		if (!objetivo.startsWith(this.origen))
+		{
+			return null;
+		}
+
+		String versionada = this.versiones.get(this.relativa(this.origen, objetivo));
+		if (versionada == null)
+		{
+			return null;
+		}
+		if (absoluta)
+		{
+			return "/" + this.prefijo + "/" + versionada + sufijo;
+		}
+
+		Path desde = (versionado ? this.destinoVersionado : this.destino).resolve(documento).getParent();
+		return this.relativa(desde, this.destinoVersionado.resolve(versionada)) + sufijo;
+	}
+
+	/**
+	 * Escribe las variantes gzip y brotli de un fichero si ocupan menos que el original.
+	 *
+	 * @param fichero   El fichero.
+	 * @param contenido Su contenido.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private void precomprime(Path fichero, byte[] contenido) throws IOException
+	{
+		this.bytesOriginales += contenido.length;
+
+		ByteArrayOutputStream gzip = new ByteArrayOutputStream(contenido.length);
+		try (OutputStream salida = new GZIPOutputStream(gzip)
+		{
+			{
+				this.def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		})
+		{
+			salida.write(contenido);
+		}
+		if (gzip.size() < contenido.length)
+		{
+			escribe(Paths.get(fichero + ".gz"), gzip.toByteArray());
+			this.bytesGzip += gzip.size();
+		}
+
+		if (this.brotli == null)
+		{
+			return;
+		}
+		Path br = Paths.get(fichero + ".br");
+		try
+		{
+			Process proceso = new ProcessBuilder(this.brotli, "--quality=11", "--force", "--output=" + br, fichero.toString())
+					.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+			if (!proceso.waitFor(60, TimeUnit.SECONDS) || proceso.exitValue() != 0)
+			{
+				proceso.destroyForcibly();
+				throw new IOException("brotli ha fallado con " + fichero);
+			}
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrumpido al comprimir " + fichero, exception);
+		}
+		if (Files.size(br) >= contenido.length)
+		{
+			Files.delete(br);
+			return;
+		}
+		this.bytesBrotli += Files.size(br);
+	}
+
+	/**
+	 * @param directorio Directorio que se borra con todo su contenido, si existe.
+	 * @throws IOException Si falla el borrado.
+	 */
+	private void borraDirectorio(Path directorio) throws IOException
+	{
+		if (!Files.exists(directorio))
+		{
+			return;
+		}
+		try (Stream<Path> ficheros = Files.walk(directorio))
+		{
+			for (Path fichero : (Iterable<Path>) ficheros.sorted(Comparator.reverseOrder())::iterator)
+			{
+				Files.delete(fichero);
+			}
+		}
+	}
+
+	/**
+	 * @param desde   Directorio de partida.
+	 * @param fichero Fichero de destino.
+	 * @return Ruta relativa de {@code fichero} desde {@code desde}, con {@code /} como separador.
+	 */
+	private String relativa(Path desde, Path fichero)
+	{
+		return desde.relativize(fichero).toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * @param fichero   Fichero que se escribe, creando sus directorios.
+	 * @param contenido Contenido.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private static void escribe(Path fichero, byte[] contenido) throws IOException
+	{
+		Files.createDirectories(fichero.getParent());
+		Path temporal = Files.createTempFile(fichero.getParent(), fichero.getFileName().toString(), ".tmp");
+		Files.write(temporal, contenido);
+		Files.move(temporal, fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * @param ruta Ruta de un fichero.
+	 * @return Su extensión en minúsculas, o cadena vacía.
+	 */
+	private static String extension(String ruta)
+	{
+		int punto = ruta.lastIndexOf('.');
+		return punto > ruta.lastIndexOf('/') ? ruta.substring(punto + 1).toLowerCase() : "";
+	}
+
+	/**
+	 * @param contenido Contenido de un fichero.
+	 * @return Su resumen SHA-256.
+	 */
+	private static byte[] sha256(byte[] contenido)
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256").digest(contenido);
+		}
+		catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+
+	/**
+	 * @param nombre Nombre de un ejecutable.
+	 * @return Su ruta si está en el {@code PATH}, o {@code null}.
+	 */
+	private static String buscaEjecutable(String nombre)
+	{
+		String path = System.getenv("PATH");
+		if (path == null)
+		{
+			return null;
+		}
+		for (String directorio : path.split(File.pathSeparator))
+		{
+			for (String candidato : new String[] { nombre, nombre + ".exe" })
+			{
+				Path ejecutable = Paths.get(directorio, candidato);
+				if (Files.isRegularFile(ejecutable) && Files.isExecutable(ejecutable))
+				{
+					return ejecutable.toString();
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,127 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * Propiedades que deciden qué beans existen y que el procesamiento AOT del perfil Maven
+ * {@code arranque-rapido} fija al compilar.
+ * <p>
+ * Con {@code -Dspring.aot.enabled=true} las condiciones ({@code @ConditionalOnProperty}, autoconfiguraciones
+ * y ficheros de perfil) no se vuelven a evaluar al arrancar: los beans son los que resultaron de la
+ * configuración usada en {@code process-aot}. {@link CondicionesArranqueRapidoAotProcessor} guarda esa
+ * configuración en {@link #RUTA} y {@link CondicionesArranqueRapidoVerifier} impide arrancar si la de
+ * ejecución es distinta.
+ * </p>
+ */
+public final class CondicionesArranqueRapido
+{
+	/** Recurso generado con la configuración fijada al compilar. */
+	public static final String RUTA = "META-INF/reaktor/arranque-rapido.properties";
+
+	/** Clave de los perfiles activos en el recurso. */
+	public static final String PERFILES = "perfiles";
+
+	/** Clave de la huella del esquema en el recurso, distinta en cada compilación. */
+	public static final String HUELLA_ESQUEMA = "esquema.huella";
+
+	/** Propiedades cuyo valor decide beans, con el valor que se supone si no se indican. */
+	private static final Map<String, String> VALORES = new LinkedHashMap<String, String>();
+
+	/** Propiedades de las que solo importa si están definidas (autoconfiguraciones de Spring Boot). */
+	private static final List<String> PRESENCIA = List.of("spring.mail.host");
+
+	static
+	{
+		VALORES.put("reaktor.almacen.motor", "jpa");
+		VALORES.put("reaktor.datasource.replica.enabled", "false");
+		VALORES.put("reaktor.diagnostico.eventos-jfr", "true");
+		VALORES.put("reaktor.arranque.validacion-diferida", "false");
+		VALORES.put("reaktor.arranque.actualizar-esquema", "false");
+	}
+
+	/**
+	 * Constructor privado: solo métodos estáticos.
+	 */
+	private CondicionesArranqueRapido()
+	{
+	}
+
+	/**
+	 * Lee de la configuración los valores que fijan los beans.
+	 *
+	 * @param environment La configuración.
+	 * @return Los valores, con la misma forma que el recurso generado.
+	 */
+	public static Properties captura(Environment environment)
+	{
+		Properties condiciones = new Properties();
+		for (Map.Entry<String, String> valor : VALORES.entrySet())
+		{
+			condiciones.setProperty(valor.getKey(), environment.getProperty(valor.getKey(), valor.getValue()).trim().toLowerCase());
+		}
+		for (String propiedad : PRESENCIA)
+		{
+			condiciones.setProperty(propiedad, String.valueOf(environment.containsProperty(propiedad)));
+		}
+		condiciones.setProperty(PERFILES, String.join(",", Arrays.stream(environment.getActiveProfiles()).sorted().toList()));
+		return condiciones;
+	}
+
+	/**
+	 * Compara la configuración fijada al compilar con la de ejecución.
+	 *
+	 * @param fijadas      Valores guardados al compilar.
+	 * @param environment  La configuración de ejecución.
+	 * @return Una descripción de cada diferencia; vacía si coinciden.
+	 */
+	public static List<String> diferencias(Properties fijadas, Environment environment)
+	{
+		Properties actuales = captura(environment);
+		List<String> diferencias = new ArrayList<String>();
+		for (String clave : actuales.stringPropertyNames().stream().sorted().toList())
+		{
+			String fijada = fijadas.getProperty(clave);
+			String actual = actuales.getProperty(clave);
+			if (!actual.equals(fijada))
+			{
+				diferencias.add(clave + " = " + actual + " (compilado con " + fijada + ")");
+			}
+		}
+		return diferencias;
+	}
+
+	/**
+	 * Lee el recurso generado al compilar.
+	 *
+	 * @return Los valores fijados, o null si la aplicación no se ha compilado con el perfil.
+	 */
+	public static Properties leeFijadas()
+	{
+		ClassPathResource recurso = new ClassPathResource(RUTA);
+		if (!recurso.exists())
+		{
+			return null;
+		}
+
+		Properties fijadas = new Properties();
+		try (InputStream entrada = recurso.getInputStream())
+		{
+			fijadas.load(entrada);
+		}
+		catch (IOException exception)
+		{
+			throw new IllegalStateException("No se puede leer " + RUTA, exception);
+		}
+		return fijadas;
+	}
+}
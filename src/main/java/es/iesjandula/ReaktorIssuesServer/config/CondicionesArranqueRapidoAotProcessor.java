@@ -0,0 +1,40 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.env.Environment;
+
+/**
+ * Guarda, durante el procesamiento AOT, la configuración con la que se han decidido los beans y una huella
+ * del esquema nueva en cada compilación. Se registra en {@code META-INF/spring/aot.factories} y no existe
+ * al ejecutar la aplicación.
+ */
+public class CondicionesArranqueRapidoAotProcessor implements BeanFactoryInitializationAotProcessor
+{
+	@Override
+	public BeanFactoryInitializationAotContribution processAheadOfTime(ConfigurableListableBeanFactory beanFactory)
+	{
+		Properties condiciones = CondicionesArranqueRapido.captura(beanFactory.getBean(Environment.class));
+		condiciones.setProperty(CondicionesArranqueRapido.HUELLA_ESQUEMA, UUID.randomUUID().toString());
+
+		StringWriter texto = new StringWriter();
+		try
+		{
+			condiciones.store(texto, "Configuracion fijada por process-aot");
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException(exception);
+		}
+
+		return (generationContext, beanFactoryInitializationCode) -> generationContext.getGeneratedFiles()
+				.addResourceFile(CondicionesArranqueRapido.RUTA, texto.toString());
+	}
+}
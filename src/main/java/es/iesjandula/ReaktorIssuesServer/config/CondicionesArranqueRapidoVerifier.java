@@ -0,0 +1,41 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.util.List;
+import java.util.Properties;
+
+import org.springframework.aot.AotDetector;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * Impide arrancar con el código AOT si la configuración que decide los beans no es la que se usó al
+ * compilarlo: por ejemplo, otro motor de almacenamiento, la réplica de lectura o los eventos JFR. Sin esta
+ * comprobación la aplicación arrancaría con los beans de la configuración compilada. Se registra en
+ * {@code META-INF/spring.factories}.
+ */
+public class CondicionesArranqueRapidoVerifier implements EnvironmentPostProcessor
+{
+	@Override
+	public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application)
+	{
+		if (!AotDetector.useGeneratedArtifacts())
+		{
+			return;
+		}
+
+		Properties fijadas = CondicionesArranqueRapido.leeFijadas();
+		if (fijadas == null)
+		{
+			return;
+		}
+
+		List<String> diferencias = CondicionesArranqueRapido.diferencias(fijadas, environment);
+		if (!diferencias.isEmpty())
+		{
+			throw new IllegalStateException("La configuracion no coincide con la usada al generar el codigo AOT "
+					+ "(perfil Maven arranque-rapido): " + String.join("; ", diferencias)
+					+ ". Vuelva a compilar con esa configuracion o arranque sin -Dspring.aot.enabled=true.");
+		}
+	}
+}
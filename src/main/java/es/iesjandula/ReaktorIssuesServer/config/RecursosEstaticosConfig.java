@@ -0,0 +1,71 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+/**
+ * Sirve los recursos estáticos versionados en la compilación (ver {@code ProcesaRecursosEstaticos} en
+ * {@code src/build/java}).
+ * <p>
+ * Las copias de {@code /recursos/**} llevan el resumen de su contenido en el nombre, así que no cambian
+ * nunca: se sirven con caché pública e inmutable de {@code reaktor.recursos.max-age}, y con su variante
+ * {@code .br} o {@code .gz} si el navegador la acepta ({@code Vary: Accept-Encoding}). El resto de
+ * {@code static/}, incluido el HTML que las referencia, se sirve con {@code Cache-Control: no-cache}, por
+ * lo que el navegador lo revalida con {@code Last-Modified} y recibe un 304 si no ha cambiado.
+ * </p>
+ * <p>
+ * Los manejadores se registran aquí porque {@code @EnableWebMvc} desactiva los recursos estáticos que
+ * configura Spring Boot. Su mapeo se consulta después del de los controladores.
+ * </p>
+ * <p>
+ * Si el paso de Maven no se ha ejecutado (arranque desde el IDE o con {@code -Drecursos.omitir=true}), el
+ * HTML referencia los originales y todo se sirve sin versionar ni precomprimir.
+ * </p>
+ */
+@Configuration
+public class RecursosEstaticosConfig implements WebMvcConfigurer
+{
+	/** Ruta de los recursos versionados. */
+	private static final String RUTA_RECURSOS = "/recursos/**";
+
+	/** Ubicación de los recursos versionados en el classpath. */
+	private static final String UBICACION_RECURSOS = "classpath:/static/recursos/";
+
+	/** Ruta del resto de recursos estáticos. */
+	private static final String RUTA_ESTATICOS = "/**";
+
+	/** Ubicación del resto de recursos estáticos en el classpath. */
+	private static final String UBICACION_ESTATICOS = "classpath:/static/";
+
+	/** Tiempo que el navegador conserva los recursos versionados. */
+	@Value("${reaktor.recursos.max-age:365d}")
+	private Duration maxAge;
+
+	/** Si se recuerda en memoria la resolución de cada ruta (desactivado por devtools en desarrollo). */
+	@Value("${spring.web.resources.chain.cache:true}")
+	private boolean cacheCadena;
+
+	/**
+	 * @param registry Registro de manejadores donde se añaden el de los recursos versionados y el del resto.
+	 */
+	@Override
+	public void addResourceHandlers(ResourceHandlerRegistry registry)
+	{
+		registry.addResourceHandler(RUTA_RECURSOS)
+				.addResourceLocations(UBICACION_RECURSOS)
+				.setCacheControl(CacheControl.maxAge(this.maxAge).cachePublic().immutable())
+				.resourceChain(this.cacheCadena)
+				.addResolver(new EncodedResourceResolver());
+
+		registry.addResourceHandler(RUTA_ESTATICOS)
+				.addResourceLocations(UBICACION_ESTATICOS)
+				.setCacheControl(CacheControl.noCache())
+				.resourceChain(this.cacheCadena);
+	}
+}
@@ -0,0 +1,14 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Habilita las tareas programadas ({@code @Scheduled}) de la aplicación, como el despacho de
+ * notificaciones.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig
+{
+}
@@ -0,0 +1,28 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+
+/**
+ * Configuración del arranque de la aplicación.
+ * <p>
+ * Con {@code spring.main.lazy-initialization: true} (perfil {@code arranque-rapido}) los beans se crean
+ * en su primer uso. El motor de almacenamiento se excluye porque es crítico: se prefiere que la conexión
+ * con la base de datos o la carga del almacén en memoria fallen o terminen antes de aceptar peticiones.
+ * </p>
+ */
+@Configuration
+public class StartupConfig
+{
+	/**
+	 * @return Filtro que mantiene la inicialización inmediata del motor de almacenamiento.
+	 */
+	@Bean
+	public static LazyInitializationExcludeFilter storageLazyInitializationExcludeFilter()
+	{
+		return LazyInitializationExcludeFilter.forBeanTypes(IIncidenciaStorage.class);
+	}
+}
@@ -0,0 +1,47 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+/**
+ * Guarda el correo del docente que realiza la petición en curso.
+ * <p>
+ * Se utiliza para garantizar que un docente lee sus propias escrituras aunque la réplica de lectura
+ * vaya con retraso respecto a la base de datos primaria.
+ * </p>
+ */
+public final class DocenteContext
+{
+	/** Correo del docente asociado al hilo actual. */
+	private static final ThreadLocal<String> CORREO_DOCENTE = new ThreadLocal<String>();
+
+	private DocenteContext()
+	{
+	}
+
+	/**
+	 * Asocia un docente al hilo actual.
+	 *
+	 * @param correoDocente El correo del docente. Si es nulo o vacío se ignora.
+	 */
+	public static void establece(String correoDocente)
+	{
+		if (correoDocente != null && !correoDocente.isBlank())
+		{
+			CORREO_DOCENTE.set(correoDocente);
+		}
+	}
+
+	/**
+	 * @return El correo del docente asociado al hilo actual o null.
+	 */
+	public static String obten()
+	{
+		return CORREO_DOCENTE.get();
+	}
+
+	/**
+	 * Elimina el docente asociado al hilo actual.
+	 */
+	public static void limpia()
+	{
+		CORREO_DOCENTE.remove();
+	}
+}
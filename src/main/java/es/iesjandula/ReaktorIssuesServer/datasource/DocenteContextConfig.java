@@ -0,0 +1,21 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registra el interceptor que identifica al docente de cada petición en {@link DocenteContext}.
+ */
+@Configuration
+public class DocenteContextConfig implements WebMvcConfigurer
+{
+	/**
+	 * @param registry Registro de interceptores donde se añade el que identifica al docente.
+	 */
+	@Override
+	public void addInterceptors(InterceptorRegistry registry)
+	{
+		registry.addInterceptor(new DocenteContextInterceptor());
+	}
+}
@@ -0,0 +1,30 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Interceptor que rellena {@link DocenteContext} con la cabecera {@code correo-docente} de cada petición
+ * y lo limpia al terminar.
+ */
+public class DocenteContextInterceptor implements HandlerInterceptor
+{
+	/** Cabecera con el correo del docente. */
+	public static final String CABECERA_CORREO_DOCENTE = "correo-docente";
+
+	@Override
+	public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+	{
+		DocenteContext.establece(request.getHeader(CABECERA_CORREO_DOCENTE));
+		return true;
+	}
+
+	@Override
+	public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+			Exception exception)
+	{
+		DocenteContext.limpia();
+	}
+}
@@ -0,0 +1,61 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Origen de datos que envía las transacciones de solo lectura a la réplica y el resto a la primaria.
+ * <p>
+ * Debe envolverse en un {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy} para
+ * que la conexión real se pida después de que el gestor de transacciones haya marcado la transacción
+ * como de solo lectura.
+ * </p>
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource
+{
+	/** Clave de la base de datos primaria. */
+	public static final String PRIMARIA = "primaria";
+
+	/** Clave de la réplica de lectura. */
+	public static final String REPLICA = "replica";
+
+	/** Registro de escrituras recientes por docente. */
+	private final ReplicaLagTracker replicaLagTracker;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param replicaLagTracker Registro de escrituras recientes por docente.
+	 */
+	public ReadWriteRoutingDataSource(ReplicaLagTracker replicaLagTracker)
+	{
+		this.replicaLagTracker = replicaLagTracker;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey()
+	{
+		String correoDocente = DocenteContext.obten();
+
+		if (TransactionSynchronizationManager.isCurrentTransactionReadOnly())
+		{
+			// Lectura: a la réplica salvo que el docente acabe de escribir.
+			return this.replicaLagTracker.requierePrimaria(correoDocente) ? PRIMARIA : REPLICA;
+		}
+
+		// Escritura: se anota el docente cuando la transacción se confirme.
+		if (correoDocente != null && TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void afterCommit()
+				{
+					replicaLagTracker.registraEscritura(correoDocente);
+				}
+			});
+		}
+		return PRIMARIA;
+	}
+}
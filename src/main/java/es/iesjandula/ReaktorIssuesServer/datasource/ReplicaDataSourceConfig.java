@@ -0,0 +1,114 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Configuración de la separación de lecturas y escrituras entre la base de datos primaria y una réplica.
+ * <p>
+ * Solo se activa con {@code reaktor.datasource.replica.enabled=true}. La primaria se configura con las
+ * propiedades habituales {@code spring.datasource.*} y la réplica con {@code reaktor.datasource.replica.*};
+ * cada una tiene su propio pool de conexiones Hikari. Las transacciones
+ * {@code @Transactional(readOnly = true)} (búsquedas, exportaciones, estadísticas) van a la réplica y el
+ * resto a la primaria.
+ * </p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "reaktor.datasource.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig
+{
+
+	/**
+	 * Pool de conexiones de la base de datos primaria.
+	 *
+	 * @param properties Propiedades {@code spring.datasource}.
+	 * @return El pool de la primaria.
+	 */
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource primariaDataSource(DataSourceProperties properties)
+	{
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("primaria");
+		return dataSource;
+	}
+
+	/**
+	 * Pool de conexiones de la réplica. Sus conexiones se marcan como de solo lectura.
+	 * <p>
+	 * Las propiedades de conexión se enlazan directamente para no registrar un segundo
+	 * {@link DataSourceProperties} que compita con el de la autoconfiguración.
+	 * </p>
+	 *
+	 * @param environment Entorno de la aplicación.
+	 * @return El pool de la réplica.
+	 */
+	@Bean
+	@ConfigurationProperties("reaktor.datasource.replica.hikari")
+	public HikariDataSource replicaDataSource(Environment environment)
+	{
+		DataSourceProperties properties = Binder.get(environment)
+				.bind("reaktor.datasource.replica", DataSourceProperties.class)
+				.orElseThrow(() -> new IllegalStateException("Falta la configuración reaktor.datasource.replica"));
+
+		HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		dataSource.setPoolName("replica");
+		dataSource.setReadOnly(true);
+		return dataSource;
+	}
+
+	/**
+	 * Registro de escrituras recientes por docente.
+	 *
+	 * @param tolerancia Retraso máximo esperado de la réplica.
+	 * @return El registro.
+	 */
+	@Bean
+	public ReplicaLagTracker replicaLagTracker(
+			@Value("${reaktor.datasource.replica.tolerancia-retraso:5s}") Duration tolerancia)
+	{
+		return new ReplicaLagTracker(tolerancia);
+	}
+
+	/**
+	 * Origen de datos principal de la aplicación: enruta cada conexión a la primaria o a la réplica.
+	 *
+	 * @param primaria          Pool de la primaria.
+	 * @param replica           Pool de la réplica.
+	 * @param replicaLagTracker Registro de escrituras recientes por docente.
+	 * @return El origen de datos enrutado.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(
+			@Qualifier("primariaDataSource") DataSource primaria,
+			@Qualifier("replicaDataSource") DataSource replica,
+			ReplicaLagTracker replicaLagTracker)
+	{
+		ReadWriteRoutingDataSource routing = new ReadWriteRoutingDataSource(replicaLagTracker);
+		routing.setTargetDataSources(Map.of(
+				ReadWriteRoutingDataSource.PRIMARIA, primaria,
+				ReadWriteRoutingDataSource.REPLICA, replica));
+		routing.setDefaultTargetDataSource(primaria);
+		routing.afterPropertiesSet();
+
+		// La conexión real se obtiene en la primera sentencia, cuando ya se sabe si la transacción es de solo lectura.
+		return new LazyConnectionDataSourceProxy(routing);
+	}
+}
@@ -0,0 +1,72 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registra cuándo escribió cada docente por última vez para decidir si sus lecturas pueden ir a la réplica.
+ * <p>
+ * Durante el periodo de tolerancia posterior a una escritura, las lecturas de ese mismo docente se envían
+ * a la primaria (read-your-writes). Pasado ese tiempo se asume que la réplica ya está al día.
+ * </p>
+ */
+public class ReplicaLagTracker
+{
+	/** Número de docentes a partir del cual se purgan las entradas caducadas. */
+	private static final int UMBRAL_PURGA = 10000;
+
+	/** Instante (ms) de la última escritura confirmada de cada docente. */
+	private final Map<String, Long> ultimaEscritura = new ConcurrentHashMap<String, Long>();
+
+	/** Tiempo durante el que las lecturas de un docente van a la primaria tras escribir. */
+	private final long toleranciaMilis;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param tolerancia Retraso máximo esperado de la réplica.
+	 */
+	public ReplicaLagTracker(Duration tolerancia)
+	{
+		this.toleranciaMilis = tolerancia.toMillis();
+	}
+
+	/**
+	 * Registra una escritura confirmada del docente.
+	 *
+	 * @param correoDocente El correo del docente. Si es nulo se ignora.
+	 */
+	public void registraEscritura(String correoDocente)
+	{
+		if (correoDocente == null || this.toleranciaMilis <= 0)
+		{
+			return;
+		}
+
+		long ahora = System.currentTimeMillis();
+		this.ultimaEscritura.put(correoDocente, ahora);
+
+		// Mantiene el mapa acotado eliminando los docentes cuya tolerancia ya ha pasado.
+		if (this.ultimaEscritura.size() > UMBRAL_PURGA)
+		{
+			this.ultimaEscritura.values().removeIf(instante -> ahora - instante >= this.toleranciaMilis);
+		}
+	}
+
+	/**
+	 * Indica si las lecturas del docente deben ir a la primaria.
+	 *
+	 * @param correoDocente El correo del docente. Puede ser nulo.
+	 * @return true si el docente ha escrito dentro del periodo de tolerancia.
+	 */
+	public boolean requierePrimaria(String correoDocente)
+	{
+		if (correoDocente == null)
+		{
+			return false;
+		}
+		Long instante = this.ultimaEscritura.get(correoDocente);
+		return instante != null && System.currentTimeMillis() - instante < this.toleranciaMilis;
+	}
+}
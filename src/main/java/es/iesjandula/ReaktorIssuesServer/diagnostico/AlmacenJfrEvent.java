@@ -0,0 +1,29 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Llamada al motor de almacenamiento de incidencias o a un repositorio de Spring Data. Las llamadas del
+ * motor {@code jpa} a sus repositorios aparecen anidadas dentro de la suya.
+ */
+@Name("es.iesjandula.reaktor.Almacen")
+@Label("Llamada al almacén")
+@Description("Operación del motor de almacenamiento o de un repositorio con su número de resultados")
+public class AlmacenJfrEvent extends IncidenciaJfrEvent
+{
+	@Label("Componente")
+	String componente;
+
+	@Label("Operación")
+	String operacion;
+
+	@Label("Resultados")
+	@Description("Elementos devueltos si la operación devuelve una colección, un mapa o un Optional; -1 en otro caso")
+	int resultados;
+
+	@Label("Error")
+	@Description("Clase de la excepción lanzada, si la hay")
+	String error;
+}
@@ -0,0 +1,54 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Obtención de una conexión de un pool de Hikari. Su duración es la espera hasta que el pool entrega una
+ * conexión libre o abre una nueva.
+ */
+@Name("es.iesjandula.reaktor.Conexion")
+@Label("Conexión del pool")
+@Description("Espera para obtener una conexión de un pool de Hikari")
+public class ConexionJfrEvent extends IncidenciaJfrEvent
+{
+	@Label("Pool")
+	String pool;
+
+	@Label("Error")
+	@Description("Clase de la excepción lanzada, si no se ha obtenido la conexión")
+	String error;
+
+	/**
+	 * @return Un evento iniciado.
+	 */
+	static ConexionJfrEvent inicia()
+	{
+		ConexionJfrEvent evento = new ConexionJfrEvent();
+		evento.begin();
+		return evento;
+	}
+
+	/**
+	 * Cierra el evento y lo registra con la incidencia de la llamada en curso, si la hay.
+	 *
+	 * @param pool  Nombre del pool.
+	 * @param error Excepción lanzada, o {@code null}.
+	 */
+	void termina(String pool, Throwable error)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.pool = pool;
+			this.error = error == null ? null : error.getClass().getName();
+			ControladorJfrEvent llamada = ControladorJfrEvent.actual();
+			if (llamada != null)
+			{
+				this.anota(llamada);
+			}
+			this.commit();
+		}
+	}
+}
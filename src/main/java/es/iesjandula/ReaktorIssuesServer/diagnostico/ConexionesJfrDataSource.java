@@ -0,0 +1,92 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Origen de datos que registra un {@link ConexionJfrEvent} por cada conexión que obtiene de su pool.
+ * <p>
+ * {@link ConexionesJfrPostProcessor} envuelve así los pools que son beans de Spring; los que se crean a
+ * mano, como los de los fragmentos del motor {@code fragmentado}, se envuelven al crearlos. El mismo
+ * envoltorio debe usarse en el {@code JdbcTemplate} y en el gestor de transacciones para que ambos
+ * compartan la conexión de la transacción.
+ * </p>
+ */
+public class ConexionesJfrDataSource extends DelegatingDataSource implements Closeable
+{
+	/** Nombre del pool en los eventos. */
+	private final String pool;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dataSource Pool de conexiones.
+	 * @param pool       Nombre del pool en los eventos.
+	 */
+	public ConexionesJfrDataSource(DataSource dataSource, String pool)
+	{
+		super(dataSource);
+		this.pool = pool;
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException
+	{
+		ConexionJfrEvent evento = ConexionJfrEvent.inicia();
+		Throwable error = null;
+		try
+		{
+			return this.obtainTargetDataSource().getConnection();
+		}
+		catch (SQLException | RuntimeException exception)
+		{
+			error = exception;
+			throw exception;
+		}
+		finally
+		{
+			evento.termina(this.pool, error);
+		}
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException
+	{
+		ConexionJfrEvent evento = ConexionJfrEvent.inicia();
+		Throwable error = null;
+		try
+		{
+			return this.obtainTargetDataSource().getConnection(username, password);
+		}
+		catch (SQLException | RuntimeException exception)
+		{
+			error = exception;
+			throw exception;
+		}
+		finally
+		{
+			evento.termina(this.pool, error);
+		}
+	}
+
+	/**
+	 * Cierra el pool envuelto, para que Spring lo cierre al parar la aplicación aunque el bean sea este
+	 * envoltorio.
+	 *
+	 * @throws IOException Si falla el cierre.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (this.obtainTargetDataSource() instanceof Closeable pool)
+		{
+			pool.close();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Envuelve cada pool de Hikari declarado como bean en un {@link ConexionesJfrDataSource} para registrar
+ * sus esperas de conexión.
+ * <p>
+ * Un envoltorio por delegación no añade un proxy CGLIB a la clase del pool, como haría un aspecto sobre
+ * {@code HikariDataSource.getConnection()}. Se aplica al terminar la inicialización, cuando ya se han
+ * enlazado las propiedades {@code spring.datasource.hikari}; el envoltorio cierra el pool al parar la
+ * aplicación, y las métricas de Spring Boot lo encuentran con {@code unwrap}.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "reaktor.diagnostico", name = "eventos-jfr", havingValue = "true", matchIfMissing = true)
+public class ConexionesJfrPostProcessor implements BeanPostProcessor
+{
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName)
+	{
+		if (!(bean instanceof HikariDataSource pool))
+		{
+			return bean;
+		}
+
+		// El nombre del pool se asigna al abrirlo si no se ha configurado; entonces se usa el del bean.
+		return new ConexionesJfrDataSource(pool, pool.getPoolName() != null ? pool.getPoolName() : beanName);
+	}
+}
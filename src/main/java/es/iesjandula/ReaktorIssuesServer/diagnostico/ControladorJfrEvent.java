@@ -0,0 +1,62 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Llamada a un método de un controlador REST, desde que Spring MVC la invoca hasta que devuelve la
+ * respuesta. Incluye las validaciones, las llamadas al almacén y las esperas de conexión que hace.
+ */
+@Name("es.iesjandula.reaktor.Controlador")
+@Label("Llamada a controlador")
+@Description("Llamada a un endpoint REST con su estado HTTP y la incidencia afectada")
+public class ControladorJfrEvent extends IncidenciaJfrEvent
+{
+	@Label("Controlador")
+	String controlador;
+
+	@Label("Método")
+	String metodo;
+
+	@Label("Estado HTTP")
+	int estado;
+
+	/** Llamada en curso en cada hilo mientras hay una grabación, para anotarle la incidencia que toca el almacén. */
+	private static final ThreadLocal<ControladorJfrEvent> ACTUAL = new ThreadLocal<ControladorJfrEvent>();
+
+	/**
+	 * @return La llamada en curso en este hilo, o {@code null}.
+	 */
+	static ControladorJfrEvent actual()
+	{
+		return ACTUAL.get();
+	}
+
+	/**
+	 * Marca este evento como la llamada en curso del hilo.
+	 *
+	 * @return La llamada que estaba en curso, para restaurarla con {@link #restaura(ControladorJfrEvent)}.
+	 */
+	ControladorJfrEvent establece()
+	{
+		ControladorJfrEvent anterior = ACTUAL.get();
+		ACTUAL.set(this);
+		return anterior;
+	}
+
+	/**
+	 * @param anterior Llamada que estaba en curso antes de esta, o {@code null}.
+	 */
+	static void restaura(ControladorJfrEvent anterior)
+	{
+		if (anterior == null)
+		{
+			ACTUAL.remove();
+		}
+		else
+		{
+			ACTUAL.set(anterior);
+		}
+	}
+}
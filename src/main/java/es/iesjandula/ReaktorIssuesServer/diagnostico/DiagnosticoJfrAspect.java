@@ -0,0 +1,177 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Emite los eventos de Java Flight Recorder de las llamadas a controladores, al almacén de incidencias y a
+ * los repositorios. Las esperas de conexión de los pools las registra {@link ConexionesJfrDataSource}.
+ * <p>
+ * Cada consejo crea el evento y, si no hay una grabación que lo recoja, sigue sin tocar sus campos: el
+ * coste sin grabación es una comprobación y, como mucho, un objeto que el compilador JIT suele eliminar.
+ * Con {@code reaktor.diagnostico.eventos-jfr: false} el aspecto no se registra y los beans no se envuelven.
+ * </p>
+ * <p>
+ * La incidencia de una llamada a controlador se toma de sus argumentos o, si no la indican, de la primera
+ * que aparece en las llamadas al almacén que hace, que también la anotan en las esperas de conexión.
+ * </p>
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(prefix = "reaktor.diagnostico", name = "eventos-jfr", havingValue = "true", matchIfMissing = true)
+public class DiagnosticoJfrAspect
+{
+	/** Nombre con el que aparece en los eventos cada clase de componente. */
+	private static final ClassValue<String> NOMBRES = new ClassValue<String>()
+	{
+		@Override
+		protected String computeValue(Class<?> clase)
+		{
+			// Los repositorios de Spring Data son proxies JDK: se muestra su interfaz.
+			if (Proxy.isProxyClass(clase))
+			{
+				for (Class<?> interfaz : clase.getInterfaces())
+				{
+					if (!interfaz.getName().startsWith("org.springframework."))
+					{
+						return interfaz.getSimpleName();
+					}
+				}
+			}
+			return ClassUtils.getUserClass(clase).getSimpleName();
+		}
+	};
+
+	/**
+	 * Registra una llamada a un controlador REST.
+	 *
+	 * @param punto La llamada.
+	 * @return El resultado de la llamada.
+	 * @throws Throwable La excepción de la llamada.
+	 */
+	@Around("@within(org.springframework.web.bind.annotation.RestController)")
+	public Object controlador(ProceedingJoinPoint punto) throws Throwable
+	{
+		ControladorJfrEvent evento = new ControladorJfrEvent();
+		if (!evento.isEnabled())
+		{
+			return punto.proceed();
+		}
+
+		for (Object argumento : punto.getArgs())
+		{
+			evento.anota(argumento);
+		}
+		ControladorJfrEvent anterior = evento.establece();
+		evento.begin();
+		try
+		{
+			Object resultado = punto.proceed();
+			evento.estado = resultado instanceof ResponseEntity<?> respuesta ? respuesta.getStatusCode().value() : 200;
+			return resultado;
+		}
+		catch (Throwable exception)
+		{
+			evento.estado = 500;
+			throw exception;
+		}
+		finally
+		{
+			evento.end();
+			ControladorJfrEvent.restaura(anterior);
+			if (evento.shouldCommit())
+			{
+				evento.controlador = NOMBRES.get(punto.getSignature().getDeclaringType());
+				evento.metodo = punto.getSignature().getName();
+				evento.commit();
+			}
+		}
+	}
+
+	/**
+	 * Registra una llamada al motor de almacenamiento o a un repositorio de Spring Data.
+	 *
+	 * @param punto La llamada.
+	 * @return El resultado de la llamada.
+	 * @throws Throwable La excepción de la llamada.
+	 */
+	@Around("target(es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage) "
+			+ "|| target(org.springframework.data.repository.Repository)")
+	public Object almacen(ProceedingJoinPoint punto) throws Throwable
+	{
+		AlmacenJfrEvent evento = new AlmacenJfrEvent();
+		ControladorJfrEvent llamada = ControladorJfrEvent.actual();
+		if (!evento.isEnabled() && llamada == null)
+		{
+			return punto.proceed();
+		}
+
+		Object resultado = null;
+		evento.begin();
+		try
+		{
+			resultado = punto.proceed();
+			return resultado;
+		}
+		catch (Throwable exception)
+		{
+			evento.error = exception.getClass().getName();
+			throw exception;
+		}
+		finally
+		{
+			evento.end();
+			boolean registrar = evento.shouldCommit();
+			if (registrar || (llamada != null && !llamada.incidenciaCompleta()))
+			{
+				for (Object argumento : punto.getArgs())
+				{
+					evento.anota(argumento);
+				}
+				evento.anota(resultado);
+				if (llamada != null)
+				{
+					llamada.anota(evento);
+				}
+			}
+			if (registrar)
+			{
+				evento.componente = NOMBRES.get(punto.getTarget().getClass());
+				evento.operacion = punto.getSignature().getName();
+				evento.resultados = resultados(resultado);
+				evento.commit();
+			}
+		}
+	}
+
+	/**
+	 * @param resultado Resultado de una operación.
+	 * @return Número de elementos que devuelve, o -1 si no es una colección, un mapa ni un {@link Optional}.
+	 */
+	private static int resultados(Object resultado)
+	{
+		if (resultado instanceof Collection<?> coleccion)
+		{
+			return coleccion.size();
+		}
+		if (resultado instanceof Map<?, ?> mapa)
+		{
+			return mapa.size();
+		}
+		if (resultado instanceof Optional<?> opcional)
+		{
+			return opcional.isPresent() ? 1 : 0;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,308 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.dto.GrabacionDTO;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gestiona una única grabación continua de Java Flight Recorder que se inicia, descarga y detiene bajo
+ * demanda desde {@code /admin/diagnostico/grabacion}.
+ * <p>
+ * La grabación usa la configuración {@code reaktor.diagnostico.configuracion} de la JVM más los eventos de
+ * {@code es.iesjandula.reaktor.*}, y está acotada: solo conserva la última {@code ventana} y como mucho
+ * {@code tamano-maximo} en disco, y se detiene sola pasada {@code duracion-maxima} para que una
+ * grabación olvidada no siga indefinidamente. Los datos siguen disponibles hasta que se detiene con
+ * {@link #detiene()} o se inicia otra.
+ * </p>
+ * <p>
+ * No se registran las variables de entorno, las propiedades del sistema ni los argumentos de la JVM,
+ * que pueden contener las contraseñas de la base de datos.
+ * </p>
+ */
+@Slf4j
+@Service
+public class GrabacionJfrService
+{
+	/** Eventos de JFR que se desactivan porque pueden contener credenciales. */
+	private static final List<String> EVENTOS_SENSIBLES = List.of("jdk.InitialEnvironmentVariable",
+			"jdk.InitialSystemProperty", "jdk.JVMInformation");
+
+	/** Eventos propios de la aplicación. */
+	private static final List<Class<? extends IncidenciaJfrEvent>> EVENTOS = List.of(ControladorJfrEvent.class,
+			ValidacionJfrEvent.class, AlmacenJfrEvent.class, ConexionJfrEvent.class);
+
+	/** Formato de la fecha en el nombre de los volcados. */
+	private static final DateTimeFormatter FORMATO_FICHERO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+	/** Nombre de la configuración de JFR de la JVM. */
+	private final String configuracion;
+
+	/** Historia máxima que puede conservar una grabación. */
+	private final Duration ventanaMaxima;
+
+	/** Tamaño máximo en disco de una grabación. */
+	private final DataSize tamanoMaximo;
+
+	/** Tiempo máximo que puede durar una grabación. */
+	private final Duration duracionMaxima;
+
+	/** Directorio de los volcados. */
+	private final Path directorio;
+
+	/** Grabación actual, o {@code null}. */
+	private Recording grabacion;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param configuracion  Nombre de la configuración de JFR de la JVM.
+	 * @param ventanaMaxima  Historia máxima que puede conservar una grabación.
+	 * @param tamanoMaximo   Tamaño máximo en disco de una grabación.
+	 * @param duracionMaxima Tiempo máximo que puede durar una grabación.
+	 * @param directorio     Directorio de los volcados.
+	 */
+	public GrabacionJfrService(@Value("${reaktor.diagnostico.configuracion:default}") String configuracion,
+			@Value("${reaktor.diagnostico.ventana-maxima:15m}") Duration ventanaMaxima,
+			@Value("${reaktor.diagnostico.tamano-maximo:100MB}") DataSize tamanoMaximo,
+			@Value("${reaktor.diagnostico.duracion-maxima:1h}") Duration duracionMaxima,
+			@Value("${reaktor.diagnostico.directorio:${java.io.tmpdir}/reaktor-diagnostico}") String directorio)
+	{
+		this.configuracion = configuracion;
+		this.ventanaMaxima = ventanaMaxima;
+		this.tamanoMaximo = tamanoMaximo;
+		this.duracionMaxima = duracionMaxima;
+		this.directorio = Paths.get(directorio);
+	}
+
+	/**
+	 * Inicia una grabación continua. Una grabación anterior ya detenida se descarta.
+	 *
+	 * Los límites se indican como en la configuración de Spring Boot ({@code 10m}, {@code 50MB}) o en
+	 * ISO-8601 ({@code PT10M}).
+	 *
+	 * @param textoVentana  Historia que conserva, o {@code null} para la máxima.
+	 * @param textoTamano   Tamaño máximo en disco, o {@code null} para el máximo.
+	 * @param textoDuracion Tiempo tras el que se detiene sola, o {@code null} para el máximo.
+	 * @return El estado de la grabación.
+	 * @throws IssuesServerError Si ya hay una grabación en curso o algún límite no es válido o supera el
+	 *                           configurado.
+	 * @throws IOException       Si no se puede leer la configuración de JFR.
+	 */
+	public synchronized GrabacionDTO inicia(String textoVentana, String textoTamano, String textoDuracion)
+			throws IssuesServerError, IOException
+	{
+		if (this.grabacion != null && this.grabacion.getState() == RecordingState.RUNNING)
+		{
+			String errorString = "Ya hay una grabación en curso desde " + this.grabacion.getStartTime() + ".";
+
+			log.error(errorString) ;
+			throw new IssuesServerError(20, errorString) ;
+		}
+
+		Duration ventana = this.limita("ventana", textoVentana, this.ventanaMaxima);
+		Duration duracion = this.limita("duracion", textoDuracion, this.duracionMaxima);
+		DataSize tamano = this.tamanoMaximo;
+		if (textoTamano != null && !textoTamano.isBlank())
+		{
+			tamano = this.convierte("tamanoMaximo", textoTamano, () -> DataSize.parse(textoTamano.trim()));
+		}
+		if (tamano.toBytes() <= 0 || tamano.compareTo(this.tamanoMaximo) > 0)
+		{
+			String errorString = "El tamaño debe estar entre 1B y " + this.tamanoMaximo + ".";
+
+			log.error(errorString) ;
+			throw new IssuesServerError(22, errorString) ;
+		}
+
+		Recording nueva;
+		try
+		{
+			nueva = new Recording(Configuration.getConfiguration(this.configuracion));
+		}
+		catch (ParseException exception)
+		{
+			throw new IOException("Configuración de JFR no válida: " + this.configuracion, exception);
+		}
+		nueva.setName("reaktor");
+		nueva.setToDisk(true);
+		nueva.setMaxAge(ventana);
+		nueva.setMaxSize(tamano.toBytes());
+		nueva.setDuration(duracion);
+		for (String evento : EVENTOS_SENSIBLES)
+		{
+			nueva.disable(evento);
+		}
+		for (Class<? extends IncidenciaJfrEvent> evento : EVENTOS)
+		{
+			FlightRecorder.register(evento);
+			nueva.enable(evento).withoutStackTrace();
+		}
+
+		this.descarta();
+		nueva.start();
+		this.grabacion = nueva;
+		log.info("INFO: Grabacion JFR {} iniciada (ventana {}, tamaño maximo {}, se detiene en {}).", nueva.getId(),
+				ventana, tamano, duracion);
+		return this.estado();
+	}
+
+	/**
+	 * @return El estado de la grabación actual.
+	 * @throws IssuesServerError Si no hay ninguna.
+	 */
+	public synchronized GrabacionDTO estado() throws IssuesServerError
+	{
+		Recording actual = this.actual();
+		Date inicio = actual.getStartTime() == null ? null : Date.from(actual.getStartTime());
+		Date fin = inicio == null || actual.getDuration() == null ? null
+				: Date.from(actual.getStartTime().plus(actual.getDuration()));
+		return new GrabacionDTO(actual.getId(), actual.getState().name(), inicio, fin,
+				String.valueOf(actual.getMaxAge()), actual.getMaxSize(), actual.getSize());
+	}
+
+	/**
+	 * Vuelca a un fichero lo grabado hasta ahora sin detener la grabación.
+	 *
+	 * @return El fichero, que el llamante debe borrar.
+	 * @throws IssuesServerError Si no hay grabación.
+	 * @throws IOException       Si falla la escritura.
+	 */
+	public synchronized Path vuelca() throws IssuesServerError, IOException
+	{
+		Recording actual = this.actual();
+		Path fichero = this.fichero();
+		actual.dump(fichero);
+		return fichero;
+	}
+
+	/**
+	 * Detiene la grabación, la vuelca a un fichero y la descarta.
+	 *
+	 * @return El fichero, que el llamante debe borrar.
+	 * @throws IssuesServerError Si no hay grabación.
+	 * @throws IOException       Si falla la escritura.
+	 */
+	public synchronized Path detiene() throws IssuesServerError, IOException
+	{
+		Recording actual = this.actual();
+		if (actual.getState() == RecordingState.RUNNING)
+		{
+			actual.stop();
+		}
+		Path fichero = this.fichero();
+		actual.dump(fichero);
+		this.descarta();
+		log.info("INFO: Grabacion JFR {} detenida ({} bytes).", actual.getId(), Files.size(fichero));
+		return fichero;
+	}
+
+	/**
+	 * Cierra la grabación al parar la aplicación.
+	 */
+	@PreDestroy
+	public synchronized void descarta()
+	{
+		if (this.grabacion != null)
+		{
+			this.grabacion.close();
+			this.grabacion = null;
+		}
+	}
+
+	/**
+	 * @return La grabación actual.
+	 * @throws IssuesServerError Si no hay ninguna.
+	 */
+	private Recording actual() throws IssuesServerError
+	{
+		if (this.grabacion == null)
+		{
+			String errorString = "No hay ninguna grabación." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(21, errorString) ;
+		}
+		return this.grabacion;
+	}
+
+	/**
+	 * @return Un fichero nuevo en el directorio de volcados.
+	 * @throws IOException Si no se puede crear el directorio.
+	 */
+	private Path fichero() throws IOException
+	{
+		Files.createDirectories(this.directorio);
+		return Files.createTempFile(this.directorio, "reaktor-" + LocalDateTime.now().format(FORMATO_FICHERO) + "-",
+				".jfr");
+	}
+
+	/**
+	 * @param nombre Nombre del parámetro.
+	 * @param texto  Valor pedido, o {@code null}.
+	 * @param maximo Valor máximo configurado.
+	 * @return El valor pedido, o el máximo si no se ha indicado.
+	 * @throws IssuesServerError Si el valor no es una duración, no es positivo o supera el máximo.
+	 */
+	private Duration limita(String nombre, String texto, Duration maximo) throws IssuesServerError
+	{
+		if (texto == null || texto.isBlank())
+		{
+			return maximo;
+		}
+
+		Duration valor = this.convierte(nombre, texto, () -> DurationStyle.detectAndParse(texto.trim()));
+		if (valor.isNegative() || valor.isZero() || valor.compareTo(maximo) > 0)
+		{
+			String errorString = "El parámetro " + nombre + " debe estar entre 1s y " + maximo + ".";
+
+			log.error(errorString) ;
+			throw new IssuesServerError(22, errorString) ;
+		}
+		return valor;
+	}
+
+	/**
+	 * @param <T>        Tipo del valor.
+	 * @param nombre     Nombre del parámetro.
+	 * @param texto      Valor pedido.
+	 * @param conversion Conversión del texto.
+	 * @return El valor convertido.
+	 * @throws IssuesServerError Si el texto no tiene el formato esperado.
+	 */
+	private <T> T convierte(String nombre, String texto, Supplier<T> conversion) throws IssuesServerError
+	{
+		try
+		{
+			return conversion.get();
+		}
+		catch (IllegalArgumentException exception)
+		{
+			String errorString = "El parámetro " + nombre + " no tiene un formato válido: " + texto ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(22, errorString) ;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.Optional;
+
+import es.iesjandula.ReaktorIssuesServer.dto.CrearIncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timestamp;
+
+/**
+ * Base de los eventos de Java Flight Recorder de la aplicación. Además de la duración, que JFR mide entre
+ * {@code begin()} y {@code end()}, identifica la incidencia afectada por su identificador y su clave
+ * natural ({@link IncidenciaEntityId}) cuando se conocen.
+ * <p>
+ * Los eventos no guardan la pila de llamadas para que cada uno cueste solo unos bytes en el búfer de JFR.
+ * Mientras no hay una grabación activa, {@code isEnabled()} y {@code shouldCommit()} devuelven
+ * {@code false} y los campos no llegan a rellenarse.
+ * </p>
+ */
+@Category("Reaktor")
+@StackTrace(false)
+public abstract class IncidenciaJfrEvent extends Event
+{
+	@Label("Identificador de la incidencia")
+	long incidenciaId;
+
+	@Label("Número de aula")
+	String numeroAula;
+
+	@Label("Correo del docente")
+	String correoDocente;
+
+	@Label("Fecha de la incidencia")
+	@Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+	long fechaIncidencia;
+
+	/**
+	 * @return Si el evento ya tiene el identificador y la clave natural de la incidencia.
+	 */
+	boolean incidenciaCompleta()
+	{
+		return this.incidenciaId != 0 && this.numeroAula != null && this.fechaIncidencia != 0;
+	}
+
+	/**
+	 * Identifica la incidencia a partir de un argumento o resultado que la contenga, si aún no se conoce.
+	 * Acepta entidades, claves naturales, DTO y {@link Optional} o colecciones de un solo elemento.
+	 *
+	 * @param valor El argumento o resultado.
+	 */
+	void anota(Object valor)
+	{
+		if (valor instanceof Optional<?> opcional)
+		{
+			valor = opcional.orElse(null);
+		}
+		else if (valor instanceof Collection<?> coleccion && coleccion.size() == 1)
+		{
+			valor = coleccion.iterator().next();
+		}
+
+		if (valor instanceof IncidenciaEntity incidencia)
+		{
+			this.anota(incidencia.getId(), incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+					incidencia.getFechaIncidencia());
+		}
+		else if (valor instanceof IncidenciaEntityId clave)
+		{
+			this.anota(null, clave.getNumeroAula(), clave.getCorreoDocente(), clave.getFechaIncidencia());
+		}
+		else if (valor instanceof IncidenciaDTO dto)
+		{
+			this.anota(dto.getId(), dto.getNumeroAula(), dto.getCorreoDocente(), dto.getFechaIncidencia());
+		}
+		else if (valor instanceof CrearIncidenciaDTO dto)
+		{
+			this.anota(null, dto.getNumeroAula(), dto.getCorreoDocente(), dto.getFechaIncidencia());
+		}
+	}
+
+	/**
+	 * Completa los datos de la incidencia con los de otro evento sobre la misma, por ejemplo el
+	 * identificador y la fecha que asigna el almacén al crearla.
+	 *
+	 * @param otro El otro evento.
+	 */
+	void anota(IncidenciaJfrEvent otro)
+	{
+		if (otro.numeroAula == null || this.numeroAula == null || this.numeroAula.equals(otro.numeroAula))
+		{
+			this.anota(otro.incidenciaId == 0 ? null : otro.incidenciaId, otro.numeroAula, otro.correoDocente,
+					otro.fechaIncidencia == 0 ? null : new Date(otro.fechaIncidencia));
+		}
+	}
+
+	/**
+	 * Rellena los datos de la incidencia que aún no se conocen.
+	 *
+	 * @param id              Identificador, o {@code null}.
+	 * @param numeroAula      Número de aula, o {@code null}.
+	 * @param correoDocente   Correo del docente, o {@code null}.
+	 * @param fechaIncidencia Fecha de la incidencia, o {@code null}.
+	 */
+	private void anota(Long id, String numeroAula, String correoDocente, Date fechaIncidencia)
+	{
+		if (this.incidenciaId == 0 && id != null)
+		{
+			this.incidenciaId = id;
+		}
+		if (this.numeroAula == null)
+		{
+			this.numeroAula = numeroAula;
+		}
+		if (this.correoDocente == null)
+		{
+			this.correoDocente = correoDocente;
+		}
+		if (this.fechaIncidencia == 0 && fechaIncidencia != null)
+		{
+			this.fechaIncidencia = fechaIncidencia.getTime();
+		}
+	}
+}
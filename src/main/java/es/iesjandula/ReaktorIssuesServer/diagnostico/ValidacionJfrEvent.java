@@ -0,0 +1,108 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Paso de validación de los datos recibidos: las comprobaciones de un DTO en un controlador o la
+ * validación de un lote de la importación masiva.
+ */
+@Name("es.iesjandula.reaktor.Validacion")
+@Label("Validación")
+@Description("Validación de un DTO o de un lote de importación con sus registros rechazados")
+public class ValidacionJfrEvent extends IncidenciaJfrEvent
+{
+	@Label("Paso")
+	String paso;
+
+	@Label("Registros")
+	int registros;
+
+	@Label("Rechazados")
+	int rechazados;
+
+	@Label("Error")
+	@Description("Identificador del IssuesServerError lanzado, o -1 si la validación es correcta")
+	int error = -1;
+
+	/**
+	 * Comprobaciones de un paso de validación.
+	 */
+	@FunctionalInterface
+	public interface Comprobacion
+	{
+		/**
+		 * @throws IssuesServerError Si los datos no son válidos.
+		 */
+		void comprueba() throws IssuesServerError;
+	}
+
+	/**
+	 * Ejecuta las comprobaciones de un registro y las registra como un paso de validación.
+	 *
+	 * @param paso         Nombre del paso.
+	 * @param datos        Datos validados, de los que se toma la incidencia.
+	 * @param comprobacion Las comprobaciones.
+	 * @throws IssuesServerError Si los datos no son válidos.
+	 */
+	public static void valida(String paso, Object datos, Comprobacion comprobacion) throws IssuesServerError
+	{
+		ValidacionJfrEvent evento = new ValidacionJfrEvent();
+		evento.begin();
+		try
+		{
+			comprobacion.comprueba();
+		}
+		catch (IssuesServerError exception)
+		{
+			evento.error = exception.getId();
+			evento.rechazados = 1;
+			throw exception;
+		}
+		finally
+		{
+			evento.end();
+			if (evento.shouldCommit())
+			{
+				evento.paso = paso;
+				evento.registros = 1;
+				evento.anota(datos);
+				evento.commit();
+			}
+		}
+	}
+
+	/**
+	 * Inicia el registro de un paso de validación de varios registros, que se cierra con
+	 * {@link #termina(int, int)}.
+	 *
+	 * @param paso Nombre del paso.
+	 * @return El evento iniciado.
+	 */
+	public static ValidacionJfrEvent inicia(String paso)
+	{
+		ValidacionJfrEvent evento = new ValidacionJfrEvent();
+		evento.paso = paso;
+		evento.begin();
+		return evento;
+	}
+
+	/**
+	 * Cierra el paso de validación.
+	 *
+	 * @param registros  Registros validados.
+	 * @param rechazados Registros rechazados.
+	 */
+	public void termina(int registros, int rechazados)
+	{
+		this.end();
+		if (this.shouldCommit())
+		{
+			this.registros = registros;
+			this.rechazados = rechazados;
+			this.commit();
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa los metadatos de un adjunto de una incidencia.
+ * 
+ * <p>
+ * El contenido se descarga aparte desde la ruta del adjunto; la miniatura,
+ * desde la misma ruta terminada en {@code /miniatura}.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AdjuntoDTO
+{
+	/**
+	 * Atributo - Identificador del adjunto.
+	 */
+	@JsonFormat(shape = JsonFormat.Shape.STRING)
+	private Long id;
+
+	/**
+	 * Atributo - Identificador de la incidencia.
+	 */
+	@JsonFormat(shape = JsonFormat.Shape.STRING)
+	private Long incidenciaId;
+
+	/**
+	 * Atributo - Nombre original del fichero.
+	 */
+	private String nombreFichero;
+
+	/**
+	 * Atributo - Tipo de contenido.
+	 */
+	private String tipoContenido;
+
+	/**
+	 * Atributo - Tamaño en bytes.
+	 */
+	private long tamano;
+
+	/**
+	 * Atributo - Hash SHA-256 del contenido.
+	 */
+	private String hash;
+
+	/**
+	 * Atributo - Fecha de subida.
+	 */
+	private Date fechaSubida;
+}
@@ -0,0 +1,51 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el estado de la grabación de Java Flight Recorder.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GrabacionDTO
+{
+	/**
+	 * Atributo - Identificador de la grabación en la JVM.
+	 */
+	private long id;
+
+	/**
+	 * Atributo - Estado de la grabación (RUNNING o STOPPED).
+	 */
+	private String estado;
+
+	/**
+	 * Atributo - Momento de inicio.
+	 */
+	private Date inicio;
+
+	/**
+	 * Atributo - Momento en que se detiene sola.
+	 */
+	private Date fin;
+
+	/**
+	 * Atributo - Historia máxima que conserva, en formato ISO-8601 (p. ej. PT15M).
+	 */
+	private String ventana;
+
+	/**
+	 * Atributo - Tamaño máximo en disco en bytes.
+	 */
+	private long tamanoMaximo;
+
+	/**
+	 * Atributo - Tamaño actual en disco en bytes.
+	 */
+	private long tamano;
+}
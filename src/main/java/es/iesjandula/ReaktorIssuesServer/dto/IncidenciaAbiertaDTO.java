@@ -0,0 +1,59 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Date;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una incidencia abierta en el tablero en memoria.
+ * 
+ * <p>
+ * Solo contiene los campos que se muestran en el tablero y un resumen de la
+ * descripción, para que el tamaño de cada entrada esté acotado.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IncidenciaAbiertaDTO
+{
+	/**
+	 * Atributo - Identificador de la incidencia.
+	 */
+	@JsonFormat(shape = JsonFormat.Shape.STRING)
+	private Long id;
+
+	/**
+	 * Atributo - Aula en la que se da la incidencia.
+	 */
+	private String numeroAula;
+
+	/**
+	 * Atributo - Correo del docente que informa de la incidencia.
+	 */
+	private String correoDocente;
+
+	/**
+	 * Atributo - Fecha de creación de la señalación.
+	 */
+	private Date fechaIncidencia;
+
+	/**
+	 * Atributo - Estado de la incidencia ("PENDIENTE" o "EN PROGRESO").
+	 */
+	private String estadoIncidencia;
+
+	/**
+	 * Atributo - Primeros caracteres de la descripción de la incidencia.
+	 */
+	private String resumenDescripcion;
+
+	/**
+	 * Atributo - Momento en que la incidencia pasó a su estado actual.
+	 */
+	private Date fechaEstado;
+}
@@ -24,6 +24,13 @@ import lombok.NoArgsConstructor;
 @NoArgsConstructor
 public class IncidenciaDTO 
 {
+	/**
+	 * Atribtuo - Identificador sustituto de la incidencia. Nulo al crear una incidencia nueva.
+	 * Se serializa como texto porque supera la precisión de los números de JavaScript.
+	 */
+	@JsonFormat(shape = JsonFormat.Shape.STRING)
+	private Long id;
+
 	/**
 	 * Atribtuo - Aula en la que se da la incidencia.
 	 */
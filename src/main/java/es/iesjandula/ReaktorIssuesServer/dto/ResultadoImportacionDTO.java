@@ -0,0 +1,49 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el resultado de una importación masiva de incidencias desde CSV.
+ * 
+ * <p>
+ * Si se ha rechazado alguna línea, {@code informeErrores} contiene la ruta desde
+ * la que se puede descargar el informe con las líneas rechazadas y el motivo.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResultadoImportacionDTO
+{
+	/**
+	 * Atributo - Identificador de la importación.
+	 */
+	private String idImportacion;
+
+	/**
+	 * Atributo - Número de registros de datos leídos (sin cabecera ni líneas vacías).
+	 */
+	private long leidas;
+
+	/**
+	 * Atributo - Número de incidencias insertadas.
+	 */
+	private long insertadas;
+
+	/**
+	 * Atributo - Número de registros rechazados.
+	 */
+	private long rechazadas;
+
+	/**
+	 * Atributo - Duración de la importación en milisegundos.
+	 */
+	private long milisegundos;
+
+	/**
+	 * Atributo - Ruta de descarga del informe de errores, o null si no hay rechazos.
+	 */
+	private String informeErrores;
+}
@@ -0,0 +1,57 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa las incidencias creadas en un periodo, por aula o en
+ * total, obtenidas de los resúmenes diarios.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ResumenPeriodoDTO
+{
+	/**
+	 * Atributo - Periodo ("2024-03-15", "2024-03" o "2024" según la agrupación).
+	 */
+	private String periodo;
+
+	/**
+	 * Atributo - Aula; nulo si el resumen es de todas las aulas.
+	 */
+	private String numeroAula;
+
+	/**
+	 * Atributo - Número de incidencias creadas en el periodo.
+	 */
+	private long incidencias;
+
+	/**
+	 * Atributo - Número de incidencias por estado actual.
+	 */
+	private Map<String, Long> porEstado;
+
+	/**
+	 * Atributo - Incidencias resueltas de las que se conoce el tiempo de resolución.
+	 */
+	private long resueltasConTiempo;
+
+	/**
+	 * Atributo - Mediana del tiempo de resolución en horas; nulo si no hay datos.
+	 */
+	private Double horasResolucionP50;
+
+	/**
+	 * Atributo - Percentil 90 del tiempo de resolución en horas; nulo si no hay datos.
+	 */
+	private Double horasResolucionP90;
+
+	/**
+	 * Atributo - Percentil 99 del tiempo de resolución en horas; nulo si no hay datos.
+	 */
+	private Double horasResolucionP99;
+}
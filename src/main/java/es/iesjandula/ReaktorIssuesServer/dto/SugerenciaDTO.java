@@ -0,0 +1,24 @@
+package es.iesjandula.ReaktorIssuesServer.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una sugerencia de autocompletado.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SugerenciaDTO
+{
+	/**
+	 * Atributo - Valor sugerido (número de aula o correo del docente).
+	 */
+	private String valor;
+
+	/**
+	 * Atributo - Número de incidencias con ese valor.
+	 */
+	private long incidencias;
+}
@@ -0,0 +1,76 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa un fichero adjunto (foto) de una incidencia.
+ * 
+ * <p>
+ * Solo guarda los metadatos: el contenido se almacena una única vez por hash
+ * SHA-256 en el almacén direccionado por contenido, de modo que varias filas
+ * pueden compartir el mismo fichero. La incidencia se referencia por su
+ * identificador y {@link IncidenciaEntity} no mapea la relación, para que los
+ * listados de incidencias nunca carguen adjuntos.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "adjuntos", indexes = {
+		@Index(name = "idx_adjuntos_incidencia", columnList = "incidencia_id"),
+		@Index(name = "idx_adjuntos_hash", columnList = "hash") })
+public class AdjuntoEntity
+{
+	/**
+	 * Atributo - Identificador del adjunto.
+	 */
+	@Id
+	@TsidId
+	private Long id;
+
+	/**
+	 * Atributo - Identificador de la incidencia a la que pertenece.
+	 */
+	@Column(nullable = false)
+	private Long incidenciaId;
+
+	/**
+	 * Atributo - Hash SHA-256 del contenido en hexadecimal; es la clave en el almacén de contenido.
+	 */
+	@Column(nullable = false, length = 64)
+	private String hash;
+
+	/**
+	 * Atributo - Nombre original del fichero subido.
+	 */
+	@Column(nullable = false)
+	private String nombreFichero;
+
+	/**
+	 * Atributo - Tipo de contenido detectado a partir de los primeros bytes.
+	 */
+	@Column(nullable = false, length = 50)
+	private String tipoContenido;
+
+	/**
+	 * Atributo - Tamaño del contenido en bytes.
+	 */
+	@Column(nullable = false)
+	private long tamano;
+
+	/**
+	 * Atributo - Fecha de subida.
+	 */
+	@Column(nullable = false)
+	private Date fechaSubida;
+}
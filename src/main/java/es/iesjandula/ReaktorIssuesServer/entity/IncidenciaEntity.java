@@ -5,8 +5,9 @@ import java.util.Date;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
-import jakarta.persistence.IdClass;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -17,43 +18,62 @@ import lombok.NoArgsConstructor;
  * 
  * <p>
  * Esta clase define el objeto de incidencia que se almacena en la base de datos. 
- * Utiliza un identificador compuesto definido por {@link IncidenciaEntityId} que 
- * incluye el número de aula, el correo del docente y la fecha de la incidencia.
+ * Utiliza como clave primaria un identificador sustituto de 64 bits ordenado en el
+ * tiempo, generado por la aplicación. La clave natural definida por 
+ * {@link IncidenciaEntityId} (número de aula, correo del docente y fecha de la 
+ * incidencia) se mantiene como restricción única.
  * </p>
  */
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "incidencias")
-@IdClass(IncidenciaEntityId.class)
+@Table(name = "incidencias", uniqueConstraints = @UniqueConstraint(
+		name = IncidenciaEntity.UK_CLAVE_NATURAL, 
+		columnNames = { "numero_aula", "correo_docente", "fecha_incidencia" }),
+		indexes = {
+				@Index(name = "idx_incidencias_estado_fecha", columnList = "estado_incidencia, fecha_incidencia"),
+				@Index(name = "idx_incidencias_fecha", columnList = "fecha_incidencia") })
 public class IncidenciaEntity 
 {
 
+	/**
+	 * Nombre de la restricción única sobre la clave natural.
+	 */
+	public static final String UK_CLAVE_NATURAL = "uk_incidencias_clave_natural";
+
+    /**
+     * Atributo - Identificador sustituto de la incidencia.
+     * 
+     * Se genera en memoria con {@link es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator}
+     * al insertar la incidencia.
+     */
+	@Id
+	@TsidId
+	private Long id;
 	
     /**
      * Atributo - Aula en la que se da la incidencia.
      * 
-     * Este atributo es parte del identificador compuesto de la incidencia.
+     * Este atributo es parte de la clave natural de la incidencia.
      */
-	@Id
+	@Column(nullable = false)
 	private String numeroAula;
 
     /**
      * Atributo - Correo del docente que informa de la incidencia.
      * 
-     * Este atributo es parte del identificador compuesto de la incidencia.
+     * Este atributo es parte de la clave natural de la incidencia.
      */
-	@Id
-	@Column()
+	@Column(nullable = false)
 	private String correoDocente;
 
     /**
      * Atributo - Fecha de creación de la señalación.
      * 
-     * Este atributo es parte del identificador compuesto de la incidencia.
+     * Este atributo es parte de la clave natural de la incidencia.
      */
-	@Id
+	@Column(nullable = false)
 	private Date fechaIncidencia;
 	
     /**
@@ -82,6 +102,16 @@ public class IncidenciaEntity
 	@Column(columnDefinition = "TEXT")
 	private String comentario;
 	
+    /**
+     * Atributo - Momento en que la incidencia pasó a su estado actual.
+     * 
+     * Lo asigna el motor de almacenamiento al guardar: la fecha de la incidencia
+     * al crearla y el momento del cambio cada vez que cambia de estado. Es nulo
+     * en las incidencias guardadas antes de existir este atributo, para las que
+     * se usa la fecha de la incidencia.
+     */
+	private Date fechaEstado;
+	
 	
 
 }
@@ -8,13 +8,14 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 /**
- * Clase que representa un identificador compuesto para la entidad {@link IncidenciaEntity}.
+ * Clase que representa la clave natural de la entidad {@link IncidenciaEntity}.
  * 
  * <p>
  * Esta clase implementa la interfaz {@link Serializable} y se utiliza para definir un 
  * identificador único que consiste en múltiples atributos: número de aula, correo del 
- * docente y fecha de la incidencia. Es utilizada para garantizar la unicidad de las 
- * incidencias en la base de datos.
+ * docente y fecha de la incidencia. En la base de datos se garantiza su unicidad con una
+ * restricción única, mientras que la clave primaria es el identificador sustituto
+ * {@link IncidenciaEntity#getId()}.
  * </p>
  * 
  * <p>
@@ -0,0 +1,117 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa una notificación pendiente de entregar (patrón outbox).
+ * 
+ * <p>
+ * Se inserta en la misma transacción que el cambio de la incidencia, una fila
+ * por destinatario, y la borra el despachador cuando se ha entregado. Si la
+ * entrega falla se reprograma con espera exponencial; al agotar los intentos
+ * queda marcada como fallida para su revisión.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "notificaciones_outbox", indexes = {
+		@Index(name = "idx_outbox_pendientes", columnList = "fallida, proximo_intento") })
+public class NotificacionOutboxEntity
+{
+	/**
+	 * Atributo - Identificador de la notificación, ordenado en el tiempo.
+	 */
+	@Id
+	@TsidId
+	private Long id;
+
+	/**
+	 * Atributo - Canal de entrega ("log", "webhook" o "smtp").
+	 */
+	@Column(nullable = false, length = 20)
+	private String canal;
+
+	/**
+	 * Atributo - Dirección del destinatario en el canal (URL, correo...).
+	 */
+	@Column(nullable = false)
+	private String direccion;
+
+	/**
+	 * Atributo - Identificador de la incidencia.
+	 */
+	@Column(nullable = false)
+	private Long incidenciaId;
+
+	/**
+	 * Atributo - Tipo de cambio ("CREADA" o "ACTUALIZADA").
+	 */
+	@Column(nullable = false, length = 20)
+	private String tipoEvento;
+
+	/**
+	 * Atributo - Aula de la incidencia.
+	 */
+	private String numeroAula;
+
+	/**
+	 * Atributo - Correo del docente que informó de la incidencia.
+	 */
+	private String correoDocente;
+
+	/**
+	 * Atributo - Estado anterior. Nulo si la incidencia se acaba de crear.
+	 */
+	private String estadoAnterior;
+
+	/**
+	 * Atributo - Estado tras el cambio.
+	 */
+	private String estadoNuevo;
+
+	/**
+	 * Atributo - Resumen de la descripción de la incidencia.
+	 */
+	private String resumen;
+
+	/**
+	 * Atributo - Momento del cambio.
+	 */
+	@Column(nullable = false)
+	private Date fechaEvento;
+
+	/**
+	 * Atributo - Intentos de entrega realizados.
+	 */
+	@Column(nullable = false)
+	private int intentos;
+
+	/**
+	 * Atributo - Momento a partir del cual se puede volver a intentar la entrega.
+	 */
+	@Column(nullable = false)
+	private Date proximoIntento;
+
+	/**
+	 * Atributo - Indica que se han agotado los intentos.
+	 */
+	@Column(nullable = false)
+	private boolean fallida;
+
+	/**
+	 * Atributo - Último error de entrega.
+	 */
+	@Column(length = 500)
+	private String ultimoError;
+}
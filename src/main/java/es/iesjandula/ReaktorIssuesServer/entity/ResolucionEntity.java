@@ -0,0 +1,41 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el momento en que una incidencia pasó a "RESUELTA".
+ * 
+ * <p>
+ * La incidencia no guarda la fecha de su último cambio de estado, así que se
+ * registra aquí en la misma transacción que el cambio para poder calcular el
+ * tiempo de resolución. Se borra si la incidencia deja de estar resuelta o se
+ * elimina.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "incidencias_resoluciones")
+public class ResolucionEntity
+{
+	/**
+	 * Atributo - Identificador de la incidencia.
+	 */
+	@Id
+	private Long incidenciaId;
+
+	/**
+	 * Atributo - Momento en que se resolvió.
+	 */
+	@Column(nullable = false)
+	private Date fechaResolucion;
+}
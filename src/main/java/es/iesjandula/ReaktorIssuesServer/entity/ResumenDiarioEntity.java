@@ -0,0 +1,70 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa el resumen diario de las incidencias de un aula en un estado.
+ * 
+ * <p>
+ * Cada fila agrupa las incidencias creadas un día en un aula que están
+ * actualmente en un estado. Las filas de un día se recalculan enteras a partir
+ * de la tabla de incidencias cuando alguna de ellas cambia, de modo que los
+ * informes de periodos largos se responden sin recorrer el histórico.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "incidencias_resumen_diario", uniqueConstraints = @UniqueConstraint(
+		name = "uk_resumen_dia_aula_estado",
+		columnNames = { "dia", "numero_aula", "estado_incidencia" }))
+public class ResumenDiarioEntity
+{
+	/**
+	 * Atributo - Identificador de la fila.
+	 */
+	@Id
+	@TsidId
+	private Long id;
+
+	/**
+	 * Atributo - Día de creación de las incidencias.
+	 */
+	@Column(nullable = false)
+	private LocalDate dia;
+
+	/**
+	 * Atributo - Aula de las incidencias.
+	 */
+	@Column(nullable = false)
+	private String numeroAula;
+
+	/**
+	 * Atributo - Estado actual de las incidencias.
+	 */
+	@Column(nullable = false)
+	private String estadoIncidencia;
+
+	/**
+	 * Atributo - Número de incidencias.
+	 */
+	@Column(nullable = false)
+	private long incidencias;
+
+	/**
+	 * Atributo - Histograma del tiempo de resolución de las incidencias resueltas
+	 * de las que se conoce la fecha de resolución; nulo si no hay ninguna.
+	 */
+	@Column(length = 1000)
+	private String histogramaResolucion;
+}
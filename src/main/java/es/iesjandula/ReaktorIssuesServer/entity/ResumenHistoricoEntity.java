@@ -0,0 +1,53 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que registra que ya se han anotado los días del histórico de resúmenes.
+ * 
+ * <p>
+ * Tiene una única fila, que el proceso de resúmenes guarda en la misma
+ * transacción que las anotaciones de todos los días con incidencias. A partir de
+ * entonces los cambios se anotan al confirmarse y el histórico no se vuelve a
+ * construir.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "incidencias_resumen_historico")
+public class ResumenHistoricoEntity
+{
+	/**
+	 * Identificador de la única fila.
+	 */
+	public static final Integer UNICA = 1;
+
+	/**
+	 * Atributo - Identificador de la fila, siempre {@link #UNICA}.
+	 */
+	@Id
+	private Integer id;
+
+	/**
+	 * Atributo - Último día anotado al construir el histórico; nulo si no había
+	 * incidencias.
+	 */
+	private LocalDate hasta;
+
+	/**
+	 * Atributo - Momento en que se construyó el histórico.
+	 */
+	@Column(nullable = false)
+	private Date fechaConstruccion;
+}
@@ -0,0 +1,41 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Clase que representa un día cuyo resumen hay que recalcular.
+ * 
+ * <p>
+ * Se inserta en la misma transacción que el cambio de las incidencias, una fila
+ * por día afectado y transacción, y la borra el proceso de resúmenes cuando ha
+ * recalculado ese día.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "incidencias_resumen_pendientes")
+public class ResumenPendienteEntity
+{
+	/**
+	 * Atributo - Identificador de la fila, ordenado en el tiempo.
+	 */
+	@Id
+	@TsidId
+	private Long id;
+
+	/**
+	 * Atributo - Día de creación de las incidencias cambiadas.
+	 */
+	@Column(nullable = false)
+	private LocalDate dia;
+}
@@ -0,0 +1,20 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Marca un atributo identificador cuyo valor se genera con
+ * {@link es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator} antes de insertar la fila.
+ */
+@IdGeneratorType(TsidIdentifierGenerator.class)
+@Retention(RUNTIME)
+@Target(FIELD)
+public @interface TsidId
+{
+}
@@ -0,0 +1,40 @@
+package es.iesjandula.ReaktorIssuesServer.entity;
+
+import java.util.EnumSet;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+
+/**
+ * Generador de Hibernate que asigna un identificador TSID a las entidades anotadas con {@link TsidId}.
+ * <p>
+ * Si la entidad ya tiene identificador (por ejemplo, al actualizar una incidencia existente) se respeta.
+ * </p>
+ */
+public class TsidIdentifierGenerator implements BeforeExecutionGenerator
+{
+	private static final long serialVersionUID = 1L;
+
+	@Override
+	public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+			EventType eventType)
+	{
+		return currentValue != null ? currentValue : TsidGenerator.siguiente();
+	}
+
+	@Override
+	public boolean allowAssignedIdentifiers()
+	{
+		return true;
+	}
+
+	@Override
+	public EnumSet<EventType> getEventTypes()
+	{
+		return EventTypeSets.INSERT_ONLY;
+	}
+}
@@ -0,0 +1,34 @@
+package es.iesjandula.ReaktorIssuesServer.event;
+
+import java.util.Date;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaAbiertaDTO;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Evento publicado cuando una incidencia supera el tiempo máximo configurado para su estado sin cambiar
+ * de estado.
+ * <p>
+ * Se publica fuera de cualquier transacción, desde el planificador de plazos.
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class IncidenciaEscaladaEvent
+{
+	/**
+	 * Tipo de evento con el que se registran las escaladas en las notificaciones.
+	 */
+	public static final String TIPO = "ESCALADA";
+
+	/**
+	 * Atributo - La incidencia escalada.
+	 */
+	private final IncidenciaAbiertaDTO incidencia;
+
+	/**
+	 * Atributo - Momento en que venció el plazo de la incidencia.
+	 */
+	private final Date vencimiento;
+}
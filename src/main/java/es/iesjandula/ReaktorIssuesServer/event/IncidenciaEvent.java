@@ -0,0 +1,69 @@
+package es.iesjandula.ReaktorIssuesServer.event;
+
+import java.util.Objects;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Evento publicado por el motor de almacenamiento cada vez que se crea, actualiza o borra una incidencia.
+ * <p>
+ * Se publica dentro de la transacción de escritura. Los oyentes que mantienen estructuras en memoria
+ * deben usar {@code @TransactionalEventListener(fallbackExecution = true)} para reaccionar solo tras la
+ * confirmación (o de inmediato con el motor en memoria, que no usa transacciones).
+ * </p>
+ */
+@Data
+@AllArgsConstructor
+public class IncidenciaEvent
+{
+	/**
+	 * Tipo de cambio sufrido por la incidencia.
+	 */
+	public enum Tipo
+	{
+		CREADA, ACTUALIZADA, BORRADA
+	}
+
+	/**
+	 * Atributo - Tipo de cambio.
+	 */
+	private final Tipo tipo;
+
+	/**
+	 * Atributo - Estado de la incidencia tras el cambio (el último estado conocido si se ha borrado).
+	 */
+	private final IncidenciaEntity incidencia;
+
+	/**
+	 * Atributo - Estado de la incidencia antes del cambio. Nulo si se acaba de crear.
+	 */
+	private final String estadoAnterior;
+
+	/**
+	 * Atributo - Indica que el cambio viene de una inserción por lotes (importación masiva).
+	 */
+	private final boolean masiva;
+
+	/**
+	 * Constructor para los cambios individuales.
+	 *
+	 * @param tipo           Tipo de cambio.
+	 * @param incidencia     Estado de la incidencia tras el cambio.
+	 * @param estadoAnterior Estado de la incidencia antes del cambio.
+	 */
+	public IncidenciaEvent(Tipo tipo, IncidenciaEntity incidencia, String estadoAnterior)
+	{
+		this(tipo, incidencia, estadoAnterior, false);
+	}
+
+	/**
+	 * @return true si el cambio modifica el estado de la incidencia.
+	 */
+	public boolean cambiaEstado()
+	{
+		return this.tipo == Tipo.CREADA || (this.tipo == Tipo.ACTUALIZADA
+				&& !Objects.equals(this.estadoAnterior, this.incidencia.getEstadoIncidencia()));
+	}
+}
@@ -0,0 +1,325 @@
+package es.iesjandula.ReaktorIssuesServer.idempotencia;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.iesjandula.ReaktorIssuesServer.datasource.DocenteContextInterceptor;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Aplica la cabecera {@code Idempotency-Key} a los endpoints que crean incidencias
+ * ({@code PUT /incidencias} y {@code POST /incidencias/crear_incidencia}).
+ * <p>
+ * La primera petición con una clave se ejecuta normalmente y su respuesta se guarda en el
+ * {@link IdempotenciaStore}. Las siguientes con la misma clave y el mismo cuerpo reciben esa respuesta sin
+ * llegar al controlador ni a la base de datos, con la cabecera {@code Idempotent-Replayed: true}; si llegan
+ * mientras la primera aún se ejecuta, esperan a que termine. Reutilizar una clave con otro cuerpo es un
+ * error del cliente (422). Las respuestas 5xx no se guardan, para que el cliente pueda reintentar con la
+ * misma clave. Las peticiones sin cabecera no se ven afectadas.
+ * </p>
+ * <p>
+ * Las claves son propias de cada docente: la cabecera {@code correo-docente} forma parte de la clave, así
+ * que dos docentes que generen la misma no se ven las respuestas. En {@code crear_incidencia} el docente
+ * va en el cuerpo y queda cubierto por su huella.
+ * </p>
+ */
+@Slf4j
+@Component
+public class IdempotenciaFilter extends OncePerRequestFilter
+{
+	/** Cabecera con la clave de idempotencia. */
+	public static final String CABECERA_CLAVE = "Idempotency-Key";
+
+	/** Cabecera que marca una respuesta repetida. */
+	public static final String CABECERA_REPETIDA = "Idempotent-Replayed";
+
+	/** Longitud máxima de la clave. */
+	private static final int LONG_MAX_CLAVE = 255;
+
+	/** Endpoints protegidos, como método y ruta. */
+	private static final Set<String> ENDPOINTS = Set.of("PUT /incidencias", "POST /incidencias/crear_incidencia");
+
+	// Auto-inyeccion del almacen de respuestas
+	@Autowired
+	private IdempotenciaStore idempotenciaStore;
+
+	/** Serializador de los errores. */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/** Si el filtro está activo. */
+	@Value("${reaktor.idempotencia.habilitada:true}")
+	private boolean habilitada;
+
+	/** Tiempo máximo que una petición repetida espera a la original. */
+	@Value("${reaktor.idempotencia.espera:10s}")
+	private Duration espera;
+
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request)
+	{
+		return !this.habilitada || request.getHeader(CABECERA_CLAVE) == null
+				|| !ENDPOINTS.contains(request.getMethod() + " " + request.getServletPath());
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException
+	{
+		String claveCliente = request.getHeader(CABECERA_CLAVE).strip();
+		if (claveCliente.isEmpty() || claveCliente.length() > LONG_MAX_CLAVE)
+		{
+			this.error(response, HttpStatus.BAD_REQUEST,
+					new IssuesServerError(15, "La cabecera " + CABECERA_CLAVE + " debe tener entre 1 y " + LONG_MAX_CLAVE + " caracteres"));
+			return;
+		}
+
+		byte[] cuerpo = request.getInputStream().readAllBytes();
+		String correoDocente = request.getHeader(DocenteContextInterceptor.CABECERA_CORREO_DOCENTE);
+		String clave = request.getMethod() + " " + request.getServletPath() + " "
+				+ (correoDocente == null ? "" : correoDocente.strip()) + " " + claveCliente;
+		String huella = huella(cuerpo);
+
+		while (true)
+		{
+			IdempotenciaStore.Entrada propia = this.idempotenciaStore.crea(clave, huella);
+			IdempotenciaStore.Entrada entrada = this.idempotenciaStore.reserva(propia);
+			if (!entrada.getHuella().equals(huella))
+			{
+				this.error(response, HttpStatus.UNPROCESSABLE_ENTITY,
+						new IssuesServerError(16, "La clave " + claveCliente + " ya se ha usado con otra petición"));
+				return;
+			}
+
+			if (entrada == propia)
+			{
+				this.ejecuta(new PeticionConCuerpo(request, cuerpo), response, filterChain, entrada);
+				return;
+			}
+
+			RespuestaGuardada guardada;
+			try
+			{
+				guardada = entrada.espera(this.espera);
+			}
+			catch (TimeoutException timeoutException)
+			{
+				this.error(response, HttpStatus.CONFLICT,
+						new IssuesServerError(17, "La petición con clave " + claveCliente + " sigue en curso"));
+				return;
+			}
+			catch (InterruptedException interruptedException)
+			{
+				Thread.currentThread().interrupt();
+				throw new ServletException(interruptedException);
+			}
+
+			// Si la original falló, esta petición intenta reservar de nuevo la clave.
+			if (guardada != null)
+			{
+				this.repite(response, guardada);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Ejecuta la primera petición con una clave y guarda su respuesta.
+	 *
+	 * @param request     La petición, con el cuerpo ya leído.
+	 * @param response    La respuesta.
+	 * @param filterChain La cadena de filtros.
+	 * @param entrada     La entrada reservada para la petición.
+	 * @throws ServletException Si falla la cadena de filtros.
+	 * @throws IOException      Si falla la escritura de la respuesta.
+	 */
+	private void ejecuta(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+			IdempotenciaStore.Entrada entrada) throws ServletException, IOException
+	{
+		ContentCachingResponseWrapper envoltorio = new ContentCachingResponseWrapper(response);
+		boolean guardada = false;
+		try
+		{
+			filterChain.doFilter(request, envoltorio);
+			if (envoltorio.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value())
+			{
+				this.idempotenciaStore.completa(entrada, new RespuestaGuardada(null, null, envoltorio.getStatus(),
+						envoltorio.getContentType(), envoltorio.getHeader(HttpHeaders.LOCATION),
+						envoltorio.getContentAsByteArray(), 0));
+				guardada = true;
+			}
+		}
+		finally
+		{
+			if (!guardada)
+			{
+				this.idempotenciaStore.descarta(entrada);
+			}
+		}
+		envoltorio.copyBodyToResponse();
+	}
+
+	/**
+	 * Escribe una respuesta guardada.
+	 *
+	 * @param response  La respuesta.
+	 * @param guardada  La respuesta guardada.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private void repite(HttpServletResponse response, RespuestaGuardada guardada) throws IOException
+	{
+		response.setStatus(guardada.getEstado());
+		response.setHeader(CABECERA_REPETIDA, "true");
+		if (guardada.getTipoContenido() != null)
+		{
+			response.setContentType(guardada.getTipoContenido());
+		}
+		if (guardada.getLocation() != null)
+		{
+			response.setHeader(HttpHeaders.LOCATION, guardada.getLocation());
+		}
+		response.setContentLength(guardada.getCuerpo().length);
+		response.getOutputStream().write(guardada.getCuerpo());
+	}
+
+	/**
+	 * Escribe un error con el mismo formato que los controladores.
+	 *
+	 * @param response La respuesta.
+	 * @param estado   El código de estado.
+	 * @param error    El error.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private void error(HttpServletResponse response, HttpStatus estado, IssuesServerError error) throws IOException
+	{
+		log.error(error.getMessage()) ;
+		response.setStatus(estado.value());
+		response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		this.objectMapper.writeValue(response.getOutputStream(), error.getMapError());
+	}
+
+	/**
+	 * @param cuerpo Cuerpo de la petición.
+	 * @return Huella SHA-256 del cuerpo en hexadecimal.
+	 */
+	private static String huella(byte[] cuerpo)
+	{
+		try
+		{
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(cuerpo));
+		}
+		catch (NoSuchAlgorithmException noSuchAlgorithmException)
+		{
+			throw new IllegalStateException(noSuchAlgorithmException);
+		}
+	}
+
+	/**
+	 * Petición cuyo cuerpo ya se ha leído para calcular su huella y se vuelve a servir desde memoria.
+	 */
+	private static final class PeticionConCuerpo extends HttpServletRequestWrapper
+	{
+		/** Cuerpo de la petición. */
+		private final byte[] cuerpo;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param request La petición original.
+		 * @param cuerpo  Su cuerpo.
+		 */
+		private PeticionConCuerpo(HttpServletRequest request, byte[] cuerpo)
+		{
+			super(request);
+			this.cuerpo = cuerpo;
+		}
+
+		@Override
+		public ServletInputStream getInputStream()
+		{
+			ByteArrayInputStream entrada = new ByteArrayInputStream(this.cuerpo);
+			return new ServletInputStream()
+			{
+				@Override
+				public int read()
+				{
+					return entrada.read();
+				}
+
+				@Override
+				public int read(byte[] destino, int desde, int longitud)
+				{
+					return entrada.read(destino, desde, longitud);
+				}
+
+				@Override
+				public boolean isFinished()
+				{
+					return entrada.available() == 0;
+				}
+
+				@Override
+				public boolean isReady()
+				{
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener readListener)
+				{
+					// El cuerpo ya está en memoria: todo está disponible desde el principio.
+					try
+					{
+						if (!this.isFinished())
+						{
+							readListener.onDataAvailable();
+						}
+						readListener.onAllDataRead();
+					}
+					catch (IOException exception)
+					{
+						readListener.onError(exception);
+					}
+				}
+			};
+		}
+
+		@Override
+		public int getContentLength()
+		{
+			return this.cuerpo.length;
+		}
+
+		@Override
+		public long getContentLengthLong()
+		{
+			return this.cuerpo.length;
+		}
+	}
+}
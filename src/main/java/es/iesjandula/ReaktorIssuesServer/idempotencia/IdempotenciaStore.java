@@ -0,0 +1,308 @@
+package es.iesjandula.ReaktorIssuesServer.idempotencia;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Almacén en memoria de las respuestas a peticiones con clave de idempotencia.
+ * <p>
+ * Cada clave se reserva con la primera petición; las peticiones concurrentes con la misma clave esperan a
+ * que termine y reciben su respuesta. Las entradas caducan a los {@code reaktor.idempotencia.ttl} y, como
+ * todas tienen la misma vida, la cola en orden de llegada es también la de caducidad: cada reserva retira
+ * de la cabeza las caducadas y las que exceden {@code reaktor.idempotencia.max-entradas}, con coste
+ * constante amortizado. Una entrada cuya petición aún se ejecuta no se retira por exceso: se pasa al final
+ * de la cola, porque retirarla dejaría repetir la petición en curso.
+ * </p>
+ * <p>
+ * Si se configura {@code reaktor.idempotencia.fichero}, las respuestas vigentes se guardan al parar la
+ * aplicación y se recuperan al arrancar.
+ * </p>
+ */
+@Slf4j
+@Component
+public class IdempotenciaStore
+{
+	/** Entradas por clave. */
+	private final Map<String, Entrada> entradas = new ConcurrentHashMap<String, Entrada>();
+
+	/** Entradas en orden de llegada, que coincide con el de caducidad. */
+	private final Queue<Entrada> orden = new ConcurrentLinkedQueue<Entrada>();
+
+	/** Serializador del fichero de respuestas. */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/** Número máximo de entradas. */
+	private final int maxEntradas;
+
+	/** Tiempo durante el que se recuerda cada respuesta. */
+	private final Duration ttl;
+
+	/** Fichero donde se conservan las respuestas entre ejecuciones; nulo si no se conservan. */
+	private final Path fichero;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntradas Número máximo de entradas.
+	 * @param ttl         Tiempo durante el que se recuerda cada respuesta.
+	 * @param fichero     Fichero de respuestas; vacío para no conservarlas.
+	 */
+	public IdempotenciaStore(
+			@Value("${reaktor.idempotencia.max-entradas:100000}") int maxEntradas,
+			@Value("${reaktor.idempotencia.ttl:24h}") Duration ttl,
+			@Value("${reaktor.idempotencia.fichero:}") String fichero)
+	{
+		this.maxEntradas = maxEntradas;
+		this.ttl = ttl;
+		this.fichero = fichero.isBlank() ? null : Paths.get(fichero);
+	}
+
+	/**
+	 * Recupera las respuestas guardadas en la ejecución anterior que siguen vigentes.
+	 *
+	 * @throws IOException Si no se puede leer el fichero.
+	 */
+	@PostConstruct
+	public void carga() throws IOException
+	{
+		if (this.fichero == null || !Files.exists(this.fichero))
+		{
+			return;
+		}
+
+		long ahora = System.currentTimeMillis();
+		try (BufferedReader lector = Files.newBufferedReader(this.fichero, StandardCharsets.UTF_8))
+		{
+			String linea;
+			while ((linea = lector.readLine()) != null)
+			{
+				RespuestaGuardada respuesta = this.objectMapper.readValue(linea, RespuestaGuardada.class);
+				if (respuesta.getExpira() > ahora)
+				{
+					Entrada entrada = new Entrada(respuesta.getClave(), respuesta.getHuella(), respuesta.getExpira());
+					entrada.respuesta.complete(respuesta);
+					this.entradas.put(entrada.clave, entrada);
+					this.orden.add(entrada);
+				}
+			}
+		}
+		log.info("INFO: {} respuestas idempotentes recuperadas.", this.entradas.size());
+	}
+
+	/**
+	 * Guarda las respuestas vigentes para la siguiente ejecución.
+	 *
+	 * @throws IOException Si no se puede escribir el fichero.
+	 */
+	@PreDestroy
+	public void guarda() throws IOException
+	{
+		if (this.fichero == null)
+		{
+			return;
+		}
+
+		if (this.fichero.toAbsolutePath().getParent() != null)
+		{
+			Files.createDirectories(this.fichero.toAbsolutePath().getParent());
+		}
+		Path temporal = Paths.get(this.fichero + ".tmp");
+		long ahora = System.currentTimeMillis();
+		try (BufferedWriter escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8))
+		{
+			for (Entrada entrada : this.orden)
+			{
+				RespuestaGuardada respuesta = entrada.respuesta.getNow(null);
+				if (respuesta != null && entrada.expira > ahora && this.entradas.get(entrada.clave) == entrada)
+				{
+					escritor.write(this.objectMapper.writeValueAsString(respuesta));
+					escritor.newLine();
+				}
+			}
+		}
+		Files.move(temporal, this.fichero, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Crea la entrada de una petición, sin reservar todavía su clave.
+	 *
+	 * @param clave  Método, ruta y clave de idempotencia.
+	 * @param huella Huella del cuerpo de la petición.
+	 * @return La entrada.
+	 */
+	public Entrada crea(String clave, String huella)
+	{
+		return new Entrada(clave, huella, System.currentTimeMillis() + this.ttl.toMillis());
+	}
+
+	/**
+	 * Reserva la clave de una entrada o devuelve la de la petición anterior con la misma clave.
+	 *
+	 * @param nueva La entrada de la petición.
+	 * @return La propia entrada si la clave estaba libre, o la existente si ya estaba en uso.
+	 */
+	public Entrada reserva(Entrada nueva)
+	{
+		long ahora = System.currentTimeMillis();
+		this.purga(ahora);
+
+		Entrada actual = this.entradas.compute(nueva.clave,
+				(k, existente) -> existente == null || existente.expira <= ahora ? nueva : existente);
+		if (actual == nueva)
+		{
+			this.orden.add(nueva);
+		}
+		return actual;
+	}
+
+	/**
+	 * Registra la respuesta de una petición y despierta a las que esperan con la misma clave.
+	 *
+	 * @param entrada   La entrada reservada por la petición.
+	 * @param respuesta La respuesta.
+	 */
+	public void completa(Entrada entrada, RespuestaGuardada respuesta)
+	{
+		respuesta.setClave(entrada.clave);
+		respuesta.setHuella(entrada.huella);
+		respuesta.setExpira(entrada.expira);
+		entrada.respuesta.complete(respuesta);
+	}
+
+	/**
+	 * Libera la clave de una petición que ha fallado, para que pueda reintentarse. Las peticiones que
+	 * esperaban con la misma clave vuelven a intentarlo.
+	 *
+	 * @param entrada La entrada reservada por la petición.
+	 */
+	public void descarta(Entrada entrada)
+	{
+		this.entradas.remove(entrada.clave, entrada);
+		entrada.respuesta.complete(null);
+	}
+
+	/**
+	 * Retira de la cabeza de la cola las entradas caducadas, las ya sustituidas y las que exceden el máximo.
+	 * Las que exceden el máximo pero siguen en curso se pasan al final de la cola; si todas lo están, el
+	 * máximo se supera hasta que terminen.
+	 *
+	 * @param ahora Momento actual en milisegundos.
+	 */
+	private void purga(long ahora)
+	{
+		Entrada cabeza;
+		Set<Entrada> enCurso = null;
+		while ((cabeza = this.orden.peek()) != null)
+		{
+			boolean vigente = this.entradas.get(cabeza.clave) == cabeza;
+			if (vigente && cabeza.expira > ahora)
+			{
+				if (this.entradas.size() < this.maxEntradas || (enCurso != null && enCurso.contains(cabeza)))
+				{
+					// Por debajo del máximo, o ya se ha dado la vuelta a la cola.
+					return;
+				}
+				if (!cabeza.respuesta.isDone())
+				{
+					if (this.orden.remove(cabeza))
+					{
+						this.orden.add(cabeza);
+					}
+					enCurso = enCurso == null ? new HashSet<Entrada>() : enCurso;
+					enCurso.add(cabeza);
+					continue;
+				}
+			}
+			if (this.orden.remove(cabeza) && vigente)
+			{
+				this.entradas.remove(cabeza.clave, cabeza);
+			}
+		}
+	}
+
+	/**
+	 * Reserva de una clave de idempotencia.
+	 */
+	public static final class Entrada
+	{
+		/** Método, ruta y clave de idempotencia. */
+		private final String clave;
+
+		/** Huella del cuerpo de la petición que la reservó. */
+		private final String huella;
+
+		/** Momento de caducidad en milisegundos. */
+		private final long expira;
+
+		/** Respuesta de la petición; se completa con null si la petición falla. */
+		private final CompletableFuture<RespuestaGuardada> respuesta = new CompletableFuture<RespuestaGuardada>();
+
+		/**
+		 * Constructor.
+		 *
+		 * @param clave  Método, ruta y clave de idempotencia.
+		 * @param huella Huella del cuerpo de la petición.
+		 * @param expira Momento de caducidad en milisegundos.
+		 */
+		private Entrada(String clave, String huella, long expira)
+		{
+			this.clave = clave;
+			this.huella = huella;
+			this.expira = expira;
+		}
+
+		/**
+		 * @return Huella del cuerpo de la petición que reservó la clave.
+		 */
+		public String getHuella()
+		{
+			return this.huella;
+		}
+
+		/**
+		 * Espera a que termine la petición que reservó la clave.
+		 *
+		 * @param espera Tiempo máximo de espera.
+		 * @return Su respuesta, o null si falló.
+		 * @throws TimeoutException     Si no termina a tiempo.
+		 * @throws InterruptedException Si se interrumpe la espera.
+		 */
+		public RespuestaGuardada espera(Duration espera) throws TimeoutException, InterruptedException
+		{
+			try
+			{
+				return this.respuesta.get(espera.toMillis(), TimeUnit.MILLISECONDS);
+			}
+			catch (ExecutionException exception)
+			{
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package es.iesjandula.ReaktorIssuesServer.idempotencia;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Respuesta a una petición con clave de idempotencia, tal como se devolverá si la petición se repite.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RespuestaGuardada
+{
+	/** Método, ruta y clave de idempotencia de la petición. */
+	private String clave;
+
+	/** Huella SHA-256 del cuerpo de la petición. */
+	private String huella;
+
+	/** Código de estado HTTP. */
+	private int estado;
+
+	/** Cabecera Content-Type; nula si no la había. */
+	private String tipoContenido;
+
+	/** Cabecera Location; nula si no la había. */
+	private String location;
+
+	/** Cuerpo de la respuesta. */
+	private byte[] cuerpo;
+
+	/** Momento, en milisegundos, a partir del cual la respuesta se olvida. */
+	private long expira;
+}
@@ -60,7 +60,7 @@ public class IncidenciaMapper
 			incidencia.setDescripcionIncidencia(dto.getDescripcionIncidencia());
 			incidencia.setEstadoIncidencia(dto.getEstadoIncidencia());
 			incidencia.setComentario(dto.getComentario());
-			log.debug("DEBUG: Incidencia mapeada con éxito.\n Incidenecia: {}", incidencia.toString());
+			log.debug("DEBUG: Incidencia mapeada con éxito.\n Incidenecia: {}", incidencia);
 
 			// Retorna el nuevo objeto completamente cargado con los datos correspondientes.
 			return incidencia;
@@ -75,6 +75,28 @@ public class IncidenciaMapper
 
 	}
 
+	/**
+	 * Mapea un objeto IncidenciaEntity a un objeto IncidenciaDTO con todos sus campos.
+	 *
+	 * Se utiliza en las consultas de detalle, que son las únicas que devuelven la
+	 * descripción y el comentario completos.
+	 *
+	 * @param incidencia La entidad que se desea mapear.
+	 * @return Un objeto IncidenciaDTO con los datos de la entidad.
+	 */
+	public IncidenciaDTO mapToDto(IncidenciaEntity incidencia)
+	{
+		// Se usa el constructor completo para no repetir la validación del setter de descripción.
+		return new IncidenciaDTO(
+				incidencia.getId(),
+				incidencia.getNumeroAula(),
+				incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia(),
+				incidencia.getDescripcionIncidencia(),
+				incidencia.getEstadoIncidencia(),
+				incidencia.getComentario());
+	}
+
 	/**
 	 * Verifica si el objeto IncidenciaDTO proporcionado es válido.
 	 *
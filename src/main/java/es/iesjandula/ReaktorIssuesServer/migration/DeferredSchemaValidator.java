@@ -0,0 +1,59 @@
+package es.iesjandula.ReaktorIssuesServer.migration;
+
+import org.hibernate.SessionFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Valida el esquema de la base de datos contra las entidades una vez arrancada la aplicación.
+ * <p>
+ * En el modo de arranque rápido Hibernate no lee los metadatos JDBC al iniciarse
+ * ({@code spring.jpa.hibernate.ddl-auto: none}), de modo que la validación se hace aquí, en un hilo
+ * aparte, sin retrasar la primera petición. Los errores se registran en el log.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.arranque", name = "validacion-diferida", havingValue = "true")
+public class DeferredSchemaValidator
+{
+	/** Factoría de JPA cuyo esquema se valida. */
+	private final EntityManagerFactory entityManagerFactory;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param entityManagerFactory Factoría de JPA.
+	 */
+	public DeferredSchemaValidator(EntityManagerFactory entityManagerFactory)
+	{
+		this.entityManagerFactory = entityManagerFactory;
+	}
+
+	/**
+	 * Lanza la validación en segundo plano cuando la aplicación ya atiende peticiones.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void valida()
+	{
+		Thread hilo = new Thread(() -> {
+			long inicio = System.currentTimeMillis();
+			try
+			{
+				this.entityManagerFactory.unwrap(SessionFactory.class).getSchemaManager().validateMappedObjects();
+				log.info("INFO: Esquema de base de datos validado en {} ms.", System.currentTimeMillis() - inicio);
+			}
+			catch (Exception exception)
+			{
+				log.error("ERROR: El esquema de base de datos no coincide con las entidades.", exception);
+			}
+		}, "validacion-esquema");
+		hilo.setDaemon(true);
+		hilo.start();
+	}
+}
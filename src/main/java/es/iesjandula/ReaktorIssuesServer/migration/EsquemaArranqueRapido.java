@@ -0,0 +1,110 @@
+package es.iesjandula.ReaktorIssuesServer.migration;
+
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import es.iesjandula.ReaktorIssuesServer.config.CondicionesArranqueRapido;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Actualiza el esquema una vez por compilación en el modo de arranque rápido.
+ * <p>
+ * El perfil {@code arranque-rapido} arranca con {@code ddl-auto: none} para no leer los metadatos JDBC en
+ * cada arranque, pero entonces las tablas y columnas nuevas de una versión no se crearían nunca. Antes de
+ * crear la factoría de JPA se compara la huella del esquema generada al compilar
+ * ({@link CondicionesArranqueRapido#HUELLA_ESQUEMA}) con la guardada en la tabla {@code reaktor_esquema}:
+ * si no coinciden, Hibernate arranca esta vez con {@code ddl-auto: update}, y la huella se guarda cuando la
+ * aplicación está lista. Si la actualización falla, la aplicación no arranca. Sin la huella (la aplicación
+ * no se ha compilado con el perfil Maven) el esquema se actualiza en cada arranque. La ejecución de
+ * entrenamiento de CDS termina antes de estar lista, así que actualiza el esquema pero no guarda la huella.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.arranque", name = "actualizar-esquema", havingValue = "true")
+public class EsquemaArranqueRapido implements HibernatePropertiesCustomizer
+{
+	/** Identificador de la única fila de {@code reaktor_esquema}. */
+	private static final int FILA = 1;
+
+	/** Acceso JDBC a la base de datos. */
+	private final JdbcTemplate jdbcTemplate;
+
+	/** Huella que hay que guardar al terminar el arranque; null si el esquema no se ha actualizado. */
+	private volatile String huellaPendiente;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dataSource Origen de datos de la aplicación.
+	 */
+	public EsquemaArranqueRapido(DataSource dataSource)
+	{
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+	}
+
+	@Override
+	public void customize(Map<String, Object> hibernateProperties)
+	{
+		Properties fijadas = CondicionesArranqueRapido.leeFijadas();
+		String huella = fijadas == null ? null : fijadas.getProperty(CondicionesArranqueRapido.HUELLA_ESQUEMA);
+		if (huella != null && huella.equals(this.leeHuella()))
+		{
+			return;
+		}
+
+		log.info("INFO: Esquema de base de datos sin actualizar para esta version: se actualiza al arrancar.");
+		hibernateProperties.put(AvailableSettings.HBM2DDL_AUTO, "update");
+		hibernateProperties.put(AvailableSettings.ALLOW_METADATA_ON_BOOT, true);
+		this.huellaPendiente = huella;
+	}
+
+	/**
+	 * Guarda la huella del esquema actualizado cuando la aplicación ya está lista.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void guardaHuella()
+	{
+		String huella = this.huellaPendiente;
+		if (huella == null)
+		{
+			return;
+		}
+
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS reaktor_esquema (id INT NOT NULL PRIMARY KEY, "
+				+ "huella VARCHAR(64) NOT NULL, fecha_actualizacion DATETIME(6) NOT NULL)");
+		this.jdbcTemplate.update("DELETE FROM reaktor_esquema WHERE id = ?", FILA);
+		this.jdbcTemplate.update("INSERT INTO reaktor_esquema (id, huella, fecha_actualizacion) VALUES (?, ?, ?)", FILA,
+				huella, new Timestamp(System.currentTimeMillis()));
+		this.huellaPendiente = null;
+	}
+
+	/**
+	 * @return La huella del último esquema actualizado, o null si no se ha guardado ninguna.
+	 */
+	private String leeHuella()
+	{
+		try
+		{
+			return this.jdbcTemplate.query("SELECT huella FROM reaktor_esquema WHERE id = ?",
+					resultado -> resultado.next() ? resultado.getString(1) : null, FILA);
+		}
+		catch (DataAccessException exception)
+		{
+			// La tabla no existe todavía.
+			return null;
+		}
+	}
+}
@@ -0,0 +1,340 @@
+package es.iesjandula.ReaktorIssuesServer.migration;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migración de la tabla {@code incidencias} de la clave primaria compuesta al identificador sustituto.
+ * <p>
+ * Se ejecuta antes de que Hibernate inicialice el esquema, y solo si la tabla existe y no está en su estado
+ * final: clave primaria sobre {@code id}, ninguna fila sin identificador y restricción única sobre la clave
+ * natural. Los pasos son:
+ * <ol>
+ *     <li>Añade la columna {@code id} admitiendo nulos, si no existe.</li>
+ *     <li>Rellena las filas sin identificador con un TSID calculado a partir de su {@code fecha_incidencia},
+ *     de forma que las incidencias históricas conservan el orden temporal. Las filas se leen con un cursor en
+ *     orden cronológico y se actualizan por lotes, sin cargar la tabla en memoria. Las fechas anteriores a
+ *     {@link TsidGenerator#EPOCA} se toman como la época.</li>
+ *     <li>Sustituye la clave primaria compuesta por {@code id} y crea la restricción única sobre la clave
+ *     natural, si no existen.</li>
+ * </ol>
+ * Ninguno de los pasos es transaccional en MySQL, pero cada uno comprueba lo que ya está hecho: si el
+ * proceso se detiene a medias, el siguiente arranque continúa donde se quedó.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class IncidenciaIdMigration implements InitializingBean
+{
+	/** Nodo reservado para los identificadores generados por la migración. */
+	private static final int NODO_MIGRACION = 0;
+
+	/** Número de filas actualizadas por lote. */
+	private static final int TAMANIO_LOTE = 1000;
+
+	/** Columnas de la clave natural. */
+	private static final Set<String> COLUMNAS_CLAVE_NATURAL = Set.of("numero_aula", "correo_docente", "fecha_incidencia");
+
+	/** Acceso JDBC a la base de datos. */
+	private final JdbcTemplate jdbcTemplate;
+
+	/** Si es false no se comprueba ni se migra la tabla (por ejemplo, en la ejecución de entrenamiento de CDS). */
+	private final boolean habilitada;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dataSource Origen de datos de la aplicación.
+	 * @param habilitada Si la migración está habilitada.
+	 */
+	public IncidenciaIdMigration(DataSource dataSource,
+			@Value("${reaktor.migracion.enabled:true}") boolean habilitada)
+	{
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.habilitada = habilitada;
+	}
+
+	/**
+	 * Hace que la factoría de JPA dependa de la migración, para que Hibernate no toque el esquema antes.
+	 *
+	 * @return El post-procesador que añade la dependencia.
+	 */
+	@Bean
+	public static EntityManagerFactoryDependsOnPostProcessor incidenciaIdMigrationDependsOn()
+	{
+		return new EntityManagerFactoryDependsOnPostProcessor("incidenciaIdMigration");
+	}
+
+	@Override
+	public void afterPropertiesSet() throws Exception
+	{
+		if (!this.habilitada)
+		{
+			return;
+		}
+
+		Esquema esquema = this.leeEsquema();
+		if (esquema == null || esquema.migrado())
+		{
+			return;
+		}
+
+		log.info("INFO: Migrando la tabla incidencias a identificador sustituto.");
+
+		if (!esquema.tieneId)
+		{
+			this.jdbcTemplate.execute("ALTER TABLE incidencias ADD COLUMN id BIGINT NULL FIRST");
+		}
+
+		long filas = esquema.tieneId && esquema.filasSinId == 0 ? 0 : this.asignaIds();
+
+		this.jdbcTemplate.execute("ALTER TABLE incidencias MODIFY id BIGINT NOT NULL");
+		if (!esquema.clavePrimaria.equals(List.of("id")))
+		{
+			if (!esquema.clavePrimaria.isEmpty())
+			{
+				this.jdbcTemplate.execute("ALTER TABLE incidencias DROP PRIMARY KEY");
+			}
+			this.jdbcTemplate.execute("ALTER TABLE incidencias ADD PRIMARY KEY (id)");
+		}
+		if (!esquema.tieneClaveNatural)
+		{
+			this.jdbcTemplate.execute("ALTER TABLE incidencias ADD CONSTRAINT " + IncidenciaEntity.UK_CLAVE_NATURAL
+					+ " UNIQUE (numero_aula, correo_docente, fecha_incidencia)");
+		}
+
+		log.info("INFO: Migracion completada. Filas actualizadas: {}", filas);
+	}
+
+	/**
+	 * Asigna un identificador a las filas que no lo tienen. Si una ejecución anterior se detuvo a medias,
+	 * continúa a partir del mayor identificador ya asignado para no repetir ninguno.
+	 *
+	 * @return Número de filas actualizadas.
+	 * @throws SQLException Si falla la lectura de los metadatos.
+	 */
+	private long asignaIds() throws SQLException
+	{
+		AsignadorIds asignador = new AsignadorIds();
+		Long maximo = this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM incidencias", Long.class);
+		if (maximo != null)
+		{
+			asignador.milisAnterior = TsidGenerator.instante(maximo);
+			asignador.secuencia = TsidGenerator.secuencia(maximo);
+		}
+
+		// Recorre la clave natural de las filas pendientes en orden cronologico con un cursor, sin cargarlas en
+		// memoria. Las actualizaciones usan otra conexion del pool mientras el cursor sigue abierto.
+		JdbcTemplate lector = new JdbcTemplate(this.jdbcTemplate.getDataSource());
+		lector.setFetchSize(this.esMySql() ? Integer.MIN_VALUE : TAMANIO_LOTE);
+		lector.query("SELECT numero_aula, correo_docente, fecha_incidencia FROM incidencias WHERE id IS NULL "
+				+ "ORDER BY fecha_incidencia", asignador);
+		this.actualizaLote(asignador.lote);
+
+		return asignador.filas;
+	}
+
+	/**
+	 * Escribe un lote de identificadores y lo vacía.
+	 *
+	 * @param lote Filas con el identificador y la clave natural.
+	 */
+	private void actualizaLote(List<Object[]> lote)
+	{
+		if (!lote.isEmpty())
+		{
+			this.jdbcTemplate.batchUpdate("UPDATE incidencias SET id = ? "
+					+ "WHERE numero_aula = ? AND correo_docente = ? AND fecha_incidencia = ? AND id IS NULL", lote);
+			lote.clear();
+		}
+	}
+
+	/**
+	 * Lee el estado de la tabla: columna {@code id}, filas sin identificador, clave primaria y restricción
+	 * única sobre la clave natural.
+	 *
+	 * @return El estado de la tabla, o null si no existe.
+	 * @throws SQLException Si falla la lectura de los metadatos.
+	 */
+	private Esquema leeEsquema() throws SQLException
+	{
+		Esquema esquema = this.jdbcTemplate.execute((Connection conexion) -> {
+			DatabaseMetaData metaData = conexion.getMetaData();
+			String tabla = metaData.storesUpperCaseIdentifiers() ? "INCIDENCIAS" : "incidencias";
+			String catalogo = conexion.getCatalog();
+
+			try (ResultSet tablas = metaData.getTables(catalogo, null, tabla, new String[] { "TABLE" }))
+			{
+				if (!tablas.next())
+				{
+					return null;
+				}
+			}
+
+			Esquema leido = new Esquema();
+			try (ResultSet columnas = metaData.getColumns(catalogo, null, tabla, null))
+			{
+				while (columnas.next())
+				{
+					leido.tieneId |= "id".equalsIgnoreCase(columnas.getString("COLUMN_NAME"));
+				}
+			}
+
+			// Columnas de la clave primaria en su orden dentro de la clave.
+			Map<Short, String> clavePrimaria = new TreeMap<Short, String>();
+			try (ResultSet claves = metaData.getPrimaryKeys(catalogo, null, tabla))
+			{
+				while (claves.next())
+				{
+					clavePrimaria.put(claves.getShort("KEY_SEQ"), claves.getString("COLUMN_NAME").toLowerCase());
+				}
+			}
+			leido.clavePrimaria = new ArrayList<String>(clavePrimaria.values());
+
+			// Índices únicos, para buscar uno que cubra exactamente la clave natural.
+			Map<String, Set<String>> indicesUnicos = new HashMap<String, Set<String>>();
+			try (ResultSet indices = metaData.getIndexInfo(catalogo, null, tabla, true, false))
+			{
+				while (indices.next())
+				{
+					String columna = indices.getString("COLUMN_NAME");
+					if (columna != null)
+					{
+						indicesUnicos.computeIfAbsent(indices.getString("INDEX_NAME"), nombre -> new HashSet<String>())
+								.add(columna.toLowerCase());
+					}
+				}
+			}
+			// La clave primaria compuesta también es un índice único sobre esas columnas, pero se va a sustituir.
+			long coincidentes = indicesUnicos.values().stream().filter(COLUMNAS_CLAVE_NATURAL::equals).count();
+			if (COLUMNAS_CLAVE_NATURAL.equals(new HashSet<String>(leido.clavePrimaria)))
+			{
+				coincidentes--;
+			}
+			leido.tieneClaveNatural = coincidentes > 0;
+			return leido;
+		});
+
+		if (esquema != null && esquema.tieneId)
+		{
+			esquema.filasSinId = this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias WHERE id IS NULL",
+					Long.class);
+		}
+		return esquema;
+	}
+
+/**
+	 * Indica si el driver es MySQL Connector/J, que solo lee en flujo con un tamaño de lectura de
+	 * {@link Integer#MIN_VALUE}; con cualquier otro valor carga el resultado completo en memoria.
+	 *
+	 * @return true si la base de datos se usa con el driver de MySQL.
+	 * @throws SQLException Si falla la lectura de los metadatos.
+	 */
+	private boolean esMySql() throws SQLException
+	{
+		return Boolean.TRUE.equals(this.jdbcTemplate.execute(
+				(Connection conexion) -> conexion.getMetaData().getDriverName().startsWith("MySQL")));
+	}
+
+	/**
+	 * Asigna a cada fila leída un TSID derivado de su fecha y escribe los identificadores por lotes. Las filas
+	 * del mismo milisegundo avanzan la secuencia.
+	 */
+	private final class AsignadorIds implements RowCallbackHandler
+	{
+		/** Filas pendientes de escribir, con el identificador y la clave natural. */
+		private final List<Object[]> lote = new ArrayList<Object[]>(TAMANIO_LOTE);
+
+		/** Milisegundo del último identificador asignado. */
+		private long milisAnterior = Long.MIN_VALUE;
+
+		/** Secuencia del último identificador asignado dentro de su milisegundo. */
+		private int secuencia;
+
+		/** Filas leídas. */
+		private long filas;
+
+		@Override
+		public void processRow(ResultSet rs) throws SQLException
+		{
+			Timestamp fecha = rs.getTimestamp(3);
+			long milis = Math.max(fecha.getTime(), TsidGenerator.EPOCA);
+			if (milis <= this.milisAnterior)
+			{
+				this.secuencia++;
+				if (this.secuencia > TsidGenerator.MAX_SECUENCIA)
+				{
+					this.secuencia = 0;
+					this.milisAnterior++;
+				}
+				milis = this.milisAnterior;
+			}
+			else
+			{
+				this.secuencia = 0;
+			}
+			this.milisAnterior = milis;
+
+			this.lote.add(new Object[] { TsidGenerator.compone(milis, NODO_MIGRACION, this.secuencia), rs.getString(1),
+					rs.getString(2), fecha });
+			this.filas++;
+			if (this.lote.size() == TAMANIO_LOTE)
+			{
+				IncidenciaIdMigration.this.actualizaLote(this.lote);
+			}
+		}
+	}
+
+	/**
+	 * Estado de la tabla {@code incidencias} respecto a la migración.
+	 */
+	private static final class Esquema
+	{
+		/** Si existe la columna {@code id}. */
+		private boolean tieneId;
+
+		/** Filas con {@code id} nulo; 0 si no existe la columna. */
+		private long filasSinId;
+
+		/** Columnas de la clave primaria, en minúsculas; vacía si no hay. */
+		private List<String> clavePrimaria;
+
+		/** Si existe un índice único sobre exactamente las columnas de la clave natural. */
+		private boolean tieneClaveNatural;
+
+		/**
+		 * @return true si la tabla ya está en su estado final.
+		 */
+		private boolean migrado()
+		{
+			return this.tieneId && this.filasSinId == 0 && this.clavePrimaria.equals(List.of("id"))
+					&& this.tieneClaveNatural;
+		}
+	}
+}
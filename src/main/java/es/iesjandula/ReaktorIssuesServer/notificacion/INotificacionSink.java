@@ -0,0 +1,33 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.List;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+
+/**
+ * Canal de entrega de notificaciones.
+ * <p>
+ * Cada implementación es un bean que atiende a los destinatarios configurados con su
+ * {@link #getCanal() canal}. El despachador agrupa las notificaciones por destinatario y las entrega en
+ * una sola llamada.
+ * </p>
+ */
+public interface INotificacionSink
+{
+
+	/**
+	 * @return El nombre del canal en la configuración de destinatarios.
+	 */
+	public String getCanal();
+
+	/**
+	 * Entrega un grupo de notificaciones a un destinatario. Si lanza una excepción se reintentará todo
+	 * el grupo más tarde, así que la entrega debe tolerar duplicados.
+	 *
+	 * @param direccion      La dirección del destinatario en el canal.
+	 * @param notificaciones Las notificaciones, de la más antigua a la más reciente.
+	 * @throws Exception Si la entrega falla.
+	 */
+	public void entrega(String direccion, List<NotificacionOutboxEntity> notificaciones) throws Exception;
+
+}
@@ -0,0 +1,35 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Canal "log": escribe las notificaciones en el registro de la aplicación. Sirve para desarrollo y
+ * pruebas sin servidor de correo ni webhook.
+ */
+@Slf4j
+@Component
+public class LogNotificacionSink implements INotificacionSink
+{
+
+	@Override
+	public String getCanal()
+	{
+		return "log";
+	}
+
+	@Override
+	public void entrega(String direccion, List<NotificacionOutboxEntity> notificaciones)
+	{
+		StringBuilder texto = new StringBuilder();
+		for (NotificacionOutboxEntity notificacion : notificaciones)
+		{
+			texto.append("\n - ").append(NotificacionFormato.aTexto(notificacion));
+		}
+		log.info("INFO: Notificacion para {} ({} cambios):{}", direccion, notificaciones.size(), texto);
+	}
+}
@@ -0,0 +1,277 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.INotificacionOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Despachador en segundo plano de la tabla outbox de notificaciones.
+ * <p>
+ * Cada {@code reaktor.notificaciones.intervalo} reclama lotes de notificaciones pendientes con
+ * {@code SELECT ... FOR UPDATE SKIP LOCKED}, de modo que varias instancias pueden despachar a la vez sin
+ * repartirse las mismas filas. La reclamación aplaza el próximo intento de las filas hasta
+ * {@code reaktor.notificaciones.plazo-entrega} y se confirma enseguida, así que ni los bloqueos ni la
+ * conexión se mantienen mientras se llama a los canales. Las notificaciones de cada lote se agrupan por
+ * destinatario y se entregan en una sola llamada a su canal. Después, en otra transacción corta, las
+ * entregadas se borran; las fallidas se reprograman con espera exponencial y, al agotar los intentos,
+ * quedan marcadas como fallidas.
+ * </p>
+ * <p>
+ * Métricas: {@code reaktor.notificaciones.retraso} (segundos desde el evento pendiente más antiguo),
+ * {@code reaktor.notificaciones.pendientes}, {@code reaktor.notificaciones.fallidas},
+ * {@code reaktor.notificaciones.entregadas} y {@code reaktor.notificaciones.reintentos}.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class NotificacionDispatcher
+{
+	/** Longitud máxima del último error guardado. */
+	private static final int MAX_LONG_ERROR = 500;
+
+	/** Repositorio de la tabla outbox. */
+	private final INotificacionOutboxRepository iNotificacionOutboxRepository;
+
+	/** Configuración de notificaciones. */
+	private final NotificacionProperties notificacionProperties;
+
+	/** Canales por nombre. */
+	private final Map<String, INotificacionSink> sinks = new HashMap<String, INotificacionSink>();
+
+	/** Transacciones cortas de reclamación y de registro del resultado de cada lote. */
+	private final TransactionTemplate transactionTemplate;
+
+	/** Milisegundos desde el evento pendiente más antiguo en la última ejecución. */
+	private final AtomicLong retrasoMs = new AtomicLong();
+
+	/** Notificaciones pendientes en la última ejecución. */
+	private final AtomicLong pendientes = new AtomicLong();
+
+	/** Notificaciones fallidas en la última ejecución. */
+	private final AtomicLong fallidas = new AtomicLong();
+
+	/** Notificaciones entregadas. */
+	private final Counter entregadas;
+
+	/** Entregas fallidas que se reintentarán. */
+	private final Counter reintentos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iNotificacionOutboxRepository Repositorio de la tabla outbox.
+	 * @param notificacionProperties        Configuración de notificaciones.
+	 * @param sinks                         Canales de entrega disponibles.
+	 * @param transactionManager            Gestor de transacciones.
+	 * @param meterRegistry                 Registro de métricas.
+	 */
+	public NotificacionDispatcher(INotificacionOutboxRepository iNotificacionOutboxRepository,
+			NotificacionProperties notificacionProperties, List<INotificacionSink> sinks,
+			PlatformTransactionManager transactionManager, MeterRegistry meterRegistry)
+	{
+		this.iNotificacionOutboxRepository = iNotificacionOutboxRepository;
+		this.notificacionProperties = notificacionProperties;
+		for (INotificacionSink sink : sinks)
+		{
+			this.sinks.put(sink.getCanal(), sink);
+		}
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+
+		Gauge.builder("reaktor.notificaciones.retraso", this.retrasoMs, retraso -> retraso.get() / 1000.0)
+				.description("Segundos desde el evento pendiente de notificar más antiguo")
+				.baseUnit("seconds")
+				.register(meterRegistry);
+		Gauge.builder("reaktor.notificaciones.pendientes", this.pendientes, AtomicLong::get)
+				.description("Notificaciones pendientes de entregar")
+				.register(meterRegistry);
+		Gauge.builder("reaktor.notificaciones.fallidas", this.fallidas, AtomicLong::get)
+				.description("Notificaciones que han agotado los intentos")
+				.register(meterRegistry);
+		this.entregadas = Counter.builder("reaktor.notificaciones.entregadas").register(meterRegistry);
+		this.reintentos = Counter.builder("reaktor.notificaciones.reintentos").register(meterRegistry);
+	}
+
+	/**
+	 * Despacha lotes hasta vaciar las notificaciones listas para entregar y actualiza las métricas.
+	 */
+	@Scheduled(fixedDelayString = "${reaktor.notificaciones.intervalo:PT5S}", initialDelayString = "${reaktor.notificaciones.intervalo:PT5S}")
+	public void despacha()
+	{
+		if (!this.notificacionProperties.isHabilitadas())
+		{
+			return;
+		}
+
+		try
+		{
+			List<NotificacionOutboxEntity> lote;
+			do
+			{
+				lote = this.transactionTemplate.execute(estado -> this.reclamaLote());
+				this.entregaLote(lote);
+			}
+			while (lote.size() == this.notificacionProperties.getTamanoLote());
+		}
+		catch (RuntimeException exception)
+		{
+			log.error("ERROR: Fallo al despachar notificaciones.", exception);
+		}
+
+		Date masAntigua = this.iNotificacionOutboxRepository.fechaPendienteMasAntigua();
+		this.retrasoMs.set(masAntigua == null ? 0 : Math.max(0, System.currentTimeMillis() - masAntigua.getTime()));
+		this.pendientes.set(this.iNotificacionOutboxRepository.countByFallidaFalse());
+		this.fallidas.set(this.iNotificacionOutboxRepository.countByFallidaTrue());
+	}
+
+	/**
+	 * Reclama un lote y aplaza su próximo intento hasta el fin del plazo de entrega. Se ejecuta en una
+	 * transacción corta: al confirmarla se liberan los bloqueos, y el aplazamiento impide que otro
+	 * despachador reclame las mismas filas mientras se entregan.
+	 *
+	 * @return Las notificaciones reclamadas.
+	 */
+	private List<NotificacionOutboxEntity> reclamaLote()
+	{
+		Date ahora = new Date();
+		List<NotificacionOutboxEntity> lote = this.iNotificacionOutboxRepository.reclamaPendientes(ahora,
+				PageRequest.of(0, this.notificacionProperties.getTamanoLote()));
+
+		Date finPlazo = new Date(ahora.getTime() + this.notificacionProperties.getPlazoEntrega().toMillis());
+		for (NotificacionOutboxEntity notificacion : lote)
+		{
+			notificacion.setProximoIntento(finPlazo);
+		}
+		return lote;
+	}
+
+	/**
+	 * Entrega un lote reclamado, fuera de cualquier transacción, y registra el resultado en otra
+	 * transacción corta. Si el servidor se detiene antes de registrarlo, las notificaciones se vuelven a
+	 * reclamar al acabar el plazo de entrega.
+	 *
+	 * @param lote Las notificaciones reclamadas.
+	 */
+	private void entregaLote(List<NotificacionOutboxEntity> lote)
+	{
+		if (lote.isEmpty())
+		{
+			return;
+		}
+
+		// Agrupa por destinatario para entregar todos sus cambios de una vez.
+		Map<String, List<NotificacionOutboxEntity>> porDestinatario = new LinkedHashMap<String, List<NotificacionOutboxEntity>>();
+		for (NotificacionOutboxEntity notificacion : lote)
+		{
+			porDestinatario.computeIfAbsent(notificacion.getCanal() + "|" + notificacion.getDireccion(),
+					clave -> new ArrayList<NotificacionOutboxEntity>()).add(notificacion);
+		}
+
+		List<Long> entregadas = new ArrayList<Long>();
+		Map<Long, String> errores = new HashMap<Long, String>();
+		for (List<NotificacionOutboxEntity> grupo : porDestinatario.values())
+		{
+			NotificacionOutboxEntity primera = grupo.get(0);
+			try
+			{
+				INotificacionSink sink = this.sinks.get(primera.getCanal());
+				if (sink == null)
+				{
+					throw new IllegalStateException("Canal de notificacion desconocido: " + primera.getCanal());
+				}
+				sink.entrega(primera.getDireccion(), grupo);
+				for (NotificacionOutboxEntity notificacion : grupo)
+				{
+					entregadas.add(notificacion.getId());
+				}
+			}
+			catch (Exception exception)
+			{
+				String error = exception.getMessage() != null ? exception.getMessage() : exception.toString();
+				error = error.substring(0, Math.min(error.length(), MAX_LONG_ERROR));
+				log.warn("WARN: Entrega a {} {} fallida ({} notificaciones): {}", primera.getCanal(),
+						primera.getDireccion(), grupo.size(), error);
+				for (NotificacionOutboxEntity notificacion : grupo)
+				{
+					errores.put(notificacion.getId(), error);
+				}
+			}
+		}
+
+		Integer reprogramadas = this.transactionTemplate.execute(estado -> this.registraResultado(entregadas, errores));
+		this.entregadas.increment(entregadas.size());
+		this.reintentos.increment(reprogramadas);
+	}
+
+	/**
+	 * Borra las notificaciones entregadas y anota el fallo en las demás. Las fallidas se leen de nuevo:
+	 * si otro despachador las ha entregado y borrado después de acabar el plazo, no se vuelven a crear.
+	 *
+	 * @param entregadas Identificadores de las notificaciones entregadas.
+	 * @param errores    Error de entrega por identificador de las no entregadas.
+	 * @return El número de notificaciones reprogramadas.
+	 */
+	private int registraResultado(List<Long> entregadas, Map<Long, String> errores)
+	{
+		if (!entregadas.isEmpty())
+		{
+			this.iNotificacionOutboxRepository.deleteAllByIdInBatch(entregadas);
+		}
+
+		int reprogramadas = 0;
+		Date ahora = new Date();
+		for (NotificacionOutboxEntity notificacion : this.iNotificacionOutboxRepository.findAllById(errores.keySet()))
+		{
+			notificacion.setIntentos(notificacion.getIntentos() + 1);
+			notificacion.setUltimoError(errores.get(notificacion.getId()));
+			if (notificacion.getIntentos() >= this.notificacionProperties.getMaxIntentos())
+			{
+				notificacion.setFallida(true);
+				log.error("ERROR: Notificacion {} descartada tras {} intentos.", notificacion.getId(), notificacion.getIntentos());
+			}
+			else
+			{
+				notificacion.setProximoIntento(new Date(ahora.getTime() + this.espera(notificacion.getIntentos())));
+				reprogramadas++;
+			}
+		}
+		return reprogramadas;
+	}
+
+	/**
+	 * Espera exponencial con variación aleatoria de ±20% para que los reintentos no coincidan.
+	 *
+	 * @param intentos Intentos realizados.
+	 * @return Milisegundos hasta el siguiente intento.
+	 */
+	private long espera(int intentos)
+	{
+		long inicial = this.notificacionProperties.getEsperaInicial().toMillis();
+		long maxima = this.notificacionProperties.getEsperaMaxima().toMillis();
+		long espera = inicial << Math.min(intentos - 1, 30);
+		if (espera <= 0 || espera > maxima)
+		{
+			espera = maxima;
+		}
+		return (long) (espera * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+	}
+}
@@ -0,0 +1,70 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEscaladaEvent;
+
+/**
+ * Representaciones de las notificaciones comunes a los canales de entrega.
+ */
+public final class NotificacionFormato
+{
+
+	/**
+	 * Constructor privado: clase de utilidades.
+	 */
+	private NotificacionFormato()
+	{
+	}
+
+	/**
+	 * @param notificaciones Las notificaciones.
+	 * @return Una lista de mapas con los datos públicos de cada notificación, lista para serializar en JSON.
+	 */
+	public static List<Map<String, Object>> aMapas(List<NotificacionOutboxEntity> notificaciones)
+	{
+		List<Map<String, Object>> mapas = new ArrayList<Map<String, Object>>(notificaciones.size());
+		for (NotificacionOutboxEntity notificacion : notificaciones)
+		{
+			Map<String, Object> mapa = new LinkedHashMap<String, Object>();
+			mapa.put("idNotificacion", notificacion.getId().toString());
+			mapa.put("incidenciaId", notificacion.getIncidenciaId().toString());
+			mapa.put("tipoEvento", notificacion.getTipoEvento());
+			mapa.put("numeroAula", notificacion.getNumeroAula());
+			mapa.put("correoDocente", notificacion.getCorreoDocente());
+			mapa.put("estadoAnterior", notificacion.getEstadoAnterior());
+			mapa.put("estadoNuevo", notificacion.getEstadoNuevo());
+			mapa.put("resumen", notificacion.getResumen());
+			mapa.put("fechaEvento", notificacion.getFechaEvento());
+			mapas.add(mapa);
+		}
+		return mapas;
+	}
+
+	/**
+	 * @param notificacion Una notificación.
+	 * @return Una línea de texto que la describe.
+	 */
+	public static String aTexto(NotificacionOutboxEntity notificacion)
+	{
+		String cambio;
+		if (IncidenciaEscaladaEvent.TIPO.equals(notificacion.getTipoEvento()))
+		{
+			cambio = "plazo de atencion superado en " + notificacion.getEstadoNuevo();
+		}
+		else if (notificacion.getEstadoAnterior() == null)
+		{
+			cambio = "nueva incidencia (" + notificacion.getEstadoNuevo() + ")";
+		}
+		else
+		{
+			cambio = notificacion.getEstadoAnterior() + " -> " + notificacion.getEstadoNuevo();
+		}
+		return "Aula " + notificacion.getNumeroAula() + ": " + cambio + " - " + notificacion.getResumen()
+				+ " [" + notificacion.getCorreoDocente() + ", incidencia " + notificacion.getIncidenciaId() + "]";
+	}
+}
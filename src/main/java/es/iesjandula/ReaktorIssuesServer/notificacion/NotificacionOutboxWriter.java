@@ -0,0 +1,119 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaAbiertaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEscaladaEvent;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.INotificacionOutboxRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Escribe en la tabla outbox una notificación por destinatario cada vez que se crea una incidencia o
+ * cambia su estado.
+ * <p>
+ * Escucha en la fase {@link TransactionPhase#BEFORE_COMMIT}, de modo que la fila se confirma o se
+ * deshace junto con la incidencia y la petición no espera a ninguna entrega. Las inserciones por lotes
+ * (importación masiva de históricos) no generan notificaciones. También se notifican las incidencias
+ * que superan su plazo de atención ({@link IncidenciaEscaladaEvent}).
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class NotificacionOutboxWriter
+{
+	/** Repositorio de la tabla outbox. */
+	private final INotificacionOutboxRepository iNotificacionOutboxRepository;
+
+	/** Configuración de notificaciones. */
+	private final NotificacionProperties notificacionProperties;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iNotificacionOutboxRepository Repositorio de la tabla outbox.
+	 * @param notificacionProperties        Configuración de notificaciones.
+	 */
+	public NotificacionOutboxWriter(INotificacionOutboxRepository iNotificacionOutboxRepository,
+			NotificacionProperties notificacionProperties)
+	{
+		this.iNotificacionOutboxRepository = iNotificacionOutboxRepository;
+		this.notificacionProperties = notificacionProperties;
+	}
+
+	/**
+	 * Añade las notificaciones del cambio a la transacción en curso.
+	 *
+	 * @param evento El evento de la incidencia.
+	 */
+	@TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+	public void alCambiarIncidencia(IncidenciaEvent evento)
+	{
+		if (evento.isMasiva() || !evento.cambiaEstado() || this.notificacionProperties.getDestinatarios().isEmpty())
+		{
+			return;
+		}
+
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		String descripcion = incidencia.getDescripcionIncidencia();
+		String resumen = descripcion == null ? null
+				: descripcion.substring(0, Math.min(descripcion.length(), Constants.LONG_RESUMEN_DESCRIPCION));
+		this.encola(incidencia.getId(), evento.getTipo().name(), incidencia.getNumeroAula(),
+				incidencia.getCorreoDocente(), evento.getEstadoAnterior(), incidencia.getEstadoIncidencia(), resumen);
+	}
+
+	/**
+	 * Añade las notificaciones de una incidencia que ha superado su plazo de atención. Se publica fuera de
+	 * cualquier transacción, por lo que se guardan en una propia.
+	 *
+	 * @param evento El evento de escalada.
+	 */
+	@EventListener
+	public void alEscalarIncidencia(IncidenciaEscaladaEvent evento)
+	{
+		if (this.notificacionProperties.getDestinatarios().isEmpty())
+		{
+			return;
+		}
+
+		IncidenciaAbiertaDTO incidencia = evento.getIncidencia();
+		this.encola(incidencia.getId(), IncidenciaEscaladaEvent.TIPO, incidencia.getNumeroAula(),
+				incidencia.getCorreoDocente(), incidencia.getEstadoIncidencia(), incidencia.getEstadoIncidencia(),
+				incidencia.getResumenDescripcion());
+	}
+
+	/**
+	 * Guarda una notificación pendiente por destinatario.
+	 *
+	 * @param incidenciaId   Identificador de la incidencia.
+	 * @param tipoEvento     Tipo de evento.
+	 * @param numeroAula     Aula de la incidencia.
+	 * @param correoDocente  Docente que informó de la incidencia.
+	 * @param estadoAnterior Estado anterior; nulo si es nueva.
+	 * @param estadoNuevo    Estado actual.
+	 * @param resumen        Resumen de la descripción.
+	 */
+	private void encola(Long incidenciaId, String tipoEvento, String numeroAula, String correoDocente,
+			String estadoAnterior, String estadoNuevo, String resumen)
+	{
+		Date ahora = new Date();
+		List<NotificacionOutboxEntity> notificaciones = new ArrayList<NotificacionOutboxEntity>();
+		for (NotificacionProperties.Destinatario destinatario : this.notificacionProperties.getDestinatarios())
+		{
+			notificaciones.add(new NotificacionOutboxEntity(null, destinatario.getCanal(), destinatario.getDireccion(),
+					incidenciaId, tipoEvento, numeroAula, correoDocente, estadoAnterior, estadoNuevo, resumen, ahora, 0,
+					ahora, false, null));
+		}
+		this.iNotificacionOutboxRepository.saveAll(notificaciones);
+	}
+}
@@ -0,0 +1,66 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Configuración de las notificaciones de cambios en incidencias ({@code reaktor.notificaciones}).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "reaktor.notificaciones")
+public class NotificacionProperties
+{
+	/** Si es false no se ejecuta el despachador (las notificaciones se siguen acumulando). */
+	private boolean habilitadas = true;
+
+	/** Notificaciones reclamadas por transacción. */
+	private int tamanoLote = 100;
+
+	/** Intentos de entrega antes de marcar una notificación como fallida. */
+	private int maxIntentos = 8;
+
+	/** Espera tras el primer fallo; se duplica en cada intento. */
+	private Duration esperaInicial = Duration.ofSeconds(10);
+
+	/** Espera máxima entre intentos. */
+	private Duration esperaMaxima = Duration.ofHours(1);
+
+	/**
+	 * Tiempo durante el que un lote reclamado no se vuelve a reclamar. Debe superar lo que tarda en
+	 * entregarse un lote; si el servidor se detiene durante la entrega, el lote se reintenta al acabar.
+	 */
+	private Duration plazoEntrega = Duration.ofMinutes(5);
+
+	/** Tiempo máximo de espera de una llamada a un webhook. */
+	private Duration timeoutWebhook = Duration.ofSeconds(10);
+
+	/** Remitente de los correos. */
+	private String remitente = "reaktor@iesjandula.es";
+
+	/** Destinatarios de las notificaciones. */
+	private List<Destinatario> destinatarios = new ArrayList<Destinatario>();
+
+	/**
+	 * Destinatario de las notificaciones en un canal.
+	 */
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	public static class Destinatario
+	{
+		/** Canal de entrega: "log", "webhook" o "smtp". */
+		private String canal;
+
+		/** Dirección en el canal: nombre, URL o correo electrónico. */
+		private String direccion;
+	}
+}
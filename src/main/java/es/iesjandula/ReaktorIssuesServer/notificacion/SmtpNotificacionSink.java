@@ -0,0 +1,65 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.util.List;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.stereotype.Component;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+
+/**
+ * Canal "smtp": envía un correo por destinatario con todos sus cambios pendientes. Usa el servidor
+ * configurado en {@code spring.mail.*}; si no hay ninguno la entrega falla y se reintenta.
+ */
+@Component
+public class SmtpNotificacionSink implements INotificacionSink
+{
+	/** Cliente de correo, si está configurado. */
+	private final ObjectProvider<JavaMailSender> javaMailSender;
+
+	/** Configuración de notificaciones. */
+	private final NotificacionProperties notificacionProperties;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param javaMailSender         Cliente de correo, si está configurado.
+	 * @param notificacionProperties Configuración de notificaciones.
+	 */
+	public SmtpNotificacionSink(ObjectProvider<JavaMailSender> javaMailSender, NotificacionProperties notificacionProperties)
+	{
+		this.javaMailSender = javaMailSender;
+		this.notificacionProperties = notificacionProperties;
+	}
+
+	@Override
+	public String getCanal()
+	{
+		return "smtp";
+	}
+
+	@Override
+	public void entrega(String direccion, List<NotificacionOutboxEntity> notificaciones)
+	{
+		JavaMailSender cliente = this.javaMailSender.getIfAvailable();
+		if (cliente == null)
+		{
+			throw new IllegalStateException("No hay servidor de correo configurado (spring.mail.host).");
+		}
+
+		StringBuilder texto = new StringBuilder();
+		for (NotificacionOutboxEntity notificacion : notificaciones)
+		{
+			texto.append(NotificacionFormato.aTexto(notificacion)).append('\n');
+		}
+
+		SimpleMailMessage mensaje = new SimpleMailMessage();
+		mensaje.setFrom(this.notificacionProperties.getRemitente());
+		mensaje.setTo(direccion);
+		mensaje.setSubject("[Reaktor] " + notificaciones.size() + " cambios en incidencias");
+		mensaje.setText(texto.toString());
+		cliente.send(mensaje);
+	}
+}
@@ -0,0 +1,71 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+
+/**
+ * Canal "webhook": envía las notificaciones de un destinatario en un único POST JSON a su URL. Cualquier
+ * respuesta que no sea 2xx se considera un fallo y se reintenta.
+ */
+@Component
+public class WebhookNotificacionSink implements INotificacionSink
+{
+	/** Cliente HTTP compartido. */
+	private final HttpClient httpClient;
+
+	/** Serializador JSON de la aplicación. */
+	private final ObjectMapper objectMapper;
+
+	/** Configuración de notificaciones. */
+	private final NotificacionProperties notificacionProperties;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param objectMapper           Serializador JSON de la aplicación.
+	 * @param notificacionProperties Configuración de notificaciones.
+	 */
+	public WebhookNotificacionSink(ObjectMapper objectMapper, NotificacionProperties notificacionProperties)
+	{
+		this.objectMapper = objectMapper;
+		this.notificacionProperties = notificacionProperties;
+		this.httpClient = HttpClient.newBuilder().connectTimeout(notificacionProperties.getTimeoutWebhook()).build();
+	}
+
+	@Override
+	public String getCanal()
+	{
+		return "webhook";
+	}
+
+	@Override
+	public void entrega(String direccion, List<NotificacionOutboxEntity> notificaciones) throws Exception
+	{
+		Map<String, Object> cuerpo = new LinkedHashMap<String, Object>();
+		cuerpo.put("notificaciones", NotificacionFormato.aMapas(notificaciones));
+
+		HttpRequest peticion = HttpRequest.newBuilder(URI.create(direccion))
+				.timeout(this.notificacionProperties.getTimeoutWebhook())
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofByteArray(this.objectMapper.writeValueAsBytes(cuerpo)))
+				.build();
+
+		HttpResponse<Void> respuesta = this.httpClient.send(peticion, HttpResponse.BodyHandlers.discarding());
+		if (respuesta.statusCode() / 100 != 2)
+		{
+			throw new IOException("El webhook " + direccion + " ha respondido " + respuesta.statusCode());
+		}
+	}
+}
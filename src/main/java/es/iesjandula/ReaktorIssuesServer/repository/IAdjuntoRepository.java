@@ -0,0 +1,49 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.AdjuntoEntity;
+
+/**
+ * Repositorio para gestionar los metadatos de los adjuntos de las incidencias.
+ * <p>
+ * Las consultas se resuelven con los índices por incidencia y por hash de {@link AdjuntoEntity}.
+ * </p>
+ */
+@Repository
+public interface IAdjuntoRepository extends JpaRepository<AdjuntoEntity, Long>
+{
+
+	/**
+	 * Busca los adjuntos de una incidencia en orden de subida.
+	 *
+	 * @param incidenciaId El identificador de la incidencia.
+	 * @return Los adjuntos de la incidencia.
+	 */
+	@Transactional(readOnly = true)
+	public List<AdjuntoEntity> findByIncidenciaIdOrderByFechaSubidaAsc(Long incidenciaId);
+
+	/**
+	 * Busca un adjunto comprobando que pertenece a la incidencia indicada.
+	 *
+	 * @param id           El identificador del adjunto.
+	 * @param incidenciaId El identificador de la incidencia.
+	 * @return El adjunto si existe.
+	 */
+	public Optional<AdjuntoEntity> findByIdAndIncidenciaId(Long id, Long incidenciaId);
+
+	/**
+	 * Comprueba si algún adjunto usa un contenido. Se resuelve en la base de datos primaria porque
+	 * decide si el fichero se puede borrar.
+	 *
+	 * @param hash El hash del contenido.
+	 * @return {@code true} si el contenido sigue referenciado.
+	 */
+	@Transactional
+	public boolean existsByHash(String hash);
+}
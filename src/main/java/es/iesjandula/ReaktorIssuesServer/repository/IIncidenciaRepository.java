@@ -2,33 +2,35 @@ package es.iesjandula.ReaktorIssuesServer.repository;
 
 import java.util.Date;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
-import lombok.Data;
 
 /**
  * Repositorio para gestionar incidencias en la base de datos.
  * <p>
  * Esta interfaz extiende {@link JpaRepository} y proporciona métodos para realizar operaciones
- * de búsqueda y verificación sobre la entidad {@link IncidenciaEntity} utilizando identificadores compuestos.
+ * de búsqueda y verificación sobre la entidad {@link IncidenciaEntity}, tanto por su identificador sustituto
+ * como por su clave natural compuesta.
+ * Las proyecciones con campos a elección del cliente se implementan en {@link IIncidenciaRepositoryCustom}.
  * </p>
  */
 @Repository
-public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, IncidenciaEntityId>
+public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, Long>, IIncidenciaRepositoryCustom
 {
 	
 	/**
-	 * Verifica si existe una incidencia en la base de datos utilizando un identificador compuesto.
+	 * Verifica si existe una incidencia en la base de datos utilizando su clave natural.
 	 * <p>
-	 * Este método crea un identificador compuesto a partir del número de aula, el correo del docente y la fecha de la incidencia,
-	 * y luego utiliza este identificador para comprobar si la incidencia correspondiente ya está registrada en la base de datos.
+	 * La comprobación se resuelve con el índice único sobre número de aula, correo del docente y fecha.
 	 * </p>
 	 *
 	 * @param numeroAula          El número del aula asociado a la incidencia.
@@ -37,9 +39,32 @@ public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, I
 	 * @return                   {@code true} si la incidencia existe en la base de datos; {@code false} en caso contrario.
 	 */
 	public default boolean existsByCompositeId( String numeroAula, String correoDocente, Date fechaIncidencia  ) {
-		IncidenciaEntityId id = new IncidenciaEntityId( numeroAula, correoDocente, fechaIncidencia  );
-		return this.existsById(id);
+		return this.existsByNumeroAulaAndCorreoDocenteAndFechaIncidencia(numeroAula, correoDocente, fechaIncidencia);
 	}
+
+	/**
+	 * Busca una incidencia por su clave natural.
+	 *
+	 * @param id La clave natural de la incidencia.
+	 * @return La incidencia si existe.
+	 */
+	public default Optional<IncidenciaEntity> findByCompositeId( IncidenciaEntityId id ) {
+		return this.findByNumeroAulaAndCorreoDocenteAndFechaIncidencia(id.getNumeroAula(), id.getCorreoDocente(), id.getFechaIncidencia());
+	}
+
+	/**
+	 * Consulta derivada que comprueba la existencia de una incidencia por su clave natural.
+	 * Se resuelve en la base de datos primaria porque forma parte del camino de escritura.
+	 */
+	@Transactional
+	public boolean existsByNumeroAulaAndCorreoDocenteAndFechaIncidencia( String numeroAula, String correoDocente, Date fechaIncidencia );
+
+	/**
+	 * Consulta derivada que obtiene una incidencia por su clave natural.
+	 * Se resuelve en la base de datos primaria porque forma parte del camino de escritura.
+	 */
+	@Transactional
+	public Optional<IncidenciaEntity> findByNumeroAulaAndCorreoDocenteAndFechaIncidencia( String numeroAula, String correoDocente, Date fechaIncidencia );
 		
 	
 	/**
@@ -60,13 +85,14 @@ public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, I
 	 * @return                        Una lista de objetos {@link IncidenciaDTO} que cumplen con los criterios de búsqueda.
 	 */
 	@Query("SELECT new es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO("
-			+ "e.numeroAula, e.correoDocente, e.fechaIncidencia, e.descripcionIncidencia, e.estadoIncidencia, e.comentario"
+			+ "e.id, e.numeroAula, e.correoDocente, e.fechaIncidencia, e.descripcionIncidencia, e.estadoIncidencia, e.comentario"
 			+ ") " + "FROM IncidenciaEntity e WHERE ( :numeroAula IS NULL OR e.numeroAula = :numeroAula ) AND "
 			+ "( :correoDocente IS NULL OR e.correoDocente = :correoDocente ) AND "
 			+ "( (:fechaFin IS NULL) OR (:fechaInicio IS NULL) OR e.fechaIncidencia BETWEEN :fechaInicio AND :fechaFin ) AND "
 			+ "( :descripcionIncidencia IS NULL OR e.descripcionIncidencia LIKE CONCAT('%', :descripcionIncidencia, '%') ) AND "
 			+ "( :estadoIncidencia IS NULL OR e.estadoIncidencia = :estadoIncidencia ) AND "
 			+ "( :comentario IS NULL OR e.comentario LIKE CONCAT('%', :comentario, '%') )")
+	@Transactional(readOnly = true)
 	public List<IncidenciaDTO> buscaIncidencia(  
 			@Param("numeroAula") String numeroAula, 
 			@Param("correoDocente")String correoDocente, 
@@ -75,6 +101,33 @@ public interface IIncidenciaRepository extends JpaRepository<IncidenciaEntity, I
 			@Param("descripcionIncidencia")String descripcionIncidencia, 
 			@Param("estadoIncidencia")String estadoIncidencia, 
 			@Param("comentario")String comentario );
+
+	/**
+	 * Metodo que cuenta las incidencias de cada aula.
+	 *
+	 * @return Lista de pares {numeroAula, número de incidencias}.
+	 */
+	@Query("SELECT e.numeroAula, COUNT(e) FROM IncidenciaEntity e GROUP BY e.numeroAula")
+	@Transactional(readOnly = true)
+	public List<Object[]> cuentaPorAula();
+
+	/**
+	 * Metodo que cuenta las incidencias de cada docente.
+	 *
+	 * @return Lista de pares {correoDocente, número de incidencias}.
+	 */
+	@Query("SELECT e.correoDocente, COUNT(e) FROM IncidenciaEntity e GROUP BY e.correoDocente")
+	@Transactional(readOnly = true)
+	public List<Object[]> cuentaPorDocente();
+
+	/**
+	 * Metodo que cuenta las incidencias de cada estado.
+	 *
+	 * @return Lista de pares {estadoIncidencia, número de incidencias}.
+	 */
+	@Query("SELECT e.estadoIncidencia, COUNT(e) FROM IncidenciaEntity e GROUP BY e.estadoIncidencia")
+	@Transactional(readOnly = true)
+	public List<Object[]> cuentaPorEstado();
 	
 
 }
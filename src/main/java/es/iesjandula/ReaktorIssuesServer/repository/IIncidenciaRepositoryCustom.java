@@ -0,0 +1,45 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fragmento personalizado del repositorio de incidencias.
+ * <p>
+ * Define las consultas que no pueden expresarse con una consulta JPQL fija, como las proyecciones
+ * en las que el cliente elige qué campos quiere recibir (sparse fieldsets).
+ * </p>
+ */
+public interface IIncidenciaRepositoryCustom
+{
+
+	/**
+	 * Busca incidencias seleccionando únicamente las columnas solicitadas.
+	 * <p>
+	 * La consulta se construye con los campos pedidos y solo con los filtros que no son nulos, de forma
+	 * que las columnas TEXT que no se solicitan nunca se leen de la base de datos. El campo calculado
+	 * {@code resumenDescripcion} se obtiene en SQL truncando la descripción.
+	 * </p>
+	 *
+	 * @param campos                 Campos a devolver, todos ellos incluidos en {@code Constants.CAMPOS_LISTADO}.
+	 * @param numeroAula             El número del aula de la incidencia.
+	 * @param correoDocente          El correo del docente que reportó la incidencia.
+	 * @param fechaInicio            La fecha y hora mínima de la incidencia.
+	 * @param fechaFin               La fecha y hora máxima de la incidencia.
+	 * @param descripcionIncidencia  Parte de la descripción de la incidencia a buscar.
+	 * @param estadoIncidencia       El estado de la incidencia.
+	 * @param comentario             Parte del comentario de la incidencia a buscar.
+	 * @return                       Una lista de mapas campo-valor, ordenada por fecha descendente.
+	 */
+	public List<Map<String, Object>> buscaProyeccionIncidencia(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario);
+
+}
@@ -0,0 +1,122 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Implementación del fragmento {@link IIncidenciaRepositoryCustom}.
+ * <p>
+ * Construye la consulta JPQL a partir de los campos solicitados, de modo que MySQL solo tenga que
+ * leer las columnas necesarias y no las columnas TEXT almacenadas fuera de página.
+ * </p>
+ */
+public class IIncidenciaRepositoryCustomImpl implements IIncidenciaRepositoryCustom
+{
+
+	/**
+	 * Expresión JPQL asociada a cada campo que se puede solicitar en un listado.
+	 */
+	private static final Map<String, String> EXPRESIONES_CAMPOS = Map.of(
+			"id", "e.id",
+			"numeroAula", "e.numeroAula",
+			"correoDocente", "e.correoDocente",
+			"fechaIncidencia", "e.fechaIncidencia",
+			"estadoIncidencia", "e.estadoIncidencia",
+			"fechaEstado", "e.fechaEstado",
+			Constants.CAMPO_RESUMEN_DESCRIPCION,
+			"SUBSTRING(e.descripcionIncidencia, 1, " + Constants.LONG_RESUMEN_DESCRIPCION + ")");
+
+	@PersistenceContext
+	// Auto-inyeccion del gestor de entidades.
+	private EntityManager entityManager;
+
+	@Override
+	@Transactional(readOnly = true)
+	public List<Map<String, Object>> buscaProyeccionIncidencia(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario)
+	{
+		// Clausula SELECT con un alias por campo para poder leer la tupla por nombre.
+		List<String> seleccion = new ArrayList<String>();
+		for (String campo : campos)
+		{
+			String expresion = EXPRESIONES_CAMPOS.get(campo);
+			if (expresion == null)
+			{
+				throw new IllegalArgumentException("Campo no permitido en el listado: " + campo);
+			}
+			seleccion.add(expresion + " AS " + campo);
+		}
+
+		// Solo se añaden los filtros informados para que MySQL pueda usar los indices.
+		StringBuilder jpql = new StringBuilder("SELECT ").append(String.join(", ", seleccion))
+				.append(" FROM IncidenciaEntity e WHERE 1 = 1");
+		Map<String, Object> parametros = new LinkedHashMap<String, Object>();
+
+		agregaFiltro(jpql, parametros, "e.numeroAula = :numeroAula", "numeroAula", numeroAula);
+		agregaFiltro(jpql, parametros, "e.correoDocente = :correoDocente", "correoDocente", correoDocente);
+		agregaFiltro(jpql, parametros, "e.fechaIncidencia >= :fechaInicio", "fechaInicio", fechaInicio);
+		agregaFiltro(jpql, parametros, "e.fechaIncidencia <= :fechaFin", "fechaFin", fechaFin);
+		agregaFiltro(jpql, parametros, "e.estadoIncidencia = :estadoIncidencia", "estadoIncidencia", estadoIncidencia);
+		agregaFiltro(jpql, parametros, "e.descripcionIncidencia LIKE CONCAT('%', :descripcionIncidencia, '%')",
+				"descripcionIncidencia", descripcionIncidencia);
+		agregaFiltro(jpql, parametros, "e.comentario LIKE CONCAT('%', :comentario, '%')", "comentario", comentario);
+
+		jpql.append(" ORDER BY e.fechaIncidencia DESC");
+
+		TypedQuery<Tuple> query = this.entityManager.createQuery(jpql.toString(), Tuple.class);
+		parametros.forEach(query::setParameter);
+
+		// Convierte cada tupla en un mapa que conserva el orden de los campos pedidos.
+		List<Map<String, Object>> resultado = new ArrayList<Map<String, Object>>();
+		for (Tuple tupla : query.getResultList())
+		{
+			Map<String, Object> fila = new LinkedHashMap<String, Object>();
+			for (String campo : campos)
+			{
+				Object valor = tupla.get(campo);
+				// El identificador se devuelve como texto porque supera la precisión de los números de JavaScript.
+				fila.put(campo, "id".equals(campo) && valor != null ? valor.toString() : valor);
+			}
+			resultado.add(fila);
+		}
+		return resultado;
+	}
+
+	/**
+	 * Añade un filtro a la consulta si su valor no es nulo.
+	 *
+	 * @param jpql       Consulta en construcción.
+	 * @param parametros Parametros de la consulta.
+	 * @param condicion  Condición JPQL que utiliza el parámetro.
+	 * @param nombre     Nombre del parámetro.
+	 * @param valor      Valor del parámetro; si es nulo el filtro se ignora.
+	 */
+	private void agregaFiltro(StringBuilder jpql, Map<String, Object> parametros, String condicion, String nombre,
+			Object valor)
+	{
+		if (valor != null)
+		{
+			jpql.append(" AND ").append(condicion);
+			parametros.put(nombre, valor);
+		}
+	}
+
+}
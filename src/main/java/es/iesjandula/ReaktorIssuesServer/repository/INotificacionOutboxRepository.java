@@ -0,0 +1,54 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+/**
+ * Repositorio de la tabla outbox de notificaciones.
+ */
+@Repository
+public interface INotificacionOutboxRepository extends JpaRepository<NotificacionOutboxEntity, Long>
+{
+
+	/**
+	 * Reclama notificaciones pendientes bloqueando sus filas ({@code FOR UPDATE SKIP LOCKED}): las filas
+	 * bloqueadas por otro despachador se saltan en lugar de esperar. Debe llamarse dentro de una
+	 * transacción, que mantiene el bloqueo hasta que el despachador aplaza su próximo intento.
+	 *
+	 * @param ahora  Momento actual.
+	 * @param pagina Número máximo de filas.
+	 * @return Las notificaciones reclamadas, de la más antigua a la más reciente.
+	 */
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+	@Query("SELECT n FROM NotificacionOutboxEntity n WHERE n.fallida = false AND n.proximoIntento <= :ahora ORDER BY n.proximoIntento, n.id")
+	public List<NotificacionOutboxEntity> reclamaPendientes(@Param("ahora") Date ahora, Pageable pagina);
+
+	/**
+	 * @return La fecha del evento pendiente más antiguo, o null si no hay pendientes.
+	 */
+	@Query("SELECT MIN(n.fechaEvento) FROM NotificacionOutboxEntity n WHERE n.fallida = false")
+	public Date fechaPendienteMasAntigua();
+
+	/**
+	 * @return El número de notificaciones pendientes.
+	 */
+	public long countByFallidaFalse();
+
+	/**
+	 * @return El número de notificaciones que han agotado los intentos.
+	 */
+	public long countByFallidaTrue();
+}
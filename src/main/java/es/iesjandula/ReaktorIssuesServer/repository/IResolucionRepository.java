@@ -0,0 +1,14 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.iesjandula.ReaktorIssuesServer.entity.ResolucionEntity;
+
+/**
+ * Repositorio de las fechas de resolución de las incidencias.
+ */
+@Repository
+public interface IResolucionRepository extends JpaRepository<ResolucionEntity, Long>
+{
+}
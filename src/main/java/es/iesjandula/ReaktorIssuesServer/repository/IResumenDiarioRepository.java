@@ -0,0 +1,78 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import java.time.LocalDate;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenDiarioEntity;
+
+/**
+ * Repositorio de los resúmenes diarios de incidencias.
+ */
+@Repository
+public interface IResumenDiarioRepository extends JpaRepository<ResumenDiarioEntity, Long>
+{
+
+	/**
+	 * Lee las incidencias creadas en un intervalo con su fecha de resolución, si
+	 * se conoce.
+	 *
+	 * @param desde Inicio del intervalo (incluido).
+	 * @param hasta Fin del intervalo (excluido).
+	 * @return Filas {numeroAula, estadoIncidencia, fechaIncidencia, fechaResolucion}.
+	 */
+	@Query("SELECT i.numeroAula, i.estadoIncidencia, i.fechaIncidencia, r.fechaResolucion "
+			+ "FROM IncidenciaEntity i LEFT JOIN ResolucionEntity r ON r.incidenciaId = i.id "
+			+ "WHERE i.fechaIncidencia >= :desde AND i.fechaIncidencia < :hasta")
+	public List<Object[]> leeIncidencias(@Param("desde") Date desde, @Param("hasta") Date hasta);
+
+	/**
+	 * @return La fecha de la incidencia más antigua, o null si no hay ninguna.
+	 */
+	@Query("SELECT MIN(i.fechaIncidencia) FROM IncidenciaEntity i")
+	public Date primeraFechaIncidencia();
+
+	/**
+	 * @return La fecha de la incidencia más reciente, o null si no hay ninguna.
+	 */
+	@Query("SELECT MAX(i.fechaIncidencia) FROM IncidenciaEntity i")
+	public Date ultimaFechaIncidencia();
+
+	/**
+	 * Borra los resúmenes de un día. Debe llamarse dentro de una transacción.
+	 *
+	 * @param dia El día.
+	 * @return Número de filas borradas.
+	 */
+	@Modifying
+	@Query("DELETE FROM ResumenDiarioEntity r WHERE r.dia = :dia")
+	public int borraDia(@Param("dia") LocalDate dia);
+
+	/**
+	 * Metodo que devuelve los resúmenes de un intervalo de días.
+	 *
+	 * @param desde Primer día (incluido).
+	 * @param hasta Último día (incluido).
+	 * @return Los resúmenes.
+	 */
+	@Transactional(readOnly = true)
+	public List<ResumenDiarioEntity> findByDiaBetween(LocalDate desde, LocalDate hasta);
+
+	/**
+	 * Metodo que devuelve los resúmenes de un aula en un intervalo de días.
+	 *
+	 * @param desde      Primer día (incluido).
+	 * @param hasta      Último día (incluido).
+	 * @param numeroAula El aula.
+	 * @return Los resúmenes.
+	 */
+	@Transactional(readOnly = true)
+	public List<ResumenDiarioEntity> findByDiaBetweenAndNumeroAula(LocalDate desde, LocalDate hasta, String numeroAula);
+}
@@ -0,0 +1,14 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenHistoricoEntity;
+
+/**
+ * Repositorio de la marca de histórico de resúmenes construido.
+ */
+@Repository
+public interface IResumenHistoricoRepository extends JpaRepository<ResumenHistoricoEntity, Integer>
+{
+}
@@ -0,0 +1,14 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenPendienteEntity;
+
+/**
+ * Repositorio de los días con resumen pendiente de recalcular.
+ */
+@Repository
+public interface IResumenPendienteRepository extends JpaRepository<ResumenPendienteEntity, Long>
+{
+}
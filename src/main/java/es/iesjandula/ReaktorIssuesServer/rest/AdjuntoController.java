@@ -0,0 +1,352 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import es.iesjandula.ReaktorIssuesServer.dto.AdjuntoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.AdjuntoEntity;
+import es.iesjandula.ReaktorIssuesServer.service.AdjuntoService;
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controlador REST para las fotos adjuntas a las incidencias.
+ * 
+ * Los adjuntos se identifican por el identificador de la incidencia. Las
+ * descargas se sirven sin pasar el contenido por la memoria de la aplicación:
+ * con el soporte sendfile de Tomcat cuando está disponible y, si no, con
+ * {@link FileChannel#transferTo}. Se admiten peticiones de rango
+ * ({@code Range: bytes=inicio-fin}) y, como el contenido es inmutable, se
+ * responde con {@code ETag} igual al hash y caché de larga duración.
+ * 
+ * Solo está disponible con el motor JPA.
+ * 
+ * @see AdjuntoService
+ * @see AdjuntoContentStore
+ */
+@Slf4j
+@RestController
+@CrossOrigin("*")
+@RequestMapping(value = "/incidencias/{id}/adjuntos")
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class AdjuntoController
+{
+	/** Atributo de petición con el que Tomcat indica que admite sendfile. */
+	private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+
+	/** Atributos de petición con los que se delega el envío del fichero en Tomcat. */
+	private static final String SENDFILE_FICHERO = "org.apache.tomcat.sendfile.filename";
+	private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+	private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+	/** Los ficheros más pequeños se copian directamente: sendfile no compensa. */
+	private static final long MIN_BYTES_SENDFILE = 48 * 1024;
+
+	/** Caché de las descargas: el contenido de un hash no cambia nunca. */
+	private static final String CACHE_INMUTABLE = "private, max-age=31536000, immutable";
+
+	@Autowired
+	// Auto-inyeccion del servicio de adjuntos.
+	private AdjuntoService adjuntoService;
+
+	@Autowired
+	// Auto-inyeccion del almacen de contenido de adjuntos.
+	private AdjuntoContentStore adjuntoContentStore;
+
+	@Autowired
+	// Auto-inyeccion del motor de almacenamiento configurado.
+	private IIncidenciaStorage iIncidenciaStorage;
+
+	/**
+	 * Adjunta una foto a una incidencia.
+	 *
+	 * @param id      El identificador de la incidencia.
+	 * @param fichero La imagen (JPEG, PNG o GIF).
+	 * @return {@link ResponseEntity} con los metadatos del adjunto (201), un error
+	 *         si la incidencia no existe (404), si el fichero no es válido (400) o
+	 *         un error inesperado (500).
+	 */
+	@PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<?> adjunta(@PathVariable("id") Long id,
+			@RequestParam(value = "fichero", required = true) MultipartFile fichero)
+	{
+		try
+		{
+			if (iIncidenciaStorage.buscaPorId(id).isEmpty())
+			{
+				return this.noEncontrada();
+			}
+
+			AdjuntoDTO adjunto;
+			try (InputStream entrada = fichero.getInputStream())
+			{
+				adjunto = adjuntoService.adjunta(id, fichero.getOriginalFilename(), entrada);
+			}
+
+			return ResponseEntity.created(URI.create("/incidencias/" + id + "/adjuntos/" + adjunto.getId())).body(adjunto);
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(400).body(exception.getMapError()) ;
+		}
+		catch (Exception attachException)
+		{
+			String message = "Error inesperado en adjunta().\nMensaje de error: " + attachException.getMessage();
+			log.error(message, attachException);
+			IssuesServerError serverError = new IssuesServerError(0, message, attachException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Lista los metadatos de los adjuntos de una incidencia.
+	 *
+	 * @param id El identificador de la incidencia.
+	 * @return {@link ResponseEntity} con la lista de adjuntos (200).
+	 */
+	@GetMapping
+	public ResponseEntity<?> lista(@PathVariable("id") Long id)
+	{
+		return ResponseEntity.ok(adjuntoService.lista(id));
+	}
+
+	/**
+	 * Descarga el contenido de un adjunto, completo o por rangos.
+	 *
+	 * @param id        El identificador de la incidencia.
+	 * @param idAdjunto El identificador del adjunto.
+	 * @param request   La petición.
+	 * @param response  La respuesta en la que se escribe el contenido.
+	 * @throws IOException Si falla el envío.
+	 */
+	@GetMapping("/{idAdjunto}")
+	public void descarga(@PathVariable("id") Long id, @PathVariable("idAdjunto") Long idAdjunto,
+			HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		Optional<AdjuntoEntity> adjunto = adjuntoService.busca(id, idAdjunto);
+		if (adjunto.isEmpty())
+		{
+			response.sendError(HttpStatus.NOT_FOUND.value(), "Adjunto no encontrado.");
+			return;
+		}
+
+		// Con filename* (RFC 5987) el nombre del docente llega codificado, sin poder romper la cabecera.
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline()
+				.filename(adjunto.get().getNombreFichero(), StandardCharsets.UTF_8).build().toString());
+		this.sirve(adjuntoContentStore.ruta(adjunto.get().getHash()), adjunto.get().getTipoContenido(),
+				adjunto.get().getHash(), request, response);
+	}
+
+	/**
+	 * Descarga la miniatura JPEG de un adjunto, generándola la primera vez.
+	 *
+	 * @param id        El identificador de la incidencia.
+	 * @param idAdjunto El identificador del adjunto.
+	 * @param request   La petición.
+	 * @param response  La respuesta en la que se escribe la miniatura.
+	 * @throws IOException Si falla la generación o el envío.
+	 */
+	@GetMapping("/{idAdjunto}/miniatura")
+	public void miniatura(@PathVariable("id") Long id, @PathVariable("idAdjunto") Long idAdjunto,
+			HttpServletRequest request, HttpServletResponse response) throws IOException
+	{
+		Optional<AdjuntoEntity> adjunto = adjuntoService.busca(id, idAdjunto);
+		if (adjunto.isEmpty())
+		{
+			response.sendError(HttpStatus.NOT_FOUND.value(), "Adjunto no encontrado.");
+			return;
+		}
+
+		Path miniatura = adjuntoContentStore.miniatura(adjunto.get().getHash());
+		this.sirve(miniatura, MediaType.IMAGE_JPEG_VALUE, adjunto.get().getHash() + "-miniatura", request, response);
+	}
+
+	/**
+	 * Borra un adjunto.
+	 *
+	 * @param id        El identificador de la incidencia.
+	 * @param idAdjunto El identificador del adjunto.
+	 * @return {@link ResponseEntity} vacío (204), un error si no existe (404) o un
+	 *         error inesperado (500).
+	 */
+	@DeleteMapping("/{idAdjunto}")
+	public ResponseEntity<?> borra(@PathVariable("id") Long id, @PathVariable("idAdjunto") Long idAdjunto)
+	{
+		try
+		{
+			Optional<AdjuntoEntity> adjunto = adjuntoService.busca(id, idAdjunto);
+			if (adjunto.isEmpty())
+			{
+				String errorString = "Adjunto no encontrado." ;
+
+				log.error(errorString) ;
+				throw new IssuesServerError(12, errorString) ;
+			}
+
+			adjuntoService.borra(adjunto.get());
+			return ResponseEntity.noContent().build();
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(exception.getMapError()) ;
+		}
+		catch (Exception deleteAttachmentException)
+		{
+			String message = "Error inesperado en borra().\nMensaje de error: " + deleteAttachmentException.getMessage();
+			log.error(message, deleteAttachmentException);
+			IssuesServerError serverError = new IssuesServerError(0, message, deleteAttachmentException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * @return Respuesta 404 de incidencia inexistente.
+	 */
+	private ResponseEntity<?> noEncontrada()
+	{
+		String errorString = "Incidencia no encontrada." ;
+
+		log.error(errorString) ;
+		return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new IssuesServerError(6, errorString).getMapError());
+	}
+
+	/**
+	 * Envía un fichero inmutable respetando {@code If-None-Match} y un único rango {@code Range}.
+	 *
+	 * @param fichero      El fichero.
+	 * @param tipo         El tipo de contenido.
+	 * @param etag         La etiqueta del contenido (sin comillas).
+	 * @param request      La petición.
+	 * @param response     La respuesta.
+	 * @throws IOException Si falla el envío.
+	 */
+	private void sirve(Path fichero, String tipo, String etag, HttpServletRequest request, HttpServletResponse response)
+			throws IOException
+	{
+		long tamano;
+		try
+		{
+			tamano = Files.size(fichero);
+		}
+		catch (NoSuchFileException exception)
+		{
+			log.error("ERROR: Contenido de adjunto no encontrado en disco: {}", fichero);
+			response.sendError(HttpStatus.NOT_FOUND.value(), "Contenido no encontrado.");
+			return;
+		}
+
+		String etiqueta = "\"" + etag + "\"";
+		response.setHeader(HttpHeaders.ETAG, etiqueta);
+		response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_INMUTABLE);
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if (etiqueta.equals(request.getHeader(HttpHeaders.IF_NONE_MATCH)))
+		{
+			response.setStatus(HttpStatus.NOT_MODIFIED.value());
+			return;
+		}
+
+		long inicio = 0;
+		long fin = tamano - 1;
+		String rango = request.getHeader(HttpHeaders.RANGE);
+		if (rango != null && rango.startsWith("bytes=") && !rango.contains(","))
+		{
+			String[] limites = rango.substring("bytes=".length()).trim().split("-", 2);
+			try
+			{
+				if (limites[0].isEmpty())
+				{
+					// bytes=-N: los últimos N bytes.
+					inicio = Math.max(0, tamano - Long.parseLong(limites[1]));
+				}
+				else
+				{
+					inicio = Long.parseLong(limites[0]);
+					if (limites.length > 1 && !limites[1].isEmpty())
+					{
+						fin = Math.min(fin, Long.parseLong(limites[1]));
+					}
+				}
+			}
+			catch (NumberFormatException exception)
+			{
+				inicio = 0;
+				fin = tamano - 1;
+				rango = null;
+			}
+
+			if (rango != null && (inicio > fin || inicio >= tamano))
+			{
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+				response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+				return;
+			}
+			if (rango != null)
+			{
+				response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+			}
+		}
+
+		long longitud = fin - inicio + 1;
+		response.setContentType(tipo);
+		response.setContentLengthLong(longitud);
+
+		if (longitud >= MIN_BYTES_SENDFILE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO)))
+		{
+			// Tomcat envía el fichero desde el núcleo tras volver del controlador.
+			request.setAttribute(SENDFILE_FICHERO, fichero.toAbsolutePath().toString());
+			request.setAttribute(SENDFILE_INICIO, inicio);
+			request.setAttribute(SENDFILE_FIN, fin + 1);
+			return;
+		}
+
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ))
+		{
+			WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+			long posicion = inicio;
+			long pendiente = longitud;
+			while (pendiente > 0)
+			{
+				long enviados = canal.transferTo(posicion, pendiente, salida);
+				if (enviados <= 0)
+				{
+					// El fichero es más corto de lo anunciado en Content-Length.
+					throw new IOException("Contenido truncado al enviar " + fichero + ": faltan " + pendiente + " bytes.");
+				}
+				posicion += enviados;
+				pendiente -= enviados;
+			}
+		}
+	}
+}
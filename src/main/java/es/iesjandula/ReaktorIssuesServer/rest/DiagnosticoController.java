@@ -0,0 +1,233 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import es.iesjandula.ReaktorIssuesServer.diagnostico.GrabacionJfrService;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controlador REST de administración para grabar la actividad del servidor con Java Flight Recorder.
+ * <p>
+ * Una grabación recoge los eventos de la JVM (GC, bloqueos, E/S, muestreo de CPU) junto con los de la
+ * aplicación: llamadas a controladores, validaciones, llamadas al almacén y esperas de conexión, con la
+ * incidencia afectada. El fichero descargado se abre con JDK Mission Control o con {@code jfr print}.
+ * </p>
+ * <p>
+ * Los endpoints solo responden si se ha configurado {@code reaktor.diagnostico.clave}, y exigen esa clave
+ * en la cabecera {@code Clave-Diagnostico}.
+ * </p>
+ */
+@Slf4j
+@RestController
+@RequestMapping(value = "/admin/diagnostico/grabacion")
+public class DiagnosticoController
+{
+	@Autowired
+	// Auto-inyeccion del servicio de grabaciones.
+	private GrabacionJfrService grabacionJfrService;
+
+	/** Clave de acceso; vacía deshabilita los endpoints. */
+	@Value("${reaktor.diagnostico.clave:}")
+	private String clave;
+
+	/**
+	 * Inicia una grabación continua acotada.
+	 *
+	 * @param claveDiagnostico Clave de acceso.
+	 * @param ventana          Historia que conserva (p. ej. {@code 10m}). Opcional, como máximo
+	 *                         {@code reaktor.diagnostico.ventana-maxima}.
+	 * @param tamanoMaximo     Tamaño máximo en disco (p. ej. {@code 50MB}). Opcional, como máximo
+	 *                         {@code reaktor.diagnostico.tamano-maximo}.
+	 * @param duracion         Tiempo tras el que se detiene sola. Opcional, como máximo
+	 *                         {@code reaktor.diagnostico.duracion-maxima}.
+	 * @return El estado de la grabación (201), un error de acceso (403/404), de límites (400), una
+	 *         grabación ya en curso (409) o un error inesperado (500).
+	 */
+	@PostMapping
+	public ResponseEntity<?> iniciaGrabacion(
+			@RequestHeader(value = "Clave-Diagnostico", required = false) String claveDiagnostico,
+			@RequestParam(value = "ventana", required = false) String ventana,
+			@RequestParam(value = "tamanoMaximo", required = false) String tamanoMaximo,
+			@RequestParam(value = "duracion", required = false) String duracion)
+	{
+		try
+		{
+			this.compruebaClave(claveDiagnostico);
+			return ResponseEntity.status(HttpStatus.CREATED)
+					.body(this.grabacionJfrService.inicia(ventana, tamanoMaximo, duracion));
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(estado(exception)).body(exception.getMapError()) ;
+		}
+		catch (Exception recordingException)
+		{
+			String message = "Error inesperado en iniciaGrabacion().\nMensaje de error: " + recordingException.getMessage();
+			log.error(message, recordingException);
+			IssuesServerError serverError = new IssuesServerError(0, message, recordingException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Devuelve el estado de la grabación.
+	 *
+	 * @param claveDiagnostico Clave de acceso.
+	 * @return El estado (200), un error de acceso (403/404) o que no hay grabación (404).
+	 */
+	@GetMapping
+	public ResponseEntity<?> estadoGrabacion(
+			@RequestHeader(value = "Clave-Diagnostico", required = false) String claveDiagnostico)
+	{
+		try
+		{
+			this.compruebaClave(claveDiagnostico);
+			return ResponseEntity.ok(this.grabacionJfrService.estado());
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(estado(exception)).body(exception.getMapError()) ;
+		}
+	}
+
+	/**
+	 * Descarga lo grabado hasta ahora sin detener la grabación.
+	 *
+	 * @param claveDiagnostico Clave de acceso.
+	 * @return El fichero {@code .jfr} (200), un error de acceso (403/404), que no hay grabación (404) o un
+	 *         error inesperado (500).
+	 */
+	@GetMapping("/descarga")
+	public ResponseEntity<?> descargaGrabacion(
+			@RequestHeader(value = "Clave-Diagnostico", required = false) String claveDiagnostico)
+	{
+		try
+		{
+			this.compruebaClave(claveDiagnostico);
+			return descarga(this.grabacionJfrService.vuelca());
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(estado(exception)).body(exception.getMapError()) ;
+		}
+		catch (Exception recordingException)
+		{
+			String message = "Error inesperado en descargaGrabacion().\nMensaje de error: " + recordingException.getMessage();
+			log.error(message, recordingException);
+			IssuesServerError serverError = new IssuesServerError(0, message, recordingException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Detiene la grabación y descarga su contenido completo.
+	 *
+	 * @param claveDiagnostico Clave de acceso.
+	 * @return El fichero {@code .jfr} (200), un error de acceso (403/404), que no hay grabación (404) o un
+	 *         error inesperado (500).
+	 */
+	@DeleteMapping
+	public ResponseEntity<?> detieneGrabacion(
+			@RequestHeader(value = "Clave-Diagnostico", required = false) String claveDiagnostico)
+	{
+		try
+		{
+			this.compruebaClave(claveDiagnostico);
+			return descarga(this.grabacionJfrService.detiene());
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(estado(exception)).body(exception.getMapError()) ;
+		}
+		catch (Exception recordingException)
+		{
+			String message = "Error inesperado en detieneGrabacion().\nMensaje de error: " + recordingException.getMessage();
+			log.error(message, recordingException);
+			IssuesServerError serverError = new IssuesServerError(0, message, recordingException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Comprueba que los endpoints están habilitados y que la clave recibida es la configurada.
+	 *
+	 * @param claveDiagnostico Clave recibida.
+	 * @throws IssuesServerError Si no hay clave configurada o no coincide.
+	 */
+	private void compruebaClave(String claveDiagnostico) throws IssuesServerError
+	{
+		if (this.clave == null || this.clave.isBlank())
+		{
+			String errorString = "El diagnóstico no está habilitado (reaktor.diagnostico.clave)." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(18, errorString) ;
+		}
+
+		// Comparación en tiempo constante para no revelar la clave por el tiempo de respuesta.
+		if (claveDiagnostico == null || !MessageDigest.isEqual(this.clave.getBytes(StandardCharsets.UTF_8),
+				claveDiagnostico.getBytes(StandardCharsets.UTF_8)))
+		{
+			String errorString = "Clave de diagnóstico no válida." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(19, errorString) ;
+		}
+	}
+
+	/**
+	 * @param fichero Volcado de la grabación, que se borra al terminar de enviarlo.
+	 * @return La respuesta con el fichero.
+	 * @throws IOException Si no se puede abrir.
+	 */
+	private static ResponseEntity<?> descarga(Path fichero) throws IOException
+	{
+		long tamano = Files.size(fichero);
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_OCTET_STREAM)
+				.contentLength(tamano)
+				.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fichero.getFileName() + "\"")
+				.body(new InputStreamResource(Files.newInputStream(fichero, StandardOpenOption.DELETE_ON_CLOSE)));
+	}
+
+	/**
+	 * @param exception Error de la petición.
+	 * @return El estado HTTP que le corresponde.
+	 */
+	private static HttpStatus estado(IssuesServerError exception)
+	{
+		switch (exception.getId())
+		{
+			case 18:
+			case 21:
+				return HttpStatus.NOT_FOUND;
+			case 19:
+				return HttpStatus.FORBIDDEN;
+			case 20:
+				return HttpStatus.CONFLICT;
+			default:
+				return HttpStatus.BAD_REQUEST;
+		}
+	}
+}
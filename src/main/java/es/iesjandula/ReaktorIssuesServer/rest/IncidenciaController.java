@@ -1,24 +1,50 @@
 package es.iesjandula.ReaktorIssuesServer.rest;
 
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
 
+import es.iesjandula.ReaktorIssuesServer.datasource.DocenteContext;
+import es.iesjandula.ReaktorIssuesServer.diagnostico.ValidacionJfrEvent;
 import es.iesjandula.ReaktorIssuesServer.dto.CrearIncidenciaDTO;
 import es.iesjandula.ReaktorIssuesServer.dto.FiltroBusqueda;
 import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaDTO;
 import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
 import es.iesjandula.ReaktorIssuesServer.mappers.IncidenciaMapper;
-import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.service.IncidenciaBoardService;
+import es.iesjandula.ReaktorIssuesServer.service.IncidenciaImportService;
+import es.iesjandula.ReaktorIssuesServer.service.IncidenciaSlaService;
+import es.iesjandula.ReaktorIssuesServer.service.IncidenciaSugerenciaService;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
 import es.iesjandula.ReaktorIssuesServer.utils.Constants;
 import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +53,7 @@ import lombok.extern.slf4j.Slf4j;
  * Controlador REST para gestionar incidencias en el sistema.
  * 
  * Esta clase proporciona endpoints para crear, actualizar, buscar y eliminar
- * incidencias en la base de datos. Utiliza un repositorio para interactuar con
+ * incidencias. Utiliza el motor de almacenamiento configurado para interactuar con
  * los datos de las incidencias y un mapeador para convertir entre objetos DTO y
  * entidades de base de datos.
  * 
@@ -42,9 +68,13 @@ import lombok.extern.slf4j.Slf4j;
  * <li><strong>Actualizar Incidencia:</strong> Permite la actualización de
  * incidencias existentes.</li>
  * <li><strong>Buscar Incidencias:</strong> Permite buscar incidencias basadas
- * en criterios específicos.</li>
+ * en criterios específicos, devolviendo solo los campos solicitados.</li>
+ * <li><strong>Detalle de Incidencia:</strong> Devuelve una incidencia con su
+ * descripción y comentario completos.</li>
  * <li><strong>Eliminar Incidencia:</strong> Permite la eliminación de
  * incidencias existentes.</li>
+ * <li><strong>Importar Incidencias:</strong> Crea incidencias de forma masiva
+ * a partir de un fichero CSV.</li>
  * </ul>
  * 
  * Se requiere que los encabezados y los cuerpos de las solicitudes contengan
@@ -55,7 +85,7 @@ import lombok.extern.slf4j.Slf4j;
  * @see FiltroBusqueda
  * @see IncidenciaDTO
  * @see IncidenciaEntity
- * @see IIncidenciaRepository
+ * @see IIncidenciaStorage
  * @see IncidenciaMapper
  */
 @Slf4j 
@@ -66,13 +96,29 @@ public class IncidenciaController
 {
 
 	@Autowired
-	// Auto-inyeccion de repositorio.
-	private IIncidenciaRepository iIncidenciaRepository;
+	// Auto-inyeccion del motor de almacenamiento configurado.
+	private IIncidenciaStorage iIncidenciaStorage;
 
 	@Autowired
 	// Auto-inyeccion de mapeador de dto-entidad.
 	IncidenciaMapper incidenciaMapper;
 
+	@Autowired
+	// Auto-inyeccion del tablero de incidencias abiertas.
+	private IncidenciaBoardService incidenciaBoardService;
+
+	@Autowired
+	// Auto-inyeccion del planificador de plazos de atencion.
+	private IncidenciaSlaService incidenciaSlaService;
+
+	@Autowired
+	// Auto-inyeccion de las sugerencias de autocompletado.
+	private IncidenciaSugerenciaService incidenciaSugerenciaService;
+
+	@Autowired
+	// Auto-inyeccion del servicio de importacion masiva.
+	private IncidenciaImportService incidenciaImportService;
+
 	/**
 	 * Crear o actualizar una incidencia en el sistema.
 	 * 
@@ -108,80 +154,68 @@ public class IncidenciaController
 			ResponseEntity<String> response = null;
 			
 			// Loguea los parametros recibidos para fines diagnosticos.
-			log.debug("Parametros recibidos:\n" + incidenciaDTO.toString());
+			log.debug("Parametros recibidos:\n{}", incidenciaDTO);
 				
-			// Si el numero de aula está vacio o solo espacios.
-			if (incidenciaDTO.getNumeroAula() == null || incidenciaDTO.getNumeroAula().isBlank())
-			{
-				String errorString = "El número de aula es obligatorio.";
-				log.error(errorString);
-				throw new IssuesServerError(4, errorString);
-				
-				//log.error("Intento de creación de incidencia con numero de aula no definido");
-				//return ResponseEntity.badRequest().body("ERROR: Numero de aula nulo o vacio.");
-			}
-
-			// Si la descripcion está vacia o solo espacios.
-			if (incidenciaDTO.getDescripcionIncidencia() == null
-					|| incidenciaDTO.getDescripcionIncidencia().isBlank())
-			{
-				String errorString = "La descripción de la incidencia es obligatoria";
-	        	log.error(errorString);
-	        	throw new IssuesServerError(5, errorString);
-				
-				//log.error("Intento de creación de incidencia con descripcion no definida o menor de 15 caracteres");
-				//return ResponseEntity.badRequest().body("ERROR: Descripcion de incidencia nulo, vacio o menor de 15 caracteres.");
-			}
+			// Comprueba el numero de aula y la descripcion (paso de validacion en JFR).
+			ValidacionJfrEvent.valida("crearActualizarIncidencia", incidenciaDTO, () -> this.validaIncidenciaDTO(incidenciaDTO));
 			
 			// Si tanto numero de aula como descripción han sido definidos correctamente
 			// creamos nueva incidencia.
 			IncidenciaEntity incidencia = new IncidenciaEntity();
 			
 			
+			// Busca la incidencia por su clave natural para conocer su identificador.
+			Optional<IncidenciaEntity> existente = iIncidenciaStorage.buscaPorClave(new IncidenciaEntityId(
+					incidenciaDTO.getNumeroAula(), incidenciaDTO.getCorreoDocente(), incidenciaDTO.getFechaIncidencia()));
+			
 			// Si no existe la incidencia
-			if(!iIncidenciaRepository.existsByCompositeId(incidenciaDTO.getNumeroAula(), 
-			incidenciaDTO.getCorreoDocente(), incidenciaDTO.getFechaIncidencia()))
+			if(existente.isEmpty())
 			{
 				// Objeto fecha de hoy
 				Date today = new Date();
 				
-				// Primer parametro  - Numero de Aula
-				// Segundo parametro - Correo del Docente
-				// Tercer parametro  - Fecha Actual
-				// Cuarto parametro  - Descripcion
-				// Quinto parametro  - Estado(Pendiente)
-				// Sexto parametro   - Comentario(Vacío)
+				// Primer parametro  - Identificador (se genera al insertar)
+				// Segundo parametro - Numero de Aula
+				// Tercer parametro  - Correo del Docente
+				// Cuarto parametro  - Fecha Actual
+				// Quinto parametro  - Descripcion
+				// Sexto parametro   - Estado(Pendiente)
+				// Septimo parametro - Comentario(Vacío)
+				// Octavo parametro  - Fecha del estado (Fecha Actual)
 				incidencia = new IncidenciaEntity(
+						null,
 						incidenciaDTO.getNumeroAula(), 
 						correoDocente, 
 						today,
 						incidenciaDTO.getDescripcionIncidencia(),
 						Constants.ESTADO_PENDIENTE,
-						"");
+						"",
+						today);
 			
 				// Información para indicar la inicializacion de la incidencia
-				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n " + incidencia.toString());
+				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n {}", incidencia);
 
 				// Informe de incidencia creada con exito
 				response = ResponseEntity.status(HttpStatus.CREATED).body("EXITO: Incidencia creada con exito");
 			}
 			else
 			{
-				// Mapear la incidencia
+				// Mapear la incidencia conservando el identificador de la existente
 				incidencia = incidenciaMapper.mapToEntity(incidenciaDTO);
+				incidencia.setId(existente.get().getId());
 				
 				// Información para indicar la inicializacion de la incidencia
-				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n " + incidencia.toString());
+				log.debug("DEBUG: Objeto incidencia inicializado correctamente:\n {}", incidencia);
 				
 				// Informe de incidencia actualizada con exito
 				response = ResponseEntity.status(HttpStatus.OK).body("EXITO: Incidencia actualizada con exito");
 			}
 			
 			// Finalmente guarda la incidencia en la BBDD.
-			iIncidenciaRepository.saveAndFlush(incidencia);
+			iIncidenciaStorage.guarda(incidencia);
 
 			// Información para registro.
-			log.info("INFO: El objeto guardado en base de datos es:\n" + incidencia.toString());
+			log.info("INFO: El objeto guardado en base de datos es:\n{}", incidencia);
 
 			// Informe a cliente del exito de la operacion.
 			return response;
@@ -229,30 +263,12 @@ public class IncidenciaController
 	{
 	    try 
 	    {
-	        // Validar que los datos obligatorios estén presentes
-	        if (crearIncidenciaDTO.getNumeroAula() == null || crearIncidenciaDTO.getNumeroAula().isEmpty()) 
-	        {
-	        	String errorString = "El número de aula es obligatorio." ;
-	        	
-	        	log.error(errorString) ;
-	        	throw new IssuesServerError(1, errorString) ;
-	        }
-
-	        if (crearIncidenciaDTO.getCorreoDocente() == null || crearIncidenciaDTO.getCorreoDocente().isEmpty())
-	        {
-	        	String errorString = "El correo del docente es obligatorio." ;
-	        	
-	        	log.error(errorString) ;
-	        	throw new IssuesServerError(2, errorString) ;
-	        }
-
-	        if (crearIncidenciaDTO.getDescripcionIncidencia() == null || crearIncidenciaDTO.getDescripcionIncidencia().isEmpty()) 
-	        {
-	        	String errorString = "La descripción de la incidencia es obligatoria." ;
-	        	
-	        	log.error(errorString) ;
-	        	throw new IssuesServerError(3, errorString) ;	        }
+	        // Validar que los datos obligatorios estén presentes (paso de validacion en JFR)
+	        ValidacionJfrEvent.valida("crearIncidencia", crearIncidenciaDTO, () -> this.validaCrearIncidenciaDTO(crearIncidenciaDTO));
 	        
+	        // El docente de la incidencia leerá sus propias escrituras aunque la réplica vaya con retraso
+	        DocenteContext.establece(crearIncidenciaDTO.getCorreoDocente());
+
 	        // Crear un nuevo objeto entidad para guardar en la base de datos
 	        IncidenciaEntity nuevaIncidencia = new IncidenciaEntity();
 	        nuevaIncidencia.setNumeroAula(crearIncidenciaDTO.getNumeroAula());
@@ -271,13 +287,13 @@ public class IncidenciaController
 	        nuevaIncidencia.setEstadoIncidencia(Constants.ESTADO_PENDIENTE);
 	        
 	        // Guardar la incidencia en la base de datos
-	        iIncidenciaRepository.saveAndFlush(nuevaIncidencia);
+	        iIncidenciaStorage.guarda(nuevaIncidencia);
 
 	        // Loguea el éxito de la operación
 	        log.info("Incidencia creada correctamente: {}", nuevaIncidencia);
 
-	        // Devuelve la respuesta exitosa
-	        return ResponseEntity.ok().build();
+	        // Devuelve 201 con la ruta de la nueva incidencia
+	        return ResponseEntity.created(URI.create("/incidencias/" + nuevaIncidencia.getId())).build();
 	    }
 	    catch (IssuesServerError exception)
 		{
@@ -295,6 +311,452 @@ public class IncidenciaController
 	}
 	
 
+	/**
+	 * Importa incidencias de forma masiva desde un fichero CSV.
+	 * 
+	 * El fichero se procesa en flujo: el contenedor de servlets guarda la parte
+	 * multipart en disco y se lee desde allí por lotes, por lo que la memoria usada
+	 * no depende del tamaño del fichero. Cada lote se inserta en su propia
+	 * transacción; las líneas rechazadas no impiden importar el resto y se pueden
+	 * descargar con {@link #descargaErroresImportacion(String)}.
+	 *
+	 * @param fichero   Fichero CSV en UTF-8 con las columnas numeroAula,
+	 *                  correoDocente, fechaIncidencia, descripcionIncidencia y,
+	 *                  opcionalmente, estadoIncidencia y comentario.
+	 * @param separador Separador de campos. Por defecto ",".
+	 * @return {@link ResponseEntity} con el resumen de la importación (200), un
+	 *         error de validación (400) o un error inesperado (500).
+	 */
+	@PostMapping(value = "/importaciones", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+	public ResponseEntity<?> importaIncidencias(
+			@RequestParam(value = "fichero", required = true) MultipartFile fichero,
+			@RequestParam(value = "separador", required = false, defaultValue = ",") String separador)
+	{
+		try
+		{
+			if (fichero.isEmpty())
+			{
+				String errorString = "El fichero de importación está vacío.";
+
+				log.error(errorString) ;
+				throw new IssuesServerError(9, errorString) ;
+			}
+
+			if (separador.length() != 1)
+			{
+				String errorString = "El separador debe ser un único carácter: " + separador;
+
+				log.error(errorString) ;
+				throw new IssuesServerError(10, errorString) ;
+			}
+
+			try (InputStream entrada = fichero.getInputStream())
+			{
+				return ResponseEntity.ok(incidenciaImportService.importa(entrada, separador.charAt(0)));
+			}
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(400).body(exception.getMapError()) ;
+		}
+		catch (Exception importException)
+		{
+			String message = "Error inesperado en importaIncidencias().\nMensaje de error: " + importException.getMessage();
+			log.error(message, importException);
+			IssuesServerError serverError = new IssuesServerError(0, message, importException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Descarga el informe CSV con las líneas rechazadas en una importación.
+	 *
+	 * @param idImportacion El identificador devuelto por la importación.
+	 * @return {@link ResponseEntity} con el fichero CSV (200) o un error si no
+	 *         existe o ya se ha purgado (404).
+	 */
+	@GetMapping("/importaciones/{idImportacion}/errores")
+	public ResponseEntity<?> descargaErroresImportacion(@PathVariable("idImportacion") String idImportacion)
+	{
+		try
+		{
+			Optional<Path> informe = incidenciaImportService.informeErrores(idImportacion);
+
+			if (informe.isEmpty())
+			{
+				String errorString = "Informe de importación no encontrado.";
+
+				log.error(errorString) ;
+				throw new IssuesServerError(11, errorString) ;
+			}
+
+			return ResponseEntity.ok()
+					.contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+					.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"errores-" + idImportacion + ".csv\"")
+					.body(new FileSystemResource(informe.get()));
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(exception.getMapError()) ;
+		}
+	}
+
+	/**
+	 * Busca incidencias según los criterios del filtro devolviendo solo los campos
+	 * solicitados.
+	 * 
+	 * Los listados nunca devuelven las columnas TEXT completas: por defecto se
+	 * devuelve la proyección resumen ({@link Constants#CAMPOS_LISTADO}), que incluye
+	 * un resumen de la descripción truncado en la propia consulta SQL. El parámetro
+	 * {@code fields} permite pedir un subconjunto de esos campos separados por comas.
+	 * La descripción y el comentario completos solo se obtienen con
+	 * {@link #obtenIncidencia(IncidenciaEntityId)}.
+	 *
+	 * @param filtro El objeto {@link FiltroBusqueda} con los criterios de búsqueda.
+	 *               Puede ser nulo o tener todos sus campos nulos.
+	 * @param fields Lista de campos separados por comas. Opcional.
+	 * @return Un objeto {@link ResponseEntity} con la lista de incidencias (200),
+	 *         un error de validación (400) o un error inesperado (500).
+	 */
+	@RequestMapping(method = RequestMethod.POST)
+	public ResponseEntity<?> buscaIncidencias(
+			@RequestBody(required = false) FiltroBusqueda filtro,
+			@RequestParam(value = "fields", required = false) String fields)
+	{
+		try
+		{
+			// Si no llega filtro se buscan todas las incidencias.
+			if (filtro == null)
+			{
+				filtro = new FiltroBusqueda();
+			}
+
+			List<String> campos = this.parseaCampos(fields);
+
+			List<Map<String, Object>> incidencias = iIncidenciaStorage.buscaProyeccion(
+					campos,
+					filtro.getNumeroAula(),
+					filtro.getCorreoDocente(),
+					this.parseaFecha(filtro.getFechaInicio(), false),
+					this.parseaFecha(filtro.getFechaFin(), true),
+					filtro.getDescripcionIncidencia(),
+					filtro.getEstadoIncidencia(),
+					filtro.getComentario());
+
+			log.debug("DEBUG: Busqueda de incidencias con {} resultados.", incidencias.size());
+
+			return ResponseEntity.ok(incidencias);
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(400).body(exception.getMapError()) ;
+		}
+		catch (Exception searchIssueException)
+		{
+			String message = "Error inesperado en buscaIncidencias().\nMensaje de error: " + searchIssueException.getMessage();
+			log.error(message, searchIssueException);
+			IssuesServerError serverError = new IssuesServerError(0, message, searchIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Devuelve las incidencias abiertas ("PENDIENTE" y "EN PROGRESO") de un aula.
+	 * 
+	 * La respuesta se sirve desde el tablero en memoria, sin consultar la base de
+	 * datos mientras el tablero no supere su límite de tamaño.
+	 *
+	 * @param numeroAula El número del aula.
+	 * @return {@link ResponseEntity} con la lista de incidencias abiertas (200) o un
+	 *         error inesperado (500).
+	 */
+	@GetMapping("/abiertas")
+	public ResponseEntity<?> abiertasPorAula(@RequestParam(value = "numeroAula", required = true) String numeroAula)
+	{
+		try
+		{
+			return ResponseEntity.ok(incidenciaBoardService.abiertasPorAula(numeroAula));
+		}
+		catch (Exception boardException)
+		{
+			String message = "Error inesperado en abiertasPorAula().\nMensaje de error: " + boardException.getMessage();
+			log.error(message, boardException);
+			IssuesServerError serverError = new IssuesServerError(0, message, boardException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Devuelve el número de incidencias y la memoria estimada del tablero de
+	 * incidencias abiertas.
+	 *
+	 * @return {@link ResponseEntity} con las estadísticas del tablero (200).
+	 */
+	@GetMapping("/abiertas/memoria")
+	public ResponseEntity<?> memoriaTablero()
+	{
+		return ResponseEntity.ok(incidenciaBoardService.estadisticas());
+	}
+
+	/**
+	 * Devuelve las incidencias que han superado el plazo de atención de su estado
+	 * ({@code reaktor.sla.umbrales}), de la más antigua a la más reciente. Se sirven
+	 * desde memoria.
+	 *
+	 * @return {@link ResponseEntity} con la lista de incidencias escaladas (200).
+	 */
+	@GetMapping("/escaladas")
+	public ResponseEntity<?> incidenciasEscaladas()
+	{
+		return ResponseEntity.ok(incidenciaSlaService.escaladas());
+	}
+
+	/**
+	 * Sugiere números de aula que empiezan por un prefijo, de más a menos
+	 * incidencias, para autocompletar el formulario de búsqueda. Se sirven desde
+	 * memoria.
+	 *
+	 * @param prefijo El texto escrito, sin distinguir mayúsculas (vacío para las
+	 *                aulas con más incidencias).
+	 * @param limite  Número máximo de sugerencias (como mucho
+	 *                {@code reaktor.sugerencias.max-resultados}).
+	 * @return {@link ResponseEntity} con la lista de sugerencias (200).
+	 */
+	@GetMapping("/sugerencias/aulas")
+	public ResponseEntity<?> sugiereAulas(
+			@RequestParam(value = "prefijo", required = false, defaultValue = "") String prefijo,
+			@RequestParam(value = "limite", required = false, defaultValue = "10") int limite)
+	{
+		return ResponseEntity.ok(incidenciaSugerenciaService.sugiereAulas(prefijo, limite));
+	}
+
+	/**
+	 * Sugiere correos de docentes que empiezan por un prefijo, de más a menos
+	 * incidencias, para autocompletar el formulario de búsqueda. Se sirven desde
+	 * memoria.
+	 *
+	 * @param prefijo El texto escrito, sin distinguir mayúsculas (vacío para los
+	 *                docentes con más incidencias).
+	 * @param limite  Número máximo de sugerencias (como mucho
+	 *                {@code reaktor.sugerencias.max-resultados}).
+	 * @return {@link ResponseEntity} con la lista de sugerencias (200).
+	 */
+	@GetMapping("/sugerencias/docentes")
+	public ResponseEntity<?> sugiereDocentes(
+			@RequestParam(value = "prefijo", required = false, defaultValue = "") String prefijo,
+			@RequestParam(value = "limite", required = false, defaultValue = "10") int limite)
+	{
+		return ResponseEntity.ok(incidenciaSugerenciaService.sugiereDocentes(prefijo, limite));
+	}
+
+	/**
+	 * Obtiene el detalle completo de una incidencia a partir de su identificador
+	 * sustituto. La búsqueda se resuelve directamente con la clave primaria.
+	 *
+	 * @param id El identificador de la incidencia.
+	 * @return {@link ResponseEntity} con el {@link IncidenciaDTO} (200), un error
+	 *         si no existe (404) o un error inesperado (500).
+	 */
+	@GetMapping("/{id}")
+	public ResponseEntity<?> obtenIncidenciaPorId(@PathVariable("id") Long id)
+	{
+		try
+		{
+			Optional<IncidenciaEntity> incidencia = iIncidenciaStorage.buscaPorId(id);
+
+			if (incidencia.isEmpty())
+			{
+				String errorString = "Incidencia no encontrada." ;
+
+				log.error(errorString) ;
+				throw new IssuesServerError(6, errorString) ;
+			}
+
+			return ResponseEntity.ok(incidenciaMapper.mapToDto(incidencia.get()));
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(exception.getMapError()) ;
+		}
+		catch (Exception detailIssueException)
+		{
+			String message = "Error inesperado en obtenIncidenciaPorId().\nMensaje de error: " + detailIssueException.getMessage();
+			log.error(message, detailIssueException);
+			IssuesServerError serverError = new IssuesServerError(0, message, detailIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Obtiene el detalle completo de una única incidencia, incluyendo la
+	 * descripción y el comentario íntegros.
+	 *
+	 * @param id La clave natural de la incidencia.
+	 * @return {@link ResponseEntity} con el {@link IncidenciaDTO} (200), un error
+	 *         si no existe (404) o un error inesperado (500).
+	 */
+	@PostMapping("/detalle")
+	public ResponseEntity<?> obtenIncidencia(@RequestBody(required = true) IncidenciaEntityId id)
+	{
+		try
+		{
+			Optional<IncidenciaEntity> incidencia = iIncidenciaStorage.buscaPorClave(id);
+
+			if (incidencia.isEmpty())
+			{
+				String errorString = "Incidencia no encontrada." ;
+
+				log.error(errorString) ;
+				throw new IssuesServerError(6, errorString) ;
+			}
+
+			return ResponseEntity.ok(incidenciaMapper.mapToDto(incidencia.get()));
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(HttpStatus.NOT_FOUND).body(exception.getMapError()) ;
+		}
+		catch (Exception detailIssueException)
+		{
+			String message = "Error inesperado en obtenIncidencia().\nMensaje de error: " + detailIssueException.getMessage();
+			log.error(message, detailIssueException);
+			IssuesServerError serverError = new IssuesServerError(0, message, detailIssueException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+
+	/**
+	 * Comprueba los datos obligatorios de una incidencia a crear o actualizar.
+	 *
+	 * @param incidenciaDTO La incidencia recibida.
+	 * @throws IssuesServerError Si falta el número de aula o la descripción.
+	 */
+	private void validaIncidenciaDTO(IncidenciaDTO incidenciaDTO) throws IssuesServerError
+	{
+		// Si el numero de aula está vacio o solo espacios.
+		if (incidenciaDTO.getNumeroAula() == null || incidenciaDTO.getNumeroAula().isBlank())
+		{
+			String errorString = "El número de aula es obligatorio.";
+			log.error(errorString);
+			throw new IssuesServerError(4, errorString);
+		}
+
+		// Si la descripcion está vacia o solo espacios.
+		if (incidenciaDTO.getDescripcionIncidencia() == null
+				|| incidenciaDTO.getDescripcionIncidencia().isBlank())
+		{
+			String errorString = "La descripción de la incidencia es obligatoria";
+			log.error(errorString);
+			throw new IssuesServerError(5, errorString);
+		}
+	}
+
+	/**
+	 * Comprueba los datos obligatorios de una incidencia nueva.
+	 *
+	 * @param crearIncidenciaDTO La incidencia recibida.
+	 * @throws IssuesServerError Si falta el número de aula, el correo del docente o la descripción.
+	 */
+	private void validaCrearIncidenciaDTO(CrearIncidenciaDTO crearIncidenciaDTO) throws IssuesServerError
+	{
+		if (crearIncidenciaDTO.getNumeroAula() == null || crearIncidenciaDTO.getNumeroAula().isEmpty())
+		{
+			String errorString = "El número de aula es obligatorio." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(1, errorString) ;
+		}
+
+		if (crearIncidenciaDTO.getCorreoDocente() == null || crearIncidenciaDTO.getCorreoDocente().isEmpty())
+		{
+			String errorString = "El correo del docente es obligatorio." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(2, errorString) ;
+		}
+
+		if (crearIncidenciaDTO.getDescripcionIncidencia() == null || crearIncidenciaDTO.getDescripcionIncidencia().isEmpty())
+		{
+			String errorString = "La descripción de la incidencia es obligatoria." ;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(3, errorString) ;
+		}
+	}
+
+	/**
+	 * Convierte el parámetro {@code fields} en la lista de campos a proyectar.
+	 *
+	 * @param fields Campos separados por comas; si es nulo o vacío se usa la proyección resumen.
+	 * @return La lista de campos validada.
+	 * @throws IssuesServerError Si algún campo no se puede solicitar en un listado.
+	 */
+	private List<String> parseaCampos(String fields) throws IssuesServerError
+	{
+		if (fields == null || fields.isBlank())
+		{
+			return Constants.CAMPOS_LISTADO;
+		}
+
+		List<String> campos = new ArrayList<String>();
+		for (String campo : fields.split(","))
+		{
+			String campoLimpio = campo.trim();
+			if (!Constants.CAMPOS_LISTADO.contains(campoLimpio))
+			{
+				String errorString = "Campo no permitido en el listado: " + campoLimpio
+						+ ". Campos permitidos: " + Constants.CAMPOS_LISTADO;
+
+				log.error(errorString) ;
+				throw new IssuesServerError(7, errorString) ;
+			}
+			if (!campos.contains(campoLimpio))
+			{
+				campos.add(campoLimpio);
+			}
+		}
+		return campos;
+	}
+
+	/**
+	 * Convierte una fecha del filtro de búsqueda en un objeto {@link Date}.
+	 * Acepta el formato {@code yyyy-MM-dd} y {@code yyyy-MM-ddTHH:mm:ss}.
+	 *
+	 * @param fecha     La fecha en texto. Puede ser nula.
+	 * @param finDelDia Si la fecha no tiene hora, indica si se toma el final del día en lugar del inicio.
+	 * @return La fecha convertida o null si no se ha indicado.
+	 * @throws IssuesServerError Si la fecha no tiene un formato valido.
+	 */
+	private Date parseaFecha(String fecha, boolean finDelDia) throws IssuesServerError
+	{
+		if (fecha == null || fecha.isBlank())
+		{
+			return null;
+		}
+
+		try
+		{
+			LocalDateTime fechaHora;
+			if (fecha.length() <= 10)
+			{
+				LocalDate dia = LocalDate.parse(fecha);
+				fechaHora = finDelDia ? dia.plusDays(1).atStartOfDay().minusNanos(1) : dia.atStartOfDay();
+			}
+			else
+			{
+				fechaHora = LocalDateTime.parse(fecha);
+			}
+			return Date.from(fechaHora.atZone(ZoneId.systemDefault()).toInstant());
+		}
+		catch (DateTimeParseException exception)
+		{
+			String errorString = "Formato de fecha no valido: " + fecha;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(8, errorString, exception) ;
+		}
+	}
+
 	/**
 	 * Elimina una incidencia de la base de datos basándose en los detalles
 	 * proporcionados en el DTO. Verifica primero si la incidencia existe, y si no,
@@ -320,8 +782,9 @@ public class IncidenciaController
 			IncidenciaEntity inEntity = incidenciaMapper.mapToEntity(dto);
 
 			// Verifica si la incidencia existe en la base de datos.
-			if (!(iIncidenciaRepository.existsByCompositeId(inEntity.getNumeroAula(), inEntity.getCorreoDocente(),
-					inEntity.getFechaIncidencia())))
+			Optional<IncidenciaEntity> existente = iIncidenciaStorage.buscaPorClave(new IncidenciaEntityId(
+					inEntity.getNumeroAula(), inEntity.getCorreoDocente(), inEntity.getFechaIncidencia()));
+			if (existente.isEmpty())
 			{
 				// Si no existe la incidencia, responde con 404.
 				//return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Incidencia no encontrada.");
@@ -333,8 +796,8 @@ public class IncidenciaController
 			}
 
 			// Elimina la incidencia de la base de datos y loguea la accion.
-			iIncidenciaRepository.delete(inEntity);
-			log.info("INFO: Incidencia eliminada con exito.\n{}", inEntity.toString());
+			iIncidenciaStorage.borra(existente.get());
+			log.info("INFO: Incidencia eliminada con exito.\n{}", inEntity);
 
 			// Respuesta HTTP de objeto borrado con exito.
 			return ResponseEntity.status(HttpStatus.NO_CONTENT).body("INFO:Incidencia eliminada con exito.");
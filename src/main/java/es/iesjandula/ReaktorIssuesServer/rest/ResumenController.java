@@ -0,0 +1,74 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import es.iesjandula.ReaktorIssuesServer.resumen.ResumenDiarioJob;
+import es.iesjandula.ReaktorIssuesServer.resumen.ResumenInformeService;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Controlador REST de los informes de incidencias por periodo.
+ * 
+ * Los informes se calculan a partir de los resúmenes diarios que mantiene
+ * {@link ResumenDiarioJob}, por lo que reflejan los cambios con el retraso de
+ * {@code reaktor.resumen.intervalo}.
+ * 
+ * Solo está disponible con el motor JPA.
+ */
+@Slf4j
+@RestController
+@CrossOrigin("*")
+@RequestMapping(value = "/incidencias/resumen")
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class ResumenController
+{
+	@Autowired
+	// Auto-inyeccion del servicio de informes.
+	private ResumenInformeService resumenInformeService;
+
+	/**
+	 * Devuelve el número de incidencias creadas en cada periodo, por estado
+	 * actual, y los percentiles 50, 90 y 99 de su tiempo de resolución.
+	 *
+	 * @param desde      Primer día, {@code yyyy-MM-dd}.
+	 * @param hasta      Último día (incluido), {@code yyyy-MM-dd}.
+	 * @param agrupacion "dia", "mes" (por defecto) o "anio".
+	 * @param numeroAula Aula a la que se limita el informe (opcional).
+	 * @param porAula    Si se separa cada aula (por defecto) o se suman todas.
+	 * @return {@link ResponseEntity} con los resúmenes (200), un error si los
+	 *         parámetros no son válidos (400) o un error inesperado (500).
+	 */
+	@GetMapping
+	public ResponseEntity<?> informe(
+			@RequestParam(value = "desde", required = true) String desde,
+			@RequestParam(value = "hasta", required = true) String hasta,
+			@RequestParam(value = "agrupacion", required = false, defaultValue = "mes") String agrupacion,
+			@RequestParam(value = "numeroAula", required = false) String numeroAula,
+			@RequestParam(value = "porAula", required = false, defaultValue = "true") boolean porAula)
+	{
+		try
+		{
+			return ResponseEntity.ok(resumenInformeService.informe(desde, hasta, agrupacion, numeroAula, porAula));
+		}
+		catch (IssuesServerError exception)
+		{
+			return ResponseEntity.status(400).body(exception.getMapError()) ;
+		}
+		catch (Exception reportException)
+		{
+			String message = "Error inesperado en informe().\nMensaje de error: " + reportException.getMessage();
+			log.error(message, reportException);
+			IssuesServerError serverError = new IssuesServerError(0, message, reportException);
+			return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(serverError.getMapError());
+		}
+	}
+}
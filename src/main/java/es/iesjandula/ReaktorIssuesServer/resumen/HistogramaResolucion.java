@@ -0,0 +1,119 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import java.util.Arrays;
+
+/**
+ * Histograma de tiempos de resolución en cubetas logarítmicas, que se puede guardar como texto y sumar con
+ * otros para obtener percentiles de cualquier periodo a partir de los resúmenes diarios.
+ * <p>
+ * La cubeta 0 recoge los tiempos de menos de un minuto y la cubeta {@code i} los de
+ * [2<sup>(i-1)/2</sup>, 2<sup>i/2</sup>) minutos, hasta unos 20 años. Cada percentil se estima con la media
+ * geométrica de su cubeta, por lo que el error relativo es como mucho del 19%.
+ * </p>
+ */
+public final class HistogramaResolucion
+{
+	/** Número de cubetas. */
+	private static final int CUBETAS = 48;
+
+	/** Número de tiempos en cada cubeta. */
+	private final long[] cuentas = new long[CUBETAS];
+
+	/** Número total de tiempos. */
+	private long total;
+
+	/**
+	 * Registra un tiempo de resolución.
+	 *
+	 * @param minutos El tiempo en minutos.
+	 */
+	public void registra(long minutos)
+	{
+		int cubeta = minutos < 1 ? 0
+				: Math.min(CUBETAS - 1, 1 + (int) Math.floor(2 * Math.log(minutos) / Math.log(2)));
+		this.cuentas[cubeta]++;
+		this.total++;
+	}
+
+	/**
+	 * Suma a este histograma los tiempos de otro guardado como texto.
+	 *
+	 * @param texto El histograma en texto; si es nulo no se suma nada.
+	 */
+	public void suma(String texto)
+	{
+		if (texto == null || texto.isEmpty())
+		{
+			return;
+		}
+
+		String[] valores = texto.split(",");
+		for (int i = 0; i < valores.length && i < CUBETAS; i++)
+		{
+			long cuenta = Long.parseLong(valores[i]);
+			this.cuentas[i] += cuenta;
+			this.total += cuenta;
+		}
+	}
+
+	/**
+	 * @return Número total de tiempos.
+	 */
+	public long getTotal()
+	{
+		return this.total;
+	}
+
+	/**
+	 * Estima un percentil.
+	 *
+	 * @param percentil El percentil, entre 0 y 1.
+	 * @return El tiempo estimado en horas, o null si el histograma está vacío.
+	 */
+	public Double percentilHoras(double percentil)
+	{
+		if (this.total == 0)
+		{
+			return null;
+		}
+
+		long posicion = Math.max(1, (long) Math.ceil(percentil * this.total));
+		long acumulado = 0;
+		int cubeta = 0;
+		while (cubeta < CUBETAS - 1 && (acumulado += this.cuentas[cubeta]) < posicion)
+		{
+			cubeta++;
+		}
+
+		double minutos = cubeta == 0 ? 0.5 : Math.pow(2, (2 * cubeta - 1) / 4.0);
+		return Math.round(minutos / 60 * 100) / 100.0;
+	}
+
+	/**
+	 * @return El histograma como cuentas separadas por comas, sin las cubetas vacías del final; null si
+	 *         está vacío.
+	 */
+	public String aTexto()
+	{
+		if (this.total == 0)
+		{
+			return null;
+		}
+
+		int ultima = CUBETAS - 1;
+		while (this.cuentas[ultima] == 0)
+		{
+			ultima--;
+		}
+		StringBuilder texto = new StringBuilder();
+		for (long cuenta : Arrays.copyOf(this.cuentas, ultima + 1))
+		{
+			if (texto.length() > 0)
+			{
+				texto.append(',');
+			}
+			texto.append(cuenta);
+		}
+		return texto.toString();
+	}
+}
@@ -0,0 +1,220 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenDiarioEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenHistoricoEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenPendienteEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenDiarioRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenHistoricoRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenPendienteRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene al día los resúmenes diarios recalculando solo los días anotados por {@link ResumenDiarioWriter}.
+ * <p>
+ * Cada ejecución lee los días pendientes por orden de anotación, recalcula cada día en su propia
+ * transacción a partir de las incidencias creadas ese día (índice {@code fecha_incidencia}) y después
+ * borra exactamente las anotaciones leídas. Las anotadas mientras tanto, o confirmadas más tarde con un
+ * identificador menor, quedan para la siguiente ejecución. Recalcular un día es idempotente, por lo que
+ * un fallo o una ejecución simultánea en otra instancia solo repite trabajo.
+ * </p>
+ * <p>
+ * La primera vez que se ejecuta anota todos los días desde la incidencia más antigua, para construir el
+ * histórico, y guarda en la misma transacción una marca ({@link ResumenHistoricoEntity}). Solo la marca
+ * indica que el histórico está construido: que haya días pendientes o resúmenes no basta, porque cualquier
+ * cambio anterior a la primera ejecución los crea.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class ResumenDiarioJob
+{
+	/** Repositorio de los resúmenes. */
+	private final IResumenDiarioRepository iResumenDiarioRepository;
+
+	/** Repositorio de los días pendientes. */
+	private final IResumenPendienteRepository iResumenPendienteRepository;
+
+	/** Repositorio de la marca de histórico construido. */
+	private final IResumenHistoricoRepository iResumenHistoricoRepository;
+
+	/** Transacción de cada día. */
+	private final TransactionTemplate transactionTemplate;
+
+	/** Si los resúmenes se mantienen. */
+	private final boolean habilitado;
+
+	/** Días pendientes leídos por iteración. */
+	private final int tamanoLote;
+
+	/** Indica si ya se ha comprobado si hay que construir el histórico. */
+	private volatile boolean inicializado;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iResumenDiarioRepository    Repositorio de los resúmenes.
+	 * @param iResumenPendienteRepository Repositorio de los días pendientes.
+	 * @param iResumenHistoricoRepository Repositorio de la marca de histórico construido.
+	 * @param transactionManager          Gestor de transacciones.
+	 * @param habilitado                  Si los resúmenes se mantienen.
+	 * @param tamanoLote                  Días pendientes leídos por iteración.
+	 */
+	public ResumenDiarioJob(IResumenDiarioRepository iResumenDiarioRepository,
+			IResumenPendienteRepository iResumenPendienteRepository,
+			IResumenHistoricoRepository iResumenHistoricoRepository, PlatformTransactionManager transactionManager,
+			@Value("${reaktor.resumen.habilitado:true}") boolean habilitado,
+			@Value("${reaktor.resumen.tamano-lote:500}") int tamanoLote)
+	{
+		this.iResumenDiarioRepository = iResumenDiarioRepository;
+		this.iResumenPendienteRepository = iResumenPendienteRepository;
+		this.iResumenHistoricoRepository = iResumenHistoricoRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.habilitado = habilitado;
+		this.tamanoLote = tamanoLote;
+	}
+
+	/**
+	 * Recalcula los días pendientes hasta que no quede ninguno.
+	 */
+	@Scheduled(fixedDelayString = "${reaktor.resumen.intervalo:PT1M}", initialDelayString = "${reaktor.resumen.intervalo:PT1M}")
+	public void actualiza()
+	{
+		if (!this.habilitado)
+		{
+			return;
+		}
+
+		try
+		{
+			if (!this.inicializado)
+			{
+				this.transactionTemplate.executeWithoutResult(estado -> this.construyeHistorico());
+				this.inicializado = true;
+			}
+
+			List<ResumenPendienteEntity> pendientes;
+			do
+			{
+				pendientes = this.iResumenPendienteRepository
+						.findAll(PageRequest.of(0, this.tamanoLote, Sort.by("id"))).getContent();
+
+				Set<LocalDate> dias = new TreeSet<LocalDate>();
+				List<Long> ids = new ArrayList<Long>(pendientes.size());
+				for (ResumenPendienteEntity pendiente : pendientes)
+				{
+					dias.add(pendiente.getDia());
+					ids.add(pendiente.getId());
+				}
+
+				long inicio = System.currentTimeMillis();
+				for (LocalDate dia : dias)
+				{
+					this.transactionTemplate.executeWithoutResult(estado -> this.recalcula(dia));
+				}
+				this.iResumenPendienteRepository.deleteAllByIdInBatch(ids);
+
+				if (!dias.isEmpty())
+				{
+					log.info("INFO: Resumenes recalculados para {} dias ({} ms).", dias.size(),
+							System.currentTimeMillis() - inicio);
+				}
+			}
+			while (pendientes.size() == this.tamanoLote);
+		}
+		catch (RuntimeException exception)
+		{
+			log.error("ERROR: Fallo al actualizar los resumenes diarios.", exception);
+		}
+	}
+
+	/**
+	 * Sustituye los resúmenes de un día por los calculados a partir de sus incidencias.
+	 *
+	 * @param dia El día.
+	 */
+	private void recalcula(LocalDate dia)
+	{
+		ZoneId zona = ZoneId.systemDefault();
+		Date desde = Date.from(dia.atStartOfDay(zona).toInstant());
+		Date hasta = Date.from(dia.plusDays(1).atStartOfDay(zona).toInstant());
+
+		Map<String, ResumenDiarioEntity> grupos = new LinkedHashMap<String, ResumenDiarioEntity>();
+		Map<String, HistogramaResolucion> histogramas = new LinkedHashMap<String, HistogramaResolucion>();
+		for (Object[] fila : this.iResumenDiarioRepository.leeIncidencias(desde, hasta))
+		{
+			String numeroAula = (String) fila[0];
+			String estado = fila[1] == null ? "" : (String) fila[1];
+			Date fechaIncidencia = (Date) fila[2];
+			Date fechaResolucion = (Date) fila[3];
+
+			String clave = numeroAula + '\n' + estado;
+			ResumenDiarioEntity grupo = grupos.computeIfAbsent(clave,
+					k -> new ResumenDiarioEntity(null, dia, numeroAula, estado, 0, null));
+			grupo.setIncidencias(grupo.getIncidencias() + 1);
+
+			if (fechaResolucion != null && Constants.ESTADO_RESUELTA.equals(estado))
+			{
+				long minutos = Math.max(0, (fechaResolucion.getTime() - fechaIncidencia.getTime()) / 60000);
+				histogramas.computeIfAbsent(clave, k -> new HistogramaResolucion()).registra(minutos);
+			}
+		}
+		for (Map.Entry<String, HistogramaResolucion> histograma : histogramas.entrySet())
+		{
+			grupos.get(histograma.getKey()).setHistogramaResolucion(histograma.getValue().aTexto());
+		}
+
+		this.iResumenDiarioRepository.borraDia(dia);
+		this.iResumenDiarioRepository.saveAll(grupos.values());
+	}
+
+	/**
+	 * Anota todos los días con incidencias y guarda la marca de histórico construido, si todavía no existe.
+	 * Debe llamarse dentro de una transacción.
+	 */
+	private void construyeHistorico()
+	{
+		if (this.iResumenHistoricoRepository.existsById(ResumenHistoricoEntity.UNICA))
+		{
+			return;
+		}
+
+		LocalDate ultimo = null;
+		Date primera = this.iResumenDiarioRepository.primeraFechaIncidencia();
+		if (primera != null)
+		{
+			ZoneId zona = ZoneId.systemDefault();
+			LocalDate dia = primera.toInstant().atZone(zona).toLocalDate();
+			ultimo = this.iResumenDiarioRepository.ultimaFechaIncidencia().toInstant().atZone(zona).toLocalDate();
+			List<ResumenPendienteEntity> pendientes = new ArrayList<ResumenPendienteEntity>();
+			for (; !dia.isAfter(ultimo); dia = dia.plusDays(1))
+			{
+				pendientes.add(new ResumenPendienteEntity(null, dia));
+			}
+			this.iResumenPendienteRepository.saveAll(pendientes);
+			log.info("INFO: Construyendo los resumenes diarios de {} dias.", pendientes.size());
+		}
+
+		this.iResumenHistoricoRepository.save(new ResumenHistoricoEntity(ResumenHistoricoEntity.UNICA, ultimo, new Date()));
+	}
+}
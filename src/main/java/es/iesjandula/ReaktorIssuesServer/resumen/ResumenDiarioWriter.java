@@ -0,0 +1,127 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResolucionEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenPendienteEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IResolucionRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenPendienteRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Anota, en la misma transacción que cada cambio de incidencias, los días cuyo resumen hay que recalcular
+ * y la fecha en que las incidencias pasan a "RESUELTA".
+ * <p>
+ * Los días se acumulan durante la transacción y se guardan al confirmarla, una fila por día, de modo que
+ * una importación masiva de un lote solo anota los días distintos del lote. Los cambios que no tocan el
+ * estado no alteran los resúmenes y no se anotan.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class ResumenDiarioWriter
+{
+	/** Repositorio de los días pendientes. */
+	private final IResumenPendienteRepository iResumenPendienteRepository;
+
+	/** Repositorio de las fechas de resolución. */
+	private final IResolucionRepository iResolucionRepository;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iResumenPendienteRepository Repositorio de los días pendientes.
+	 * @param iResolucionRepository       Repositorio de las fechas de resolución.
+	 */
+	public ResumenDiarioWriter(IResumenPendienteRepository iResumenPendienteRepository,
+			IResolucionRepository iResolucionRepository)
+	{
+		this.iResumenPendienteRepository = iResumenPendienteRepository;
+		this.iResolucionRepository = iResolucionRepository;
+	}
+
+	/**
+	 * Anota el cambio en la transacción en curso, que es la del motor de almacenamiento.
+	 *
+	 * @param evento El evento de la incidencia.
+	 */
+	@EventListener
+	public void alCambiarIncidencia(IncidenciaEvent evento)
+	{
+		if (!evento.cambiaEstado() && evento.getTipo() != IncidenciaEvent.Tipo.BORRADA)
+		{
+			return;
+		}
+
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		if (evento.getTipo() == IncidenciaEvent.Tipo.ACTUALIZADA
+				&& Constants.ESTADO_RESUELTA.equals(incidencia.getEstadoIncidencia()))
+		{
+			this.iResolucionRepository.save(new ResolucionEntity(incidencia.getId(), new Date()));
+		}
+		else if (evento.getTipo() != IncidenciaEvent.Tipo.CREADA
+				&& Constants.ESTADO_RESUELTA.equals(evento.getEstadoAnterior()))
+		{
+			this.iResolucionRepository.deleteById(incidencia.getId());
+		}
+
+		this.anota(incidencia.getFechaIncidencia().toInstant().atZone(ZoneId.systemDefault()).toLocalDate());
+	}
+
+	/**
+	 * Añade un día a los pendientes de la transacción en curso.
+	 *
+	 * @param dia El día.
+	 */
+	private void anota(LocalDate dia)
+	{
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			this.iResumenPendienteRepository.save(new ResumenPendienteEntity(null, dia));
+			return;
+		}
+
+		@SuppressWarnings("unchecked")
+		Set<LocalDate> dias = (Set<LocalDate>) TransactionSynchronizationManager.getResource(this);
+		if (dias == null)
+		{
+			Set<LocalDate> nuevos = new HashSet<LocalDate>();
+			TransactionSynchronizationManager.bindResource(this, nuevos);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+			{
+				@Override
+				public void beforeCommit(boolean readOnly)
+				{
+					List<ResumenPendienteEntity> pendientes = new ArrayList<ResumenPendienteEntity>();
+					for (LocalDate pendiente : nuevos)
+					{
+						pendientes.add(new ResumenPendienteEntity(null, pendiente));
+					}
+					ResumenDiarioWriter.this.iResumenPendienteRepository.saveAll(pendientes);
+				}
+
+				@Override
+				public void afterCompletion(int status)
+				{
+					TransactionSynchronizationManager.unbindResource(ResumenDiarioWriter.this);
+				}
+			});
+			dias = nuevos;
+		}
+		dias.add(dia);
+	}
+}
@@ -0,0 +1,156 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import es.iesjandula.ReaktorIssuesServer.dto.ResumenPeriodoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenDiarioEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenDiarioRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Informes de incidencias por periodo calculados a partir de los resúmenes diarios, sin leer la tabla de
+ * incidencias: un informe de tres años por aula y mes lee como mucho una fila por día, aula y estado.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class ResumenInformeService
+{
+	/** Agrupaciones admitidas y longitud del periodo en la fecha ISO. */
+	private static final Map<String, Integer> AGRUPACIONES = Map.of("dia", 10, "mes", 7, "anio", 4);
+
+	/** Repositorio de los resúmenes. */
+	private final IResumenDiarioRepository iResumenDiarioRepository;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iResumenDiarioRepository Repositorio de los resúmenes.
+	 */
+	public ResumenInformeService(IResumenDiarioRepository iResumenDiarioRepository)
+	{
+		this.iResumenDiarioRepository = iResumenDiarioRepository;
+	}
+
+	/**
+	 * Resume las incidencias creadas entre dos días.
+	 *
+	 * @param desde      Primer día, {@code yyyy-MM-dd}.
+	 * @param hasta      Último día (incluido), {@code yyyy-MM-dd}.
+	 * @param agrupacion "dia", "mes" o "anio".
+	 * @param numeroAula Aula a la que se limita el informe; nula para todas.
+	 * @param porAula    Si se separa cada aula o se suman todas.
+	 * @return Un resumen por periodo (y aula), ordenados.
+	 * @throws IssuesServerError Si las fechas o la agrupación no son válidas.
+	 */
+	public List<ResumenPeriodoDTO> informe(String desde, String hasta, String agrupacion, String numeroAula,
+			boolean porAula) throws IssuesServerError
+	{
+		Integer longitudPeriodo = AGRUPACIONES.get(agrupacion);
+		if (longitudPeriodo == null)
+		{
+			String errorString = "Agrupacion no permitida: " + agrupacion + ". Agrupaciones permitidas: " + AGRUPACIONES.keySet();
+
+			log.error(errorString) ;
+			throw new IssuesServerError(23, errorString) ;
+		}
+		LocalDate primero = parseaDia(desde);
+		LocalDate ultimo = parseaDia(hasta);
+		if (ultimo.isBefore(primero))
+		{
+			String errorString = "La fecha final " + hasta + " es anterior a la inicial " + desde;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(24, errorString) ;
+		}
+
+		List<ResumenDiarioEntity> resumenes = numeroAula == null
+				? this.iResumenDiarioRepository.findByDiaBetween(primero, ultimo)
+				: this.iResumenDiarioRepository.findByDiaBetweenAndNumeroAula(primero, ultimo, numeroAula);
+
+		Map<String, Acumulado> acumulados = new TreeMap<String, Acumulado>();
+		for (ResumenDiarioEntity resumen : resumenes)
+		{
+			String periodo = resumen.getDia().toString().substring(0, longitudPeriodo);
+			String aula = porAula ? resumen.getNumeroAula() : null;
+			Acumulado acumulado = acumulados.computeIfAbsent(periodo + '\n' + (aula == null ? "" : aula),
+					clave -> new Acumulado(periodo, aula));
+
+			acumulado.incidencias += resumen.getIncidencias();
+			acumulado.porEstado.merge(resumen.getEstadoIncidencia(), resumen.getIncidencias(), Long::sum);
+			acumulado.histograma.suma(resumen.getHistogramaResolucion());
+		}
+
+		List<ResumenPeriodoDTO> informe = new ArrayList<ResumenPeriodoDTO>(acumulados.size());
+		for (Acumulado acumulado : acumulados.values())
+		{
+			HistogramaResolucion histograma = acumulado.histograma;
+			informe.add(new ResumenPeriodoDTO(acumulado.periodo, acumulado.numeroAula, acumulado.incidencias,
+					acumulado.porEstado, histograma.getTotal(), histograma.percentilHoras(0.5),
+					histograma.percentilHoras(0.9), histograma.percentilHoras(0.99)));
+		}
+		return informe;
+	}
+
+	/**
+	 * @param dia El día en formato {@code yyyy-MM-dd}.
+	 * @return El día.
+	 * @throws IssuesServerError Si no tiene un formato válido.
+	 */
+	private static LocalDate parseaDia(String dia) throws IssuesServerError
+	{
+		try
+		{
+			return LocalDate.parse(dia);
+		}
+		catch (DateTimeParseException exception)
+		{
+			String errorString = "Formato de fecha no valido: " + dia;
+
+			log.error(errorString) ;
+			throw new IssuesServerError(8, errorString, exception) ;
+		}
+	}
+
+	/**
+	 * Totales de un periodo y aula mientras se recorren los resúmenes.
+	 */
+	private static final class Acumulado
+	{
+		/** Periodo. */
+		private final String periodo;
+
+		/** Aula; nula si se suman todas. */
+		private final String numeroAula;
+
+		/** Incidencias por estado. */
+		private final Map<String, Long> porEstado = new TreeMap<String, Long>();
+
+		/** Tiempos de resolución. */
+		private final HistogramaResolucion histograma = new HistogramaResolucion();
+
+		/** Total de incidencias. */
+		private long incidencias;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param periodo    Periodo.
+		 * @param numeroAula Aula; nula si se suman todas.
+		 */
+		private Acumulado(String periodo, String numeroAula)
+		{
+			this.periodo = periodo;
+			this.numeroAula = numeroAula;
+		}
+	}
+}
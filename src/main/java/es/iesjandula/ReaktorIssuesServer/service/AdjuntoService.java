@@ -0,0 +1,222 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.dto.AdjuntoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.AdjuntoEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IAdjuntoRepository;
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore;
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore.ContenidoSubido;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gestión de las fotos adjuntas a las incidencias.
+ * <p>
+ * Los metadatos se guardan en la tabla {@code adjuntos} y el contenido en {@link AdjuntoContentStore},
+ * deduplicado por hash. Un contenido solo se borra del disco cuando deja de estar referenciado y una vez
+ * confirmado el borrado de la fila: si la transacción se deshace, el fichero sigue en su sitio. Al borrar
+ * una incidencia se borran también sus adjuntos.
+ * </p>
+ * <p>
+ * Solo está disponible con el motor JPA.
+ * </p>
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class AdjuntoService
+{
+	/** Repositorio de metadatos de adjuntos. */
+	private final IAdjuntoRepository iAdjuntoRepository;
+
+	/** Almacén de contenido. */
+	private final AdjuntoContentStore adjuntoContentStore;
+
+	/** Tamaño máximo de un adjunto. */
+	private final DataSize tamanoMaximo;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iAdjuntoRepository  Repositorio de metadatos de adjuntos.
+	 * @param adjuntoContentStore Almacén de contenido.
+	 * @param tamanoMaximo        Tamaño máximo de un adjunto.
+	 */
+	public AdjuntoService(IAdjuntoRepository iAdjuntoRepository, AdjuntoContentStore adjuntoContentStore,
+			@Value("${reaktor.adjuntos.tamano-maximo:10MB}") DataSize tamanoMaximo)
+	{
+		this.iAdjuntoRepository = iAdjuntoRepository;
+		this.adjuntoContentStore = adjuntoContentStore;
+		this.tamanoMaximo = tamanoMaximo;
+	}
+
+	/**
+	 * Guarda una foto adjunta a una incidencia.
+	 *
+	 * @param incidenciaId  El identificador de la incidencia, que debe existir.
+	 * @param nombreFichero El nombre original del fichero.
+	 * @param entrada       El contenido; no se cierra.
+	 * @return Los metadatos del adjunto creado.
+	 * @throws IssuesServerError Si el fichero supera el tamaño máximo o no es una imagen admitida.
+	 * @throws IOException       Si falla la escritura en disco.
+	 */
+	public AdjuntoDTO adjunta(Long incidenciaId, String nombreFichero, InputStream entrada)
+			throws IssuesServerError, IOException
+	{
+		ContenidoSubido contenido = this.adjuntoContentStore.recibe(entrada, this.tamanoMaximo.toBytes());
+		if (contenido == null)
+		{
+			String errorString = "El adjunto supera el tamaño máximo de " + this.tamanoMaximo.toKilobytes() + " KB.";
+
+			log.error(errorString) ;
+			throw new IssuesServerError(14, errorString) ;
+		}
+		if (contenido.getTipoContenido() == null)
+		{
+			this.adjuntoContentStore.descarta(contenido);
+			String errorString = "El adjunto debe ser una imagen JPEG, PNG o GIF.";
+
+			log.error(errorString) ;
+			throw new IssuesServerError(13, errorString) ;
+		}
+
+		AdjuntoEntity adjunto = new AdjuntoEntity(null, incidenciaId, contenido.getHash(),
+				nombreFichero == null || nombreFichero.isBlank() ? contenido.getHash() : nombreFichero,
+				contenido.getTipoContenido(), contenido.getTamano(), new Date());
+
+		// Publicar el contenido y registrar la fila bajo el mismo cerrojo que el borrado.
+		synchronized (this.adjuntoContentStore.bloqueo(contenido.getHash()))
+		{
+			this.adjuntoContentStore.publica(contenido);
+			adjunto = this.iAdjuntoRepository.saveAndFlush(adjunto);
+		}
+
+		log.info("INFO: Adjunto {} ({} bytes) guardado en la incidencia {}.", adjunto.getId(), adjunto.getTamano(),
+				incidenciaId);
+		return mapToDto(adjunto);
+	}
+
+	/**
+	 * @param incidenciaId El identificador de la incidencia.
+	 * @return Los metadatos de sus adjuntos.
+	 */
+	public List<AdjuntoDTO> lista(Long incidenciaId)
+	{
+		List<AdjuntoDTO> adjuntos = new ArrayList<AdjuntoDTO>();
+		for (AdjuntoEntity adjunto : this.iAdjuntoRepository.findByIncidenciaIdOrderByFechaSubidaAsc(incidenciaId))
+		{
+			adjuntos.add(mapToDto(adjunto));
+		}
+		return adjuntos;
+	}
+
+	/**
+	 * @param incidenciaId El identificador de la incidencia.
+	 * @param adjuntoId    El identificador del adjunto.
+	 * @return El adjunto si existe y pertenece a la incidencia.
+	 */
+	public Optional<AdjuntoEntity> busca(Long incidenciaId, Long adjuntoId)
+	{
+		return this.iAdjuntoRepository.findByIdAndIncidenciaId(adjuntoId, incidenciaId);
+	}
+
+	/**
+	 * Borra un adjunto y, si era la última referencia, su contenido. Dentro de una transacción el contenido
+	 * se borra cuando se confirma.
+	 *
+	 * @param adjunto El adjunto.
+	 * @throws IOException Si falla el borrado del contenido fuera de una transacción.
+	 */
+	public void borra(AdjuntoEntity adjunto) throws IOException
+	{
+		this.iAdjuntoRepository.delete(adjunto);
+
+		String hash = adjunto.getHash();
+		if (!TransactionSynchronizationManager.isSynchronizationActive())
+		{
+			this.borraSinReferencias(hash);
+			return;
+		}
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+		{
+			@Override
+			public void afterCommit()
+			{
+				try
+				{
+					borraSinReferencias(hash);
+				}
+				catch (IOException exception)
+				{
+					log.error("ERROR: No se ha podido borrar el contenido " + hash + " sin referencias.", exception);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Borra un contenido si ya no lo referencia ningún adjunto confirmado. Se comprueba bajo el mismo
+	 * cerrojo con el que se publican las subidas, así que una subida del mismo contenido o bien ya ha
+	 * guardado su fila o bien volverá a publicar el fichero.
+	 *
+	 * @param hash El hash del contenido.
+	 * @throws IOException Si falla el borrado.
+	 */
+	private void borraSinReferencias(String hash) throws IOException
+	{
+		synchronized (this.adjuntoContentStore.bloqueo(hash))
+		{
+			if (!this.iAdjuntoRepository.existsByHash(hash))
+			{
+				this.adjuntoContentStore.borra(hash);
+			}
+		}
+	}
+
+	/**
+	 * Borra los adjuntos de una incidencia cuando se confirma su borrado.
+	 *
+	 * @param evento El evento de la incidencia.
+	 * @throws IOException Si falla el borrado de algún contenido.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	@Transactional(propagation = Propagation.REQUIRES_NEW)
+	public void alCambiarIncidencia(IncidenciaEvent evento) throws IOException
+	{
+		if (evento.getTipo() != IncidenciaEvent.Tipo.BORRADA)
+		{
+			return;
+		}
+		for (AdjuntoEntity adjunto : this.iAdjuntoRepository.findByIncidenciaIdOrderByFechaSubidaAsc(evento.getIncidencia().getId()))
+		{
+			this.borra(adjunto);
+		}
+	}
+
+	/**
+	 * @param adjunto La entidad.
+	 * @return Sus metadatos.
+	 */
+	private static AdjuntoDTO mapToDto(AdjuntoEntity adjunto)
+	{
+		return new AdjuntoDTO(adjunto.getId(), adjunto.getIncidenciaId(), adjunto.getNombreFichero(),
+				adjunto.getTipoContenido(), adjunto.getTamano(), adjunto.getHash(), adjunto.getFechaSubida());
+	}
+}
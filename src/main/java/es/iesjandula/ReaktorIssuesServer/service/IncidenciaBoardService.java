@@ -0,0 +1,445 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaAbiertaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tablero en memoria de las incidencias abiertas ("PENDIENTE" y "EN PROGRESO") agrupadas por aula.
+ * <p>
+ * Se carga al arrancar desde el motor de almacenamiento y se mantiene con los {@link IncidenciaEvent}
+ * una vez confirmada cada escritura, de modo que la pregunta "¿qué queda abierto en el aula X?" se
+ * responde sin consultar la base de datos.
+ * </p>
+ * <p>
+ * El número de entradas está limitado por {@code reaktor.tablero.max-incidencias}. Si se supera, el
+ * tablero se vacía y las consultas se resuelven contra el motor de almacenamiento. Mientras tanto, cada
+ * {@code reaktor.tablero.intervalo} se comprueba si se ha cerrado o borrado alguna incidencia y, en ese
+ * caso, se cuentan las abiertas: el tablero se reconstruye cuando bajan del
+ * {@value #PORCENTAJE_RECARGA}% del límite, para no vaciarlo y recargarlo continuamente cuando el número
+ * de abiertas ronda el límite.
+ * </p>
+ */
+@Slf4j
+@Service
+public class IncidenciaBoardService
+{
+	/** Tamaño fijo estimado de una entrada (objetos, cabeceras y nodos de los mapas), en bytes. */
+	private static final long BYTES_FIJOS_ENTRADA = 264;
+
+	/** Porcentaje del límite por debajo del cual se reconstruye un tablero desbordado. */
+	private static final int PORCENTAJE_RECARGA = 90;
+
+	/** Campos que se leen al cargar el tablero. */
+	private static final List<String> CAMPOS_TABLERO = List.of("id", "numeroAula", "correoDocente",
+			"fechaIncidencia", "estadoIncidencia", Constants.CAMPO_RESUMEN_DESCRIPCION, "fechaEstado");
+
+	/** Motor de almacenamiento del que se carga el tablero. */
+	private final IIncidenciaStorage iIncidenciaStorage;
+
+	/** Número máximo de incidencias en el tablero. */
+	private final int maxIncidencias;
+
+	/** Protege la aplicación de eventos frente a la sustitución del tablero al reconstruirlo. */
+	private final Object cerrojo = new Object();
+
+	/** Tablero en uso; vacío mientras está desbordado. */
+	private volatile Tablero tablero;
+
+	/** Indica si se ha superado el límite y las consultas van al motor de almacenamiento. */
+	private volatile boolean desbordado;
+
+	/** Indica si, estando desbordado, se ha cerrado o borrado alguna incidencia desde la última comprobación. */
+	private volatile boolean hayBajas;
+
+	/** Eventos recibidos durante una reconstrucción, para aplicarlos al tablero nuevo; null si no hay ninguna. */
+	private List<IncidenciaEvent> recibidosAlReconstruir;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iIncidenciaStorage Motor de almacenamiento de incidencias.
+	 * @param maxIncidencias     Número máximo de incidencias en el tablero.
+	 */
+	public IncidenciaBoardService(IIncidenciaStorage iIncidenciaStorage,
+			@Value("${reaktor.tablero.max-incidencias:100000}") int maxIncidencias)
+	{
+		this.iIncidenciaStorage = iIncidenciaStorage;
+		this.maxIncidencias = maxIncidencias;
+		this.tablero = new Tablero(maxIncidencias);
+	}
+
+	/**
+	 * Carga las incidencias abiertas antes de que el servidor empiece a atender peticiones.
+	 */
+	@PostConstruct
+	public void carga()
+	{
+		this.reconstruye(this.maxIncidencias);
+	}
+
+	/**
+	 * Reconstruye el tablero si está desbordado y, desde la última comprobación, se ha cerrado o borrado
+	 * alguna incidencia que haya podido dejar las abiertas por debajo del límite.
+	 */
+	@Scheduled(fixedDelayString = "${reaktor.tablero.intervalo:PT1M}", initialDelayString = "${reaktor.tablero.intervalo:PT1M}")
+	public void compruebaDesbordamiento()
+	{
+		if (this.desbordado && this.hayBajas)
+		{
+			this.hayBajas = false;
+			this.reconstruye((int) ((long) this.maxIncidencias * PORCENTAJE_RECARGA / 100));
+		}
+	}
+
+	/**
+	 * Actualiza el tablero una vez confirmada la escritura de una incidencia.
+	 *
+	 * @param evento El cambio de la incidencia.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onIncidenciaEvent(IncidenciaEvent evento)
+	{
+		synchronized (this.cerrojo)
+		{
+			if (this.recibidosAlReconstruir != null)
+			{
+				this.recibidosAlReconstruir.add(evento);
+			}
+
+			if (this.desbordado)
+			{
+				this.hayBajas |= !esAlta(evento);
+			}
+			else if (!this.tablero.aplica(evento))
+			{
+				this.desborda();
+			}
+		}
+	}
+
+	/**
+	 * Devuelve las incidencias abiertas de un aula, de la más reciente a la más antigua.
+	 *
+	 * @param numeroAula El número del aula.
+	 * @return Las incidencias abiertas del aula.
+	 */
+	public List<IncidenciaAbiertaDTO> abiertasPorAula(String numeroAula)
+	{
+		List<IncidenciaAbiertaDTO> abiertas = new ArrayList<IncidenciaAbiertaDTO>();
+
+		if (this.desbordado)
+		{
+			// El tablero está incompleto: se consulta el motor de almacenamiento.
+			for (String estado : List.of(Constants.ESTADO_PENDIENTE, Constants.ESTADO_EN_PROGRESO))
+			{
+				for (Map<String, Object> fila : this.iIncidenciaStorage.buscaProyeccion(CAMPOS_TABLERO, numeroAula,
+						null, null, null, null, estado, null))
+				{
+					abiertas.add(desdeFila(fila));
+				}
+			}
+		}
+		else
+		{
+			Map<Long, IncidenciaAbiertaDTO> delAula = this.tablero.porAula.get(numeroAula);
+			if (delAula != null)
+			{
+				abiertas.addAll(delAula.values());
+			}
+		}
+
+		abiertas.sort(Comparator.comparing(IncidenciaAbiertaDTO::getFechaIncidencia).reversed());
+		return abiertas;
+	}
+
+	/**
+	 * Devuelve el tamaño y la memoria estimada del tablero.
+	 *
+	 * @return Mapa con las estadísticas del tablero.
+	 */
+	public Map<String, Object> estadisticas()
+	{
+		Tablero actual = this.tablero;
+		Map<String, Object> estadisticas = new LinkedHashMap<String, Object>();
+		estadisticas.put("aulas", actual.porAula.size());
+		estadisticas.put("incidencias", actual.total.get());
+		estadisticas.put("maxIncidencias", this.maxIncidencias);
+		estadisticas.put("bytesEstimados", actual.bytesEstimados.get());
+		estadisticas.put("desbordado", this.desbordado);
+		return estadisticas;
+	}
+
+	/**
+	 * Carga un tablero nuevo desde el motor de almacenamiento y lo pone en uso si caben todas las
+	 * incidencias abiertas. Las abiertas se cuentan antes de leerlas, para no traer a memoria más filas
+	 * de las que caben.
+	 * <p>
+	 * Los eventos que llegan durante la carga se guardan y se aplican después al tablero nuevo: aplicar
+	 * un evento que ya recoge la carga no cambia nada.
+	 * </p>
+	 *
+	 * @param umbral Número de incidencias abiertas a partir del cual no se intenta la carga.
+	 */
+	private void reconstruye(int umbral)
+	{
+		long inicio = System.currentTimeMillis();
+
+		Map<String, Long> porEstado = this.iIncidenciaStorage.cuentaPorEstado();
+		long abiertas = porEstado.getOrDefault(Constants.ESTADO_PENDIENTE, 0L)
+				+ porEstado.getOrDefault(Constants.ESTADO_EN_PROGRESO, 0L);
+		if (abiertas > umbral)
+		{
+			synchronized (this.cerrojo)
+			{
+				this.desborda();
+			}
+			log.info("INFO: {} incidencias abiertas, más de {}: el tablero sigue desbordado.", abiertas, umbral);
+			return;
+		}
+
+		synchronized (this.cerrojo)
+		{
+			this.recibidosAlReconstruir = new ArrayList<IncidenciaEvent>();
+		}
+
+		Tablero nuevo = new Tablero(this.maxIncidencias);
+		boolean completo = true;
+		try
+		{
+			for (String estado : List.of(Constants.ESTADO_PENDIENTE, Constants.ESTADO_EN_PROGRESO))
+			{
+				for (Map<String, Object> fila : this.iIncidenciaStorage.buscaProyeccion(CAMPOS_TABLERO, null, null,
+						null, null, null, estado, null))
+				{
+					completo &= nuevo.agrega(desdeFila(fila));
+				}
+			}
+		}
+		finally
+		{
+			synchronized (this.cerrojo)
+			{
+				for (IncidenciaEvent evento : this.recibidosAlReconstruir)
+				{
+					completo &= nuevo.aplica(evento);
+				}
+				this.recibidosAlReconstruir = null;
+
+				if (completo)
+				{
+					this.tablero = nuevo;
+					this.desbordado = false;
+					this.hayBajas = false;
+				}
+				else
+				{
+					this.desborda();
+				}
+			}
+		}
+
+		log.info("INFO: Tablero de incidencias abiertas {}: {} incidencias en {} aulas ({} ms).",
+				completo ? "cargado" : "desbordado durante la carga", nuevo.total.get(), nuevo.porAula.size(),
+				System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Marca el tablero como desbordado y libera sus entradas. Se llama con el cerrojo tomado.
+	 */
+	private void desborda()
+	{
+		if (!this.desbordado)
+		{
+			this.desbordado = true;
+			log.warn("WARN: Tablero de incidencias abiertas lleno ({}). Se consultara el almacenamiento.",
+					this.maxIncidencias);
+		}
+		this.tablero = new Tablero(this.maxIncidencias);
+	}
+
+	/**
+	 * Construye una entrada del tablero a partir de una fila de la proyección del almacenamiento.
+	 *
+	 * @param fila Fila con los campos {@link #CAMPOS_TABLERO}.
+	 * @return La entrada del tablero.
+	 */
+	private static IncidenciaAbiertaDTO desdeFila(Map<String, Object> fila)
+	{
+		return new IncidenciaAbiertaDTO(
+				Long.valueOf((String) fila.get("id")),
+				(String) fila.get("numeroAula"),
+				(String) fila.get("correoDocente"),
+				(Date) fila.get("fechaIncidencia"),
+				(String) fila.get("estadoIncidencia"),
+				(String) fila.get(Constants.CAMPO_RESUMEN_DESCRIPCION),
+				(Date) fila.get("fechaEstado"));
+	}
+
+	/**
+	 * @param evento Cambio de una incidencia.
+	 * @return true si deja la incidencia abierta, es decir, si no puede reducir el número de abiertas.
+	 */
+	private static boolean esAlta(IncidenciaEvent evento)
+	{
+		return evento.getTipo() != IncidenciaEvent.Tipo.BORRADA
+				&& esAbierta(evento.getIncidencia().getEstadoIncidencia());
+	}
+
+	/**
+	 * @param estado Estado de una incidencia.
+	 * @return true si el estado corresponde a una incidencia abierta.
+	 */
+	private static boolean esAbierta(String estado)
+	{
+		return Constants.ESTADO_PENDIENTE.equals(estado) || Constants.ESTADO_EN_PROGRESO.equals(estado);
+	}
+
+	/**
+	 * Estima los bytes que ocupa una entrada del tablero (cadenas en UTF-16 más una parte fija).
+	 *
+	 * @param abierta La entrada.
+	 * @return Bytes estimados.
+	 */
+	private static long estimaBytes(IncidenciaAbiertaDTO abierta)
+	{
+		return BYTES_FIJOS_ENTRADA + 2L * (longitud(abierta.getNumeroAula()) + longitud(abierta.getCorreoDocente())
+				+ longitud(abierta.getEstadoIncidencia()) + longitud(abierta.getResumenDescripcion()));
+	}
+
+	/**
+	 * @param texto Un texto, posiblemente nulo.
+	 * @return Su longitud o 0.
+	 */
+	private static int longitud(String texto)
+	{
+		return texto == null ? 0 : texto.length();
+	}
+
+	/**
+	 * Contenido del tablero: se sustituye entero al reconstruirlo.
+	 */
+	private static final class Tablero
+	{
+		/** Incidencias abiertas por aula y, dentro de cada aula, por identificador. */
+		private final Map<String, Map<Long, IncidenciaAbiertaDTO>> porAula = new ConcurrentHashMap<String, Map<Long, IncidenciaAbiertaDTO>>();
+
+		/** Aula de cada incidencia del tablero, para poder retirarla aunque cambie. */
+		private final Map<Long, String> aulaPorId = new ConcurrentHashMap<Long, String>();
+
+		/** Número de incidencias en el tablero. */
+		private final AtomicInteger total = new AtomicInteger();
+
+		/** Memoria estimada ocupada por el tablero, en bytes. */
+		private final AtomicLong bytesEstimados = new AtomicLong();
+
+		/** Número máximo de incidencias en el tablero. */
+		private final int maxIncidencias;
+
+		/**
+		 * @param maxIncidencias Número máximo de incidencias en el tablero.
+		 */
+		private Tablero(int maxIncidencias)
+		{
+			this.maxIncidencias = maxIncidencias;
+		}
+
+		/**
+		 * Aplica el cambio de una incidencia.
+		 *
+		 * @param evento El cambio de la incidencia.
+		 * @return false si la incidencia no cabe en el tablero.
+		 */
+		private boolean aplica(IncidenciaEvent evento)
+		{
+			IncidenciaEntity incidencia = evento.getIncidencia();
+			this.retira(incidencia.getId());
+
+			if (!esAlta(evento))
+			{
+				return true;
+			}
+
+			String descripcion = incidencia.getDescripcionIncidencia();
+			return this.agrega(new IncidenciaAbiertaDTO(
+					incidencia.getId(),
+					incidencia.getNumeroAula(),
+					incidencia.getCorreoDocente(),
+					incidencia.getFechaIncidencia(),
+					incidencia.getEstadoIncidencia(),
+					descripcion == null ? null
+							: descripcion.substring(0, Math.min(descripcion.length(), Constants.LONG_RESUMEN_DESCRIPCION)),
+					incidencia.getFechaEstado()));
+		}
+
+		/**
+		 * Añade una incidencia al tablero si no se ha alcanzado el límite.
+		 *
+		 * @param abierta La incidencia abierta.
+		 * @return false si se ha alcanzado el límite y no se ha añadido.
+		 */
+		private boolean agrega(IncidenciaAbiertaDTO abierta)
+		{
+			if (this.total.get() >= this.maxIncidencias)
+			{
+				return false;
+			}
+
+			this.porAula.compute(abierta.getNumeroAula(), (aula, delAula) -> {
+				Map<Long, IncidenciaAbiertaDTO> mapa = delAula != null ? delAula : new ConcurrentHashMap<Long, IncidenciaAbiertaDTO>();
+				if (mapa.put(abierta.getId(), abierta) == null)
+				{
+					this.total.incrementAndGet();
+					this.bytesEstimados.addAndGet(estimaBytes(abierta));
+				}
+				return mapa;
+			});
+			this.aulaPorId.put(abierta.getId(), abierta.getNumeroAula());
+			return true;
+		}
+
+		/**
+		 * Retira una incidencia del tablero si estaba en él.
+		 *
+		 * @param id El identificador de la incidencia.
+		 */
+		private void retira(Long id)
+		{
+			String aula = this.aulaPorId.remove(id);
+			if (aula == null)
+			{
+				return;
+			}
+
+			this.porAula.computeIfPresent(aula, (clave, delAula) -> {
+				IncidenciaAbiertaDTO anterior = delAula.remove(id);
+				if (anterior != null)
+				{
+					this.total.decrementAndGet();
+					this.bytesEstimados.addAndGet(-estimaBytes(anterior));
+				}
+				// Las aulas sin incidencias abiertas se eliminan del mapa.
+				return delAula.isEmpty() ? null : delAula;
+			});
+		}
+	}
+}
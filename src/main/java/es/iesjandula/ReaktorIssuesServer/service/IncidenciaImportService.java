@@ -0,0 +1,542 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import es.iesjandula.ReaktorIssuesServer.diagnostico.ValidacionJfrEvent;
+import es.iesjandula.ReaktorIssuesServer.dto.CrearIncidenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoImportacionDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import es.iesjandula.ReaktorIssuesServer.utils.CsvReader;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Importación masiva de incidencias desde un fichero CSV.
+ * <p>
+ * El fichero se lee en flujo con {@link CsvReader} y se reparte en lotes de
+ * {@code reaktor.importacion.tamano-lote} registros. Cada lote se valida en un hilo del grupo de
+ * validación con las mismas reglas que {@code POST /incidencias/crear_incidencia} y se inserta con
+ * {@link IIncidenciaStorage#insertaLote(List)} en su propia transacción, en el orden del fichero. Como
+ * mucho hay {@code reaktor.importacion.lotes-en-vuelo} lotes en memoria, así que el consumo no depende
+ * del tamaño del fichero.
+ * </p>
+ * <p>
+ * Las líneas rechazadas se escriben en un informe CSV (línea, motivo y registro original) que se puede
+ * descargar durante {@code reaktor.importacion.retencion-informes}.
+ * </p>
+ * <p>
+ * Columnas: numeroAula, correoDocente, fechaIncidencia, descripcionIncidencia y, opcionalmente,
+ * estadoIncidencia y comentario. La primera línea se descarta si es una cabecera.
+ * </p>
+ */
+@Slf4j
+@Service
+public class IncidenciaImportService
+{
+	/** Cabecera del informe de errores. */
+	private static final String CABECERA_INFORME = "linea,motivo,registro";
+
+	/** Estados que se pueden importar. */
+	private static final List<String> ESTADOS = List.of(Constants.ESTADO_PENDIENTE, Constants.ESTADO_EN_PROGRESO,
+			Constants.ESTADO_RESUELTA, Constants.ESTADO_CANCELADA, Constants.ESTADO_DUPLICADA);
+
+	/** Formatos de fecha con hora aceptados, además de ISO-8601. */
+	private static final List<DateTimeFormatter> FORMATOS_FECHA_HORA = List.of(
+			DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm[:ss]"),
+			DateTimeFormatter.ofPattern("d/M/yyyy H:mm[:ss]"));
+
+	/** Formatos de fecha sin hora aceptados. */
+	private static final List<DateTimeFormatter> FORMATOS_FECHA = List.of(
+			DateTimeFormatter.ISO_LOCAL_DATE,
+			DateTimeFormatter.ofPattern("d/M/yyyy"));
+
+	/** Motor de almacenamiento de incidencias. */
+	private final IIncidenciaStorage iIncidenciaStorage;
+
+	/** Directorio de los informes de errores. */
+	private final Path directorio;
+
+	/** Registros por lote y por transacción. */
+	private final int tamanoLote;
+
+	/** Lotes leídos pendientes de guardar como máximo. */
+	private final int lotesEnVuelo;
+
+	/** Tiempo que se conservan los informes de errores. */
+	private final Duration retencionInformes;
+
+	/** Hilos de validación. */
+	private final ExecutorService validadores;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iIncidenciaStorage Motor de almacenamiento de incidencias.
+	 * @param directorio         Directorio de los informes de errores.
+	 * @param tamanoLote         Registros por lote y por transacción.
+	 * @param hilos              Hilos de validación; 0 para usar uno por procesador.
+	 * @param lotesEnVuelo       Lotes en memoria como máximo; 0 para usar el doble de hilos.
+	 * @param retencionInformes  Tiempo que se conservan los informes de errores.
+	 */
+	public IncidenciaImportService(IIncidenciaStorage iIncidenciaStorage,
+			@Value("${reaktor.importacion.directorio:${java.io.tmpdir}/reaktor-importaciones}") String directorio,
+			@Value("${reaktor.importacion.tamano-lote:1000}") int tamanoLote,
+			@Value("${reaktor.importacion.hilos:0}") int hilos,
+			@Value("${reaktor.importacion.lotes-en-vuelo:0}") int lotesEnVuelo,
+			@Value("${reaktor.importacion.retencion-informes:24h}") Duration retencionInformes)
+	{
+		int hilosValidacion = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+
+		this.iIncidenciaStorage = iIncidenciaStorage;
+		this.directorio = Paths.get(directorio);
+		this.tamanoLote = tamanoLote;
+		this.lotesEnVuelo = lotesEnVuelo > 0 ? lotesEnVuelo : 2 * hilosValidacion;
+		this.retencionInformes = retencionInformes;
+		this.validadores = Executors.newFixedThreadPool(hilosValidacion, new ThreadFactory()
+		{
+			private final AtomicInteger contador = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable tarea)
+			{
+				Thread hilo = new Thread(tarea, "importacion-validacion-" + this.contador.incrementAndGet());
+				hilo.setDaemon(true);
+				return hilo;
+			}
+		});
+	}
+
+	/**
+	 * Detiene los hilos de validación.
+	 */
+	@PreDestroy
+	public void detiene()
+	{
+		this.validadores.shutdownNow();
+	}
+
+	/**
+	 * Importa las incidencias de un CSV en UTF-8.
+	 *
+	 * @param entrada   Flujo con el contenido del fichero; no se cierra.
+	 * @param separador Separador de campos.
+	 * @return El resumen de la importación.
+	 * @throws IOException Si falla la lectura del fichero o la escritura del informe.
+	 */
+	public ResultadoImportacionDTO importa(InputStream entrada, char separador) throws IOException
+	{
+		long inicio = System.currentTimeMillis();
+		Files.createDirectories(this.directorio);
+		this.purgaInformes();
+
+		String idImportacion = UUID.randomUUID().toString();
+		Path informe = this.directorio.resolve(idImportacion + ".csv");
+		ResultadoImportacionDTO resultado = new ResultadoImportacionDTO(idImportacion, 0, 0, 0, 0, null);
+
+		// El lector no se cierra para no cerrar el flujo del llamante.
+		CsvReader lector = new CsvReader(new InputStreamReader(entrada, StandardCharsets.UTF_8), separador);
+		Deque<Future<LoteValidado>> enVuelo = new ArrayDeque<Future<LoteValidado>>();
+		try (BufferedWriter errores = Files.newBufferedWriter(informe, StandardCharsets.UTF_8))
+		{
+			errores.write(CABECERA_INFORME);
+			errores.newLine();
+
+			List<FilaCsv> lote = new ArrayList<FilaCsv>(this.tamanoLote);
+			boolean primera = true;
+			List<String> registro;
+			while ((registro = lector.siguiente()) != null)
+			{
+				if (primera && esCabecera(registro))
+				{
+					primera = false;
+					continue;
+				}
+				primera = false;
+				if (esVacio(registro))
+				{
+					continue;
+				}
+
+				resultado.setLeidas(resultado.getLeidas() + 1);
+				lote.add(new FilaCsv(lector.getLineaRegistro(), registro));
+				if (lote.size() == this.tamanoLote)
+				{
+					List<FilaCsv> aValidar = lote;
+					enVuelo.add(this.validadores.submit(() -> this.valida(aValidar)));
+					lote = new ArrayList<FilaCsv>(this.tamanoLote);
+
+					// Limita la memoria: no se sigue leyendo hasta guardar el lote más antiguo.
+					if (enVuelo.size() >= this.lotesEnVuelo)
+					{
+						this.guarda(espera(enVuelo.poll()), errores, separador, resultado);
+					}
+				}
+			}
+			if (!lote.isEmpty())
+			{
+				List<FilaCsv> aValidar = lote;
+				enVuelo.add(this.validadores.submit(() -> this.valida(aValidar)));
+			}
+			while (!enVuelo.isEmpty())
+			{
+				this.guarda(espera(enVuelo.poll()), errores, separador, resultado);
+			}
+		}
+		finally
+		{
+			for (Future<LoteValidado> pendiente : enVuelo)
+			{
+				pendiente.cancel(true);
+			}
+		}
+
+		if (resultado.getRechazadas() == 0)
+		{
+			Files.deleteIfExists(informe);
+		}
+		else
+		{
+			resultado.setInformeErrores("/incidencias/importaciones/" + idImportacion + "/errores");
+		}
+		resultado.setMilisegundos(System.currentTimeMillis() - inicio);
+
+		log.info("INFO: Importacion {} terminada: {} leidas, {} insertadas, {} rechazadas en {} ms.", idImportacion,
+				resultado.getLeidas(), resultado.getInsertadas(), resultado.getRechazadas(), resultado.getMilisegundos());
+		return resultado;
+	}
+
+	/**
+	 * Busca el informe de errores de una importación.
+	 *
+	 * @param idImportacion El identificador de la importación.
+	 * @return La ruta del informe si existe.
+	 */
+	public Optional<Path> informeErrores(String idImportacion)
+	{
+		try
+		{
+			// Solo identificadores generados por importa(), para no salir del directorio de informes.
+			Path informe = this.directorio.resolve(UUID.fromString(idImportacion) + ".csv");
+			return Files.exists(informe) ? Optional.of(informe) : Optional.empty();
+		}
+		catch (IllegalArgumentException exception)
+		{
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Valida un lote y convierte los registros válidos en incidencias. Se ejecuta en un hilo de validación.
+	 *
+	 * @param filas Los registros del lote.
+	 * @return El lote validado.
+	 */
+	private LoteValidado valida(List<FilaCsv> filas)
+	{
+		ValidacionJfrEvent validacion = ValidacionJfrEvent.inicia("importacion");
+		LoteValidado lote = new LoteValidado(new ArrayList<IncidenciaEntity>(filas.size()),
+				new ArrayList<FilaCsv>(filas.size()), new ArrayList<FilaRechazada>());
+		for (FilaCsv fila : filas)
+		{
+			try
+			{
+				lote.getIncidencias().add(this.convierte(fila.getCampos()));
+				lote.getFilas().add(fila);
+			}
+			catch (IllegalArgumentException exception)
+			{
+				lote.getRechazadas().add(new FilaRechazada(fila, exception.getMessage()));
+			}
+		}
+		validacion.termina(filas.size(), lote.getRechazadas().size());
+		return lote;
+	}
+
+	/**
+	 * Convierte un registro en una incidencia aplicando las reglas de creación de incidencias.
+	 *
+	 * @param campos Los campos del registro.
+	 * @return La incidencia sin identificador.
+	 * @throws IllegalArgumentException Si el registro no es válido, con el motivo.
+	 */
+	private IncidenciaEntity convierte(List<String> campos)
+	{
+		if (campos.size() < 4 || campos.size() > 6)
+		{
+			throw new IllegalArgumentException("Se esperaban entre 4 y 6 columnas y hay " + campos.size() + ".");
+		}
+
+		String numeroAula = campos.get(0).trim();
+		String correoDocente = campos.get(1).trim();
+		String descripcion = campos.get(3).trim();
+
+		// Mismas comprobaciones y mensajes que crear_incidencia.
+		if (numeroAula.isEmpty())
+		{
+			throw new IllegalArgumentException("El número de aula es obligatorio.");
+		}
+		if (correoDocente.isEmpty())
+		{
+			throw new IllegalArgumentException("El correo del docente es obligatorio.");
+		}
+		if (descripcion.isEmpty())
+		{
+			throw new IllegalArgumentException("La descripción de la incidencia es obligatoria.");
+		}
+
+		CrearIncidenciaDTO dto = new CrearIncidenciaDTO();
+		dto.setNumeroAula(numeroAula);
+		dto.setCorreoDocente(correoDocente);
+		dto.setDescripcionIncidencia(descripcion);
+		dto.setFechaIncidencia(parseaFecha(campos.get(2).trim()));
+
+		String estado = campos.size() > 4 ? campos.get(4).trim() : "";
+		if (estado.isEmpty())
+		{
+			estado = Constants.ESTADO_PENDIENTE;
+		}
+		else if (!ESTADOS.contains(estado))
+		{
+			throw new IllegalArgumentException("Estado de incidencia no valido: " + estado + ". Estados validos: " + ESTADOS);
+		}
+		String comentario = campos.size() > 5 ? campos.get(5).trim() : "";
+
+		return new IncidenciaEntity(null, dto.getNumeroAula(), dto.getCorreoDocente(), dto.getFechaIncidencia(),
+				dto.getDescripcionIncidencia(), estado, comentario, null);
+	}
+
+	/**
+	 * Inserta un lote validado y anota sus rechazos en el informe. Se ejecuta en el hilo de la petición,
+	 * en el orden del fichero.
+	 *
+	 * @param lote      El lote validado.
+	 * @param errores   El informe de errores.
+	 * @param separador Separador de campos del fichero original.
+	 * @param resultado El resumen a actualizar.
+	 * @throws IOException Si falla la escritura del informe.
+	 */
+	private void guarda(LoteValidado lote, BufferedWriter errores, char separador, ResultadoImportacionDTO resultado)
+			throws IOException
+	{
+		List<FilaRechazada> rechazadas = new ArrayList<FilaRechazada>(lote.getRechazadas());
+		if (!lote.getIncidencias().isEmpty())
+		{
+			Map<Integer, String> rechazos = this.iIncidenciaStorage.insertaLote(lote.getIncidencias());
+			for (Map.Entry<Integer, String> rechazo : rechazos.entrySet())
+			{
+				rechazadas.add(new FilaRechazada(lote.getFilas().get(rechazo.getKey()), rechazo.getValue()));
+			}
+			resultado.setInsertadas(resultado.getInsertadas() + lote.getIncidencias().size() - rechazos.size());
+		}
+
+		rechazadas.sort((a, b) -> Long.compare(a.getFila().getLinea(), b.getFila().getLinea()));
+		for (FilaRechazada rechazada : rechazadas)
+		{
+			StringBuilder original = new StringBuilder();
+			for (String campo : rechazada.getFila().getCampos())
+			{
+				if (original.length() > 0)
+				{
+					original.append(separador);
+				}
+				original.append(CsvReader.escapa(campo, separador));
+			}
+			errores.write(rechazada.getFila().getLinea() + "," + CsvReader.escapa(rechazada.getMotivo(), ',') + ","
+					+ CsvReader.escapa(original.toString(), ','));
+			errores.newLine();
+		}
+		resultado.setRechazadas(resultado.getRechazadas() + rechazadas.size());
+	}
+
+	/**
+	 * Borra los informes de errores más antiguos que la retención configurada.
+	 */
+	private void purgaInformes()
+	{
+		Instant limite = Instant.now().minus(this.retencionInformes);
+		try (DirectoryStream<Path> informes = Files.newDirectoryStream(this.directorio, "*.csv"))
+		{
+			for (Path informe : informes)
+			{
+				if (Files.getLastModifiedTime(informe).toInstant().isBefore(limite))
+				{
+					Files.deleteIfExists(informe);
+				}
+			}
+		}
+		catch (IOException exception)
+		{
+			log.warn("WARN: No se pudieron purgar los informes de importacion antiguos.", exception);
+		}
+	}
+
+	/**
+	 * Espera a que termine la validación de un lote.
+	 *
+	 * @param futuro La validación en curso.
+	 * @return El lote validado.
+	 * @throws IOException Si la validación ha fallado o se ha interrumpido.
+	 */
+	private static LoteValidado espera(Future<LoteValidado> futuro) throws IOException
+	{
+		try
+		{
+			return futuro.get();
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Importacion interrumpida.", exception);
+		}
+		catch (ExecutionException exception)
+		{
+			throw new IOException("Error al validar un lote de la importacion.", exception.getCause());
+		}
+	}
+
+	/**
+	 * Convierte la fecha de un registro. Si está vacía se usa la fecha actual, como en crear_incidencia.
+	 *
+	 * @param fecha La fecha en texto.
+	 * @return La fecha convertida.
+	 * @throws IllegalArgumentException Si la fecha no tiene un formato válido.
+	 */
+	private static Date parseaFecha(String fecha)
+	{
+		if (fecha.isEmpty())
+		{
+			return new Date();
+		}
+
+		for (DateTimeFormatter formato : FORMATOS_FECHA)
+		{
+			try
+			{
+				return Date.from(LocalDate.parse(fecha, formato).atStartOfDay(ZoneId.systemDefault()).toInstant());
+			}
+			catch (DateTimeParseException exception)
+			{
+				// Se prueba el siguiente formato.
+			}
+		}
+		try
+		{
+			return Date.from(LocalDateTime.parse(fecha).atZone(ZoneId.systemDefault()).toInstant());
+		}
+		catch (DateTimeParseException exception)
+		{
+			// Se prueban los formatos con hora no ISO.
+		}
+		for (DateTimeFormatter formato : FORMATOS_FECHA_HORA)
+		{
+			try
+			{
+				return Date.from(LocalDateTime.parse(fecha, formato).atZone(ZoneId.systemDefault()).toInstant());
+			}
+			catch (DateTimeParseException exception)
+			{
+				// Se prueba el siguiente formato.
+			}
+		}
+		throw new IllegalArgumentException("Formato de fecha no valido: " + fecha);
+	}
+
+	/**
+	 * @param registro Un registro del fichero.
+	 * @return true si es la cabecera de columnas.
+	 */
+	private static boolean esCabecera(List<String> registro)
+	{
+		return "numeroAula".equalsIgnoreCase(registro.get(0).trim());
+	}
+
+	/**
+	 * @param registro Un registro del fichero.
+	 * @return true si todos sus campos están vacíos.
+	 */
+	private static boolean esVacio(List<String> registro)
+	{
+		for (String campo : registro)
+		{
+			if (!campo.isBlank())
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Registro leído del fichero junto a la línea en la que empieza.
+	 */
+	@Data
+	@AllArgsConstructor
+	private static final class FilaCsv
+	{
+		private final long linea;
+
+		private final List<String> campos;
+	}
+
+	/**
+	 * Registro rechazado y su motivo.
+	 */
+	@Data
+	@AllArgsConstructor
+	private static final class FilaRechazada
+	{
+		private final FilaCsv fila;
+
+		private final String motivo;
+	}
+
+	/**
+	 * Resultado de validar un lote: incidencias válidas (con su registro en la misma posición) y rechazos.
+	 */
+	@Data
+	@AllArgsConstructor
+	private static final class LoteValidado
+	{
+		private final List<IncidenciaEntity> incidencias;
+
+		private final List<FilaCsv> filas;
+
+		private final List<FilaRechazada> rechazadas;
+	}
+}
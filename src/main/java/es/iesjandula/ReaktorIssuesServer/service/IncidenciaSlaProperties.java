@@ -0,0 +1,25 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Configuración de los plazos de atención de las incidencias ({@code reaktor.sla}).
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "reaktor.sla")
+public class IncidenciaSlaProperties
+{
+	/** Si es false no se programan ni se escalan incidencias. */
+	private boolean habilitado = true;
+
+	/** Antigüedad máxima de una incidencia en cada estado; los estados que no aparecen no se vigilan. */
+	private Map<String, Duration> umbrales = new HashMap<String, Duration>();
+}
@@ -0,0 +1,319 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.IncidenciaAbiertaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEscaladaEvent;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Vigila los plazos de atención de las incidencias y escala las que llevan demasiado tiempo en un estado.
+ * <p>
+ * Cada incidencia en un estado con umbral ({@code reaktor.sla.umbrales}) tiene un vencimiento igual al
+ * momento en que entró en ese estado más el umbral. Los vencimientos se guardan en memoria en un conjunto ordenado, de modo que cada
+ * revisión solo mira el primero y extrae los ya vencidos, sin recorrer la tabla ni el resto de
+ * incidencias. El conjunto se reconstruye al arrancar con una consulta por estado (índice
+ * {@code (estado_incidencia, fecha_incidencia)}) y se mantiene con los {@link IncidenciaEvent} una vez
+ * confirmada cada escritura.
+ * </p>
+ * <p>
+ * Al vencer, la incidencia pasa a la lista de escaladas ({@code GET /incidencias/escaladas}) y se publica
+ * un {@link IncidenciaEscaladaEvent}, que se notifica como cualquier otro cambio. Sale de la lista cuando
+ * cambia de estado o se borra. La antigüedad se cuenta desde {@code fechaEstado}, que el motor de
+ * almacenamiento escribe en la misma escritura que el cambio de estado; en las incidencias guardadas antes
+ * de existir ese campo se cuenta desde {@code fechaIncidencia}. Las incidencias que ya estaban vencidas al
+ * arrancar o al importarse pasan a la lista sin notificarse de nuevo.
+ * </p>
+ */
+@Slf4j
+@Service
+public class IncidenciaSlaService
+{
+	/** Campos que se leen al reconstruir los vencimientos. */
+	private static final List<String> CAMPOS_SLA = List.of("id", "numeroAula", "correoDocente",
+			"fechaIncidencia", "estadoIncidencia", Constants.CAMPO_RESUMEN_DESCRIPCION, "fechaEstado");
+
+	/** Vencimientos pendientes ordenados por fecha de vencimiento. */
+	private final NavigableSet<Vencimiento> vencimientos = new TreeSet<Vencimiento>();
+
+	/** Vencimiento pendiente de cada incidencia, para poder retirarlo en O(log n). */
+	private final Map<Long, Vencimiento> porId = new HashMap<Long, Vencimiento>();
+
+	/** Incidencias escaladas por identificador. */
+	private final Map<Long, IncidenciaAbiertaDTO> escaladas = new ConcurrentHashMap<Long, IncidenciaAbiertaDTO>();
+
+	/** Cerrojo de {@link #vencimientos} y {@link #porId}. */
+	private final Object cerrojo = new Object();
+
+	/** Motor de almacenamiento del que se cargan las incidencias. */
+	private final IIncidenciaStorage iIncidenciaStorage;
+
+	/** Publicador de los eventos de escalada. */
+	private final ApplicationEventPublisher applicationEventPublisher;
+
+	/** Configuración de los plazos. */
+	private final IncidenciaSlaProperties properties;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iIncidenciaStorage        Motor de almacenamiento de incidencias.
+	 * @param applicationEventPublisher Publicador de los eventos de escalada.
+	 * @param properties                Configuración de los plazos.
+	 * @param meterRegistry             Registro de métricas.
+	 */
+	public IncidenciaSlaService(IIncidenciaStorage iIncidenciaStorage,
+			ApplicationEventPublisher applicationEventPublisher, IncidenciaSlaProperties properties,
+			MeterRegistry meterRegistry)
+	{
+		this.iIncidenciaStorage = iIncidenciaStorage;
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.properties = properties;
+
+		Gauge.builder("reaktor.sla.programadas", this, servicio -> servicio.programadas())
+				.description("Incidencias con plazo de atención pendiente de vencer")
+				.register(meterRegistry);
+		Gauge.builder("reaktor.sla.escaladas", this.escaladas, Map::size)
+				.description("Incidencias que han superado su plazo de atención")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Reconstruye los vencimientos antes de que el servidor empiece a atender peticiones.
+	 */
+	@PostConstruct
+	public void carga()
+	{
+		if (!this.properties.isHabilitado())
+		{
+			return;
+		}
+
+		long inicio = System.currentTimeMillis();
+		for (Map.Entry<String, Duration> umbral : this.properties.getUmbrales().entrySet())
+		{
+			for (Map<String, Object> fila : this.iIncidenciaStorage.buscaProyeccion(CAMPOS_SLA, null, null, null, null,
+					null, umbral.getKey(), null))
+			{
+				IncidenciaAbiertaDTO incidencia = new IncidenciaAbiertaDTO(
+						Long.valueOf((String) fila.get("id")),
+						(String) fila.get("numeroAula"),
+						(String) fila.get("correoDocente"),
+						(Date) fila.get("fechaIncidencia"),
+						(String) fila.get("estadoIncidencia"),
+						(String) fila.get(Constants.CAMPO_RESUMEN_DESCRIPCION),
+						(Date) fila.get("fechaEstado"));
+				this.programa(incidencia, umbral.getValue(), false);
+			}
+		}
+		log.info("INFO: Plazos de atencion cargados: {} programadas y {} ya vencidas ({} ms).",
+				this.programadas(), this.escaladas.size(), System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Escala las incidencias cuyo plazo ha vencido. Solo examina los vencimientos ya cumplidos.
+	 */
+	@Scheduled(fixedDelayString = "${reaktor.sla.intervalo:PT1M}", initialDelayString = "${reaktor.sla.intervalo:PT1M}")
+	public void revisa()
+	{
+		long ahora = System.currentTimeMillis();
+		List<Vencimiento> vencidos = new ArrayList<Vencimiento>();
+		synchronized (this.cerrojo)
+		{
+			while (!this.vencimientos.isEmpty() && this.vencimientos.first().vence <= ahora)
+			{
+				Vencimiento vencimiento = this.vencimientos.pollFirst();
+				this.porId.remove(vencimiento.incidencia.getId());
+				this.escaladas.put(vencimiento.incidencia.getId(), vencimiento.incidencia);
+				vencidos.add(vencimiento);
+			}
+		}
+
+		for (Vencimiento vencimiento : vencidos)
+		{
+			IncidenciaAbiertaDTO incidencia = vencimiento.incidencia;
+			log.warn("WARN: Incidencia {} del aula {} escalada: sigue en {} desde {}.", incidencia.getId(),
+					incidencia.getNumeroAula(), incidencia.getEstadoIncidencia(), desde(incidencia));
+			this.applicationEventPublisher.publishEvent(new IncidenciaEscaladaEvent(incidencia, new Date(vencimiento.vence)));
+		}
+	}
+
+	/**
+	 * Reprograma el plazo de una incidencia una vez confirmada su escritura.
+	 *
+	 * @param evento El cambio de la incidencia.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onIncidenciaEvent(IncidenciaEvent evento)
+	{
+		if (!this.properties.isHabilitado())
+		{
+			return;
+		}
+
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		Duration umbral = evento.getTipo() == IncidenciaEvent.Tipo.BORRADA ? null
+				: this.properties.getUmbrales().get(incidencia.getEstadoIncidencia());
+
+		String descripcion = incidencia.getDescripcionIncidencia();
+		IncidenciaAbiertaDTO actual = new IncidenciaAbiertaDTO(
+				incidencia.getId(),
+				incidencia.getNumeroAula(),
+				incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia(),
+				incidencia.getEstadoIncidencia(),
+				descripcion == null ? null
+						: descripcion.substring(0, Math.min(descripcion.length(), Constants.LONG_RESUMEN_DESCRIPCION)),
+				incidencia.getFechaEstado());
+
+		// Un cambio que no toca el estado ni el momento en que entró en él mantiene la incidencia escalada.
+		IncidenciaAbiertaDTO escalada = this.escaladas.get(incidencia.getId());
+		if (umbral != null && escalada != null
+				&& escalada.getEstadoIncidencia().equals(actual.getEstadoIncidencia())
+				&& desde(escalada).getTime() == desde(actual).getTime())
+		{
+			this.escaladas.put(actual.getId(), actual);
+			return;
+		}
+
+		this.retira(incidencia.getId());
+		if (umbral != null)
+		{
+			this.programa(actual, umbral, !evento.isMasiva());
+		}
+	}
+
+	/**
+	 * Devuelve las incidencias escaladas, de la más antigua a la más reciente.
+	 *
+	 * @return Las incidencias escaladas.
+	 */
+	public List<IncidenciaAbiertaDTO> escaladas()
+	{
+		List<IncidenciaAbiertaDTO> lista = new ArrayList<IncidenciaAbiertaDTO>(this.escaladas.values());
+		lista.sort(Comparator.comparing(IncidenciaAbiertaDTO::getFechaIncidencia));
+		return lista;
+	}
+
+	/**
+	 * Programa el vencimiento de una incidencia. Si ya ha vencido y no hay que notificarla, pasa
+	 * directamente a la lista de escaladas.
+	 *
+	 * @param incidencia La incidencia.
+	 * @param umbral     Antigüedad máxima en su estado.
+	 * @param notificar  Si una incidencia ya vencida debe escalarse en la próxima revisión.
+	 */
+	private void programa(IncidenciaAbiertaDTO incidencia, Duration umbral, boolean notificar)
+	{
+		long vence = desde(incidencia).getTime() + umbral.toMillis();
+		if (!notificar && vence <= System.currentTimeMillis())
+		{
+			this.escaladas.put(incidencia.getId(), incidencia);
+			return;
+		}
+
+		Vencimiento vencimiento = new Vencimiento(vence, incidencia);
+		synchronized (this.cerrojo)
+		{
+			Vencimiento anterior = this.porId.put(incidencia.getId(), vencimiento);
+			if (anterior != null)
+			{
+				this.vencimientos.remove(anterior);
+			}
+			this.vencimientos.add(vencimiento);
+		}
+	}
+
+	/**
+	 * Devuelve el momento desde el que se cuenta la antigüedad de una incidencia en su estado.
+	 *
+	 * @param incidencia La incidencia.
+	 * @return {@code fechaEstado}, o {@code fechaIncidencia} si la incidencia se guardó sin ella.
+	 */
+	private static Date desde(IncidenciaAbiertaDTO incidencia)
+	{
+		return incidencia.getFechaEstado() != null ? incidencia.getFechaEstado() : incidencia.getFechaIncidencia();
+	}
+
+	/**
+	 * Retira una incidencia de los vencimientos y de las escaladas.
+	 *
+	 * @param id El identificador de la incidencia.
+	 */
+	private void retira(Long id)
+	{
+		this.escaladas.remove(id);
+		synchronized (this.cerrojo)
+		{
+			Vencimiento anterior = this.porId.remove(id);
+			if (anterior != null)
+			{
+				this.vencimientos.remove(anterior);
+			}
+		}
+	}
+
+	/**
+	 * @return Número de vencimientos pendientes.
+	 */
+	private int programadas()
+	{
+		synchronized (this.cerrojo)
+		{
+			return this.vencimientos.size();
+		}
+	}
+
+	/**
+	 * Vencimiento del plazo de una incidencia. Se ordena por momento de vencimiento y, a igualdad, por
+	 * identificador.
+	 */
+	private static final class Vencimiento implements Comparable<Vencimiento>
+	{
+		/** Momento de vencimiento en milisegundos. */
+		private final long vence;
+
+		/** La incidencia. */
+		private final IncidenciaAbiertaDTO incidencia;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param vence      Momento de vencimiento en milisegundos.
+		 * @param incidencia La incidencia.
+		 */
+		private Vencimiento(long vence, IncidenciaAbiertaDTO incidencia)
+		{
+			this.vence = vence;
+			this.incidencia = incidencia;
+		}
+
+		@Override
+		public int compareTo(Vencimiento otro)
+		{
+			int comparacion = Long.compare(this.vence, otro.vence);
+			return comparacion != 0 ? comparacion : Long.compare(this.incidencia.getId(), otro.incidencia.getId());
+		}
+	}
+}
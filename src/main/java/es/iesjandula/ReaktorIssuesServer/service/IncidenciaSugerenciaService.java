@@ -0,0 +1,128 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import es.iesjandula.ReaktorIssuesServer.dto.SugerenciaDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sugerencias de autocompletado de números de aula y correos de docentes para el formulario de búsqueda.
+ * <p>
+ * Los valores distintos y su número de incidencias se cargan al arrancar con una consulta agrupada por
+ * campo y se guardan en un {@link TrieSugerencias} por campo, de modo que cada pulsación se resuelve en
+ * memoria sin lanzar un {@code LIKE 'x%'} contra la base de datos. Se mantienen con los
+ * {@link IncidenciaEvent} una vez confirmada cada escritura; las actualizaciones no cambian el aula ni el
+ * docente, que forman parte de la clave natural.
+ * </p>
+ */
+@Slf4j
+@Service
+public class IncidenciaSugerenciaService
+{
+	/** Aulas con su número de incidencias. */
+	private final TrieSugerencias aulas;
+
+	/** Correos de docentes con su número de incidencias. */
+	private final TrieSugerencias docentes;
+
+	/** Motor de almacenamiento del que se cargan los valores. */
+	private final IIncidenciaStorage iIncidenciaStorage;
+
+	/** Número máximo de sugerencias por consulta. */
+	private final int maxResultados;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param iIncidenciaStorage Motor de almacenamiento de incidencias.
+	 * @param maxResultados      Número máximo de sugerencias por consulta.
+	 */
+	public IncidenciaSugerenciaService(IIncidenciaStorage iIncidenciaStorage,
+			@Value("${reaktor.sugerencias.max-resultados:10}") int maxResultados)
+	{
+		this.iIncidenciaStorage = iIncidenciaStorage;
+		this.maxResultados = Math.max(1, maxResultados);
+		this.aulas = new TrieSugerencias(this.maxResultados);
+		this.docentes = new TrieSugerencias(this.maxResultados);
+	}
+
+	/**
+	 * Carga las aulas y los docentes antes de que el servidor empiece a atender peticiones.
+	 */
+	@PostConstruct
+	public void carga()
+	{
+		long inicio = System.currentTimeMillis();
+		for (Map.Entry<String, Long> cuenta : this.iIncidenciaStorage.cuentaPorAula().entrySet())
+		{
+			this.aulas.suma(cuenta.getKey(), cuenta.getValue());
+		}
+		for (Map.Entry<String, Long> cuenta : this.iIncidenciaStorage.cuentaPorDocente().entrySet())
+		{
+			this.docentes.suma(cuenta.getKey(), cuenta.getValue());
+		}
+		log.info("INFO: Sugerencias cargadas: {} aulas y {} docentes ({} ms).", this.aulas.valores(),
+				this.docentes.valores(), System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Actualiza las sugerencias una vez confirmada la creación o el borrado de una incidencia.
+	 *
+	 * @param evento El cambio de la incidencia.
+	 */
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onIncidenciaEvent(IncidenciaEvent evento)
+	{
+		long cantidad = switch (evento.getTipo())
+		{
+			case CREADA -> 1;
+			case BORRADA -> -1;
+			case ACTUALIZADA -> 0;
+		};
+		IncidenciaEntity incidencia = evento.getIncidencia();
+		this.aulas.suma(incidencia.getNumeroAula(), cantidad);
+		this.docentes.suma(incidencia.getCorreoDocente(), cantidad);
+	}
+
+	/**
+	 * Sugiere las aulas con más incidencias que empiezan por un prefijo.
+	 *
+	 * @param prefijo El prefijo, sin distinguir mayúsculas.
+	 * @param limite  Número máximo de sugerencias.
+	 * @return Las aulas, de más a menos incidencias.
+	 */
+	public List<SugerenciaDTO> sugiereAulas(String prefijo, int limite)
+	{
+		return this.aulas.sugiere(prefijo, this.limita(limite));
+	}
+
+	/**
+	 * Sugiere los docentes con más incidencias cuyo correo empieza por un prefijo.
+	 *
+	 * @param prefijo El prefijo, sin distinguir mayúsculas.
+	 * @param limite  Número máximo de sugerencias.
+	 * @return Los correos, de más a menos incidencias.
+	 */
+	public List<SugerenciaDTO> sugiereDocentes(String prefijo, int limite)
+	{
+		return this.docentes.sugiere(prefijo, this.limita(limite));
+	}
+
+	/**
+	 * @param limite Límite pedido.
+	 * @return El límite ajustado entre 1 y {@code reaktor.sugerencias.max-resultados}.
+	 */
+	private int limita(int limite)
+	{
+		return Math.max(1, Math.min(limite, this.maxResultados));
+	}
+}
@@ -0,0 +1,344 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import es.iesjandula.ReaktorIssuesServer.dto.SugerenciaDTO;
+
+/**
+ * Árbol de prefijos de valores con su número de incidencias, para sugerir los más frecuentes que empiezan
+ * por un texto.
+ * <p>
+ * Cada nodo guarda, además de sus hijos en arrays ordenados por carácter, los {@code maxResultados}
+ * valores más frecuentes de su subárbol. Una consulta solo recorre los caracteres del prefijo y copia esa
+ * lista, sin visitar el resto del subárbol. Al incrementar un valor se actualizan las listas del camino
+ * hasta la raíz en O(longitud × maxResultados); al decrementarlo, cada lista del camino se recalcula a
+ * partir de las de sus hijos. Las búsquedas no distinguen mayúsculas.
+ * </p>
+ */
+final class TrieSugerencias
+{
+	/**
+	 * Orden de las sugerencias: más incidencias primero y, a igualdad, orden alfabético sin distinguir
+	 * mayúsculas, como las claves del árbol.
+	 */
+	private static final Comparator<Termino> ORDEN = Comparator.comparingLong((Termino termino) -> -termino.cuenta)
+			.thenComparing(termino -> termino.valor, String.CASE_INSENSITIVE_ORDER);
+
+	/** Array vacío compartido por los nodos sin términos. */
+	private static final Termino[] SIN_TERMINOS = new Termino[0];
+
+	/** Número de sugerencias que guarda cada nodo. */
+	private final int maxResultados;
+
+	/** Raíz del árbol. */
+	private final Nodo raiz = new Nodo();
+
+	/** Cerrojo: las consultas se ejecutan en paralelo y las modificaciones en exclusiva. */
+	private final ReadWriteLock cerrojo = new ReentrantReadWriteLock();
+
+	/** Número de valores distintos. */
+	private int valores;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxResultados Número de sugerencias que guarda cada nodo.
+	 */
+	TrieSugerencias(int maxResultados)
+	{
+		this.maxResultados = maxResultados;
+	}
+
+	/**
+	 * Suma una cantidad, positiva o negativa, a las incidencias de un valor. Un valor que llega a cero deja
+	 * de sugerirse.
+	 *
+	 * @param valor    El valor.
+	 * @param cantidad La cantidad.
+	 */
+	void suma(String valor, long cantidad)
+	{
+		if (valor == null || valor.isEmpty() || cantidad == 0)
+		{
+			return;
+		}
+
+		String clave = valor.toLowerCase(Locale.ROOT);
+		this.cerrojo.writeLock().lock();
+		try
+		{
+			// Camino desde la raíz hasta el nodo del valor.
+			Nodo[] camino = new Nodo[clave.length() + 1];
+			camino[0] = this.raiz;
+			for (int i = 0; i < clave.length(); i++)
+			{
+				camino[i + 1] = cantidad > 0 ? camino[i].hijoOCrea(clave.charAt(i)) : camino[i].hijo(clave.charAt(i));
+				if (camino[i + 1] == null)
+				{
+					return;
+				}
+			}
+
+			Nodo nodo = camino[clave.length()];
+			Termino termino = nodo.termino;
+			if (termino == null)
+			{
+				if (cantidad < 0)
+				{
+					return;
+				}
+				termino = new Termino(valor);
+				nodo.termino = termino;
+				this.valores++;
+			}
+			termino.cuenta = Math.max(0, termino.cuenta + cantidad);
+
+			if (cantidad > 0)
+			{
+				for (int i = camino.length - 1; i >= 0; i--)
+				{
+					this.sube(camino[i], termino);
+				}
+				return;
+			}
+
+			if (termino.cuenta == 0)
+			{
+				nodo.termino = null;
+				this.valores--;
+			}
+			for (int i = camino.length - 1; i >= 0; i--)
+			{
+				// Los nodos que se quedan sin valores se retiran del árbol.
+				if (i > 0 && camino[i].termino == null && camino[i].letras.length == 0)
+				{
+					camino[i - 1].retira(clave.charAt(i - 1));
+					continue;
+				}
+				this.recalcula(camino[i]);
+			}
+		}
+		finally
+		{
+			this.cerrojo.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Devuelve los valores más frecuentes que empiezan por un prefijo.
+	 *
+	 * @param prefijo El prefijo; vacío para los más frecuentes de todos.
+	 * @param limite  Número máximo de sugerencias (como mucho {@code maxResultados}).
+	 * @return Las sugerencias, de más a menos incidencias.
+	 */
+	List<SugerenciaDTO> sugiere(String prefijo, int limite)
+	{
+		String clave = prefijo.toLowerCase(Locale.ROOT);
+		this.cerrojo.readLock().lock();
+		try
+		{
+			Nodo nodo = this.raiz;
+			for (int i = 0; i < clave.length() && nodo != null; i++)
+			{
+				nodo = nodo.hijo(clave.charAt(i));
+			}
+			if (nodo == null)
+			{
+				return List.of();
+			}
+
+			int total = Math.min(limite, nodo.mejores.length);
+			List<SugerenciaDTO> sugerencias = new ArrayList<SugerenciaDTO>(total);
+			for (int i = 0; i < total; i++)
+			{
+				sugerencias.add(new SugerenciaDTO(nodo.mejores[i].valor, nodo.mejores[i].cuenta));
+			}
+			return sugerencias;
+		}
+		finally
+		{
+			this.cerrojo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return Número de valores distintos.
+	 */
+	int valores()
+	{
+		this.cerrojo.readLock().lock();
+		try
+		{
+			return this.valores;
+		}
+		finally
+		{
+			this.cerrojo.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Actualiza las sugerencias de un nodo tras incrementar un valor de su subárbol. Como el resto de
+	 * valores no cambia, basta con colocar ese valor en la lista.
+	 *
+	 * @param nodo    El nodo.
+	 * @param termino El valor incrementado.
+	 */
+	private void sube(Nodo nodo, Termino termino)
+	{
+		Termino[] mejores = nodo.mejores;
+		int posicion = Arrays.asList(mejores).indexOf(termino);
+		if (posicion < 0)
+		{
+			if (mejores.length == this.maxResultados && ORDEN.compare(termino, mejores[mejores.length - 1]) >= 0)
+			{
+				return;
+			}
+			posicion = Math.min(mejores.length, this.maxResultados - 1);
+			if (posicion == mejores.length)
+			{
+				mejores = Arrays.copyOf(mejores, mejores.length + 1);
+			}
+			mejores[posicion] = termino;
+		}
+
+		// Desplaza el valor hacia delante hasta su sitio.
+		while (posicion > 0 && ORDEN.compare(mejores[posicion], mejores[posicion - 1]) < 0)
+		{
+			Termino anterior = mejores[posicion - 1];
+			mejores[posicion - 1] = mejores[posicion];
+			mejores[posicion] = anterior;
+			posicion--;
+		}
+		nodo.mejores = mejores;
+	}
+
+	/**
+	 * Recalcula las sugerencias de un nodo a partir de su propio valor y de las de sus hijos, que ya están
+	 * actualizadas.
+	 *
+	 * @param nodo El nodo.
+	 */
+	private void recalcula(Nodo nodo)
+	{
+		List<Termino> candidatos = new ArrayList<Termino>();
+		if (nodo.termino != null)
+		{
+			candidatos.add(nodo.termino);
+		}
+		for (Nodo hijo : nodo.hijos)
+		{
+			candidatos.addAll(Arrays.asList(hijo.mejores));
+		}
+		candidatos.sort(ORDEN);
+		nodo.mejores = candidatos.isEmpty() ? SIN_TERMINOS
+				: candidatos.subList(0, Math.min(candidatos.size(), this.maxResultados)).toArray(SIN_TERMINOS);
+	}
+
+	/**
+	 * Valor con su número de incidencias.
+	 */
+	private static final class Termino
+	{
+		/** El valor tal como se guardó la primera vez. */
+		private final String valor;
+
+		/** Número de incidencias. */
+		private long cuenta;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param valor El valor.
+		 */
+		private Termino(String valor)
+		{
+			this.valor = valor;
+		}
+	}
+
+	/**
+	 * Nodo del árbol. Los hijos se guardan en dos arrays paralelos ordenados por carácter, más compactos que
+	 * un mapa, y se buscan por búsqueda binaria.
+	 */
+	private static final class Nodo
+	{
+		/** Carácter de cada hijo, ordenados. */
+		private char[] letras = new char[0];
+
+		/** Hijos, en el orden de {@link #letras}. */
+		private Nodo[] hijos = new Nodo[0];
+
+		/** Valor que termina en este nodo; nulo si no hay ninguno. */
+		private Termino termino;
+
+		/** Valores más frecuentes del subárbol, ordenados. */
+		private Termino[] mejores = SIN_TERMINOS;
+
+		/**
+		 * @param letra Carácter del hijo.
+		 * @return El hijo, o null si no existe.
+		 */
+		private Nodo hijo(char letra)
+		{
+			int posicion = Arrays.binarySearch(this.letras, letra);
+			return posicion >= 0 ? this.hijos[posicion] : null;
+		}
+
+		/**
+		 * @param letra Carácter del hijo.
+		 * @return El hijo, que se crea si no existe.
+		 */
+		private Nodo hijoOCrea(char letra)
+		{
+			int posicion = Arrays.binarySearch(this.letras, letra);
+			if (posicion >= 0)
+			{
+				return this.hijos[posicion];
+			}
+
+			posicion = -posicion - 1;
+			Nodo hijo = new Nodo();
+			char[] letras = new char[this.letras.length + 1];
+			Nodo[] hijos = new Nodo[this.hijos.length + 1];
+			System.arraycopy(this.letras, 0, letras, 0, posicion);
+			System.arraycopy(this.hijos, 0, hijos, 0, posicion);
+			letras[posicion] = letra;
+			hijos[posicion] = hijo;
+			System.arraycopy(this.letras, posicion, letras, posicion + 1, this.letras.length - posicion);
+			System.arraycopy(this.hijos, posicion, hijos, posicion + 1, this.hijos.length - posicion);
+			this.letras = letras;
+			this.hijos = hijos;
+			return hijo;
+		}
+
+		/**
+		 * Retira un hijo.
+		 *
+		 * @param letra Carácter del hijo.
+		 */
+		private void retira(char letra)
+		{
+			int posicion = Arrays.binarySearch(this.letras, letra);
+			if (posicion < 0)
+			{
+				return;
+			}
+
+			char[] letras = new char[this.letras.length - 1];
+			Nodo[] hijos = new Nodo[this.hijos.length - 1];
+			System.arraycopy(this.letras, 0, letras, 0, posicion);
+			System.arraycopy(this.hijos, 0, hijos, 0, posicion);
+			System.arraycopy(this.letras, posicion + 1, letras, posicion, letras.length - posicion);
+			System.arraycopy(this.hijos, posicion + 1, hijos, posicion, hijos.length - posicion);
+			this.letras = letras;
+			this.hijos = hijos;
+		}
+	}
+}
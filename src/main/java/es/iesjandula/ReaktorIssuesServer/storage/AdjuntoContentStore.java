@@ -0,0 +1,382 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Almacén local de contenido direccionado por hash para los adjuntos de las incidencias.
+ * <p>
+ * Cada contenido se guarda una sola vez en {@code objetos/<2 primeros caracteres>/<sha-256>}: subir la
+ * misma foto dos veces no ocupa más disco. La subida se copia del flujo a un fichero temporal con
+ * {@link FileChannel#transferFrom} calculando el hash a la vez, sin cargar el contenido en memoria, y se
+ * mueve de forma atómica a su ruta definitiva.
+ * </p>
+ * <p>
+ * Las miniaturas se generan la primera vez que se piden y se guardan en {@code miniaturas/}. La imagen se
+ * decodifica submuestreada para que una foto de varios megapíxeles no ocupe decenas de megas de memoria.
+ * </p>
+ * <p>
+ * Las operaciones sobre un mismo hash se serializan con {@link #bloqueo(String)} para que un borrado no
+ * elimine un contenido que otra subida acaba de reutilizar.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class AdjuntoContentStore
+{
+	/** Número de cerrojos para serializar operaciones por hash. */
+	private static final int NUM_BLOQUEOS = 64;
+
+	/** Bytes leídos para detectar el tipo de contenido. */
+	private static final int BYTES_CABECERA = 12;
+
+	/** Directorio de los contenidos. */
+	private final Path objetos;
+
+	/** Directorio de las miniaturas. */
+	private final Path miniaturas;
+
+	/** Directorio de los ficheros en subida. */
+	private final Path temporales;
+
+	/** Lado mayor de las miniaturas en píxeles. */
+	private final int ladoMiniatura;
+
+	/** Cerrojos por hash. */
+	private final Object[] bloqueos = new Object[NUM_BLOQUEOS];
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directorio    Directorio raíz del almacén.
+	 * @param ladoMiniatura Lado mayor de las miniaturas en píxeles.
+	 */
+	public AdjuntoContentStore(
+			@Value("${reaktor.adjuntos.directorio:./datos/adjuntos}") String directorio,
+			@Value("${reaktor.adjuntos.lado-miniatura:256}") int ladoMiniatura)
+	{
+		Path raiz = Paths.get(directorio);
+		this.objetos = raiz.resolve("objetos");
+		this.miniaturas = raiz.resolve("miniaturas");
+		this.temporales = raiz.resolve("tmp");
+		this.ladoMiniatura = ladoMiniatura;
+		for (int i = 0; i < NUM_BLOQUEOS; i++)
+		{
+			this.bloqueos[i] = new Object();
+		}
+	}
+
+	/**
+	 * Copia un flujo a un fichero temporal del almacén calculando su hash. El fichero temporal se debe
+	 * publicar con {@link #publica(ContenidoSubido)} o descartar con {@link #descarta(ContenidoSubido)}.
+	 *
+	 * @param entrada       El contenido; no se cierra.
+	 * @param tamanoMaximo  Tamaño máximo admitido en bytes.
+	 * @return El contenido subido, o null si supera el tamaño máximo.
+	 * @throws IOException Si falla la escritura.
+	 */
+	public ContenidoSubido recibe(InputStream entrada, long tamanoMaximo) throws IOException
+	{
+		Files.createDirectories(this.temporales);
+		MessageDigest digest = sha256();
+		Path temporal = Files.createTempFile(this.temporales, "subida-", ".tmp");
+		try
+		{
+			ReadableByteChannel origen = Channels.newChannel(new DigestInputStream(entrada, digest));
+			long tamano = 0;
+			try (FileChannel destino = FileChannel.open(temporal, StandardOpenOption.WRITE))
+			{
+				// Se pide un byte más del máximo para detectar los ficheros demasiado grandes.
+				long copiados;
+				while (tamano <= tamanoMaximo
+						&& (copiados = destino.transferFrom(origen, tamano, tamanoMaximo + 1 - tamano)) > 0)
+				{
+					tamano += copiados;
+				}
+			}
+			if (tamano > tamanoMaximo)
+			{
+				Files.deleteIfExists(temporal);
+				return null;
+			}
+			return new ContenidoSubido(temporal, HexFormat.of().formatHex(digest.digest()), tamano,
+					detectaTipo(temporal));
+		}
+		catch (IOException | RuntimeException exception)
+		{
+			Files.deleteIfExists(temporal);
+			throw exception;
+		}
+	}
+
+	/**
+	 * Mueve un contenido subido a su ruta definitiva, o lo descarta si ya existía uno igual.
+	 * Debe llamarse con {@link #bloqueo(String)} del hash adquirido.
+	 *
+	 * @param contenido El contenido subido.
+	 * @throws IOException Si falla el movimiento.
+	 */
+	public void publica(ContenidoSubido contenido) throws IOException
+	{
+		Path destino = this.ruta(contenido.getHash());
+		if (Files.exists(destino))
+		{
+			log.debug("DEBUG: Contenido {} ya almacenado, se reutiliza.", contenido.getHash());
+			this.descarta(contenido);
+			return;
+		}
+		Files.createDirectories(destino.getParent());
+		try
+		{
+			Files.move(contenido.getTemporal(), destino, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (FileAlreadyExistsException exception)
+		{
+			this.descarta(contenido);
+		}
+	}
+
+	/**
+	 * Borra un contenido subido que no se va a publicar.
+	 *
+	 * @param contenido El contenido subido.
+	 * @throws IOException Si falla el borrado.
+	 */
+	public void descarta(ContenidoSubido contenido) throws IOException
+	{
+		Files.deleteIfExists(contenido.getTemporal());
+	}
+
+	/**
+	 * Borra un contenido y su miniatura. Debe llamarse con {@link #bloqueo(String)} del hash adquirido y
+	 * solo cuando ningún adjunto lo referencia.
+	 *
+	 * @param hash El hash del contenido.
+	 * @throws IOException Si falla el borrado.
+	 */
+	public void borra(String hash) throws IOException
+	{
+		Files.deleteIfExists(this.ruta(hash));
+		Files.deleteIfExists(this.rutaMiniatura(hash));
+	}
+
+	/**
+	 * @param hash El hash del contenido.
+	 * @return La ruta del contenido.
+	 */
+	public Path ruta(String hash)
+	{
+		return this.objetos.resolve(hash.substring(0, 2)).resolve(hash);
+	}
+
+	/**
+	 * Devuelve la miniatura JPEG de un contenido de imagen, generándola si todavía no existe.
+	 *
+	 * @param hash El hash del contenido.
+	 * @return La ruta de la miniatura.
+	 * @throws IOException Si el contenido no existe o no se puede decodificar.
+	 */
+	public Path miniatura(String hash) throws IOException
+	{
+		Path destino = this.rutaMiniatura(hash);
+		if (Files.exists(destino))
+		{
+			return destino;
+		}
+
+		synchronized (this.bloqueo(hash))
+		{
+			if (Files.exists(destino))
+			{
+				return destino;
+			}
+
+			long inicio = System.currentTimeMillis();
+			BufferedImage imagen = this.leeSubmuestreada(this.ruta(hash));
+			double escala = Math.min(1.0, (double) this.ladoMiniatura / Math.max(imagen.getWidth(), imagen.getHeight()));
+			int ancho = Math.max(1, (int) Math.round(imagen.getWidth() * escala));
+			int alto = Math.max(1, (int) Math.round(imagen.getHeight() * escala));
+
+			BufferedImage miniatura = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+			Graphics2D grafico = miniatura.createGraphics();
+			try
+			{
+				grafico.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				grafico.drawImage(imagen, 0, 0, ancho, alto, null);
+			}
+			finally
+			{
+				grafico.dispose();
+			}
+
+			Files.createDirectories(destino.getParent());
+			Path temporal = Files.createTempFile(destino.getParent(), hash, ".tmp");
+			try
+			{
+				ImageIO.write(miniatura, "jpg", temporal.toFile());
+				Files.move(temporal, destino, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			finally
+			{
+				Files.deleteIfExists(temporal);
+			}
+
+			log.debug("DEBUG: Miniatura de {} generada en {} ms.", hash, System.currentTimeMillis() - inicio);
+			return destino;
+		}
+	}
+
+	/**
+	 * @param hash El hash de un contenido.
+	 * @return El cerrojo que serializa las operaciones sobre ese contenido.
+	 */
+	public Object bloqueo(String hash)
+	{
+		return this.bloqueos[Math.floorMod(hash.hashCode(), NUM_BLOQUEOS)];
+	}
+
+	/**
+	 * @param hash El hash del contenido.
+	 * @return La ruta de su miniatura.
+	 */
+	private Path rutaMiniatura(String hash)
+	{
+		return this.miniaturas.resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+	}
+
+	/**
+	 * Decodifica una imagen leyendo solo uno de cada N píxeles, con N tal que el resultado siga siendo
+	 * al menos el doble del lado de la miniatura.
+	 *
+	 * @param ruta La imagen.
+	 * @return La imagen decodificada.
+	 * @throws IOException Si no es una imagen soportada.
+	 */
+	private BufferedImage leeSubmuestreada(Path ruta) throws IOException
+	{
+		try (ImageInputStream entrada = ImageIO.createImageInputStream(ruta.toFile()))
+		{
+			Iterator<ImageReader> lectores = entrada == null ? null : ImageIO.getImageReaders(entrada);
+			if (lectores == null || !lectores.hasNext())
+			{
+				throw new IOException("Formato de imagen no soportado: " + ruta.getFileName());
+			}
+			ImageReader lector = lectores.next();
+			try
+			{
+				lector.setInput(entrada, true, true);
+				int ladoMayor = Math.max(lector.getWidth(0), lector.getHeight(0));
+				int paso = Math.max(1, ladoMayor / (2 * this.ladoMiniatura));
+				ImageReadParam parametros = lector.getDefaultReadParam();
+				parametros.setSourceSubsampling(paso, paso, 0, 0);
+				return lector.read(0, parametros);
+			}
+			finally
+			{
+				lector.dispose();
+			}
+		}
+	}
+
+	/**
+	 * Detecta el tipo de imagen por sus primeros bytes, sin fiarse del nombre ni de la cabecera HTTP.
+	 *
+	 * @param fichero El fichero.
+	 * @return El tipo de contenido, o null si no es una imagen admitida.
+	 * @throws IOException Si falla la lectura.
+	 */
+	private static String detectaTipo(Path fichero) throws IOException
+	{
+		ByteBuffer cabecera = ByteBuffer.allocate(BYTES_CABECERA);
+		try (FileChannel canal = FileChannel.open(fichero, StandardOpenOption.READ))
+		{
+			while (cabecera.hasRemaining() && canal.read(cabecera) > 0)
+			{
+				// Lee hasta completar la cabecera o llegar al final.
+			}
+		}
+		byte[] b = cabecera.array();
+		int leidos = cabecera.position();
+
+		if (leidos >= 3 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xFF) == 0xD8 && (b[2] & 0xFF) == 0xFF)
+		{
+			return "image/jpeg";
+		}
+		if (leidos >= 8 && (b[0] & 0xFF) == 0x89 && b[1] == 'P' && b[2] == 'N' && b[3] == 'G')
+		{
+			return "image/png";
+		}
+		if (leidos >= 6 && b[0] == 'G' && b[1] == 'I' && b[2] == 'F' && b[3] == '8')
+		{
+			return "image/gif";
+		}
+		return null;
+	}
+
+	/**
+	 * @return Un calculador de SHA-256.
+	 */
+	private static MessageDigest sha256()
+	{
+		try
+		{
+			return MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException exception)
+		{
+			throw new IllegalStateException("SHA-256 no disponible.", exception);
+		}
+	}
+
+	/**
+	 * Contenido recibido en un fichero temporal, pendiente de publicar.
+	 */
+	@Data
+	@AllArgsConstructor
+	public static final class ContenidoSubido
+	{
+		/** Fichero temporal con el contenido. */
+		private final Path temporal;
+
+		/** Hash SHA-256 en hexadecimal. */
+		private final String hash;
+
+		/** Tamaño en bytes. */
+		private final long tamano;
+
+		/** Tipo de imagen detectado, o null si no es una imagen admitida. */
+		private final String tipoContenido;
+	}
+}
@@ -0,0 +1,115 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+
+/**
+ * Motor de almacenamiento de incidencias.
+ * <p>
+ * Abstrae las operaciones que los controladores necesitan sobre las incidencias para poder elegir por
+ * configuración ({@code reaktor.almacen.motor}) entre la base de datos MySQL a través de JPA
+ * ({@link IncidenciaJpaStorage}), un almacén en memoria persistido en disco local
+ * ({@link IncidenciaMemoryStorage}) y varias bases de datos entre las que se reparten las incidencias por
+ * aula ({@link IncidenciaFragmentadaStorage}).
+ * </p>
+ * <p>
+ * Toda escritura publica un {@link es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent}.
+ * </p>
+ */
+public interface IIncidenciaStorage
+{
+
+	/**
+	 * Busca una incidencia por su identificador sustituto.
+	 *
+	 * @param id El identificador de la incidencia.
+	 * @return La incidencia si existe.
+	 */
+	public Optional<IncidenciaEntity> buscaPorId(Long id);
+
+	/**
+	 * Busca una incidencia por su clave natural.
+	 *
+	 * @param clave La clave natural de la incidencia.
+	 * @return La incidencia si existe.
+	 */
+	public Optional<IncidenciaEntity> buscaPorClave(IncidenciaEntityId clave);
+
+	/**
+	 * Crea o actualiza una incidencia. Si no tiene identificador se le asigna uno nuevo.
+	 *
+	 * @param incidencia La incidencia a guardar.
+	 * @return La incidencia guardada, con su identificador.
+	 */
+	public IncidenciaEntity guarda(IncidenciaEntity incidencia);
+
+	/**
+	 * Inserta un lote de incidencias nuevas en una única transacción, asignándoles identificador.
+	 * <p>
+	 * Las incidencias cuya clave natural ya existe (en el almacén o antes en el mismo lote) se rechazan
+	 * sin abortar el resto del lote. Se publica un evento de creación por cada incidencia insertada.
+	 * </p>
+	 *
+	 * @param incidencias Las incidencias a insertar.
+	 * @return Motivo de rechazo por posición en la lista; vacío si se han insertado todas.
+	 */
+	public Map<Integer, String> insertaLote(List<IncidenciaEntity> incidencias);
+
+	/**
+	 * Elimina una incidencia.
+	 *
+	 * @param incidencia La incidencia a eliminar (se identifica por su identificador).
+	 */
+	public void borra(IncidenciaEntity incidencia);
+
+	/**
+	 * Busca incidencias devolviendo solo los campos solicitados, ordenadas por fecha descendente.
+	 * Cada filtro puede ser nulo, en cuyo caso se ignora.
+	 *
+	 * @param campos                 Campos a devolver, incluidos en {@code Constants.CAMPOS_LISTADO}.
+	 * @param numeroAula             El número del aula de la incidencia.
+	 * @param correoDocente          El correo del docente que reportó la incidencia.
+	 * @param fechaInicio            La fecha y hora mínima de la incidencia.
+	 * @param fechaFin               La fecha y hora máxima de la incidencia.
+	 * @param descripcionIncidencia  Parte de la descripción de la incidencia a buscar.
+	 * @param estadoIncidencia       El estado de la incidencia.
+	 * @param comentario             Parte del comentario de la incidencia a buscar.
+	 * @return                       Una lista de mapas campo-valor.
+	 */
+	public List<Map<String, Object>> buscaProyeccion(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario);
+
+	/**
+	 * Cuenta las incidencias de cada aula.
+	 *
+	 * @return Número de incidencias por número de aula.
+	 */
+	public Map<String, Long> cuentaPorAula();
+
+	/**
+	 * Cuenta las incidencias de cada docente.
+	 *
+	 * @return Número de incidencias por correo del docente.
+	 */
+	public Map<String, Long> cuentaPorDocente();
+
+	/**
+	 * Cuenta las incidencias de cada estado.
+	 *
+	 * @return Número de incidencias por estado.
+	 */
+	public Map<String, Long> cuentaPorEstado();
+
+}
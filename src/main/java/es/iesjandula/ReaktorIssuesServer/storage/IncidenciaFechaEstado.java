@@ -0,0 +1,50 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.Date;
+import java.util.Objects;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+
+/**
+ * Asignación de {@code fechaEstado} al guardar una incidencia, común a todos los motores.
+ * <p>
+ * Los controladores construyen la incidencia a partir de la petición, sin esta fecha, así que el motor
+ * la calcula con la versión anterior que lee en la misma escritura.
+ * </p>
+ */
+final class IncidenciaFechaEstado
+{
+	/**
+	 * Constructor privado: solo métodos estáticos.
+	 */
+	private IncidenciaFechaEstado()
+	{
+	}
+
+	/**
+	 * Asigna a una incidencia que se va a guardar el momento en que pasó a su estado: la fecha de la
+	 * incidencia si es nueva, la de la versión anterior si conserva el estado y el momento actual si
+	 * cambia de estado.
+	 *
+	 * @param incidencia La incidencia que se va a guardar.
+	 * @param anterior   La versión guardada; null si la incidencia es nueva.
+	 */
+	static void asigna(IncidenciaEntity incidencia, IncidenciaEntity anterior)
+	{
+		if (anterior == null)
+		{
+			if (incidencia.getFechaEstado() == null)
+			{
+				incidencia.setFechaEstado(incidencia.getFechaIncidencia());
+			}
+		}
+		else if (Objects.equals(anterior.getEstadoIncidencia(), incidencia.getEstadoIncidencia()))
+		{
+			incidencia.setFechaEstado(anterior.getFechaEstado());
+		}
+		else
+		{
+			incidencia.setFechaEstado(new Date());
+		}
+	}
+}
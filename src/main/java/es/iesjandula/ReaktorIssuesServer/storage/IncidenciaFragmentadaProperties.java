@@ -0,0 +1,59 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import lombok.Data;
+
+/**
+ * Configuración del motor fragmentado ({@code reaktor.almacen.fragmentado}).
+ */
+@Data
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "fragmentado")
+@ConfigurationProperties(prefix = "reaktor.almacen.fragmentado")
+public class IncidenciaFragmentadaProperties
+{
+	/** Bases de datos entre las que se reparten las incidencias; el orden determina su número. */
+	private List<Fragmento> fragmentos = new ArrayList<Fragmento>();
+
+	/** Separador del prefijo de {@code numeroAula} usado como clave (edificio o planta). */
+	private String separador = ".";
+
+	/** Fragmento asignado expresamente a un prefijo; el resto se reparte por hash. */
+	private Map<String, Integer> asignaciones = new HashMap<String, Integer>();
+
+	/** Si es true se crea la tabla {@code incidencias} en los fragmentos que no la tengan. */
+	private boolean crearEsquema = true;
+
+	/** Si es true, al arrancar se mueven las incidencias que no están en su fragmento. */
+	private boolean rebalancear = false;
+
+	/** Filas leídas y movidas por transacción durante el rebalanceo. */
+	private int tamanoLoteRebalanceo = 1000;
+
+	/**
+	 * Conexión a uno de los fragmentos.
+	 */
+	@Data
+	public static class Fragmento
+	{
+		/** URL JDBC de la base de datos. */
+		private String url;
+
+		/** Usuario de la base de datos. */
+		private String username;
+
+		/** Contraseña de la base de datos. */
+		private String password;
+
+		/** Tamaño máximo del pool de conexiones del fragmento. */
+		private int maximoConexiones = 5;
+	}
+}
@@ -0,0 +1,128 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaFragmentadaStorage.Fragmento;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mueve a su fragmento las incidencias que han quedado en otro tras cambiar el número de fragmentos o las
+ * asignaciones de prefijos.
+ * <p>
+ * Se ejecuta al arrancar con {@code reaktor.almacen.fragmentado.rebalancear=true}, antes de atender
+ * peticiones. Cada fragmento se recorre por páginas en orden de identificador; las incidencias de cada
+ * página que corresponden a otro fragmento se insertan primero en el destino y después se borran del
+ * origen, cada paso en su propia transacción. Si el proceso se interrumpe entre ambos pasos, la siguiente
+ * ejecución encuentra la copia en el destino y solo borra la del origen, por lo que puede repetirse sin
+ * riesgo.
+ * </p>
+ */
+@Slf4j
+class IncidenciaFragmentadaRebalanceador
+{
+	/** Motor fragmentado con la configuración nueva. */
+	private final IncidenciaFragmentadaStorage storage;
+
+	/** Filas leídas por página. */
+	private final int tamanoLote;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param storage    Motor fragmentado con la configuración nueva.
+	 * @param tamanoLote Filas leídas por página.
+	 */
+	IncidenciaFragmentadaRebalanceador(IncidenciaFragmentadaStorage storage, int tamanoLote)
+	{
+		this.storage = storage;
+		this.tamanoLote = tamanoLote;
+	}
+
+	/**
+	 * Recorre todos los fragmentos moviendo las incidencias mal ubicadas.
+	 */
+	void rebalancea()
+	{
+		long inicio = System.currentTimeMillis();
+		log.info("INFO: Rebalanceando incidencias entre {} fragmentos.", this.storage.getFragmentos().size());
+
+		long revisadas = 0;
+		long movidas = 0;
+		for (Fragmento origen : this.storage.getFragmentos())
+		{
+			long ultimoId = Long.MIN_VALUE;
+			List<IncidenciaEntity> pagina;
+			do
+			{
+				pagina = origen.jdbcTemplate.query(IncidenciaFragmentadaStorage.SQL_PAGINA,
+						IncidenciaFragmentadaStorage.MAPEADOR, ultimoId, this.tamanoLote);
+				if (pagina.isEmpty())
+				{
+					break;
+				}
+				ultimoId = pagina.get(pagina.size() - 1).getId();
+				revisadas += pagina.size();
+
+				// Agrupa las incidencias fuera de sitio por fragmento de destino.
+				Map<Integer, List<IncidenciaEntity>> porDestino = new LinkedHashMap<Integer, List<IncidenciaEntity>>();
+				for (IncidenciaEntity incidencia : pagina)
+				{
+					int destino = this.storage.fragmentoDe(incidencia.getNumeroAula());
+					if (destino != origen.indice)
+					{
+						porDestino.computeIfAbsent(destino, indice -> new ArrayList<IncidenciaEntity>()).add(incidencia);
+					}
+				}
+
+				for (Map.Entry<Integer, List<IncidenciaEntity>> entrada : porDestino.entrySet())
+				{
+					movidas += this.mueve(origen, this.storage.getFragmentos().get(entrada.getKey()), entrada.getValue());
+				}
+			}
+			while (pagina.size() == this.tamanoLote);
+		}
+
+		log.info("INFO: Rebalanceo completado: {} incidencias revisadas, {} movidas ({} ms).", revisadas, movidas,
+				System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Copia un grupo de incidencias en su fragmento de destino y las borra del de origen.
+	 *
+	 * @param origen      Fragmento en el que están.
+	 * @param destino     Fragmento que les corresponde.
+	 * @param incidencias Las incidencias.
+	 * @return Número de incidencias movidas.
+	 */
+	private int mueve(Fragmento origen, Fragmento destino, List<IncidenciaEntity> incidencias)
+	{
+		Map<Integer, String> rechazos = destino.transactionTemplate.execute(estado -> destino.jdbcTemplate.execute(
+				(ConnectionCallback<Map<Integer, String>>) conexion -> IncidenciaLoteJdbc.inserta(conexion, incidencias)));
+
+		List<Object[]> borrar = new ArrayList<Object[]>(incidencias.size());
+		for (int i = 0; i < incidencias.size(); i++)
+		{
+			IncidenciaEntity incidencia = incidencias.get(i);
+
+			// Un rechazo con el mismo identificador es una copia de una ejecución anterior; con otro, un conflicto.
+			if (rechazos.containsKey(i) && destino.jdbcTemplate.query(IncidenciaFragmentadaStorage.SQL_POR_ID,
+					IncidenciaFragmentadaStorage.MAPEADOR, incidencia.getId()).isEmpty())
+			{
+				log.warn("WARN: La incidencia {} no se mueve del fragmento {} al {}: su clave natural ya existe en el destino.",
+						incidencia.getId(), origen.indice, destino.indice);
+				continue;
+			}
+			borrar.add(new Object[] { incidencia.getId() });
+		}
+
+		origen.transactionTemplate.executeWithoutResult(
+				estado -> origen.jdbcTemplate.batchUpdate(IncidenciaFragmentadaStorage.SQL_BORRA, borrar));
+		return borrar.size();
+	}
+}
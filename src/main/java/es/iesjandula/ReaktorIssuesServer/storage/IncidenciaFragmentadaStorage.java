@@ -0,0 +1,801 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import es.iesjandula.ReaktorIssuesServer.diagnostico.ConexionesJfrDataSource;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Motor de almacenamiento que reparte las incidencias entre varias bases de datos (fragmentos), para dar
+ * servicio a muchos centros con un único servidor.
+ * <p>
+ * La clave de fragmentación es el prefijo de {@code numeroAula} anterior al separador configurado
+ * (edificio o planta), de modo que las incidencias de un mismo edificio están juntas. Cada prefijo va al
+ * fragmento indicado en {@code reaktor.almacen.fragmentado.asignaciones} o, si no aparece, al que le
+ * corresponde por hash. Cada fragmento tiene su propio pool de conexiones y sus propias transacciones.
+ * </p>
+ * <p>
+ * Las operaciones con aula (alta, modificación, borrado y búsqueda por clave natural o por aula) van a un
+ * solo fragmento. El resto se consultan en paralelo en todos los fragmentos y, en los listados, los
+ * resultados de cada uno (ya ordenados por fecha descendente) se mezclan con una cola de prioridad sin
+ * volver a ordenarlos.
+ * </p>
+ * <p>
+ * Al cambiar el número de fragmentos o las asignaciones, {@link IncidenciaFragmentadaRebalanceador} mueve
+ * las incidencias que han quedado fuera de su fragmento.
+ * </p>
+ * <p>
+ * Una incidencia que cambia a un aula de otro fragmento se mueve sin transacción común: se actualiza en el
+ * origen, se inserta en el destino y se borra del origen. Si el borrado falla, la copia que queda ya está
+ * fuera de su fragmento: {@link #buscaPorId(Long)} la ignora y el rebalanceo la elimina.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "fragmentado")
+public class IncidenciaFragmentadaStorage implements IIncidenciaStorage
+{
+	/** Columnas de la tabla en el orden de {@link #MAPEADOR}. */
+	private static final String SQL_COLUMNAS = "id, numero_aula, correo_docente, fecha_incidencia, "
+			+ "descripcion_incidencia, estado_incidencia, comentario, fecha_estado";
+
+	/** Tabla equivalente a la que genera Hibernate para {@link IncidenciaEntity}. */
+	private static final String SQL_CREA_TABLA = "CREATE TABLE IF NOT EXISTS incidencias ("
+			+ "id BIGINT NOT NULL, "
+			+ "numero_aula VARCHAR(255) NOT NULL, "
+			+ "correo_docente VARCHAR(255) NOT NULL, "
+			+ "fecha_incidencia DATETIME(6) NOT NULL, "
+			+ "descripcion_incidencia TEXT, "
+			+ "estado_incidencia VARCHAR(255), "
+			+ "comentario TEXT, "
+			+ "fecha_estado DATETIME(6), "
+			+ "PRIMARY KEY (id), "
+			+ "INDEX idx_incidencias_estado_fecha (estado_incidencia, fecha_incidencia), "
+			+ "CONSTRAINT " + IncidenciaEntity.UK_CLAVE_NATURAL + " UNIQUE (numero_aula, correo_docente, fecha_incidencia))";
+
+	/** Columna añadida después de crear las primeras tablas, que se añade a las que no la tengan. */
+	private static final String SQL_ANADE_FECHA_ESTADO = "ALTER TABLE incidencias ADD COLUMN fecha_estado DATETIME(6)";
+
+	/** Intentos para borrar la copia de origen de una incidencia movida a otro fragmento. */
+	private static final int INTENTOS_BORRADO_COPIA = 3;
+
+	/** Consulta por identificador. */
+	static final String SQL_POR_ID = "SELECT " + SQL_COLUMNAS + " FROM incidencias WHERE id = ?";
+
+	/** Consulta por clave natural. */
+	private static final String SQL_POR_CLAVE = "SELECT " + SQL_COLUMNAS
+			+ " FROM incidencias WHERE numero_aula = ? AND correo_docente = ? AND fecha_incidencia = ?";
+
+	/** Modificación de todas las columnas de una incidencia. */
+	private static final String SQL_ACTUALIZA = "UPDATE incidencias SET numero_aula = ?, correo_docente = ?, "
+			+ "fecha_incidencia = ?, descripcion_incidencia = ?, estado_incidencia = ?, comentario = ?, fecha_estado = ? "
+			+ "WHERE id = ?";
+
+	/** Borrado por identificador. */
+	static final String SQL_BORRA = "DELETE FROM incidencias WHERE id = ?";
+
+	/** Lectura por páginas en orden de identificador, usada al rebalancear. */
+	static final String SQL_PAGINA = "SELECT " + SQL_COLUMNAS + " FROM incidencias WHERE id > ? ORDER BY id LIMIT ?";
+
+	/** Expresión SQL asociada a cada campo que se puede solicitar en un listado. */
+	private static final Map<String, String> EXPRESIONES_CAMPOS = Map.of(
+			"id", "id",
+			"numeroAula", "numero_aula",
+			"correoDocente", "correo_docente",
+			"fechaIncidencia", "fecha_incidencia",
+			"estadoIncidencia", "estado_incidencia",
+			"fechaEstado", "fecha_estado",
+			Constants.CAMPO_RESUMEN_DESCRIPCION,
+			"SUBSTRING(descripcion_incidencia, 1, " + Constants.LONG_RESUMEN_DESCRIPCION + ")");
+
+	/** Convierte una fila con {@link #SQL_COLUMNAS} en una incidencia. */
+	static final RowMapper<IncidenciaEntity> MAPEADOR = (rs, numFila) -> new IncidenciaEntity(
+			rs.getLong(1),
+			rs.getString(2),
+			rs.getString(3),
+			rs.getTimestamp(4),
+			rs.getString(5),
+			rs.getString(6),
+			rs.getString(7),
+			rs.getTimestamp(8));
+
+	/** Configuración del motor. */
+	private final IncidenciaFragmentadaProperties properties;
+
+	/** Publicador de eventos de incidencias. */
+	private final ApplicationEventPublisher applicationEventPublisher;
+
+	/** Fragmentos en el orden de la configuración. */
+	private final List<Fragmento> fragmentos = new ArrayList<Fragmento>();
+
+	/** Hilos de las consultas en paralelo a varios fragmentos. */
+	private final ExecutorService consultas;
+
+	/**
+	 * Constructor. Crea un pool de conexiones por fragmento.
+	 *
+	 * @param properties                Configuración del motor.
+	 * @param applicationEventPublisher Publicador de eventos de incidencias.
+	 */
+	public IncidenciaFragmentadaStorage(IncidenciaFragmentadaProperties properties,
+			ApplicationEventPublisher applicationEventPublisher)
+	{
+		this.properties = properties;
+		this.applicationEventPublisher = applicationEventPublisher;
+
+		if (properties.getFragmentos().isEmpty())
+		{
+			throw new IllegalStateException("Falta la configuración reaktor.almacen.fragmentado.fragmentos");
+		}
+		properties.getAsignaciones().forEach((prefijo, indice) -> {
+			if (indice < 0 || indice >= properties.getFragmentos().size())
+			{
+				throw new IllegalStateException("El prefijo " + prefijo + " está asignado a un fragmento inexistente: " + indice);
+			}
+		});
+
+		int conexiones = 0;
+		for (IncidenciaFragmentadaProperties.Fragmento configuracion : properties.getFragmentos())
+		{
+			HikariDataSource dataSource = new HikariDataSource();
+			dataSource.setPoolName("fragmento-" + this.fragmentos.size());
+			dataSource.setJdbcUrl(configuracion.getUrl());
+			dataSource.setUsername(configuracion.getUsername());
+			dataSource.setPassword(configuracion.getPassword());
+			dataSource.setMaximumPoolSize(configuracion.getMaximoConexiones());
+			this.fragmentos.add(new Fragmento(this.fragmentos.size(), dataSource));
+			conexiones += configuracion.getMaximoConexiones();
+		}
+
+		// Más hilos que conexiones solo esperarían a que Hikari libere una.
+		this.consultas = Executors.newFixedThreadPool(conexiones, new ThreadFactory()
+		{
+			private final AtomicInteger contador = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable tarea)
+			{
+				Thread hilo = new Thread(tarea, "fragmentos-consulta-" + this.contador.incrementAndGet());
+				hilo.setDaemon(true);
+				return hilo;
+			}
+		});
+	}
+
+	/**
+	 * Crea la tabla en los fragmentos que no la tengan y, si se ha pedido, rebalancea las incidencias antes
+	 * de que el servidor empiece a atender peticiones.
+	 */
+	@PostConstruct
+	public void inicia()
+	{
+		if (this.properties.isCrearEsquema())
+		{
+			for (Fragmento fragmento : this.fragmentos)
+			{
+				fragmento.jdbcTemplate.execute(SQL_CREA_TABLA);
+				if (!tieneFechaEstado(fragmento))
+				{
+					fragmento.jdbcTemplate.execute(SQL_ANADE_FECHA_ESTADO);
+				}
+			}
+		}
+		log.info("INFO: Almacen fragmentado con {} fragmentos.", this.fragmentos.size());
+
+		if (this.properties.isRebalancear())
+		{
+			new IncidenciaFragmentadaRebalanceador(this, this.properties.getTamanoLoteRebalanceo()).rebalancea();
+		}
+	}
+
+	/**
+	 * @param fragmento Un fragmento con la tabla {@code incidencias}.
+	 * @return true si la tabla ya tiene la columna {@code fecha_estado}.
+	 */
+	private static boolean tieneFechaEstado(Fragmento fragmento)
+	{
+		return Boolean.TRUE.equals(fragmento.jdbcTemplate.execute((ConnectionCallback<Boolean>) conexion -> {
+			try (ResultSet columnas = conexion.getMetaData().getColumns(conexion.getCatalog(), null, "incidencias",
+					"fecha_estado"))
+			{
+				return columnas.next();
+			}
+		}));
+	}
+
+	/**
+	 * Detiene los hilos de consulta y cierra los pools de conexiones.
+	 */
+	@PreDestroy
+	public void detiene()
+	{
+		this.consultas.shutdownNow();
+		for (Fragmento fragmento : this.fragmentos)
+		{
+			fragmento.dataSource.close();
+		}
+	}
+
+	/**
+	 * Calcula el fragmento de un aula.
+	 *
+	 * @param numeroAula El número del aula.
+	 * @return La posición del fragmento en la configuración.
+	 */
+	public int fragmentoDe(String numeroAula)
+	{
+		int posicion = numeroAula.indexOf(this.properties.getSeparador());
+		String prefijo = posicion < 0 ? numeroAula : numeroAula.substring(0, posicion);
+
+		Integer asignado = this.properties.getAsignaciones().get(prefijo);
+		return asignado != null ? asignado : Math.floorMod(prefijo.hashCode(), this.fragmentos.size());
+	}
+
+	/**
+	 * @return Los fragmentos en el orden de la configuración.
+	 */
+	List<Fragmento> getFragmentos()
+	{
+		return this.fragmentos;
+	}
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorId(Long id)
+	{
+		// El identificador no indica el fragmento: se pregunta a todos a la vez. Si una incidencia movida
+		// sigue también en su fragmento anterior, vale la copia que está en el fragmento de su aula.
+		List<List<IncidenciaEntity>> porFragmento = this.enParalelo(this.fragmentos,
+				fragmento -> fragmento.jdbcTemplate.query(SQL_POR_ID, MAPEADOR, id));
+		IncidenciaEntity fueraDeSitio = null;
+		for (int indice = 0; indice < porFragmento.size(); indice++)
+		{
+			for (IncidenciaEntity encontrada : porFragmento.get(indice))
+			{
+				if (this.fragmentoDe(encontrada.getNumeroAula()) == indice)
+				{
+					return Optional.of(encontrada);
+				}
+				fueraDeSitio = fueraDeSitio == null ? encontrada : fueraDeSitio;
+			}
+		}
+		return Optional.ofNullable(fueraDeSitio);
+	}
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorClave(IncidenciaEntityId clave)
+	{
+		Fragmento fragmento = this.fragmentos.get(this.fragmentoDe(clave.getNumeroAula()));
+		return fragmento.jdbcTemplate.query(SQL_POR_CLAVE, MAPEADOR, clave.getNumeroAula(), clave.getCorreoDocente(),
+				new Timestamp(clave.getFechaIncidencia().getTime())).stream().findFirst();
+	}
+
+	@Override
+	public IncidenciaEntity guarda(IncidenciaEntity incidencia)
+	{
+		Fragmento destino = this.fragmentos.get(this.fragmentoDe(incidencia.getNumeroAula()));
+
+		if (incidencia.getId() == null)
+		{
+			incidencia.setId(TsidGenerator.siguiente());
+			IncidenciaFechaEstado.asigna(incidencia, null);
+			destino.transactionTemplate.executeWithoutResult(estado -> this.insertaYPublica(destino, incidencia, null));
+			return incidencia;
+		}
+
+		// Lo normal es que siga en el fragmento de su aula; si no, ha cambiado de aula y hay que moverla.
+		Optional<IncidenciaEntity> enDestino = destino.jdbcTemplate.query(SQL_POR_ID, MAPEADOR, incidencia.getId())
+				.stream().findFirst();
+		if (enDestino.isPresent())
+		{
+			IncidenciaFechaEstado.asigna(incidencia, enDestino.get());
+			destino.transactionTemplate.executeWithoutResult(estado -> {
+				this.actualiza(destino, incidencia);
+				this.applicationEventPublisher.publishEvent(new IncidenciaEvent(IncidenciaEvent.Tipo.ACTUALIZADA,
+						incidencia, enDestino.get().getEstadoIncidencia()));
+			});
+			return incidencia;
+		}
+
+		Fragmento origen = null;
+		IncidenciaEntity anterior = null;
+		for (Fragmento fragmento : this.fragmentos)
+		{
+			if (fragmento != destino)
+			{
+				List<IncidenciaEntity> encontradas = fragmento.jdbcTemplate.query(SQL_POR_ID, MAPEADOR, incidencia.getId());
+				if (!encontradas.isEmpty())
+				{
+					origen = fragmento;
+					anterior = encontradas.get(0);
+					break;
+				}
+			}
+		}
+
+		IncidenciaEntity previa = anterior;
+		IncidenciaFechaEstado.asigna(incidencia, previa);
+		if (origen == null)
+		{
+			destino.transactionTemplate.executeWithoutResult(estado -> this.insertaYPublica(destino, incidencia, null));
+			return incidencia;
+		}
+
+		// Los fragmentos no comparten transacción. Primero se actualiza la copia de origen con el aula nueva:
+		// a partir de ahí queda fuera de su fragmento, así que buscaPorId prefiere la del destino y, si no se
+		// llega a borrar, el rebalanceo la reconoce como sobrante.
+		this.actualiza(origen, incidencia);
+		try
+		{
+			destino.transactionTemplate.executeWithoutResult(estado -> this.insertaYPublica(destino, incidencia, previa));
+		}
+		catch (RuntimeException exception)
+		{
+			// Sin copia en el destino, se deja el origen como estaba.
+			this.actualiza(origen, previa);
+			throw exception;
+		}
+		this.borraCopia(origen, incidencia.getId());
+		return incidencia;
+	}
+
+	/**
+	 * Sobrescribe las columnas de una incidencia en un fragmento.
+	 *
+	 * @param fragmento  El fragmento.
+	 * @param incidencia La incidencia con los valores que se guardan.
+	 */
+	private void actualiza(Fragmento fragmento, IncidenciaEntity incidencia)
+	{
+		fragmento.jdbcTemplate.update(SQL_ACTUALIZA, incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+				new Timestamp(incidencia.getFechaIncidencia().getTime()), incidencia.getDescripcionIncidencia(),
+				incidencia.getEstadoIncidencia(), incidencia.getComentario(),
+				incidencia.getFechaEstado() == null ? null : new Timestamp(incidencia.getFechaEstado().getTime()),
+				incidencia.getId());
+	}
+
+	/**
+	 * Borra la copia que queda en el fragmento de origen tras mover una incidencia, con varios intentos.
+	 * Si no se consigue, la copia ya tiene el aula nueva y la elimina el siguiente rebalanceo.
+	 *
+	 * @param origen El fragmento de origen.
+	 * @param id     El identificador de la incidencia.
+	 */
+	private void borraCopia(Fragmento origen, Long id)
+	{
+		for (int intento = 1; intento <= INTENTOS_BORRADO_COPIA; intento++)
+		{
+			try
+			{
+				origen.jdbcTemplate.update(SQL_BORRA, id);
+				return;
+			}
+			catch (DataAccessException exception)
+			{
+				if (intento == INTENTOS_BORRADO_COPIA)
+				{
+					log.error("ERROR: No se ha podido borrar del fragmento " + origen.indice + " la copia de la incidencia "
+							+ id + " movida a otro fragmento; la eliminara el siguiente rebalanceo.", exception);
+				}
+				else
+				{
+					log.warn("WARN: Fallo al borrar del fragmento {} la copia de la incidencia {} (intento {}): {}",
+							origen.indice, id, intento, exception.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Inserta una incidencia en un fragmento dentro de su transacción y publica el evento correspondiente.
+	 *
+	 * @param fragmento  El fragmento.
+	 * @param incidencia La incidencia, ya con identificador.
+	 * @param anterior   La versión anterior si la incidencia viene de otro fragmento; null si es nueva.
+	 */
+	private void insertaYPublica(Fragmento fragmento, IncidenciaEntity incidencia, IncidenciaEntity anterior)
+	{
+		fragmento.jdbcTemplate.update(IncidenciaLoteJdbc.SQL_INSERTA,
+				sentencia -> IncidenciaLoteJdbc.asignaParametros(sentencia, incidencia));
+		this.applicationEventPublisher.publishEvent(anterior == null
+				? new IncidenciaEvent(IncidenciaEvent.Tipo.CREADA, incidencia, null)
+				: new IncidenciaEvent(IncidenciaEvent.Tipo.ACTUALIZADA, incidencia, anterior.getEstadoIncidencia()));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * El lote se reparte por fragmento y cada parte se inserta en paralelo en una transacción de su
+	 * fragmento, por lo que un fallo en un fragmento no deshace lo insertado en los demás.
+	 * </p>
+	 */
+	@Override
+	public Map<Integer, String> insertaLote(List<IncidenciaEntity> incidencias)
+	{
+		// Posiciones del lote original que van a cada fragmento.
+		Map<Fragmento, List<Integer>> posiciones = new LinkedHashMap<Fragmento, List<Integer>>();
+		for (int i = 0; i < incidencias.size(); i++)
+		{
+			IncidenciaEntity incidencia = incidencias.get(i);
+			incidencia.setId(TsidGenerator.siguiente());
+			IncidenciaFechaEstado.asigna(incidencia, null);
+			posiciones.computeIfAbsent(this.fragmentos.get(this.fragmentoDe(incidencia.getNumeroAula())),
+					fragmento -> new ArrayList<Integer>()).add(i);
+		}
+
+		List<Map<Integer, String>> rechazosPorFragmento = this.enParalelo(new ArrayList<Fragmento>(posiciones.keySet()),
+				fragmento -> fragmento.transactionTemplate.execute(estado -> {
+					List<IncidenciaEntity> parte = new ArrayList<IncidenciaEntity>();
+					for (int posicion : posiciones.get(fragmento))
+					{
+						parte.add(incidencias.get(posicion));
+					}
+
+					Map<Integer, String> rechazos = fragmento.jdbcTemplate.execute(
+							(ConnectionCallback<Map<Integer, String>>) conexion -> IncidenciaLoteJdbc.inserta(conexion, parte));
+					for (int i = 0; i < parte.size(); i++)
+					{
+						if (!rechazos.containsKey(i))
+						{
+							this.applicationEventPublisher.publishEvent(
+									new IncidenciaEvent(IncidenciaEvent.Tipo.CREADA, parte.get(i), null, true));
+						}
+					}
+					return rechazos;
+				}));
+
+		// Traduce las posiciones de cada parte a las del lote original.
+		Map<Integer, String> rechazos = new LinkedHashMap<Integer, String>();
+		int indice = 0;
+		for (List<Integer> posicionesFragmento : posiciones.values())
+		{
+			rechazosPorFragmento.get(indice++).forEach(
+					(posicion, motivo) -> rechazos.put(posicionesFragmento.get(posicion), motivo));
+		}
+		return rechazos;
+	}
+
+	@Override
+	public void borra(IncidenciaEntity incidencia)
+	{
+		Fragmento destino = this.fragmentos.get(this.fragmentoDe(incidencia.getNumeroAula()));
+		if (this.borraYPublica(destino, incidencia))
+		{
+			return;
+		}
+
+		// Solo puede estar en otro fragmento si cambió de aula y no se llegó a mover.
+		for (Fragmento fragmento : this.fragmentos)
+		{
+			if (fragmento != destino && this.borraYPublica(fragmento, incidencia))
+			{
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Borra una incidencia de un fragmento y, si existía, publica el evento en la misma transacción.
+	 *
+	 * @param fragmento  El fragmento.
+	 * @param incidencia La incidencia.
+	 * @return true si la incidencia estaba en el fragmento.
+	 */
+	private boolean borraYPublica(Fragmento fragmento, IncidenciaEntity incidencia)
+	{
+		return Boolean.TRUE.equals(fragmento.transactionTemplate.execute(estado -> {
+			if (fragmento.jdbcTemplate.update(SQL_BORRA, incidencia.getId()) == 0)
+			{
+				return false;
+			}
+			this.applicationEventPublisher.publishEvent(new IncidenciaEvent(
+					IncidenciaEvent.Tipo.BORRADA, incidencia, incidencia.getEstadoIncidencia()));
+			return true;
+		}));
+	}
+
+	@Override
+	public List<Map<String, Object>> buscaProyeccion(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario)
+	{
+		// La fecha se lee siempre al final de la fila para poder mezclar los resultados.
+		List<String> seleccion = new ArrayList<String>();
+		for (String campo : campos)
+		{
+			String expresion = EXPRESIONES_CAMPOS.get(campo);
+			if (expresion == null)
+			{
+				throw new IllegalArgumentException("Campo no permitido en el listado: " + campo);
+			}
+			seleccion.add(expresion);
+		}
+		seleccion.add("fecha_incidencia");
+
+		StringBuilder sql = new StringBuilder("SELECT ").append(String.join(", ", seleccion))
+				.append(" FROM incidencias WHERE 1 = 1");
+		List<Object> parametros = new ArrayList<Object>();
+
+		agregaFiltro(sql, parametros, "numero_aula = ?", numeroAula);
+		agregaFiltro(sql, parametros, "correo_docente = ?", correoDocente);
+		agregaFiltro(sql, parametros, "fecha_incidencia >= ?", fechaInicio == null ? null : new Timestamp(fechaInicio.getTime()));
+		agregaFiltro(sql, parametros, "fecha_incidencia <= ?", fechaFin == null ? null : new Timestamp(fechaFin.getTime()));
+		agregaFiltro(sql, parametros, "estado_incidencia = ?", estadoIncidencia);
+		agregaFiltro(sql, parametros, "descripcion_incidencia LIKE CONCAT('%', ?, '%')", descripcionIncidencia);
+		agregaFiltro(sql, parametros, "comentario LIKE CONCAT('%', ?, '%')", comentario);
+
+		sql.append(" ORDER BY fecha_incidencia DESC");
+
+		// Con aula basta con su fragmento; sin ella se consulta a todos.
+		List<Fragmento> consultados = numeroAula != null
+				? List.of(this.fragmentos.get(this.fragmentoDe(numeroAula)))
+				: this.fragmentos;
+
+		RowMapper<Object[]> mapeador = (rs, numFila) -> leeFila(rs, campos);
+		List<List<Object[]>> resultados = this.enParalelo(consultados,
+				fragmento -> fragmento.jdbcTemplate.query(sql.toString(), mapeador, parametros.toArray()));
+
+		return mezcla(resultados, campos);
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorAula()
+	{
+		return this.cuentaPor("numero_aula");
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorDocente()
+	{
+		return this.cuentaPor("correo_docente");
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorEstado()
+	{
+		return this.cuentaPor("estado_incidencia");
+	}
+
+	/**
+	 * Cuenta las incidencias por valor de una columna en todos los fragmentos y suma los resultados. Un
+	 * aula está en un solo fragmento, pero un docente puede tener incidencias en varios.
+	 *
+	 * @param columna Columna por la que se agrupa.
+	 * @return Número de incidencias por valor.
+	 */
+	private Map<String, Long> cuentaPor(String columna)
+	{
+		String sql = "SELECT " + columna + ", COUNT(*) FROM incidencias GROUP BY " + columna;
+		Map<String, Long> cuentas = new HashMap<String, Long>();
+		for (List<Object[]> filas : this.enParalelo(this.fragmentos, fragmento -> fragmento.jdbcTemplate.query(sql,
+				(rs, numFila) -> new Object[] { rs.getString(1), rs.getLong(2) })))
+		{
+			for (Object[] fila : filas)
+			{
+				cuentas.merge((String) fila[0], (Long) fila[1], Long::sum);
+			}
+		}
+		return cuentas;
+	}
+
+	/**
+	 * Lee una fila de la proyección: los campos pedidos y, al final, la fecha.
+	 *
+	 * @param rs     El resultado posicionado en la fila.
+	 * @param campos Campos pedidos.
+	 * @return Los valores de la fila.
+	 * @throws SQLException Si falla la lectura.
+	 */
+	private static Object[] leeFila(ResultSet rs, List<String> campos) throws SQLException
+	{
+		Object[] fila = new Object[campos.size() + 1];
+		for (int i = 0; i < campos.size(); i++)
+		{
+			switch (campos.get(i))
+			{
+				// El identificador se devuelve como texto porque supera la precisión de los números de JavaScript.
+				case "id" -> fila[i] = String.valueOf(rs.getLong(i + 1));
+				case "fechaIncidencia", "fechaEstado" -> fila[i] = rs.getTimestamp(i + 1);
+				default -> fila[i] = rs.getString(i + 1);
+			}
+		}
+		fila[campos.size()] = rs.getTimestamp(campos.size() + 1);
+		return fila;
+	}
+
+	/**
+	 * Mezcla los resultados de varios fragmentos, cada uno ordenado por fecha descendente, en una sola lista
+	 * ordenada. La cola de prioridad contiene como mucho una fila por fragmento, por lo que el coste es
+	 * O(n log k) para n filas y k fragmentos.
+	 *
+	 * @param resultados Filas de cada fragmento, con la fecha en la última posición.
+	 * @param campos     Campos pedidos.
+	 * @return Las filas como mapas campo-valor en el orden pedido.
+	 */
+	private static List<Map<String, Object>> mezcla(List<List<Object[]>> resultados, List<String> campos)
+	{
+		int total = 0;
+		// Cada cursor es {fragmento, posición de su siguiente fila}; a igual fecha, primero el fragmento menor.
+		PriorityQueue<int[]> cola = new PriorityQueue<int[]>((a, b) -> {
+			Timestamp fechaA = (Timestamp) resultados.get(a[0]).get(a[1])[campos.size()];
+			Timestamp fechaB = (Timestamp) resultados.get(b[0]).get(b[1])[campos.size()];
+			int comparacion = fechaB.compareTo(fechaA);
+			return comparacion != 0 ? comparacion : Integer.compare(a[0], b[0]);
+		});
+		for (int i = 0; i < resultados.size(); i++)
+		{
+			total += resultados.get(i).size();
+			if (!resultados.get(i).isEmpty())
+			{
+				cola.add(new int[] { i, 0 });
+			}
+		}
+
+		List<Map<String, Object>> mezclados = new ArrayList<Map<String, Object>>(total);
+		while (!cola.isEmpty())
+		{
+			int[] cursor = cola.poll();
+			Object[] valores = resultados.get(cursor[0]).get(cursor[1]);
+
+			Map<String, Object> fila = new LinkedHashMap<String, Object>();
+			for (int i = 0; i < campos.size(); i++)
+			{
+				fila.put(campos.get(i), valores[i]);
+			}
+			mezclados.add(fila);
+
+			if (++cursor[1] < resultados.get(cursor[0]).size())
+			{
+				cola.add(cursor);
+			}
+		}
+		return mezclados;
+	}
+
+	/**
+	 * Añade un filtro a la consulta si su valor no es nulo.
+	 *
+	 * @param sql        Consulta en construcción.
+	 * @param parametros Parámetros de la consulta.
+	 * @param condicion  Condición SQL con un parámetro.
+	 * @param valor      Valor del parámetro; si es nulo el filtro se ignora.
+	 */
+	private static void agregaFiltro(StringBuilder sql, List<Object> parametros, String condicion, Object valor)
+	{
+		if (valor != null)
+		{
+			sql.append(" AND ").append(condicion);
+			parametros.add(valor);
+		}
+	}
+
+	/**
+	 * Ejecuta una operación en varios fragmentos a la vez y espera a todas.
+	 *
+	 * @param <T>        Tipo del resultado.
+	 * @param destino    Los fragmentos.
+	 * @param operacion  La operación sobre cada fragmento.
+	 * @return Los resultados en el orden de los fragmentos.
+	 */
+	private <T> List<T> enParalelo(List<Fragmento> destino, Function<Fragmento, T> operacion)
+	{
+		List<T> resultados = new ArrayList<T>(destino.size());
+		if (destino.size() == 1)
+		{
+			resultados.add(operacion.apply(destino.get(0)));
+			return resultados;
+		}
+
+		List<Future<T>> pendientes = new ArrayList<Future<T>>(destino.size());
+		for (Fragmento fragmento : destino)
+		{
+			pendientes.add(this.consultas.submit(() -> operacion.apply(fragmento)));
+		}
+		try
+		{
+			for (Future<T> pendiente : pendientes)
+			{
+				resultados.add(pendiente.get());
+			}
+			return resultados;
+		}
+		catch (InterruptedException exception)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Consulta a los fragmentos interrumpida", exception);
+		}
+		catch (ExecutionException exception)
+		{
+			if (exception.getCause() instanceof RuntimeException runtimeException)
+			{
+				throw runtimeException;
+			}
+			throw new IllegalStateException("Error al consultar los fragmentos", exception.getCause());
+		}
+		finally
+		{
+			for (Future<T> pendiente : pendientes)
+			{
+				pendiente.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Una base de datos de la configuración con su acceso JDBC y sus transacciones.
+	 */
+	static final class Fragmento
+	{
+		/** Posición del fragmento en la configuración. */
+		final int indice;
+
+		/** Pool de conexiones. */
+		final HikariDataSource dataSource;
+
+		/** Acceso JDBC. */
+		final JdbcTemplate jdbcTemplate;
+
+		/** Transacciones locales del fragmento. */
+		final TransactionTemplate transactionTemplate;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param indice     Posición del fragmento en la configuración.
+		 * @param dataSource Pool de conexiones.
+		 */
+		Fragmento(int indice, HikariDataSource dataSource)
+		{
+			this.indice = indice;
+			this.dataSource = dataSource;
+
+			// El mismo envoltorio en ambos para que compartan la conexión de cada transacción.
+			DataSource instrumentado = new ConexionesJfrDataSource(dataSource, dataSource.getPoolName());
+			this.jdbcTemplate = new JdbcTemplate(instrumentado);
+			this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(instrumentado));
+		}
+	}
+}
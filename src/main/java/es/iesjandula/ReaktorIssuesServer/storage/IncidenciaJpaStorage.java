@@ -0,0 +1,164 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+
+/**
+ * Motor de almacenamiento por defecto: delega en {@link IIncidenciaRepository} sobre MySQL.
+ * <p>
+ * Las escrituras se ejecutan en una transacción en la que también se publica el {@link IncidenciaEvent}
+ * correspondiente.
+ * </p>
+ * <p>
+ * Los lotes se insertan con JDBC por lotes ({@link IncidenciaLoteJdbc}) dentro de la misma transacción
+ * JPA, sin pasar por el contexto de persistencia.
+ * </p>
+ */
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "jpa", matchIfMissing = true)
+public class IncidenciaJpaStorage implements IIncidenciaStorage
+{
+	@Autowired
+	// Auto-inyeccion de repositorio.
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	// Auto-inyeccion del publicador de eventos de incidencias.
+	private ApplicationEventPublisher applicationEventPublisher;
+
+	@Autowired
+	// Auto-inyeccion del acceso JDBC para las inserciones por lotes.
+	private JdbcTemplate jdbcTemplate;
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorId(Long id)
+	{
+		return this.iIncidenciaRepository.findById(id);
+	}
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorClave(IncidenciaEntityId clave)
+	{
+		return this.iIncidenciaRepository.findByCompositeId(clave);
+	}
+
+	@Override
+	@Transactional
+	public IncidenciaEntity guarda(IncidenciaEntity incidencia)
+	{
+		// La versión anterior queda en el contexto de persistencia, por lo que el merge no repite la consulta.
+		IncidenciaEntity anterior = incidencia.getId() == null ? null
+				: this.iIncidenciaRepository.findById(incidencia.getId()).orElse(null);
+		boolean existia = anterior != null;
+		String estadoAnterior = existia ? anterior.getEstadoIncidencia() : null;
+		IncidenciaFechaEstado.asigna(incidencia, anterior);
+
+		IncidenciaEntity guardada = this.iIncidenciaRepository.saveAndFlush(incidencia);
+
+		this.applicationEventPublisher.publishEvent(new IncidenciaEvent(
+				existia ? IncidenciaEvent.Tipo.ACTUALIZADA : IncidenciaEvent.Tipo.CREADA, guardada, estadoAnterior));
+		return guardada;
+	}
+
+	@Override
+	@Transactional
+	public Map<Integer, String> insertaLote(List<IncidenciaEntity> incidencias)
+	{
+		for (IncidenciaEntity incidencia : incidencias)
+		{
+			incidencia.setId(TsidGenerator.siguiente());
+			IncidenciaFechaEstado.asigna(incidencia, null);
+		}
+
+		// La conexión es la de la transacción JPA en curso.
+		Map<Integer, String> rechazos = this.jdbcTemplate.execute(
+				(ConnectionCallback<Map<Integer, String>>) conexion -> IncidenciaLoteJdbc.inserta(conexion, incidencias));
+
+		for (int i = 0; i < incidencias.size(); i++)
+		{
+			if (!rechazos.containsKey(i))
+			{
+				this.applicationEventPublisher.publishEvent(
+						new IncidenciaEvent(IncidenciaEvent.Tipo.CREADA, incidencias.get(i), null, true));
+			}
+		}
+		return rechazos;
+	}
+
+	@Override
+	@Transactional
+	public void borra(IncidenciaEntity incidencia)
+	{
+		this.iIncidenciaRepository.delete(incidencia);
+
+		this.applicationEventPublisher.publishEvent(new IncidenciaEvent(
+				IncidenciaEvent.Tipo.BORRADA, incidencia, incidencia.getEstadoIncidencia()));
+	}
+
+	@Override
+	public List<Map<String, Object>> buscaProyeccion(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario)
+	{
+		return this.iIncidenciaRepository.buscaProyeccionIncidencia(campos, numeroAula, correoDocente, fechaInicio,
+				fechaFin, descripcionIncidencia, estadoIncidencia, comentario);
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorAula()
+	{
+		return aMapa(this.iIncidenciaRepository.cuentaPorAula());
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorDocente()
+	{
+		return aMapa(this.iIncidenciaRepository.cuentaPorDocente());
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorEstado()
+	{
+		return aMapa(this.iIncidenciaRepository.cuentaPorEstado());
+	}
+
+	/**
+	 * Convierte los pares {valor, número} de una consulta agrupada en un mapa.
+	 *
+	 * @param filas Resultado de la consulta.
+	 * @return Número por valor.
+	 */
+	private static Map<String, Long> aMapa(List<Object[]> filas)
+	{
+		Map<String, Long> cuentas = new HashMap<String, Long>();
+		for (Object[] fila : filas)
+		{
+			cuentas.put((String) fila[0], ((Number) fila[1]).longValue());
+		}
+		return cuentas;
+	}
+
+}
@@ -0,0 +1,130 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+
+/**
+ * Inserción de lotes de incidencias con JDBC por lotes, compartida por los motores que escriben en
+ * tablas {@code incidencias} ({@link IncidenciaJpaStorage} e {@link IncidenciaFragmentadaStorage}).
+ * <p>
+ * Con MySQL conviene {@code rewriteBatchedStatements=true} en la URL para que el lote viaje como un
+ * único INSERT de varias filas.
+ * </p>
+ */
+final class IncidenciaLoteJdbc
+{
+	/** Inserción directa de una incidencia con todas sus columnas. */
+	static final String SQL_INSERTA = "INSERT INTO incidencias (id, numero_aula, correo_docente, fecha_incidencia, "
+			+ "descripcion_incidencia, estado_incidencia, comentario, fecha_estado) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+	/**
+	 * Constructor privado: solo métodos estáticos.
+	 */
+	private IncidenciaLoteJdbc()
+	{
+	}
+
+	/**
+	 * Inserta el lote con un único {@code executeBatch}. Si alguna fila viola una restricción se deshace
+	 * solo el lote (punto de guardado) y se reintenta fila a fila, cada una con su propio punto de guardado,
+	 * para rechazar únicamente las filas que fallan.
+	 *
+	 * @param conexion    La conexión de la transacción en curso.
+	 * @param incidencias Las incidencias, ya con identificador.
+	 * @return Motivo de rechazo por posición en la lista.
+	 * @throws SQLException Si falla la inserción por un motivo distinto de una restricción.
+	 */
+	static Map<Integer, String> inserta(Connection conexion, List<IncidenciaEntity> incidencias) throws SQLException
+	{
+		Map<Integer, String> rechazos = new LinkedHashMap<Integer, String>();
+		try (PreparedStatement sentencia = conexion.prepareStatement(SQL_INSERTA))
+		{
+			Savepoint puntoLote = conexion.setSavepoint();
+			try
+			{
+				for (IncidenciaEntity incidencia : incidencias)
+				{
+					asignaParametros(sentencia, incidencia);
+					sentencia.addBatch();
+				}
+				sentencia.executeBatch();
+				conexion.releaseSavepoint(puntoLote);
+				return rechazos;
+			}
+			catch (SQLException loteException)
+			{
+				if (!esViolacionRestriccion(loteException))
+				{
+					throw loteException;
+				}
+				conexion.rollback(puntoLote);
+				sentencia.clearBatch();
+			}
+
+			for (int i = 0; i < incidencias.size(); i++)
+			{
+				Savepoint puntoFila = conexion.setSavepoint();
+				try
+				{
+					asignaParametros(sentencia, incidencias.get(i));
+					sentencia.executeUpdate();
+					conexion.releaseSavepoint(puntoFila);
+				}
+				catch (SQLException filaException)
+				{
+					if (!esViolacionRestriccion(filaException))
+					{
+						throw filaException;
+					}
+					conexion.rollback(puntoFila);
+					rechazos.put(i, "Clave natural duplicada: " + IncidenciaEntity.UK_CLAVE_NATURAL);
+				}
+			}
+		}
+		return rechazos;
+	}
+
+	/**
+	 * @param exception Error de JDBC.
+	 * @return true si es una violación de restricción de integridad (SQLState de clase 23).
+	 */
+	static boolean esViolacionRestriccion(SQLException exception)
+	{
+		for (SQLException actual = exception; actual != null; actual = actual.getNextException())
+		{
+			if (actual.getSQLState() != null && actual.getSQLState().startsWith("23"))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Asigna los parámetros de {@link #SQL_INSERTA}.
+	 *
+	 * @param sentencia  La sentencia preparada.
+	 * @param incidencia La incidencia a insertar.
+	 * @throws SQLException Si falla la asignación.
+	 */
+	static void asignaParametros(PreparedStatement sentencia, IncidenciaEntity incidencia) throws SQLException
+	{
+		sentencia.setLong(1, incidencia.getId());
+		sentencia.setString(2, incidencia.getNumeroAula());
+		sentencia.setString(3, incidencia.getCorreoDocente());
+		sentencia.setTimestamp(4, new Timestamp(incidencia.getFechaIncidencia().getTime()));
+		sentencia.setString(5, incidencia.getDescripcionIncidencia());
+		sentencia.setString(6, incidencia.getEstadoIncidencia());
+		sentencia.setString(7, incidencia.getComentario());
+		sentencia.setTimestamp(8, incidencia.getFechaEstado() == null ? null
+				: new Timestamp(incidencia.getFechaEstado().getTime()));
+	}
+}
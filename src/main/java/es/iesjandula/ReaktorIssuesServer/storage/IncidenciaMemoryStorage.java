@@ -0,0 +1,735 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Motor de almacenamiento en memoria para despliegues sin MySQL (centros pequeños o sin conexión).
+ * <p>
+ * Las incidencias se guardan en un {@link ConcurrentHashMap} por identificador y se indexan con
+ * {@link ConcurrentSkipListSet} (respaldados por {@code ConcurrentSkipListMap}) ordenados por
+ * (aula, fecha), (estado, fecha), (docente, fecha) y fecha. Las lecturas no bloquean; las escrituras se
+ * serializan con un cerrojo para mantener el orden del registro de escritura anticipada.
+ * </p>
+ * <p>
+ * La durabilidad se consigue con una instantánea ({@code incidencias.snapshot}) más un registro de
+ * escritura anticipada ({@code incidencias.wal}), ambos en JSON por líneas. Al arrancar se carga la
+ * instantánea, se reaplica el registro y se compacta; el registro también se compacta al superar
+ * {@code reaktor.almacen.memoria.max-entradas-wal} entradas y al parar la aplicación. Al reaplicar, solo
+ * se descarta una última línea incompleta; una línea ilegible en mitad del registro detiene el arranque.
+ * </p>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "reaktor.almacen", name = "motor", havingValue = "memoria")
+public class IncidenciaMemoryStorage implements IIncidenciaStorage
+{
+	/** Operación de guardado en el registro. */
+	private static final String OPERACION_GUARDA = "G";
+
+	/** Operación de borrado en el registro. */
+	private static final String OPERACION_BORRA = "B";
+
+	/** Valor usado en los índices para atributos nulos y para el índice global por fecha. */
+	private static final String SIN_VALOR = "";
+
+	/** Incidencias por identificador. */
+	private final Map<Long, IncidenciaEntity> porId = new ConcurrentHashMap<Long, IncidenciaEntity>();
+
+	/** Identificador de cada incidencia por clave natural. */
+	private final Map<IncidenciaEntityId, Long> porClave = new ConcurrentHashMap<IncidenciaEntityId, Long>();
+
+	/** Índice (aula, fecha). */
+	private final NavigableSet<ClaveIndice> indiceAula = new ConcurrentSkipListSet<ClaveIndice>();
+
+	/** Índice (estado, fecha). */
+	private final NavigableSet<ClaveIndice> indiceEstado = new ConcurrentSkipListSet<ClaveIndice>();
+
+	/** Índice (docente, fecha). */
+	private final NavigableSet<ClaveIndice> indiceDocente = new ConcurrentSkipListSet<ClaveIndice>();
+
+	/** Índice global por fecha. */
+	private final NavigableSet<ClaveIndice> indiceFecha = new ConcurrentSkipListSet<ClaveIndice>();
+
+	/** Cerrojo de escritura. */
+	private final ReentrantLock cerrojo = new ReentrantLock();
+
+	/** Serializador de la instantánea y del registro. */
+	private final ObjectMapper objectMapper = new ObjectMapper();
+
+	/** Fichero de instantánea. */
+	private final Path ficheroSnapshot;
+
+	/** Fichero de registro de escritura anticipada. */
+	private final Path ficheroWal;
+
+	/** Si es true se fuerza el volcado a disco tras cada escritura. */
+	private final boolean sincronizar;
+
+	/** Número de entradas del registro a partir del cual se compacta. */
+	private final int maxEntradasWal;
+
+	/** Canal abierto sobre el registro. */
+	private FileChannel wal;
+
+	/** Entradas escritas en el registro desde la última compactación. */
+	private int entradasWal;
+
+	/** Publicador de eventos de incidencias. */
+	private final ApplicationEventPublisher applicationEventPublisher;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directorio     Directorio donde se guardan la instantánea y el registro.
+	 * @param sincronizar    Si se fuerza el volcado a disco tras cada escritura.
+	 * @param maxEntradasWal Entradas del registro a partir de las cuales se compacta.
+	 * @param applicationEventPublisher Publicador de eventos de incidencias.
+	 */
+	public IncidenciaMemoryStorage(
+			@Value("${reaktor.almacen.memoria.directorio:./datos}") String directorio,
+			@Value("${reaktor.almacen.memoria.sincronizar:true}") boolean sincronizar,
+			@Value("${reaktor.almacen.memoria.max-entradas-wal:10000}") int maxEntradasWal,
+			ApplicationEventPublisher applicationEventPublisher)
+	{
+		this.applicationEventPublisher = applicationEventPublisher;
+		this.ficheroSnapshot = Paths.get(directorio, "incidencias.snapshot");
+		this.ficheroWal = Paths.get(directorio, "incidencias.wal");
+		this.sincronizar = sincronizar;
+		this.maxEntradasWal = maxEntradasWal;
+	}
+
+	/**
+	 * Carga la instantánea, reaplica el registro y deja el almacén compactado y listo para escribir.
+	 *
+	 * @throws IOException Si no se pueden leer o escribir los ficheros, o el registro está corrupto.
+	 */
+	@PostConstruct
+	public void inicia() throws IOException
+	{
+		long inicio = System.currentTimeMillis();
+		Files.createDirectories(this.ficheroSnapshot.getParent());
+
+		if (Files.exists(this.ficheroSnapshot))
+		{
+			try (BufferedReader lector = Files.newBufferedReader(this.ficheroSnapshot, StandardCharsets.UTF_8))
+			{
+				String linea;
+				while ((linea = lector.readLine()) != null)
+				{
+					this.aplicaGuarda(this.objectMapper.readValue(linea, IncidenciaEntity.class));
+				}
+			}
+		}
+
+		int reaplicadas = 0;
+		if (Files.exists(this.ficheroWal))
+		{
+			try (BufferedReader lector = Files.newBufferedReader(this.ficheroWal, StandardCharsets.UTF_8))
+			{
+				int numeroLinea = 0;
+				String linea = lector.readLine();
+				while (linea != null)
+				{
+					numeroLinea++;
+					String siguiente = lector.readLine();
+
+					RegistroWal registro;
+					try
+					{
+						registro = this.objectMapper.readValue(linea, RegistroWal.class);
+					}
+					catch (IOException exception)
+					{
+						// Solo la última línea puede quedar incompleta por una caída a mitad de escritura. Una línea
+						// ilegible seguida de otras es corrupción: descartarla perdería entradas ya confirmadas.
+						if (siguiente != null)
+						{
+							String errorString = "ERROR: Entrada ilegible en la línea " + numeroLinea + " del registro "
+									+ this.ficheroWal + " seguida de otras entradas. Se detiene el arranque para no perderlas.";
+
+							log.error(errorString) ;
+							throw new IOException(errorString, exception) ;
+						}
+
+						log.warn("WARN: Entrada incompleta al final del registro (línea {}) descartada.", numeroLinea);
+						break;
+					}
+					if (OPERACION_BORRA.equals(registro.getOperacion()))
+					{
+						this.aplicaBorra(registro.getIncidencia().getId());
+					}
+					else
+					{
+						this.aplicaGuarda(registro.getIncidencia());
+					}
+					reaplicadas++;
+					linea = siguiente;
+				}
+			}
+		}
+
+		this.compacta();
+
+		log.info("INFO: Almacen en memoria cargado con {} incidencias ({} entradas de registro reaplicadas) en {} ms.",
+				this.porId.size(), reaplicadas, System.currentTimeMillis() - inicio);
+	}
+
+	/**
+	 * Escribe una instantánea final y cierra el registro.
+	 *
+	 * @throws IOException Si falla la escritura.
+	 */
+	@PreDestroy
+	public void detiene() throws IOException
+	{
+		this.cerrojo.lock();
+		try
+		{
+			this.compacta();
+			this.wal.close();
+		}
+		finally
+		{
+			this.cerrojo.unlock();
+		}
+	}
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorId(Long id)
+	{
+		return Optional.ofNullable(this.porId.get(id)).map(this::copia);
+	}
+
+	@Override
+	public Optional<IncidenciaEntity> buscaPorClave(IncidenciaEntityId clave)
+	{
+		Long id = this.porClave.get(clave);
+		return id == null ? Optional.empty() : this.buscaPorId(id);
+	}
+
+	@Override
+	public IncidenciaEntity guarda(IncidenciaEntity incidencia)
+	{
+		IncidenciaEvent evento;
+		this.cerrojo.lock();
+		try
+		{
+			if (incidencia.getId() == null)
+			{
+				incidencia.setId(TsidGenerator.siguiente());
+			}
+
+			// Misma restricción única que la tabla MySQL sobre la clave natural.
+			Long idExistente = this.porClave.get(this.claveNatural(incidencia));
+			if (idExistente != null && !idExistente.equals(incidencia.getId()))
+			{
+				throw new DataIntegrityViolationException("Clave natural duplicada: " + IncidenciaEntity.UK_CLAVE_NATURAL);
+			}
+
+			IncidenciaEntity anterior = this.porId.get(incidencia.getId());
+			IncidenciaFechaEstado.asigna(incidencia, anterior);
+			IncidenciaEntity copia = this.copia(incidencia);
+			this.escribeWal(new RegistroWal(OPERACION_GUARDA, copia));
+			this.aplicaGuarda(copia);
+			this.compactaSiNecesario();
+
+			evento = new IncidenciaEvent(anterior == null ? IncidenciaEvent.Tipo.CREADA : IncidenciaEvent.Tipo.ACTUALIZADA,
+					this.copia(copia), anterior == null ? null : anterior.getEstadoIncidencia());
+		}
+		finally
+		{
+			this.cerrojo.unlock();
+		}
+
+		// Sin transacciones, el cambio ya es durable: se notifica fuera del cerrojo.
+		this.applicationEventPublisher.publishEvent(evento);
+		return incidencia;
+	}
+
+	@Override
+	public Map<Integer, String> insertaLote(List<IncidenciaEntity> incidencias)
+	{
+		Map<Integer, String> rechazos = new LinkedHashMap<Integer, String>();
+		List<IncidenciaEvent> eventos = new ArrayList<IncidenciaEvent>(incidencias.size());
+		this.cerrojo.lock();
+		try
+		{
+			for (int i = 0; i < incidencias.size(); i++)
+			{
+				IncidenciaEntity incidencia = incidencias.get(i);
+				if (this.porClave.containsKey(this.claveNatural(incidencia)))
+				{
+					rechazos.put(i, "Clave natural duplicada: " + IncidenciaEntity.UK_CLAVE_NATURAL);
+					continue;
+				}
+
+				incidencia.setId(TsidGenerator.siguiente());
+				IncidenciaFechaEstado.asigna(incidencia, null);
+				IncidenciaEntity copia = this.copia(incidencia);
+				this.anadeWal(new RegistroWal(OPERACION_GUARDA, copia));
+				this.aplicaGuarda(copia);
+				eventos.add(new IncidenciaEvent(IncidenciaEvent.Tipo.CREADA, this.copia(copia), null, true));
+			}
+
+			// Un único volcado a disco para todo el lote.
+			this.fuerzaWal();
+			this.compactaSiNecesario();
+		}
+		finally
+		{
+			this.cerrojo.unlock();
+		}
+
+		for (IncidenciaEvent evento : eventos)
+		{
+			this.applicationEventPublisher.publishEvent(evento);
+		}
+		return rechazos;
+	}
+
+	@Override
+	public void borra(IncidenciaEntity incidencia)
+	{
+		IncidenciaEntity anterior;
+		this.cerrojo.lock();
+		try
+		{
+			anterior = this.porId.get(incidencia.getId());
+			if (anterior != null)
+			{
+				IncidenciaEntity soloId = new IncidenciaEntity();
+				soloId.setId(incidencia.getId());
+				this.escribeWal(new RegistroWal(OPERACION_BORRA, soloId));
+				this.aplicaBorra(incidencia.getId());
+				this.compactaSiNecesario();
+			}
+		}
+		finally
+		{
+			this.cerrojo.unlock();
+		}
+
+		if (anterior != null)
+		{
+			this.applicationEventPublisher.publishEvent(new IncidenciaEvent(
+					IncidenciaEvent.Tipo.BORRADA, anterior, anterior.getEstadoIncidencia()));
+		}
+	}
+
+	@Override
+	public List<Map<String, Object>> buscaProyeccion(
+			List<String> campos,
+			String numeroAula,
+			String correoDocente,
+			Date fechaInicio,
+			Date fechaFin,
+			String descripcionIncidencia,
+			String estadoIncidencia,
+			String comentario)
+	{
+		// Elige el índice más selectivo disponible y recorre solo el rango de fechas pedido.
+		NavigableSet<ClaveIndice> indice = this.indiceFecha;
+		String valor = SIN_VALOR;
+		if (numeroAula != null)
+		{
+			indice = this.indiceAula;
+			valor = numeroAula;
+		}
+		else if (correoDocente != null)
+		{
+			indice = this.indiceDocente;
+			valor = correoDocente;
+		}
+		else if (estadoIncidencia != null)
+		{
+			indice = this.indiceEstado;
+			valor = estadoIncidencia;
+		}
+
+		long desde = fechaInicio == null ? Long.MIN_VALUE : fechaInicio.getTime();
+		long hasta = fechaFin == null ? Long.MAX_VALUE : fechaFin.getTime();
+		NavigableSet<ClaveIndice> rango = indice.subSet(
+				new ClaveIndice(valor, desde, Long.MIN_VALUE), true,
+				new ClaveIndice(valor, hasta, Long.MAX_VALUE), true);
+
+		List<Map<String, Object>> resultado = new ArrayList<Map<String, Object>>();
+		Iterator<ClaveIndice> iterador = rango.descendingIterator();
+		while (iterador.hasNext())
+		{
+			IncidenciaEntity incidencia = this.porId.get(iterador.next().getId());
+
+			// La incidencia puede haber cambiado o desaparecido desde que se leyó el índice.
+			if (incidencia != null
+					&& (numeroAula == null || numeroAula.equals(incidencia.getNumeroAula()))
+					&& (correoDocente == null || correoDocente.equals(incidencia.getCorreoDocente()))
+					&& (estadoIncidencia == null || estadoIncidencia.equals(incidencia.getEstadoIncidencia()))
+					&& incidencia.getFechaIncidencia().getTime() >= desde
+					&& incidencia.getFechaIncidencia().getTime() <= hasta
+					&& contiene(incidencia.getDescripcionIncidencia(), descripcionIncidencia)
+					&& contiene(incidencia.getComentario(), comentario))
+			{
+				resultado.add(this.proyecta(incidencia, campos));
+			}
+		}
+		return resultado;
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorAula()
+	{
+		Map<String, Long> cuentas = new HashMap<String, Long>();
+		for (IncidenciaEntity incidencia : this.porId.values())
+		{
+			cuentas.merge(incidencia.getNumeroAula(), 1L, Long::sum);
+		}
+		return cuentas;
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorDocente()
+	{
+		Map<String, Long> cuentas = new HashMap<String, Long>();
+		for (IncidenciaEntity incidencia : this.porId.values())
+		{
+			cuentas.merge(incidencia.getCorreoDocente(), 1L, Long::sum);
+		}
+		return cuentas;
+	}
+
+	@Override
+	public Map<String, Long> cuentaPorEstado()
+	{
+		Map<String, Long> cuentas = new HashMap<String, Long>();
+		for (IncidenciaEntity incidencia : this.porId.values())
+		{
+			cuentas.merge(incidencia.getEstadoIncidencia(), 1L, Long::sum);
+		}
+		return cuentas;
+	}
+
+	/**
+	 * Construye el mapa campo-valor con los campos pedidos, igual que la proyección JPQL.
+	 *
+	 * @param incidencia La incidencia.
+	 * @param campos     Campos a devolver.
+	 * @return El mapa con los campos en el orden pedido.
+	 */
+	private Map<String, Object> proyecta(IncidenciaEntity incidencia, List<String> campos)
+	{
+		Map<String, Object> fila = new LinkedHashMap<String, Object>();
+		for (String campo : campos)
+		{
+			switch (campo)
+			{
+				case "id" -> fila.put(campo, incidencia.getId().toString());
+				case "numeroAula" -> fila.put(campo, incidencia.getNumeroAula());
+				case "correoDocente" -> fila.put(campo, incidencia.getCorreoDocente());
+				case "fechaIncidencia" -> fila.put(campo, incidencia.getFechaIncidencia());
+				case "estadoIncidencia" -> fila.put(campo, incidencia.getEstadoIncidencia());
+				case "fechaEstado" -> fila.put(campo, incidencia.getFechaEstado());
+				case Constants.CAMPO_RESUMEN_DESCRIPCION ->
+				{
+					String descripcion = incidencia.getDescripcionIncidencia();
+					fila.put(campo, descripcion == null ? null
+							: descripcion.substring(0, Math.min(descripcion.length(), Constants.LONG_RESUMEN_DESCRIPCION)));
+				}
+				default -> throw new IllegalArgumentException("Campo no permitido en el listado: " + campo);
+			}
+		}
+		return fila;
+	}
+
+	/**
+	 * Equivalente a {@code LIKE '%texto%'}.
+	 *
+	 * @param valor El valor del atributo.
+	 * @param texto El texto buscado; si es nulo se acepta cualquier valor.
+	 * @return true si el valor contiene el texto.
+	 */
+	private static boolean contiene(String valor, String texto)
+	{
+		return texto == null || (valor != null && valor.contains(texto));
+	}
+
+	/**
+	 * Inserta o sustituye la incidencia en el mapa principal y en los índices.
+	 *
+	 * @param incidencia La incidencia, que pasa a ser propiedad del almacén.
+	 */
+	private void aplicaGuarda(IncidenciaEntity incidencia)
+	{
+		IncidenciaEntity anterior = this.porId.put(incidencia.getId(), incidencia);
+		if (anterior != null)
+		{
+			this.quitaDeIndices(anterior);
+		}
+		this.porClave.put(this.claveNatural(incidencia), incidencia.getId());
+
+		long fecha = incidencia.getFechaIncidencia().getTime();
+		this.indiceAula.add(new ClaveIndice(valorIndice(incidencia.getNumeroAula()), fecha, incidencia.getId()));
+		this.indiceEstado.add(new ClaveIndice(valorIndice(incidencia.getEstadoIncidencia()), fecha, incidencia.getId()));
+		this.indiceDocente.add(new ClaveIndice(valorIndice(incidencia.getCorreoDocente()), fecha, incidencia.getId()));
+		this.indiceFecha.add(new ClaveIndice(SIN_VALOR, fecha, incidencia.getId()));
+	}
+
+	/**
+	 * Elimina la incidencia del mapa principal y de los índices.
+	 *
+	 * @param id El identificador de la incidencia.
+	 */
+	private void aplicaBorra(Long id)
+	{
+		IncidenciaEntity anterior = this.porId.remove(id);
+		if (anterior != null)
+		{
+			this.quitaDeIndices(anterior);
+		}
+	}
+
+	/**
+	 * Elimina las entradas de índice de una versión de la incidencia.
+	 *
+	 * @param incidencia La versión de la incidencia.
+	 */
+	private void quitaDeIndices(IncidenciaEntity incidencia)
+	{
+		long fecha = incidencia.getFechaIncidencia().getTime();
+		this.porClave.remove(this.claveNatural(incidencia), incidencia.getId());
+		this.indiceAula.remove(new ClaveIndice(valorIndice(incidencia.getNumeroAula()), fecha, incidencia.getId()));
+		this.indiceEstado.remove(new ClaveIndice(valorIndice(incidencia.getEstadoIncidencia()), fecha, incidencia.getId()));
+		this.indiceDocente.remove(new ClaveIndice(valorIndice(incidencia.getCorreoDocente()), fecha, incidencia.getId()));
+		this.indiceFecha.remove(new ClaveIndice(SIN_VALOR, fecha, incidencia.getId()));
+	}
+
+	/**
+	 * Añade una entrada al registro de escritura anticipada y la vuelca a disco si está configurado.
+	 * Debe llamarse con el cerrojo adquirido.
+	 *
+	 * @param registro La entrada.
+	 */
+	private void escribeWal(RegistroWal registro)
+	{
+		this.anadeWal(registro);
+		this.fuerzaWal();
+	}
+
+	/**
+	 * Añade una entrada al registro de escritura anticipada sin volcarla a disco.
+	 * Debe llamarse con el cerrojo adquirido.
+	 *
+	 * @param registro La entrada.
+	 */
+	private void anadeWal(RegistroWal registro)
+	{
+		try
+		{
+			byte[] linea = (this.objectMapper.writeValueAsString(registro) + "\n").getBytes(StandardCharsets.UTF_8);
+			ByteBuffer buffer = ByteBuffer.wrap(linea);
+			while (buffer.hasRemaining())
+			{
+				this.wal.write(buffer);
+			}
+			this.entradasWal++;
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException("ERROR: No se pudo escribir el registro de incidencias.", exception);
+		}
+	}
+
+	/**
+	 * Vuelca el registro a disco si {@code reaktor.almacen.memoria.sincronizar} está activo.
+	 * Debe llamarse con el cerrojo adquirido.
+	 */
+	private void fuerzaWal()
+	{
+		try
+		{
+			if (this.sincronizar)
+			{
+				this.wal.force(false);
+			}
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException("ERROR: No se pudo escribir el registro de incidencias.", exception);
+		}
+	}
+
+	/**
+	 * Compacta el registro si ha superado el número máximo de entradas. Debe llamarse con el cerrojo
+	 * adquirido y después de aplicar los cambios en memoria, para que la instantánea los incluya.
+	 */
+	private void compactaSiNecesario()
+	{
+		try
+		{
+			if (this.entradasWal >= this.maxEntradasWal)
+			{
+				this.compacta();
+			}
+		}
+		catch (IOException exception)
+		{
+			throw new UncheckedIOException("ERROR: No se pudo compactar el registro de incidencias.", exception);
+		}
+	}
+
+	/**
+	 * Escribe una instantánea completa y vacía el registro. Debe llamarse con el cerrojo adquirido
+	 * o durante el arranque.
+	 *
+	 * @throws IOException Si falla la escritura.
+	 */
+	private void compacta() throws IOException
+	{
+		Path temporal = this.ficheroSnapshot.resolveSibling(this.ficheroSnapshot.getFileName() + ".tmp");
+		try (BufferedWriter escritor = Files.newBufferedWriter(temporal, StandardCharsets.UTF_8))
+		{
+			for (IncidenciaEntity incidencia : this.porId.values())
+			{
+				escritor.write(this.objectMapper.writeValueAsString(incidencia));
+				escritor.newLine();
+			}
+		}
+		try (FileChannel canal = FileChannel.open(temporal, StandardOpenOption.WRITE))
+		{
+			canal.force(true);
+		}
+		Files.move(temporal, this.ficheroSnapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		// Con la instantánea ya en disco el registro se puede vaciar.
+		if (this.wal != null)
+		{
+			this.wal.close();
+		}
+		this.wal = FileChannel.open(this.ficheroWal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.entradasWal = 0;
+	}
+
+	/**
+	 * @param incidencia La incidencia.
+	 * @return Su clave natural.
+	 */
+	private IncidenciaEntityId claveNatural(IncidenciaEntity incidencia)
+	{
+		return new IncidenciaEntityId(incidencia.getNumeroAula(), incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia());
+	}
+
+	/**
+	 * Copia una incidencia para que los llamantes no modifiquen el estado interno del almacén.
+	 *
+	 * @param incidencia La incidencia.
+	 * @return Una copia independiente.
+	 */
+	private IncidenciaEntity copia(IncidenciaEntity incidencia)
+	{
+		return new IncidenciaEntity(
+				incidencia.getId(),
+				incidencia.getNumeroAula(),
+				incidencia.getCorreoDocente(),
+				incidencia.getFechaIncidencia() == null ? null : new Date(incidencia.getFechaIncidencia().getTime()),
+				incidencia.getDescripcionIncidencia(),
+				incidencia.getEstadoIncidencia(),
+				incidencia.getComentario(),
+				incidencia.getFechaEstado() == null ? null : new Date(incidencia.getFechaEstado().getTime()));
+	}
+
+	/**
+	 * @param valor Valor de un atributo indexado.
+	 * @return El valor a usar en el índice.
+	 */
+	private static String valorIndice(String valor)
+	{
+		return valor == null ? SIN_VALOR : valor;
+	}
+
+	/**
+	 * Clave de los índices ordenados: valor del atributo, fecha e identificador para desempatar.
+	 */
+	@Data
+	@AllArgsConstructor
+	private static final class ClaveIndice implements Comparable<ClaveIndice>
+	{
+		private final String valor;
+
+		private final long fecha;
+
+		private final long id;
+
+		@Override
+		public int compareTo(ClaveIndice otra)
+		{
+			int comparacion = this.valor.compareTo(otra.valor);
+			if (comparacion == 0)
+			{
+				comparacion = Long.compare(this.fecha, otra.fecha);
+			}
+			if (comparacion == 0)
+			{
+				comparacion = Long.compare(this.id, otra.id);
+			}
+			return comparacion;
+		}
+	}
+
+	/**
+	 * Entrada del registro de escritura anticipada.
+	 */
+	@Data
+	@AllArgsConstructor
+	@NoArgsConstructor
+	static final class RegistroWal
+	{
+		/** Operación: {@value IncidenciaMemoryStorage#OPERACION_GUARDA} o {@value IncidenciaMemoryStorage#OPERACION_BORRA}. */
+		private String operacion;
+
+		/** Incidencia guardada, o solo su identificador en los borrados. */
+		private IncidenciaEntity incidencia;
+	}
+}
@@ -1,5 +1,7 @@
 package es.iesjandula.ReaktorIssuesServer.utils;
 
+import java.util.List;
+
 /**
  * Clase que contiene constantes utilizadas en la aplicación.
  * <p>
@@ -36,4 +38,13 @@ public final class Constants
 		// Descripcion de la incidencia.
 		public static final int MIN_LONG_DESCRIPCION = 15;
 
+	// Constantes para la proyeccion de listados.
+		// Longitud del resumen de la descripcion calculado en la consulta.
+		public static final int LONG_RESUMEN_DESCRIPCION = 80;
+		// Campo calculado con el resumen de la descripcion.
+		public static final String CAMPO_RESUMEN_DESCRIPCION = "resumenDescripcion";
+		// Campos que se pueden solicitar en un listado (nunca columnas TEXT completas).
+		public static final List<String> CAMPOS_LISTADO = List.of("id", "numeroAula", "correoDocente", "fechaIncidencia",
+				"estadoIncidencia", "fechaEstado", CAMPO_RESUMEN_DESCRIPCION);
+
 }
@@ -0,0 +1,202 @@
+package es.iesjandula.ReaktorIssuesServer.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector CSV en flujo (RFC 4180) que no carga el fichero en memoria.
+ * <p>
+ * Lee registro a registro desde un {@link Reader}: admite campos entre comillas con separadores, saltos
+ * de línea y comillas dobles escapadas ({@code ""}), finales de línea {@code \n} y {@code \r\n}, y
+ * descarta la marca BOM inicial. La memoria usada solo depende del tamaño del registro más largo.
+ * </p>
+ */
+public class CsvReader implements Closeable
+{
+	/** Marca de orden de bytes UTF-8 tal y como queda tras decodificar. */
+	private static final int BOM = '\uFEFF';
+
+	/** Origen de caracteres. */
+	private final Reader lector;
+
+	/** Separador de campos. */
+	private final char separador;
+
+	/** Buffer de lectura. */
+	private final char[] buffer = new char[8192];
+
+	/** Posición actual en el buffer. */
+	private int posicion;
+
+	/** Caracteres válidos en el buffer. */
+	private int limite;
+
+	/** Línea física en curso (empezando por 1). */
+	private long lineaActual = 1;
+
+	/** Línea física en la que empieza el último registro leído. */
+	private long lineaRegistro;
+
+	/** Indica si se ha comprobado la marca BOM. */
+	private boolean inicio = true;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param lector    Origen de caracteres; se cierra al cerrar este lector.
+	 * @param separador Separador de campos (normalmente ',' o ';').
+	 */
+	public CsvReader(Reader lector, char separador)
+	{
+		this.lector = lector;
+		this.separador = separador;
+	}
+
+	/**
+	 * Lee el siguiente registro.
+	 *
+	 * @return Los campos del registro, o null al llegar al final del fichero.
+	 * @throws IOException Si falla la lectura o hay unas comillas sin cerrar al final del fichero.
+	 */
+	public List<String> siguiente() throws IOException
+	{
+		int caracter = this.lee();
+		if (this.inicio)
+		{
+			this.inicio = false;
+			if (caracter == BOM)
+			{
+				caracter = this.lee();
+			}
+		}
+		if (caracter == -1)
+		{
+			return null;
+		}
+
+		this.lineaRegistro = this.lineaActual;
+		List<String> campos = new ArrayList<String>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreComillas = false;
+
+		while (true)
+		{
+			if (entreComillas)
+			{
+				if (caracter == -1)
+				{
+					throw new IOException("Comillas sin cerrar en el registro que empieza en la línea " + this.lineaRegistro);
+				}
+				if (caracter == '"')
+				{
+					int siguiente = this.lee();
+					if (siguiente == '"')
+					{
+						campo.append('"');
+					}
+					else
+					{
+						entreComillas = false;
+						caracter = siguiente;
+						continue;
+					}
+				}
+				else
+				{
+					if (caracter == '\n')
+					{
+						this.lineaActual++;
+					}
+					campo.append((char) caracter);
+				}
+			}
+			else if (caracter == '"' && campo.length() == 0)
+			{
+				entreComillas = true;
+			}
+			else if (caracter == this.separador)
+			{
+				campos.add(campo.toString());
+				campo.setLength(0);
+			}
+			else if (caracter == '\r' || caracter == '\n' || caracter == -1)
+			{
+				if (caracter == '\r')
+				{
+					int siguiente = this.lee();
+					if (siguiente != '\n' && siguiente != -1)
+					{
+						this.posicion--;
+					}
+				}
+				if (caracter != -1)
+				{
+					this.lineaActual++;
+				}
+				campos.add(campo.toString());
+				return campos;
+			}
+			else
+			{
+				campo.append((char) caracter);
+			}
+			caracter = this.lee();
+		}
+	}
+
+	/**
+	 * @return Línea física en la que empieza el último registro devuelto por {@link #siguiente()}.
+	 */
+	public long getLineaRegistro()
+	{
+		return this.lineaRegistro;
+	}
+
+	/**
+	 * Escribe un campo en formato CSV, entre comillas si contiene el separador, comillas o saltos de línea.
+	 *
+	 * @param valor     El valor del campo.
+	 * @param separador El separador de campos.
+	 * @return El campo listo para escribir.
+	 */
+	public static String escapa(String valor, char separador)
+	{
+		if (valor == null)
+		{
+			return "";
+		}
+		if (valor.indexOf(separador) < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0)
+		{
+			return valor;
+		}
+		return "\"" + valor.replace("\"", "\"\"") + "\"";
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		this.lector.close();
+	}
+
+	/**
+	 * @return El siguiente carácter o -1 al final del fichero.
+	 * @throws IOException Si falla la lectura.
+	 */
+	private int lee() throws IOException
+	{
+		if (this.posicion >= this.limite)
+		{
+			this.limite = this.lector.read(this.buffer, 0, this.buffer.length);
+			this.posicion = 0;
+			if (this.limite <= 0)
+			{
+				this.limite = 0;
+				return -1;
+			}
+		}
+		return this.buffer[this.posicion++];
+	}
+}
@@ -42,6 +42,12 @@ public class IssuesServerError extends Exception
 		this.message = message;
 	}
 
+	// Metodo que devuelve el identificador del error
+	public int getId()
+	{
+		return this.id;
+	}
+
 	// Metodo que devuelve un Mapa con la Excepción propia
 	public Map<String, String> getMapError()
 	{
@@ -0,0 +1,136 @@
+package es.iesjandula.ReaktorIssuesServer.utils;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generador de identificadores de 64 bits ordenados en el tiempo (estilo TSID/Snowflake).
+ * <p>
+ * Cada identificador se compone de:
+ * <ul>
+ *     <li>41 bits - Milisegundos transcurridos desde {@link #EPOCA} (unos 69 años), dejando libre el bit de signo.</li>
+ *     <li>10 bits - Número de nodo, para que varias instancias no generen el mismo valor.</li>
+ *     <li>12 bits - Secuencia dentro del mismo milisegundo (4096 identificadores por milisegundo y nodo).</li>
+ * </ul>
+ * Los identificadores se generan en memoria, sin ningún viaje a la base de datos, y al ser crecientes
+ * en el tiempo se insertan siempre al final del índice primario de InnoDB.
+ * </p>
+ * <p>
+ * El nodo se lee de la propiedad de sistema {@code reaktor.nodo} o de la variable de entorno
+ * {@code REAKTOR_NODO}; si no se define se elige uno aleatorio.
+ * </p>
+ */
+public final class TsidGenerator
+{
+	/** Época de los identificadores: 2024-01-01T00:00:00Z. */
+	public static final long EPOCA = 1704067200000L;
+
+	/** Bits reservados para el nodo. */
+	private static final int BITS_NODO = 10;
+
+	/** Bits reservados para la secuencia. */
+	private static final int BITS_SECUENCIA = 12;
+
+	/** Valor máximo de la secuencia. */
+	public static final int MAX_SECUENCIA = (1 << BITS_SECUENCIA) - 1;
+
+	/** Valor máximo del nodo. */
+	public static final int MAX_NODO = (1 << BITS_NODO) - 1;
+
+	/** Nodo de esta instancia. */
+	private static final int NODO = leeNodo();
+
+	/** Último valor (milisegundo y secuencia) emitido por esta instancia. */
+	private static final AtomicLong ULTIMO = new AtomicLong();
+
+	private TsidGenerator()
+	{
+	}
+
+	/**
+	 * Genera un nuevo identificador único y creciente.
+	 *
+	 * @return El identificador generado.
+	 */
+	public static long siguiente()
+	{
+		while (true)
+		{
+			long anterior = ULTIMO.get();
+			long milis = System.currentTimeMillis() - EPOCA;
+			long milisAnterior = anterior >>> BITS_SECUENCIA;
+
+			long nuevo;
+			if (milis > milisAnterior)
+			{
+				nuevo = milis << BITS_SECUENCIA;
+			}
+			else
+			{
+				// Mismo milisegundo (o reloj atrasado): se avanza la secuencia, que al desbordar
+				// pasa al milisegundo siguiente manteniendo el orden.
+				nuevo = anterior + 1;
+			}
+
+			if (ULTIMO.compareAndSet(anterior, nuevo))
+			{
+				long milisNuevo = nuevo >>> BITS_SECUENCIA;
+				int secuencia = (int) (nuevo & MAX_SECUENCIA);
+				return compone(milisNuevo + EPOCA, NODO, secuencia);
+			}
+		}
+	}
+
+	/**
+	 * Compone un identificador a partir de sus partes. Los instantes anteriores a {@link #EPOCA} se
+	 * codifican como la propia época, para no ocupar el bit de signo.
+	 *
+	 * @param epochMilis Instante en milisegundos desde 1970.
+	 * @param nodo       Número de nodo (0-{@value #MAX_NODO}).
+	 * @param secuencia  Secuencia dentro del milisegundo (0-{@value #MAX_SECUENCIA}).
+	 * @return El identificador compuesto.
+	 */
+	public static long compone(long epochMilis, int nodo, int secuencia)
+	{
+		return (Math.max(epochMilis - EPOCA, 0) << (BITS_NODO + BITS_SECUENCIA))
+				| ((long) (nodo & MAX_NODO) << BITS_SECUENCIA)
+				| (secuencia & MAX_SECUENCIA);
+	}
+
+	/**
+	 * Obtiene el instante de creación codificado en un identificador.
+	 *
+	 * @param id El identificador.
+	 * @return Milisegundos desde 1970.
+	 */
+	public static long instante(long id)
+	{
+		return (id >>> (BITS_NODO + BITS_SECUENCIA)) + EPOCA;
+	}
+
+	/**
+	 * Obtiene la secuencia codificada en un identificador.
+	 *
+	 * @param id El identificador.
+	 * @return La secuencia dentro de su milisegundo.
+	 */
+	public static int secuencia(long id)
+	{
+		return (int) (id & MAX_SECUENCIA);
+	}
+
+	/**
+	 * Lee el número de nodo de la configuración o elige uno aleatorio.
+	 *
+	 * @return El número de nodo.
+	 */
+	private static int leeNodo()
+	{
+		String nodo = System.getProperty("reaktor.nodo", System.getenv("REAKTOR_NODO"));
+		if (nodo != null && !nodo.isBlank())
+		{
+			return Integer.parseInt(nodo.trim()) & MAX_NODO;
+		}
+		return new SecureRandom().nextInt(MAX_NODO + 1);
+	}
+}
@@ -2,6 +2,11 @@
 // Obtiene referencia al formulario 
 const form = document.getElementById('formIncidencia');
 
+// Clave de idempotencia del envío en curso: se reutiliza al reintentar tras un error de red para que el
+// servidor no cree la incidencia dos veces, y se renueva en cuanto hay respuesta o cambia el formulario.
+let claveIdempotencia = null;
+form.addEventListener('input', () => { claveIdempotencia = null; });
+
 // Maneja el evento de envío del formulario
 form.addEventListener('submit', async (event) => 
 {
@@ -35,19 +40,28 @@ form.addEventListener('submit', async (event) =>
         comentario: comentario || '', // Manejar el comentario opcional
     };
 
+    if (!claveIdempotencia) 
+	{
+        claveIdempotencia = crypto.randomUUID();
+    }
+
     try 
 	{
         // Envia los datos a la API
-        const response = await fetch('http://localhost:8888/incidencias/post', 
+        const response = await fetch('http://localhost:8888/incidencias/crear_incidencia', 
 		{
             method: 'POST',
-            headers
+            headers:
 			{
                 'Content-Type': 'application/json',
+                'Idempotency-Key': claveIdempotencia,
             },
             body: JSON.stringify(data),
         });
 
+        // Con respuesta, el siguiente envío es una petición nueva
+        claveIdempotencia = null;
+
         // Manejo de la respuesta
         if (response.status === 201) 
 		{
@@ -0,0 +1,192 @@
+package es.iesjandula.ReaktorIssuesServer.build;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Paso de compilación de los recursos estáticos, ejecutado como en Maven ({@code java Fichero.java}) sobre
+ * un árbol de prueba: copias con resumen, referencias reescritas, variantes gzip y aviso o fallo sin brotli.
+ */
+class ProcesaRecursosEstaticosTest
+{
+	/** Programa de un solo fichero que se prueba. */
+	private static final Path PROGRAMA = Paths
+			.get("src/build/java/es/iesjandula/ReaktorIssuesServer/build/ProcesaRecursosEstaticos.java");
+
+	/** Hoja de estilo de la prueba, con espacio suficiente para que compense comprimirla. */
+	private static final String CSS = "body { background: url('../img/logo.png') no-repeat; }\n"
+			+ ".incidencia { margin: 0; padding: 0; }\n".repeat(10);
+
+	@TempDir
+	Path temporal;
+
+	/** Recursos originales. */
+	private Path origen;
+
+	/** Recursos procesados. */
+	private Path destino;
+
+	/** Directorio sin ejecutables, para simular que no hay brotli. */
+	private Path sinBrotli;
+
+	@BeforeEach
+	void creaRecursos() throws IOException
+	{
+		this.origen = this.temporal.resolve("static");
+		this.destino = this.temporal.resolve("classes/static");
+		this.sinBrotli = Files.createDirectories(this.temporal.resolve("bin"));
+
+		escribe(this.origen.resolve("pagina.html"), String.join("\n",
+				"<link rel=\"stylesheet\" href=\"css/incidencias.css\">",
+				"<script defer src='/js/formulario.js?v=2'></script>",
+				"<img src=\"img/logo.png#arriba\">",
+				"<script src=\"https://cdn.example.org/lib.js\"></script>",
+				"<a href=\"#ayuda\">Ayuda</a>",
+				"<img src=\"img/no-existe.png\">"));
+		escribe(this.origen.resolve("css/incidencias.css"), CSS);
+		escribe(this.origen.resolve("js/formulario.js"), "console.log('formulario');\n");
+		Files.createDirectories(this.origen.resolve("img"));
+		Files.write(this.origen.resolve("img/logo.png"), new byte[] { (byte) 0x89, 'P', 'N', 'G', 1, 2, 3 });
+	}
+
+	@Test
+	void reescribeLasReferenciasHaciaLasCopiasConResumen() throws Exception
+	{
+		Ejecucion ejecucion = this.ejecuta(false);
+		assertThat(ejecucion.codigo).as(ejecucion.salida).isZero();
+
+		String logo = "img/logo." + resumen(this.origen.resolve("img/logo.png")) + ".png";
+		String css = "css/incidencias."
+				+ resumen(CSS.replace("../img/logo.png", "../" + logo).getBytes(StandardCharsets.UTF_8)) + ".css";
+		String js = "js/formulario." + resumen(this.origen.resolve("js/formulario.js")) + ".js";
+
+		assertThat(this.destino.resolve("recursos").resolve(logo)).exists();
+		assertThat(this.destino.resolve("recursos").resolve(js)).exists();
+		assertThat(Files.readString(this.destino.resolve("recursos").resolve(css))).contains("url('../" + logo + "')");
+
+		List<String> html = Files.readAllLines(this.destino.resolve("pagina.html"));
+		assertThat(html).containsExactly(
+				"<link rel=\"stylesheet\" href=\"recursos/" + css + "\">",
+				"<script defer src='/recursos/" + js + "?v=2'></script>",
+				"<img src=\"recursos/" + logo + "#arriba\">",
+				"<script src=\"https://cdn.example.org/lib.js\"></script>",
+				"<a href=\"#ayuda\">Ayuda</a>",
+				"<img src=\"img/no-existe.png\">");
+	}
+
+	@Test
+	void comprimeSoloElTextoQueCompensa() throws Exception
+	{
+		this.ejecuta(false);
+
+		Path recursos = this.destino.resolve("recursos");
+		assertThat(ficheros(recursos, ".gz")).singleElement().asString().startsWith("css/incidencias.");
+		assertThat(ficheros(this.destino, ".gz")).hasSize(1);
+	}
+
+	@Test
+	void sinBrotliAvisaYSiEsObligatorioFalla() throws Exception
+	{
+		Ejecucion opcional = this.ejecuta(false);
+		assertThat(opcional.codigo).isZero();
+		assertThat(opcional.salida).contains("[WARNING] [recursos] No hay un ejecutable brotli");
+		assertThat(ficheros(this.destino, ".br")).isEmpty();
+
+		Ejecucion obligatorio = this.ejecuta(true);
+		assertThat(obligatorio.codigo).isNotZero();
+		assertThat(obligatorio.salida).contains("[ERROR] [recursos] No hay un ejecutable brotli");
+	}
+
+	/**
+	 * Ejecuta el programa con un {@code PATH} sin brotli.
+	 *
+	 * @param brotliObligatorio Valor de {@code recursos.brotli.obligatorio}.
+	 * @return El código de salida y la salida combinada.
+	 * @throws Exception Si no se puede ejecutar o tarda demasiado.
+	 */
+	private Ejecucion ejecuta(boolean brotliObligatorio) throws Exception
+	{
+		ProcessBuilder builder = new ProcessBuilder(
+				Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+				"-Drecursos.brotli.obligatorio=" + brotliObligatorio, PROGRAMA.toString(), this.origen.toString(),
+				this.destino.toString(), "recursos").redirectErrorStream(true);
+		builder.environment().put("PATH", this.sinBrotli.toString());
+		Process proceso = builder.start();
+		String salida = new String(proceso.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+		assertThat(proceso.waitFor(2, TimeUnit.MINUTES)).isTrue();
+		return new Ejecucion(proceso.exitValue(), salida);
+	}
+
+	/**
+	 * @param directorio Directorio.
+	 * @param extension  Extensión con punto.
+	 * @return Las rutas relativas, con {@code /}, de los ficheros del árbol con esa extensión.
+	 * @throws IOException Si falla el recorrido.
+	 */
+	private static List<String> ficheros(Path directorio, String extension) throws IOException
+	{
+		List<String> rutas = new ArrayList<String>();
+		try (Stream<Path> recorrido = Files.walk(directorio))
+		{
+			recorrido.filter(fichero -> fichero.toString().endsWith(extension))
+					.forEach(fichero -> rutas.add(directorio.relativize(fichero).toString().replace('\\', '/')));
+		}
+		return rutas;
+	}
+
+	/**
+	 * @param fichero Fichero.
+	 * @return Los 16 primeros caracteres del resumen SHA-256 de su contenido.
+	 * @throws Exception Si falla la lectura.
+	 */
+	private static String resumen(Path fichero) throws Exception
+	{
+		return resumen(Files.readAllBytes(fichero));
+	}
+
+	/**
+	 * @param contenido Contenido.
+	 * @return Los 16 primeros caracteres de su resumen SHA-256.
+	 * @throws Exception Si no está disponible SHA-256.
+	 */
+	private static String resumen(byte[] contenido) throws Exception
+	{
+		return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(contenido)).substring(0, 16);
+	}
+
+	/**
+	 * @param fichero   Fichero que se escribe, creando sus directorios.
+	 * @param contenido Contenido en UTF-8.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private static void escribe(Path fichero, String contenido) throws IOException
+	{
+		Files.createDirectories(fichero.getParent());
+		Files.writeString(fichero, contenido, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Resultado de una ejecución del programa.
+	 *
+	 * @param codigo Código de salida.
+	 * @param salida Salida estándar y de error.
+	 */
+	private record Ejecucion(int codigo, String salida)
+	{
+	}
+}
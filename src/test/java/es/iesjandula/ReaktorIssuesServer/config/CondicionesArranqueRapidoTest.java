@@ -0,0 +1,82 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+/**
+ * Comparación de la configuración fijada por el procesamiento AOT con la de ejecución.
+ */
+class CondicionesArranqueRapidoTest
+{
+	@Test
+	void laMismaConfiguracionNoTieneDiferencias()
+	{
+		Properties fijadas = CondicionesArranqueRapido.captura(compilada());
+
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, compilada())).isEmpty();
+	}
+
+	@Test
+	void losValoresPorDefectoEquivalenAIndicarlos()
+	{
+		Properties fijadas = CondicionesArranqueRapido.captura(compilada());
+		MockEnvironment ejecucion = compilada().withProperty("reaktor.almacen.motor", "JPA")
+				.withProperty("reaktor.diagnostico.eventos-jfr", "true");
+
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, ejecucion)).isEmpty();
+	}
+
+	@Test
+	void detectaOtroMotorOtraReplicaYOtrosPerfiles()
+	{
+		Properties fijadas = CondicionesArranqueRapido.captura(compilada());
+		MockEnvironment ejecucion = compilada().withProperty("reaktor.almacen.motor", "memoria")
+				.withProperty("reaktor.datasource.replica.enabled", "true");
+		ejecucion.setActiveProfiles("arranque-rapido", "memoria");
+
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, ejecucion)).containsExactly(
+				CondicionesArranqueRapido.PERFILES + " = arranque-rapido,memoria (compilado con arranque-rapido)",
+				"reaktor.almacen.motor = memoria (compilado con jpa)",
+				"reaktor.datasource.replica.enabled = true (compilado con false)");
+	}
+
+	@Test
+	void delServidorDeCorreoSoloImportaSiEstaDefinido()
+	{
+		Properties fijadas = CondicionesArranqueRapido.captura(compilada().withProperty("spring.mail.host", "smtp.a"));
+
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, compilada().withProperty("spring.mail.host", "smtp.b")))
+				.isEmpty();
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, compilada()))
+				.containsExactly("spring.mail.host = false (compilado con true)");
+	}
+
+	@Test
+	void elOrdenDeLosPerfilesNoImporta()
+	{
+		MockEnvironment compilada = compilada();
+		compilada.setActiveProfiles("arranque-rapido", "fragmentado");
+		Properties fijadas = CondicionesArranqueRapido.captura(compilada);
+
+		MockEnvironment ejecucion = compilada();
+		ejecucion.setActiveProfiles("fragmentado", "arranque-rapido");
+
+		assertThat(CondicionesArranqueRapido.diferencias(fijadas, ejecucion)).isEmpty();
+	}
+
+	/**
+	 * @return Una configuración como la del perfil {@code arranque-rapido}.
+	 */
+	private static MockEnvironment compilada()
+	{
+		MockEnvironment environment = new MockEnvironment()
+				.withProperty("reaktor.arranque.validacion-diferida", "true")
+				.withProperty("reaktor.arranque.actualizar-esquema", "true");
+		environment.setActiveProfiles("arranque-rapido");
+		return environment;
+	}
+}
@@ -0,0 +1,135 @@
+package es.iesjandula.ReaktorIssuesServer.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockServletContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.support.AnnotationConfigWebApplicationContext;
+import org.springframework.web.servlet.config.annotation.EnableWebMvc;
+
+/**
+ * Recursos estáticos tal y como los deja el paso {@code procesa-recursos-estaticos} en
+ * {@code target/classes}: el HTML referencia las copias con resumen, que se sirven con caché inmutable y
+ * comprimidas, y el HTML se revalida en cada carga.
+ */
+class RecursosEstaticosConfigTest
+{
+	/** Referencia a la hoja de estilo versionada en el HTML. */
+	private static final Pattern HOJA_VERSIONADA = Pattern.compile("href=\"(recursos/css/incidencias\\.[0-9a-f]{16}\\.css)\"");
+
+	/** Contexto web con solo la configuración de recursos. */
+	private AnnotationConfigWebApplicationContext contexto;
+
+	/** Cliente del servidor. */
+	private MockMvc mockMvc;
+
+	/** HTML procesado en la compilación. */
+	private String html;
+
+	@BeforeEach
+	void arranca() throws IOException
+	{
+		try (InputStream pagina = this.getClass().getResourceAsStream("/static/pagina_incidencia.html"))
+		{
+			this.html = new String(pagina.readAllBytes(), StandardCharsets.UTF_8);
+		}
+		Assumptions.assumeTrue(this.getClass().getResource("/static/recursos") != null,
+				"Compilado con -Drecursos.omitir=true: no hay recursos versionados.");
+
+		this.contexto = new AnnotationConfigWebApplicationContext();
+		this.contexto.setServletContext(new MockServletContext());
+		this.contexto.register(Web.class, RecursosEstaticosConfig.class);
+		this.contexto.refresh();
+		this.mockMvc = MockMvcBuilders.webAppContextSetup(this.contexto).build();
+	}
+
+	@AfterEach
+	void cierra()
+	{
+		if (this.contexto != null)
+		{
+			this.contexto.close();
+		}
+	}
+
+	@Test
+	void elHtmlReferenciaLasCopiasConResumen()
+	{
+		assertThat(this.html).doesNotContain("href=\"css/incidencias.css\"").doesNotContain("src=\"js/formulario.js\"")
+				.containsPattern(HOJA_VERSIONADA).containsPattern("src=\"recursos/js/formulario\\.[0-9a-f]{16}\\.js\"");
+	}
+
+	@Test
+	void lasCopiasConResumenSeSirvenConCacheInmutableYComprimidas() throws Exception
+	{
+		String hoja = "/" + this.hojaVersionada();
+
+		this.mockMvc.perform(get(hoja))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+		this.mockMvc.perform(get(hoja).header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"))
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().string(HttpHeaders.VARY, "Accept-Encoding"));
+	}
+
+	@Test
+	void elHtmlSeRevalidaYResponde304SiNoHaCambiado() throws Exception
+	{
+		String modificado = this.mockMvc.perform(get("/pagina_incidencia.html"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+				.andExpect(content().bytes(this.html.getBytes(StandardCharsets.UTF_8)))
+				.andReturn().getResponse().getHeader(HttpHeaders.LAST_MODIFIED);
+
+		this.mockMvc.perform(get("/pagina_incidencia.html").header(HttpHeaders.IF_MODIFIED_SINCE, modificado))
+				.andExpect(status().isNotModified());
+	}
+
+	/**
+	 * @return La ruta de la hoja de estilo versionada que referencia el HTML.
+	 */
+	private String hojaVersionada()
+	{
+		Matcher matcher = HOJA_VERSIONADA.matcher(this.html);
+		assertThat(matcher.find()).isTrue();
+		return matcher.group(1);
+	}
+
+	/**
+	 * Spring MVC con el conversor de Spring Boot, que entiende duraciones como {@code 365d}.
+	 */
+	@Configuration
+	@EnableWebMvc
+	static class Web
+	{
+		@Bean
+		ConversionService conversionService()
+		{
+			return ApplicationConversionService.getSharedInstance();
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package es.iesjandula.ReaktorIssuesServer.datasource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaJpaStorage;
+
+/**
+ * Enrutado de lecturas y escrituras entre dos bases de datos H2 en memoria que hacen de primaria y réplica.
+ * <p>
+ * La réplica tiene la tabla pero nunca recibe las filas de la primaria, como una réplica con retraso. Las
+ * pruebas pasan por el gestor de transacciones JPA real, que es quien marca las transacciones como de
+ * solo lectura antes de que se pida la conexión.
+ * </p>
+ */
+@DataJpaTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:primaria;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"reaktor.datasource.replica.enabled=true",
+		"reaktor.datasource.replica.url=jdbc:h2:mem:replica;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+		"reaktor.datasource.replica.username=sa",
+		"reaktor.datasource.replica.password=",
+		"reaktor.datasource.replica.tolerancia-retraso=500ms" })
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ ReplicaDataSourceConfig.class, IncidenciaJpaStorage.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReadWriteRoutingDataSourceTest
+{
+	@Autowired
+	private IIncidenciaStorage iIncidenciaStorage;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private HikariDataSource replicaDataSource;
+
+	@BeforeEach
+	void preparaReplica()
+	{
+		// Hibernate crea el esquema solo en la primaria: la réplica recibe la misma tabla, vacía.
+		JdbcTemplate replica = new JdbcTemplate(this.replicaDataSource);
+		replica.execute("CREATE TABLE IF NOT EXISTS incidencias (id BIGINT PRIMARY KEY, numero_aula VARCHAR(255), "
+				+ "correo_docente VARCHAR(255), fecha_incidencia TIMESTAMP(6), descripcion_incidencia CLOB, "
+				+ "estado_incidencia VARCHAR(255), comentario CLOB, fecha_estado TIMESTAMP(6))");
+	}
+
+	@AfterEach
+	void limpiaDocente()
+	{
+		DocenteContext.limpia();
+	}
+
+	@Test
+	void lasTransaccionesDeSoloLecturaVanALaReplica()
+	{
+		assertThat(this.baseDeDatos(true)).isEqualTo("replica");
+	}
+
+	@Test
+	void lasEscriturasVanALaPrimaria()
+	{
+		assertThat(this.baseDeDatos(false)).isEqualTo("primaria");
+
+		DocenteContext.establece("ana@iesjandula.es");
+		IncidenciaEntity guardada = this.iIncidenciaStorage.guarda(nueva("ana@iesjandula.es"));
+		assertThat(this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM incidencias WHERE id = ?", Long.class,
+				guardada.getId())).isEqualTo(1L);
+	}
+
+	@Test
+	void elDocenteQueAcabaDeEscribirLeeSusCambiosDeLaPrimaria()
+	{
+		DocenteContext.establece("ana@iesjandula.es");
+		IncidenciaEntity guardada = this.iIncidenciaStorage.guarda(nueva("ana@iesjandula.es"));
+
+		// La réplica aún no tiene la incidencia, pero la docente que la ha creado la ve.
+		assertThat(this.baseDeDatos(true)).isEqualTo("primaria");
+		assertThat(this.lee(guardada.getId())).isTrue();
+
+		// Otro docente lee de la réplica, todavía sin la incidencia.
+		DocenteContext.establece("luis@iesjandula.es");
+		assertThat(this.baseDeDatos(true)).isEqualTo("replica");
+		assertThat(this.lee(guardada.getId())).isFalse();
+	}
+
+	@Test
+	void pasadaLaToleranciaLasLecturasVuelvenALaReplica() throws InterruptedException
+	{
+		DocenteContext.establece("ana@iesjandula.es");
+		this.iIncidenciaStorage.guarda(nueva("ana@iesjandula.es"));
+		assertThat(this.baseDeDatos(true)).isEqualTo("primaria");
+
+		Thread.sleep(600);
+
+		assertThat(this.baseDeDatos(true)).isEqualTo("replica");
+	}
+
+	@Test
+	void unaEscrituraDeshechaNoDesviaLasLecturas()
+	{
+		// Docente propio: el contexto y sus escrituras recientes se comparten entre pruebas.
+		DocenteContext.establece("marta@iesjandula.es");
+		TransactionTemplate escritura = new TransactionTemplate(this.transactionManager);
+		escritura.executeWithoutResult(estado -> {
+			this.iIncidenciaStorage.guarda(nueva("marta@iesjandula.es"));
+			estado.setRollbackOnly();
+		});
+
+		assertThat(this.baseDeDatos(true)).isEqualTo("replica");
+	}
+
+	/**
+	 * @param soloLectura Si la transacción es de solo lectura.
+	 * @return El nombre de la base de datos que atiende una transacción.
+	 */
+	private String baseDeDatos(boolean soloLectura)
+	{
+		TransactionTemplate plantilla = new TransactionTemplate(this.transactionManager);
+		plantilla.setReadOnly(soloLectura);
+		return plantilla.execute(estado -> this.jdbcTemplate.queryForObject("SELECT DATABASE()", String.class))
+				.toLowerCase();
+	}
+
+	/**
+	 * @param id Identificador de una incidencia.
+	 * @return Si una transacción de solo lectura la encuentra.
+	 */
+	private boolean lee(Long id)
+	{
+		TransactionTemplate plantilla = new TransactionTemplate(this.transactionManager);
+		plantilla.setReadOnly(true);
+		return plantilla.execute(estado -> this.iIncidenciaStorage.buscaPorId(id).isPresent());
+	}
+
+	/**
+	 * @param correoDocente Docente.
+	 * @return Una incidencia nueva con la fecha actual.
+	 */
+	private static IncidenciaEntity nueva(String correoDocente)
+	{
+		return new IncidenciaEntity(null, "1.1", correoDocente, new Date(), "El proyector no enciende.", "PENDIENTE",
+				null, null);
+	}
+}
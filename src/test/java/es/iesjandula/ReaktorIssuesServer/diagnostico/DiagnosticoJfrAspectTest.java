@@ -0,0 +1,235 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.aop.AopAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaJpaStorage;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Eventos de JFR de una llamada a controlador que consulta el motor JPA sobre H2: la llamada, el almacén
+ * y la espera de conexión identifican la incidencia, y el pool de Hikari se instrumenta sin proxy.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@ImportAutoConfiguration(AopAutoConfiguration.class)
+@Import({ IncidenciaJpaStorage.class, DiagnosticoJfrAspect.class, ConexionesJfrPostProcessor.class,
+		DiagnosticoJfrAspectTest.Controlador.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DiagnosticoJfrAspectTest
+{
+	/** Aula de la incidencia de la prueba, que no usa ninguna otra. */
+	private static final String AULA = "jfr.1";
+
+	/** Fecha de la incidencia de la prueba. */
+	private static final Date FECHA = new Date(1_700_000_000_000L);
+
+	@Autowired
+	private Controlador controlador;
+
+	@Autowired
+	private IIncidenciaStorage iIncidenciaStorage;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private DataSource dataSource;
+
+	/** Grabación de los eventos de la aplicación. */
+	private RecordingStream grabacion;
+
+	/** Eventos recibidos; {@code stop()} espera a que se entreguen los anteriores. */
+	private final List<RecordedEvent> eventos = Collections.synchronizedList(new ArrayList<RecordedEvent>());
+
+	@BeforeEach
+	void limpia()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+	}
+
+	@AfterEach
+	void cierra()
+	{
+		if (this.grabacion != null)
+		{
+			this.grabacion.close();
+		}
+	}
+
+	/**
+	 * Empieza a recibir los eventos de la aplicación, todos sin umbral de duración.
+	 */
+	private void graba()
+	{
+		this.grabacion = new RecordingStream();
+		for (Class<? extends IncidenciaJfrEvent> evento : List.of(ControladorJfrEvent.class, AlmacenJfrEvent.class,
+				ConexionJfrEvent.class))
+		{
+			this.grabacion.enable(evento).withThreshold(Duration.ZERO);
+		}
+		this.grabacion.onEvent(this.eventos::add);
+		this.grabacion.startAsync();
+	}
+
+	@Test
+	void losEventosDeUnaLlamadaIdentificanLaIncidencia()
+	{
+		IncidenciaEntity guardada = this.iIncidenciaStorage.guarda(new IncidenciaEntity(null, AULA, "ana@iesjandula.es",
+				FECHA, "Proyector sin señal", "PENDIENTE", null, null));
+		this.graba();
+
+		ResponseEntity<?> respuesta = this.controlador.obten(new IncidenciaEntityId(AULA, "ana@iesjandula.es", FECHA));
+		this.grabacion.stop();
+
+		assertThat(respuesta.getStatusCode().value()).isEqualTo(200);
+
+		RecordedEvent llamada = this.unico("es.iesjandula.reaktor.Controlador");
+		assertThat(llamada.getString("controlador")).isEqualTo("Controlador");
+		assertThat(llamada.getString("metodo")).isEqualTo("obten");
+		assertThat(llamada.getInt("estado")).isEqualTo(200);
+		this.compruebaIncidencia(llamada, guardada.getId());
+
+		RecordedEvent almacen = this.eventos("es.iesjandula.reaktor.Almacen").stream()
+				.filter(evento -> "IncidenciaJpaStorage".equals(evento.getString("componente"))).findFirst().orElseThrow();
+		assertThat(almacen.getString("operacion")).isEqualTo("buscaPorClave");
+		assertThat(almacen.getInt("resultados")).isEqualTo(1);
+		this.compruebaIncidencia(almacen, guardada.getId());
+
+		List<RecordedEvent> conexiones = this.eventos("es.iesjandula.reaktor.Conexion");
+		assertThat(conexiones).isNotEmpty().allSatisfy(conexion -> {
+			assertThat(conexion.getString("pool")).isNotBlank();
+			assertThat(conexion.getString("error")).isNull();
+			assertThat(conexion.getString("numeroAula")).isEqualTo(AULA);
+			assertThat(conexion.getString("correoDocente")).isEqualTo("ana@iesjandula.es");
+			assertThat(conexion.getInstant("fechaIncidencia").toEpochMilli()).isEqualTo(FECHA.getTime());
+		});
+	}
+
+	@Test
+	void unaExcepcionSeRegistraConEstado500()
+	{
+		this.graba();
+		try
+		{
+			this.controlador.falla(new IncidenciaEntityId(AULA, "luis@iesjandula.es", FECHA));
+		}
+		catch (IllegalStateException exception)
+		{
+			// Esperada.
+		}
+		this.grabacion.stop();
+
+		RecordedEvent llamada = this.unico("es.iesjandula.reaktor.Controlador");
+		assertThat(llamada.getInt("estado")).isEqualTo(500);
+		assertThat(llamada.getString("correoDocente")).isEqualTo("luis@iesjandula.es");
+	}
+
+	@Test
+	void elPoolSeEnvuelveSinProxy()
+	{
+		assertThat(this.dataSource).isInstanceOf(ConexionesJfrDataSource.class);
+		assertThat(AopUtils.isAopProxy(this.dataSource)).isFalse();
+
+		DataSource pool = ((ConexionesJfrDataSource) this.dataSource).getTargetDataSource();
+		assertThat(pool).isInstanceOf(HikariDataSource.class);
+		assertThat(AopUtils.isAopProxy(pool)).isFalse();
+		assertThat(pool.getClass()).isEqualTo(HikariDataSource.class);
+	}
+
+	/**
+	 * @param evento       Evento.
+	 * @param incidenciaId Identificador esperado.
+	 */
+	private void compruebaIncidencia(RecordedEvent evento, long incidenciaId)
+	{
+		assertThat(evento.getLong("incidenciaId")).isEqualTo(incidenciaId);
+		assertThat(evento.getString("numeroAula")).isEqualTo(AULA);
+		assertThat(evento.getString("correoDocente")).isEqualTo("ana@iesjandula.es");
+		assertThat(evento.getInstant("fechaIncidencia").toEpochMilli()).isEqualTo(FECHA.getTime());
+	}
+
+	/**
+	 * @param nombre Nombre del tipo de evento.
+	 * @return El único evento recibido de ese tipo.
+	 */
+	private RecordedEvent unico(String nombre)
+	{
+		List<RecordedEvent> recibidos = this.eventos(nombre);
+		assertThat(recibidos).hasSize(1);
+		return recibidos.get(0);
+	}
+
+	/**
+	 * @param nombre Nombre del tipo de evento.
+	 * @return Los eventos recibidos de ese tipo.
+	 */
+	private List<RecordedEvent> eventos(String nombre)
+	{
+		synchronized (this.eventos)
+		{
+			return this.eventos.stream().filter(evento -> evento.getEventType().getName().equals(nombre)).toList();
+		}
+	}
+
+	/**
+	 * Controlador de la prueba: busca una incidencia por su clave natural.
+	 */
+	@RestController
+	static class Controlador
+	{
+		@Autowired
+		private IIncidenciaStorage iIncidenciaStorage;
+
+		/**
+		 * @param clave Clave natural.
+		 * @return La incidencia.
+		 */
+		public ResponseEntity<?> obten(IncidenciaEntityId clave)
+		{
+			Optional<IncidenciaEntity> incidencia = this.iIncidenciaStorage.buscaPorClave(clave);
+			return ResponseEntity.of(incidencia);
+		}
+
+		/**
+		 * @param clave Clave natural.
+		 * @return Nunca devuelve.
+		 */
+		public ResponseEntity<?> falla(IncidenciaEntityId clave)
+		{
+			throw new IllegalStateException("Fallo de la prueba");
+		}
+	}
+}
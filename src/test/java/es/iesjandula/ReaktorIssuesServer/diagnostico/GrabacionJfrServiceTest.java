@@ -0,0 +1,122 @@
+package es.iesjandula.ReaktorIssuesServer.diagnostico;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.dto.GrabacionDTO;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Grabación bajo demanda: límites acotados por la configuración, una sola grabación a la vez y volcados
+ * con los eventos de la aplicación y sin los que pueden contener credenciales.
+ */
+class GrabacionJfrServiceTest
+{
+	@TempDir
+	Path directorio;
+
+	/** Servicio de la prueba: como mucho 10 minutos de historia, 20MB y una hora. */
+	private GrabacionJfrService servicio;
+
+	@BeforeEach
+	void crea()
+	{
+		this.servicio = new GrabacionJfrService("default", Duration.ofMinutes(10), DataSize.ofMegabytes(20),
+				Duration.ofHours(1), this.directorio.toString());
+	}
+
+	@AfterEach
+	void descarta()
+	{
+		this.servicio.descarta();
+	}
+
+	@Test
+	void rechazaLimitesNoValidosOQueSuperanLosConfigurados()
+	{
+		for (String[] limites : List.of(new String[] { "11m", null, null }, new String[] { "0s", null, null },
+				new String[] { "diez", null, null }, new String[] { null, "21MB", null },
+				new String[] { null, "0B", null }, new String[] { null, "mucho", null },
+				new String[] { null, null, "PT2H" }, new String[] { null, null, "-1m" }))
+		{
+			assertThatThrownBy(() -> this.servicio.inicia(limites[0], limites[1], limites[2]))
+					.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(22));
+		}
+		assertThatThrownBy(() -> this.servicio.estado())
+				.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(21));
+	}
+
+	@Test
+	void iniciaConLosLimitesPedidosOLosMaximos() throws Exception
+	{
+		GrabacionDTO grabacion = this.servicio.inicia("5m", "10MB", "PT30M");
+		assertThat(grabacion.getEstado()).isEqualTo("RUNNING");
+		assertThat(grabacion.getVentana()).isEqualTo("PT5M");
+		assertThat(grabacion.getTamanoMaximo()).isEqualTo(DataSize.ofMegabytes(10).toBytes());
+		assertThat(grabacion.getFin().getTime() - grabacion.getInicio().getTime())
+				.isEqualTo(Duration.ofMinutes(30).toMillis());
+		this.servicio.detiene();
+
+		grabacion = this.servicio.inicia(null, " ", null);
+		assertThat(grabacion.getVentana()).isEqualTo("PT10M");
+		assertThat(grabacion.getTamanoMaximo()).isEqualTo(DataSize.ofMegabytes(20).toBytes());
+	}
+
+	@Test
+	void soloHayUnaGrabacionEnCurso() throws Exception
+	{
+		long id = this.servicio.inicia(null, null, null).getId();
+
+		assertThatThrownBy(() -> this.servicio.inicia(null, null, null))
+				.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(20));
+		assertThat(this.servicio.estado().getId()).isEqualTo(id);
+
+		Files.delete(this.servicio.detiene());
+		assertThatThrownBy(() -> this.servicio.detiene())
+				.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(21));
+	}
+
+	@Test
+	void elVolcadoTieneLosEventosDeLaAplicacionYNoLosSensibles() throws Exception
+	{
+		this.servicio.inicia(null, null, null);
+
+		ControladorJfrEvent evento = new ControladorJfrEvent();
+		evento.begin();
+		evento.numeroAula = "jfr.2";
+		evento.controlador = "Prueba";
+		evento.estado = 201;
+		evento.commit();
+
+		// Volcar no detiene la grabación.
+		Path parcial = this.servicio.vuelca();
+		assertThat(this.servicio.estado().getEstado()).isEqualTo("RUNNING");
+		Path completo = this.servicio.detiene();
+
+		for (Path fichero : List.of(parcial, completo))
+		{
+			assertThat(fichero.getParent()).isEqualTo(this.directorio);
+			List<RecordedEvent> eventos = RecordingFile.readAllEvents(fichero);
+			assertThat(eventos).filteredOn(registrado -> registrado.getEventType().getName()
+					.equals("es.iesjandula.reaktor.Controlador")).singleElement().satisfies(registrado -> {
+						assertThat(registrado.getString("numeroAula")).isEqualTo("jfr.2");
+						assertThat(registrado.getInt("estado")).isEqualTo(201);
+					});
+			assertThat(eventos).extracting(registrado -> registrado.getEventType().getName()).doesNotContain(
+					"jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package es.iesjandula.ReaktorIssuesServer.idempotencia;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.iesjandula.ReaktorIssuesServer.datasource.DocenteContextInterceptor;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Repetición de respuestas, peticiones duplicadas concurrentes, caducidad y reutilización de claves del
+ * filtro de idempotencia, con una cadena que crea una incidencia numerada por cada petición que la alcanza.
+ */
+class IdempotenciaFilterTest
+{
+	/** Cuerpo de las peticiones de la prueba. */
+	private static final String CUERPO = "{\"numeroAula\":\"1.1\",\"descripcionIncidencia\":\"Proyector\"}";
+
+	/** Peticiones que han llegado al controlador. */
+	private final AtomicInteger ejecutadas = new AtomicInteger();
+
+	/** Hilos de las pruebas concurrentes. */
+	private final ExecutorService hilos = Executors.newFixedThreadPool(2);
+
+	@AfterEach
+	void cierra()
+	{
+		this.hilos.shutdownNow();
+	}
+
+	@Test
+	void laSegundaPeticionRecibeLaRespuestaDeLaPrimera() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+
+		MockHttpServletResponse primera = this.envia(filtro, "clave-1", CUERPO, this.crea());
+		MockHttpServletResponse segunda = this.envia(filtro, "clave-1", CUERPO, this.crea());
+
+		assertThat(this.ejecutadas).hasValue(1);
+		assertThat(primera.getStatus()).isEqualTo(201);
+		assertThat(primera.getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isNull();
+		assertThat(segunda.getStatus()).isEqualTo(201);
+		assertThat(segunda.getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isEqualTo("true");
+		assertThat(segunda.getHeader(HttpHeaders.LOCATION)).isEqualTo(primera.getHeader(HttpHeaders.LOCATION));
+		assertThat(segunda.getContentAsString()).isEqualTo(primera.getContentAsString()).isEqualTo("incidencia 1");
+	}
+
+	@Test
+	void reutilizarLaClaveConOtroCuerpoEsUnError() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+
+		this.envia(filtro, "clave-1", CUERPO, this.crea());
+		MockHttpServletResponse otra = this.envia(filtro, "clave-1", CUERPO.replace("1.1", "2.1"), this.crea());
+
+		assertThat(otra.getStatus()).isEqualTo(422);
+		assertThat(otra.getContentAsString()).contains("\"id\":\"16\"");
+		assertThat(this.ejecutadas).hasValue(1);
+	}
+
+	@Test
+	void laMismaClaveDeOtroDocenteEsOtraPeticion() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+
+		MockHttpServletResponse ana = this.envia(filtro, "clave-1", CUERPO, "ana@iesjandula.es", this.crea());
+		MockHttpServletResponse luis = this.envia(filtro, "clave-1", CUERPO, "luis@iesjandula.es", this.crea());
+
+		assertThat(this.ejecutadas).hasValue(2);
+		assertThat(luis.getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isNull();
+		assertThat(luis.getContentAsString()).isNotEqualTo(ana.getContentAsString());
+	}
+
+	@Test
+	void unDuplicadoConcurrenteEsperaALaOriginalYRepiteSuRespuesta() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+		CountDownLatch enCurso = new CountDownLatch(1);
+		CountDownLatch termina = new CountDownLatch(1);
+		FilterChain lenta = (request, response) -> {
+			enCurso.countDown();
+			try
+			{
+				termina.await(10, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException exception)
+			{
+				Thread.currentThread().interrupt();
+			}
+			this.crea().doFilter(request, response);
+		};
+
+		Future<MockHttpServletResponse> original = this.hilos.submit(() -> this.envia(filtro, "clave-1", CUERPO, lenta));
+		assertThat(enCurso.await(10, TimeUnit.SECONDS)).isTrue();
+		Future<MockHttpServletResponse> duplicada = this.hilos.submit(() -> this.envia(filtro, "clave-1", CUERPO, this.crea()));
+
+		// El duplicado no llega al controlador mientras la original sigue en curso.
+		Thread.sleep(200);
+		assertThat(duplicada.isDone()).isFalse();
+		termina.countDown();
+
+		assertThat(original.get(10, TimeUnit.SECONDS).getContentAsString()).isEqualTo("incidencia 1");
+		assertThat(duplicada.get(10, TimeUnit.SECONDS).getContentAsString()).isEqualTo("incidencia 1");
+		assertThat(duplicada.get().getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isEqualTo("true");
+		assertThat(this.ejecutadas).hasValue(1);
+	}
+
+	@Test
+	void losErroresDelServidorNoSeGuardanYSePuedenReintentar() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+		FilterChain falla = (request, response) -> {
+			this.ejecutadas.incrementAndGet();
+			((HttpServletResponse) response).setStatus(503);
+		};
+
+		assertThat(this.envia(filtro, "clave-1", CUERPO, falla).getStatus()).isEqualTo(503);
+		MockHttpServletResponse reintento = this.envia(filtro, "clave-1", CUERPO, this.crea());
+
+		assertThat(reintento.getStatus()).isEqualTo(201);
+		assertThat(reintento.getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isNull();
+		assertThat(this.ejecutadas).hasValue(2);
+	}
+
+	@Test
+	void trasCaducarLaClaveSeEjecutaDeNuevo() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofMillis(50));
+
+		this.envia(filtro, "clave-1", CUERPO, this.crea());
+		Thread.sleep(100);
+		MockHttpServletResponse despues = this.envia(filtro, "clave-1", CUERPO, this.crea());
+
+		assertThat(despues.getHeader(IdempotenciaFilter.CABECERA_REPETIDA)).isNull();
+		assertThat(despues.getContentAsString()).isEqualTo("incidencia 2");
+	}
+
+	@Test
+	void elCuerpoSePuedeLeerDeFormaAsincrona() throws Exception
+	{
+		IdempotenciaFilter filtro = this.filtro(Duration.ofHours(1));
+		StringBuilder leido = new StringBuilder();
+		AtomicInteger completas = new AtomicInteger();
+		FilterChain asincrona = (request, response) -> {
+			ServletInputStream entrada = request.getInputStream();
+			entrada.setReadListener(new ReadListener()
+			{
+				@Override
+				public void onDataAvailable() throws IOException
+				{
+					while (entrada.isReady() && !entrada.isFinished())
+					{
+						leido.append((char) entrada.read());
+					}
+				}
+
+				@Override
+				public void onAllDataRead()
+				{
+					completas.incrementAndGet();
+				}
+
+				@Override
+				public void onError(Throwable throwable)
+				{
+					throw new AssertionError(throwable);
+				}
+			});
+			this.crea().doFilter(request, response);
+		};
+
+		this.envia(filtro, "clave-1", CUERPO, asincrona);
+
+		assertThat(leido.toString()).isEqualTo(CUERPO);
+		assertThat(completas).hasValue(1);
+	}
+
+	/**
+	 * @param ttl Tiempo durante el que se recuerda cada respuesta.
+	 * @return Un filtro con su propio almacén.
+	 */
+	private IdempotenciaFilter filtro(Duration ttl)
+	{
+		IdempotenciaFilter filtro = new IdempotenciaFilter();
+		ReflectionTestUtils.setField(filtro, "idempotenciaStore", new IdempotenciaStore(100, ttl, ""));
+		ReflectionTestUtils.setField(filtro, "habilitada", true);
+		ReflectionTestUtils.setField(filtro, "espera", Duration.ofSeconds(10));
+		return filtro;
+	}
+
+	/**
+	 * @return Una cadena que crea una incidencia y responde 201 con su número.
+	 */
+	private FilterChain crea()
+	{
+		return (request, response) -> {
+			request.getInputStream().readAllBytes();
+			int numero = this.ejecutadas.incrementAndGet();
+			HttpServletResponse respuesta = (HttpServletResponse) response;
+			respuesta.setStatus(201);
+			respuesta.setHeader(HttpHeaders.LOCATION, "/incidencias/" + numero);
+			respuesta.setContentType("text/plain");
+			respuesta.getOutputStream().write(("incidencia " + numero).getBytes(StandardCharsets.UTF_8));
+		};
+	}
+
+	/**
+	 * @param filtro Filtro.
+	 * @param clave  Clave de idempotencia.
+	 * @param cuerpo Cuerpo de la petición.
+	 * @param cadena Cadena de filtros.
+	 * @return La respuesta de {@code PUT /incidencias} de ana@iesjandula.es.
+	 * @throws Exception Si falla el filtro.
+	 */
+	private MockHttpServletResponse envia(IdempotenciaFilter filtro, String clave, String cuerpo, FilterChain cadena)
+			throws Exception
+	{
+		return this.envia(filtro, clave, cuerpo, "ana@iesjandula.es", cadena);
+	}
+
+	/**
+	 * @param filtro        Filtro.
+	 * @param clave         Clave de idempotencia.
+	 * @param cuerpo        Cuerpo de la petición.
+	 * @param correoDocente Docente.
+	 * @param cadena        Cadena de filtros.
+	 * @return La respuesta de {@code PUT /incidencias}.
+	 * @throws Exception Si falla el filtro.
+	 */
+	private MockHttpServletResponse envia(IdempotenciaFilter filtro, String clave, String cuerpo, String correoDocente,
+			FilterChain cadena) throws Exception
+	{
+		MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/incidencias");
+		request.setServletPath("/incidencias");
+		request.addHeader(IdempotenciaFilter.CABECERA_CLAVE, clave);
+		request.addHeader(DocenteContextInterceptor.CABECERA_CORREO_DOCENTE, correoDocente);
+		request.setContent(cuerpo.getBytes(StandardCharsets.UTF_8));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		filtro.doFilter(request, response, cadena);
+		return response;
+	}
+}
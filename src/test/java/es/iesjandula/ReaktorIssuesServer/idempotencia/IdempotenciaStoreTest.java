@@ -0,0 +1,70 @@
+package es.iesjandula.ReaktorIssuesServer.idempotencia;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Retirada de entradas del almacén de idempotencia al superar el máximo.
+ */
+class IdempotenciaStoreTest
+{
+	@Test
+	void alSuperarElMaximoSeOlvidaLaMasAntiguaTerminada()
+	{
+		IdempotenciaStore almacen = new IdempotenciaStore(2, Duration.ofHours(1), "");
+		IdempotenciaStore.Entrada a = this.terminada(almacen, "a");
+		this.terminada(almacen, "b");
+
+		this.terminada(almacen, "c");
+
+		assertThat(almacen.reserva(almacen.crea("a", "huella"))).isNotSameAs(a);
+	}
+
+	@Test
+	void unaPeticionEnCursoNoSeOlvidaAunqueSeaLaMasAntigua()
+	{
+		IdempotenciaStore almacen = new IdempotenciaStore(2, Duration.ofHours(1), "");
+		IdempotenciaStore.Entrada enCurso = almacen.reserva(almacen.crea("a", "huella"));
+		IdempotenciaStore.Entrada b = this.terminada(almacen, "b");
+
+		this.terminada(almacen, "c");
+
+		// Se olvida b, la siguiente más antigua, y a conserva su reserva.
+		assertThat(almacen.reserva(almacen.crea("a", "huella"))).isSameAs(enCurso);
+		assertThat(almacen.reserva(almacen.crea("b", "huella"))).isNotSameAs(b);
+	}
+
+	@Test
+	void siTodasEstanEnCursoSeSuperaElMaximoHastaQueTerminen()
+	{
+		IdempotenciaStore almacen = new IdempotenciaStore(2, Duration.ofHours(1), "");
+		IdempotenciaStore.Entrada a = almacen.reserva(almacen.crea("a", "huella"));
+		IdempotenciaStore.Entrada b = almacen.reserva(almacen.crea("b", "huella"));
+
+		IdempotenciaStore.Entrada c = almacen.reserva(almacen.crea("c", "huella"));
+
+		assertThat(almacen.reserva(almacen.crea("a", "huella"))).isSameAs(a);
+		assertThat(almacen.reserva(almacen.crea("b", "huella"))).isSameAs(b);
+		assertThat(almacen.reserva(almacen.crea("c", "huella"))).isSameAs(c);
+
+		// Al terminar, la siguiente reserva vuelve a respetar el máximo.
+		almacen.completa(a, new RespuestaGuardada(null, null, 201, null, null, new byte[0], 0));
+		almacen.reserva(almacen.crea("d", "huella"));
+		assertThat(almacen.reserva(almacen.crea("a", "huella"))).isNotSameAs(a);
+	}
+
+	/**
+	 * @param almacen Almacén.
+	 * @param clave   Clave.
+	 * @return La entrada de una petición con esa clave ya terminada.
+	 */
+	private IdempotenciaStore.Entrada terminada(IdempotenciaStore almacen, String clave)
+	{
+		IdempotenciaStore.Entrada entrada = almacen.reserva(almacen.crea(clave, "huella"));
+		almacen.completa(entrada, new RespuestaGuardada(null, null, 201, null, null, new byte[0], 0));
+		return entrada;
+	}
+}
@@ -0,0 +1,294 @@
+package es.iesjandula.ReaktorIssuesServer.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Compara en MySQL/InnoDB la clave primaria compuesta anterior con el identificador sustituto: tiempo de
+ * inserción, tamaño de cada índice y latencia de la búsqueda puntual.
+ * <p>
+ * Las dos tablas tienen los índices secundarios actuales por (estado, fecha) y por fecha, que en InnoDB
+ * repiten la clave primaria en cada entrada. Solo se ejecuta si se indica la base de datos:
+ * </p>
+ * <pre>
+ * mvn test -Dtest=IncidenciaIdBenchmarkTest -Dbenchmark.url=jdbc:mysql://localhost:3306/benchmark \
+ *     -Dbenchmark.usuario=root -Dbenchmark.clave=toor [-Dbenchmark.filas=200000]
+ * </pre>
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "benchmark.url", matches = ".+")
+class IncidenciaIdBenchmarkTest
+{
+	/** Esquema anterior: clave primaria compuesta, en el orden de columnas que generaba Hibernate. */
+	private static final String TABLA_COMPUESTA = "CREATE TABLE bench_compuesta ("
+			+ "numero_aula VARCHAR(255) NOT NULL, correo_docente VARCHAR(255) NOT NULL, "
+			+ "fecha_incidencia DATETIME(6) NOT NULL, comentario TEXT, descripcion_incidencia TEXT, "
+			+ "estado_incidencia VARCHAR(255), PRIMARY KEY (correo_docente, fecha_incidencia, numero_aula), "
+			+ "INDEX idx_estado_fecha (estado_incidencia, fecha_incidencia), INDEX idx_fecha (fecha_incidencia)) "
+			+ "ENGINE=InnoDB";
+
+	/** Esquema actual: identificador sustituto y clave natural como restricción única. */
+	private static final String TABLA_TSID = "CREATE TABLE bench_tsid (id BIGINT NOT NULL, "
+			+ "numero_aula VARCHAR(255) NOT NULL, correo_docente VARCHAR(255) NOT NULL, "
+			+ "fecha_incidencia DATETIME(6) NOT NULL, comentario TEXT, descripcion_incidencia TEXT, "
+			+ "estado_incidencia VARCHAR(255), PRIMARY KEY (id), "
+			+ "CONSTRAINT " + IncidenciaEntity.UK_CLAVE_NATURAL + " UNIQUE (numero_aula, correo_docente, fecha_incidencia), "
+			+ "INDEX idx_estado_fecha (estado_incidencia, fecha_incidencia), INDEX idx_fecha (fecha_incidencia)) "
+			+ "ENGINE=InnoDB";
+
+	/** Estados posibles de las incidencias generadas. */
+	private static final String[] ESTADOS = { "PENDIENTE", "EN PROGRESO", "RESUELTA", "CANCELADA" };
+
+	/** Filas por lote de inserción. */
+	private static final int LOTE = 1000;
+
+	/** Búsquedas medidas por esquema, tras otras tantas de calentamiento. */
+	private static final int BUSQUEDAS = 20000;
+
+	@Test
+	void comparaClaveCompuestaConIdentificadorSustituto() throws SQLException
+	{
+		int filas = Integer.getInteger("benchmark.filas", 200000);
+		List<Fila> datos = genera(filas);
+
+		try (Connection conexion = DriverManager.getConnection(System.getProperty("benchmark.url"),
+				System.getProperty("benchmark.usuario", "root"), System.getProperty("benchmark.clave", "")))
+		{
+			try (Statement sentencia = conexion.createStatement())
+			{
+				sentencia.execute("DROP TABLE IF EXISTS bench_compuesta");
+				sentencia.execute("DROP TABLE IF EXISTS bench_tsid");
+				sentencia.execute(TABLA_COMPUESTA);
+				sentencia.execute(TABLA_TSID);
+			}
+
+			long insercionCompuesta = inserta(conexion, datos, false);
+			long insercionTsid = inserta(conexion, datos, true);
+
+			Map<String, Long> indicesCompuesta = tamanoIndices(conexion, "bench_compuesta");
+			Map<String, Long> indicesTsid = tamanoIndices(conexion, "bench_tsid");
+
+			Random azar = new Random(7);
+			List<Fila> muestra = new ArrayList<Fila>(2 * BUSQUEDAS);
+			for (int i = 0; i < 2 * BUSQUEDAS; i++)
+			{
+				muestra.add(datos.get(azar.nextInt(datos.size())));
+			}
+			long[] porClaveCompuesta = busca(conexion, "SELECT * FROM bench_compuesta "
+					+ "WHERE numero_aula = ? AND correo_docente = ? AND fecha_incidencia = ?", muestra, false);
+			long[] porId = busca(conexion, "SELECT * FROM bench_tsid WHERE id = ?", muestra, true);
+			long[] porClaveNatural = busca(conexion, "SELECT * FROM bench_tsid "
+					+ "WHERE numero_aula = ? AND correo_docente = ? AND fecha_incidencia = ?", muestra, false);
+
+			log.info("Filas: {}", filas);
+			log.info("Insercion (lotes de {}): compuesta {} ms, tsid {} ms", LOTE, insercionCompuesta, insercionTsid);
+			log.info("Indices compuesta (KB): {}", indicesCompuesta);
+			log.info("Indices tsid (KB): {}", indicesTsid);
+			log.info("Busqueda puntual (us, p50/p99): compuesta por clave {}, tsid por id {}, tsid por clave natural {}",
+					percentiles(porClaveCompuesta), percentiles(porId), percentiles(porClaveNatural));
+
+			assertThat(cuenta(conexion, "bench_compuesta")).isEqualTo(filas);
+			assertThat(cuenta(conexion, "bench_tsid")).isEqualTo(filas);
+		}
+	}
+
+	/**
+	 * Genera incidencias en orden cronológico, como llegan en producción, repartidas entre aulas y docentes.
+	 *
+	 * @param filas Número de incidencias.
+	 * @return Las incidencias.
+	 */
+	private static List<Fila> genera(int filas)
+	{
+		Random azar = new Random(1);
+		List<Fila> datos = new ArrayList<Fila>(filas);
+		long fecha = TsidGenerator.EPOCA;
+		for (int i = 0; i < filas; i++)
+		{
+			fecha += 1 + azar.nextInt(120000);
+			datos.add(new Fila(TsidGenerator.compone(fecha, 0, 0), azar.nextInt(4) + "." + (1 + azar.nextInt(40)),
+					"docente" + azar.nextInt(300) + "@iesjandula.es", new Timestamp(fecha), ESTADOS[azar.nextInt(4)]));
+		}
+		return datos;
+	}
+
+	/**
+	 * @param conexion Conexión.
+	 * @param datos    Incidencias.
+	 * @param tsid     Si se inserta en la tabla con identificador sustituto.
+	 * @return Milisegundos empleados.
+	 * @throws SQLException Si falla la inserción.
+	 */
+	private static long inserta(Connection conexion, List<Fila> datos, boolean tsid) throws SQLException
+	{
+		String sql = tsid
+				? "INSERT INTO bench_tsid (numero_aula, correo_docente, fecha_incidencia, descripcion_incidencia, "
+						+ "estado_incidencia, id) VALUES (?, ?, ?, ?, ?, ?)"
+				: "INSERT INTO bench_compuesta (numero_aula, correo_docente, fecha_incidencia, descripcion_incidencia, "
+						+ "estado_incidencia) VALUES (?, ?, ?, ?, ?)";
+		String descripcion = "El proyector del aula no enciende y el mando no responde. ".repeat(2);
+
+		long inicio = System.nanoTime();
+		conexion.setAutoCommit(false);
+		try (PreparedStatement sentencia = conexion.prepareStatement(sql))
+		{
+			for (int i = 0; i < datos.size(); i++)
+			{
+				Fila fila = datos.get(i);
+				sentencia.setString(1, fila.numeroAula());
+				sentencia.setString(2, fila.correoDocente());
+				sentencia.setTimestamp(3, fila.fecha());
+				sentencia.setString(4, descripcion);
+				sentencia.setString(5, fila.estado());
+				if (tsid)
+				{
+					sentencia.setLong(6, fila.id());
+				}
+				sentencia.addBatch();
+				if ((i + 1) % LOTE == 0 || i == datos.size() - 1)
+				{
+					sentencia.executeBatch();
+					conexion.commit();
+				}
+			}
+		}
+		finally
+		{
+			conexion.setAutoCommit(true);
+		}
+		return (System.nanoTime() - inicio) / 1_000_000;
+	}
+
+	/**
+	 * @param conexion Conexión.
+	 * @param tabla    Tabla.
+	 * @return Tamaño de cada índice en KB según las estadísticas persistentes de InnoDB.
+	 * @throws SQLException Si falla la consulta.
+	 */
+	private static Map<String, Long> tamanoIndices(Connection conexion, String tabla) throws SQLException
+	{
+		try (Statement sentencia = conexion.createStatement())
+		{
+			sentencia.execute("ANALYZE TABLE " + tabla);
+		}
+
+		Map<String, Long> tamanos = new LinkedHashMap<String, Long>();
+		try (PreparedStatement sentencia = conexion.prepareStatement("SELECT index_name, stat_value * @@innodb_page_size / 1024 "
+				+ "FROM mysql.innodb_index_stats WHERE database_name = DATABASE() AND table_name = ? "
+				+ "AND stat_name = 'size' ORDER BY index_name"))
+		{
+			sentencia.setString(1, tabla);
+			try (ResultSet resultado = sentencia.executeQuery())
+			{
+				while (resultado.next())
+				{
+					tamanos.put(resultado.getString(1), resultado.getLong(2));
+				}
+			}
+		}
+		return tamanos;
+	}
+
+	/**
+	 * Ejecuta una búsqueda puntual por cada fila de la muestra; la primera mitad calienta el buffer pool.
+	 *
+	 * @param conexion Conexión.
+	 * @param sql      Consulta con la clave natural o con el identificador como parámetros.
+	 * @param muestra  Filas a buscar.
+	 * @param porId    Si la consulta recibe el identificador.
+	 * @return Latencia en microsegundos de cada búsqueda medida.
+	 * @throws SQLException Si falla la consulta.
+	 */
+	private static long[] busca(Connection conexion, String sql, List<Fila> muestra, boolean porId) throws SQLException
+	{
+		long[] latencias = new long[BUSQUEDAS];
+		try (PreparedStatement sentencia = conexion.prepareStatement(sql))
+		{
+			for (int i = 0; i < muestra.size(); i++)
+			{
+				Fila fila = muestra.get(i);
+				if (porId)
+				{
+					sentencia.setLong(1, fila.id());
+				}
+				else
+				{
+					sentencia.setString(1, fila.numeroAula());
+					sentencia.setString(2, fila.correoDocente());
+					sentencia.setTimestamp(3, fila.fecha());
+				}
+
+				long inicio = System.nanoTime();
+				try (ResultSet resultado = sentencia.executeQuery())
+				{
+					assertThat(resultado.next()).isTrue();
+				}
+				if (i >= BUSQUEDAS)
+				{
+					latencias[i - BUSQUEDAS] = (System.nanoTime() - inicio) / 1000;
+				}
+			}
+		}
+		return latencias;
+	}
+
+	/**
+	 * @param latencias Latencias en microsegundos.
+	 * @return Los percentiles 50 y 99.
+	 */
+	private static String percentiles(long[] latencias)
+	{
+		long[] ordenadas = latencias.clone();
+		Arrays.sort(ordenadas);
+		return ordenadas[ordenadas.length / 2] + "/" + ordenadas[ordenadas.length * 99 / 100];
+	}
+
+	/**
+	 * @param conexion Conexión.
+	 * @param tabla    Tabla.
+	 * @return Número de filas.
+	 * @throws SQLException Si falla la consulta.
+	 */
+	private static int cuenta(Connection conexion, String tabla) throws SQLException
+	{
+		try (Statement sentencia = conexion.createStatement();
+				ResultSet resultado = sentencia.executeQuery("SELECT COUNT(*) FROM " + tabla))
+		{
+			resultado.next();
+			return resultado.getInt(1);
+		}
+	}
+
+	/**
+	 * Incidencia generada para el benchmark.
+	 *
+	 * @param id            Identificador sustituto.
+	 * @param numeroAula    Aula.
+	 * @param correoDocente Docente.
+	 * @param fecha         Fecha.
+	 * @param estado        Estado.
+	 */
+	private record Fila(long id, String numeroAula, String correoDocente, Timestamp fecha, String estado)
+	{
+	}
+}
@@ -0,0 +1,156 @@
+package es.iesjandula.ReaktorIssuesServer.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+
+/**
+ * Migración de la clave primaria compuesta al identificador sustituto sobre H2 en modo MySQL, con filas
+ * anteriores a la época de los identificadores y una ejecución interrumpida.
+ */
+class IncidenciaIdMigrationTest
+{
+	/** Esquema anterior: clave primaria compuesta. */
+	private static final String TABLA_COMPUESTA = "CREATE TABLE incidencias ("
+			+ "numero_aula VARCHAR(255) NOT NULL, correo_docente VARCHAR(255) NOT NULL, "
+			+ "fecha_incidencia DATETIME(6) NOT NULL, comentario TEXT, descripcion_incidencia TEXT, "
+			+ "estado_incidencia VARCHAR(255), PRIMARY KEY (correo_docente, fecha_incidencia, numero_aula))";
+
+	/** Origen de datos de la prueba, sobre una base de datos propia. */
+	private DriverManagerDataSource dataSource;
+
+	/** Acceso JDBC a la base de datos de la prueba. */
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void creaTablaAntigua()
+	{
+		this.dataSource = new DriverManagerDataSource("jdbc:h2:mem:migracion-" + UUID.randomUUID()
+				+ ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+		this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+		this.jdbcTemplate.execute(TABLA_COMPUESTA);
+
+		this.inserta("1.1", "2022-03-01T08:00:00Z");
+		this.inserta("1.2", "2023-11-30T12:00:00Z");
+		this.inserta("2.1", "2024-05-01T10:00:00Z");
+		this.inserta("2.2", "2024-05-01T10:00:00Z");
+		this.inserta("3.1", "2025-01-15T09:30:00Z");
+	}
+
+	@Test
+	void lasFilasAnterioresALaEpocaNoRecibenIdentificadoresNegativos() throws Exception
+	{
+		this.migra();
+
+		List<Long> ids = this.idsPorFecha();
+		assertThat(ids).doesNotContainNull().allSatisfy(id -> assertThat(id).isNotNegative());
+		assertThat(ids).isSorted().doesNotHaveDuplicates();
+		assertThat(TsidGenerator.instante(ids.get(0))).isEqualTo(TsidGenerator.EPOCA);
+		assertThat(TsidGenerator.instante(ids.get(1))).isEqualTo(TsidGenerator.EPOCA);
+		assertThat(TsidGenerator.instante(ids.get(4)))
+				.isEqualTo(Instant.parse("2025-01-15T09:30:00Z").toEpochMilli());
+
+		this.compruebaEsquemaFinal();
+	}
+
+	@Test
+	void continuaUnaMigracionInterrumpidaTrasAnadirLaColumna() throws Exception
+	{
+		// Ejecución anterior detenida tras añadir la columna y asignar el primer lote.
+		this.jdbcTemplate.execute("ALTER TABLE incidencias ADD COLUMN id BIGINT NULL FIRST");
+		long primero = TsidGenerator.compone(Instant.parse("2022-03-01T08:00:00Z").toEpochMilli(), 0, 0);
+		this.jdbcTemplate.update("UPDATE incidencias SET id = ? WHERE numero_aula = '1.1'", primero);
+
+		this.migra();
+
+		List<Long> ids = this.idsPorFecha();
+		assertThat(ids).doesNotContainNull().doesNotHaveDuplicates().isSorted().startsWith(primero);
+		this.compruebaEsquemaFinal();
+
+		// Con la tabla en su estado final no se vuelve a tocar.
+		this.migra();
+		assertThat(this.idsPorFecha()).isEqualTo(ids);
+	}
+
+	@Test
+	void continuaUnaMigracionInterrumpidaTrasQuitarLaClavePrimaria() throws Exception
+	{
+		this.jdbcTemplate.execute("ALTER TABLE incidencias ADD COLUMN id BIGINT NULL FIRST");
+		this.jdbcTemplate.execute("ALTER TABLE incidencias DROP PRIMARY KEY");
+
+		this.migra();
+
+		assertThat(this.idsPorFecha()).doesNotContainNull().doesNotHaveDuplicates();
+		this.compruebaEsquemaFinal();
+	}
+
+	/**
+	 * Ejecuta la migración como al arrancar.
+	 *
+	 * @throws Exception Si falla la migración.
+	 */
+	private void migra() throws Exception
+	{
+		new IncidenciaIdMigration(this.dataSource, true).afterPropertiesSet();
+	}
+
+	/**
+	 * Comprueba que la clave primaria es {@code id} y que la clave natural sigue siendo única.
+	 *
+	 * @throws SQLException Si falla la lectura de los metadatos.
+	 */
+	private void compruebaEsquemaFinal() throws SQLException
+	{
+		List<String> clavePrimaria = new ArrayList<String>();
+		try (Connection conexion = this.dataSource.getConnection();
+				ResultSet claves = conexion.getMetaData().getPrimaryKeys(conexion.getCatalog(), null, "incidencias"))
+		{
+			while (claves.next())
+			{
+				clavePrimaria.add(claves.getString("COLUMN_NAME"));
+			}
+		}
+		assertThat(clavePrimaria).containsExactly("id");
+
+		assertThatThrownBy(() -> this.jdbcTemplate.update("INSERT INTO incidencias (id, numero_aula, correo_docente, "
+				+ "fecha_incidencia) VALUES (1, '3.1', 'ana@iesjandula.es', ?)",
+				Timestamp.from(Instant.parse("2025-01-15T09:30:00Z"))))
+				.isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	/**
+	 * @return Los identificadores de las filas en orden cronológico y, a igual fecha, por identificador.
+	 */
+	private List<Long> idsPorFecha()
+	{
+		return this.jdbcTemplate.queryForList("SELECT id FROM incidencias ORDER BY fecha_incidencia, id",
+				Long.class);
+	}
+
+	/**
+	 * @param numeroAula Aula.
+	 * @param fecha      Fecha de la incidencia en formato ISO-8601.
+	 */
+	private void inserta(String numeroAula, String fecha)
+	{
+		this.jdbcTemplate.update("INSERT INTO incidencias (numero_aula, correo_docente, fecha_incidencia, "
+				+ "estado_incidencia) VALUES (?, 'ana@iesjandula.es', ?, 'PENDIENTE')", numeroAula,
+				Timestamp.from(Instant.parse(fecha)));
+	}
+}
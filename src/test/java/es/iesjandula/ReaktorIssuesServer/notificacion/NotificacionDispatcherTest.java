@@ -0,0 +1,202 @@
+package es.iesjandula.ReaktorIssuesServer.notificacion;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import es.iesjandula.ReaktorIssuesServer.entity.NotificacionOutboxEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.INotificacionOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Despacho de la tabla outbox sobre H2: la entrega se hace fuera de cualquier transacción y sin filas
+ * bloqueadas, y el resultado se registra después.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({ NotificacionDispatcher.class, NotificacionProperties.class, NotificacionDispatcherTest.Canal.class })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class NotificacionDispatcherTest
+{
+	@Autowired
+	private NotificacionDispatcher notificacionDispatcher;
+
+	@Autowired
+	private NotificacionProperties notificacionProperties;
+
+	@Autowired
+	private INotificacionOutboxRepository iNotificacionOutboxRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private CanalDePrueba canal;
+
+	@BeforeEach
+	void vaciaTabla()
+	{
+		this.iNotificacionOutboxRepository.deleteAllInBatch();
+		this.notificacionProperties.setMaxIntentos(8);
+		this.canal.entregas.clear();
+		this.canal.fallar = false;
+		this.canal.alEntregar = null;
+	}
+
+	@Test
+	void entregaFueraDeTransaccionYBorraLasEntregadas()
+	{
+		this.guarda("mantenimiento");
+		this.guarda("mantenimiento");
+		this.guarda("direccion");
+
+		List<Boolean> conTransaccion = new ArrayList<Boolean>();
+		this.canal.alEntregar = () -> conTransaccion.add(TransactionSynchronizationManager.isActualTransactionActive());
+
+		this.notificacionDispatcher.despacha();
+
+		assertThat(this.canal.entregas).containsExactlyInAnyOrder("mantenimiento:2", "direccion:1");
+		assertThat(conTransaccion).containsOnly(false);
+		assertThat(this.iNotificacionOutboxRepository.count()).isZero();
+	}
+
+	@Test
+	void lasFilasEnEntregaNoEstanBloqueadasNiSePuedenReclamar()
+	{
+		this.guarda("mantenimiento");
+
+		List<Integer> reclamables = new ArrayList<Integer>();
+		this.canal.alEntregar = () -> {
+			// Otro despachador no espera a ningún bloqueo ni reclama la fila mientras se entrega.
+			TransactionTemplate otro = new TransactionTemplate(this.transactionManager);
+			reclamables.add(otro.execute(estado -> this.iNotificacionOutboxRepository
+					.reclamaPendientes(new Date(), PageRequest.of(0, 10)).size()));
+		};
+
+		this.notificacionDispatcher.despacha();
+
+		assertThat(reclamables).containsExactly(0);
+		assertThat(this.iNotificacionOutboxRepository.count()).isZero();
+	}
+
+	@Test
+	void unFalloSeAnotaYSeReprograma()
+	{
+		this.guarda("mantenimiento");
+		this.canal.fallar = true;
+		long antes = System.currentTimeMillis();
+
+		this.notificacionDispatcher.despacha();
+
+		NotificacionOutboxEntity notificacion = this.iNotificacionOutboxRepository.findAll().get(0);
+		assertThat(notificacion.getIntentos()).isEqualTo(1);
+		assertThat(notificacion.getUltimoError()).isEqualTo("Canal caido");
+		assertThat(notificacion.isFallida()).isFalse();
+		// Reprogramada con la espera inicial (±20%), no con el plazo de entrega.
+		assertThat(notificacion.getProximoIntento().getTime() - antes).isBetween(7_000L, 13_000L);
+	}
+
+	@Test
+	void alAgotarLosIntentosQuedaFallida()
+	{
+		this.guarda("mantenimiento");
+		this.canal.fallar = true;
+		this.notificacionProperties.setMaxIntentos(1);
+
+		this.notificacionDispatcher.despacha();
+
+		NotificacionOutboxEntity notificacion = this.iNotificacionOutboxRepository.findAll().get(0);
+		assertThat(notificacion.isFallida()).isTrue();
+		assertThat(this.iNotificacionOutboxRepository.countByFallidaTrue()).isEqualTo(1);
+	}
+
+	/**
+	 * Guarda una notificación pendiente para el canal de prueba.
+	 *
+	 * @param direccion Destinatario.
+	 */
+	private void guarda(String direccion)
+	{
+		Date ahora = new Date();
+		this.iNotificacionOutboxRepository.save(new NotificacionOutboxEntity(null, CanalDePrueba.CANAL, direccion,
+				1L, "CREADA", "1.1", "ana@iesjandula.es", null, "PENDIENTE", "El proyector no enciende.", ahora, 0,
+				new Date(ahora.getTime() - 1000), false, null));
+	}
+
+	/**
+	 * Canal que anota las entregas y puede fallar a petición.
+	 */
+	static class CanalDePrueba implements INotificacionSink
+	{
+		/** Nombre del canal. */
+		static final String CANAL = "prueba";
+
+		/** Entregas realizadas, como "dirección:número de notificaciones". */
+		final List<String> entregas = new ArrayList<String>();
+
+		/** Si es true, toda entrega falla. */
+		volatile boolean fallar;
+
+		/** Acción que se ejecuta durante cada entrega. */
+		volatile Runnable alEntregar;
+
+		@Override
+		public String getCanal()
+		{
+			return CANAL;
+		}
+
+		@Override
+		public void entrega(String direccion, List<NotificacionOutboxEntity> notificaciones) throws Exception
+		{
+			if (this.alEntregar != null)
+			{
+				this.alEntregar.run();
+			}
+			if (this.fallar)
+			{
+				throw new IllegalStateException("Canal caido");
+			}
+			this.entregas.add(direccion + ":" + notificaciones.size());
+		}
+	}
+
+	/**
+	 * Canal y registro de métricas de la prueba.
+	 */
+	@TestConfiguration
+	static class Canal
+	{
+		@Bean
+		CanalDePrueba canalDePrueba()
+		{
+			return new CanalDePrueba();
+		}
+
+		@Bean
+		MeterRegistry meterRegistry()
+		{
+			return new SimpleMeterRegistry();
+		}
+	}
+}
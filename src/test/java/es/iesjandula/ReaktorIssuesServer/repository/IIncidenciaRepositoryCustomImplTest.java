@@ -0,0 +1,184 @@
+package es.iesjandula.ReaktorIssuesServer.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Proyecciones del listado sobre H2 en modo MySQL: solo se aceptan los campos de
+ * {@code Constants.CAMPOS_LISTADO}, el resumen se trunca en SQL, el identificador se devuelve como texto y
+ * los filtros nulos se ignoran en cualquier combinación.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IIncidenciaRepositoryCustomImplTest
+{
+	/** Fecha de la primera incidencia; las demás van de segundo en segundo. */
+	private static final long FECHA_BASE = 1_700_000_000_000L;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@BeforeEach
+	void vaciaTabla()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void rechazaLosCamposFueraDeLaListaBlanca()
+	{
+		this.iIncidenciaRepository.save(nueva(0, "1.1", "ana@iesjandula.es", "Proyector sin señal", "PENDIENTE", null));
+
+		for (String campo : List.of("descripcionIncidencia", "comentario", "e.descripcionIncidencia",
+				"id FROM IncidenciaEntity e --", "ID", ""))
+		{
+			assertThatThrownBy(() -> this.iIncidenciaRepository.buscaProyeccionIncidencia(List.of("id", campo), null,
+					null, null, null, null, null, null))
+					.hasMessageContaining("Campo no permitido en el listado: " + campo);
+		}
+
+		// Todos los campos de la lista blanca se aceptan y se devuelven en el orden pedido.
+		List<String> campos = new ArrayList<String>(Constants.CAMPOS_LISTADO);
+		Collections.reverse(campos);
+		assertThat(this.iIncidenciaRepository.buscaProyeccionIncidencia(campos, null, null, null, null, null, null, null))
+				.singleElement().satisfies(fila -> assertThat(fila.keySet()).containsExactlyElementsOf(campos));
+	}
+
+	@Test
+	void elResumenTieneComoMucho80Caracteres()
+	{
+		String larga = "Proyector del aula sin señal: ".repeat(10);
+		String enie = "ñ".repeat(Constants.LONG_RESUMEN_DESCRIPCION + 5);
+		String exacta = "x".repeat(Constants.LONG_RESUMEN_DESCRIPCION);
+		this.iIncidenciaRepository.save(nueva(0, "1.1", "ana@iesjandula.es", larga, "PENDIENTE", null));
+		this.iIncidenciaRepository.save(nueva(1, "1.2", "ana@iesjandula.es", enie, "PENDIENTE", null));
+		this.iIncidenciaRepository.save(nueva(2, "1.3", "ana@iesjandula.es", exacta, "PENDIENTE", null));
+		this.iIncidenciaRepository.save(nueva(3, "1.4", "ana@iesjandula.es", "Corta", "PENDIENTE", null));
+
+		List<Map<String, Object>> filas = this.iIncidenciaRepository.buscaProyeccionIncidencia(
+				List.of("numeroAula", Constants.CAMPO_RESUMEN_DESCRIPCION), null, null, null, null, null, null, null);
+
+		// Se trunca por caracteres, no por bytes, y sin añadir nada al final.
+		assertThat(filas).extracting(fila -> fila.get(Constants.CAMPO_RESUMEN_DESCRIPCION)).containsExactly("Corta",
+				exacta, enie.substring(0, Constants.LONG_RESUMEN_DESCRIPCION),
+				larga.substring(0, Constants.LONG_RESUMEN_DESCRIPCION));
+	}
+
+	@Test
+	void elIdentificadorSeDevuelveComoTexto()
+	{
+		IncidenciaEntity guardada = this.iIncidenciaRepository
+				.save(nueva(0, "1.1", "ana@iesjandula.es", "Proyector sin señal", "PENDIENTE", null));
+
+		Map<String, Object> fila = this.iIncidenciaRepository.buscaProyeccionIncidencia(
+				List.of("id", "fechaIncidencia"), null, null, null, null, null, null, null).get(0);
+
+		assertThat(fila.get("id")).isEqualTo(guardada.getId().toString());
+		// El resto de campos conserva su tipo.
+		assertThat(fila.get("fechaIncidencia")).isInstanceOf(Date.class);
+		assertThat(((Date) fila.get("fechaIncidencia")).getTime()).isEqualTo(FECHA_BASE);
+	}
+
+	@Test
+	void losFiltrosNulosSeIgnoranEnCualquierCombinacion()
+	{
+		List<IncidenciaEntity> incidencias = new ArrayList<IncidenciaEntity>();
+		for (int i = 0; i < 12; i++)
+		{
+			incidencias.add(this.iIncidenciaRepository.save(nueva(i, i % 2 == 0 ? "1.1" : "1.2",
+					(i / 2) % 2 == 0 ? "ana@iesjandula.es" : "luis@iesjandula.es",
+					i % 3 == 0 ? "Proyector sin señal" : "Teclado sin respuesta",
+					i % 4 < 2 ? "PENDIENTE" : "RESUELTA",
+					i % 3 == 1 ? null : (i % 3 == 0 ? "Revisado por TIC" : "Falta una pieza"))));
+		}
+
+		String numeroAula = "1.1";
+		String correoDocente = "ana@iesjandula.es";
+		Date fechaInicio = new Date(FECHA_BASE + 2000);
+		Date fechaFin = new Date(FECHA_BASE + 9000);
+		String descripcion = "Proyector";
+		String estado = "PENDIENTE";
+		String comentario = "pieza";
+
+		// Cada bit de la máscara indica si se informa uno de los siete filtros.
+		for (int mascara = 0; mascara < 1 << 7; mascara++)
+		{
+			final int filtros = mascara;
+			List<String> obtenidos = new ArrayList<String>();
+			for (Map<String, Object> fila : this.iIncidenciaRepository.buscaProyeccionIncidencia(List.of("id"),
+					informado(filtros, 0, numeroAula), informado(filtros, 1, correoDocente),
+					informado(filtros, 2, fechaInicio), informado(filtros, 3, fechaFin),
+					informado(filtros, 4, descripcion), informado(filtros, 5, estado),
+					informado(filtros, 6, comentario)))
+			{
+				obtenidos.add((String) fila.get("id"));
+			}
+
+			List<String> esperados = incidencias.stream()
+					.filter(incidencia -> (filtros & 1) == 0 || incidencia.getNumeroAula().equals(numeroAula))
+					.filter(incidencia -> (filtros & 2) == 0 || incidencia.getCorreoDocente().equals(correoDocente))
+					.filter(incidencia -> (filtros & 4) == 0
+							|| incidencia.getFechaIncidencia().getTime() >= fechaInicio.getTime())
+					.filter(incidencia -> (filtros & 8) == 0
+							|| incidencia.getFechaIncidencia().getTime() <= fechaFin.getTime())
+					.filter(incidencia -> (filtros & 16) == 0 || incidencia.getDescripcionIncidencia().contains(descripcion))
+					.filter(incidencia -> (filtros & 32) == 0 || incidencia.getEstadoIncidencia().equals(estado))
+					.filter(incidencia -> (filtros & 64) == 0
+							|| (incidencia.getComentario() != null && incidencia.getComentario().contains(comentario)))
+					.sorted(Comparator.comparing(IncidenciaEntity::getFechaIncidencia).reversed())
+					.map(incidencia -> incidencia.getId().toString())
+					.toList();
+
+			assertThat(obtenidos).as("filtros %7s", Integer.toBinaryString(filtros)).containsExactlyElementsOf(esperados);
+		}
+	}
+
+	/**
+	 * @param <T>     Tipo del filtro.
+	 * @param mascara Filtros informados.
+	 * @param bit     Posición del filtro en la máscara.
+	 * @param valor   Valor del filtro.
+	 * @return El valor si el filtro está informado, o {@code null}.
+	 */
+	private static <T> T informado(int mascara, int bit, T valor)
+	{
+		return (mascara & (1 << bit)) != 0 ? valor : null;
+	}
+
+	/**
+	 * @param segundos    Segundos desde {@link #FECHA_BASE}.
+	 * @param numeroAula  Número de aula.
+	 * @param correo      Correo del docente.
+	 * @param descripcion Descripción.
+	 * @param estado      Estado.
+	 * @param comentario  Comentario, o {@code null}.
+	 * @return Una incidencia nueva.
+	 */
+	private static IncidenciaEntity nueva(int segundos, String numeroAula, String correo, String descripcion,
+			String estado, String comentario)
+	{
+		Date fecha = new Date(FECHA_BASE + segundos * 1000L);
+		return new IncidenciaEntity(null, numeroAula, correo, fecha, descripcion, estado, comentario, fecha);
+	}
+}
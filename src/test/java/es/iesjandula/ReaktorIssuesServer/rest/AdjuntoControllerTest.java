@@ -0,0 +1,165 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.dto.AdjuntoDTO;
+import es.iesjandula.ReaktorIssuesServer.repository.IAdjuntoRepository;
+import es.iesjandula.ReaktorIssuesServer.service.AdjuntoService;
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore;
+
+/**
+ * Descarga de adjuntos: rangos, validación por {@code ETag}, caché inmutable y nombre del fichero.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdjuntoControllerTest
+{
+	@TempDir
+	Path directorio;
+
+	@Autowired
+	private IAdjuntoRepository iAdjuntoRepository;
+
+	/** Contenido del adjunto: una cabecera PNG seguida de 20 bytes numerados. */
+	private byte[] foto;
+
+	/** Adjunto de la prueba. */
+	private AdjuntoDTO adjunto;
+
+	/** Cliente del controlador. */
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void sube() throws Exception
+	{
+		this.iAdjuntoRepository.deleteAllInBatch();
+		AdjuntoContentStore almacen = new AdjuntoContentStore(this.directorio.toString(), 64);
+		AdjuntoService servicio = new AdjuntoService(this.iAdjuntoRepository, almacen, DataSize.ofKilobytes(1));
+
+		this.foto = new byte[28];
+		System.arraycopy(new byte[] { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A }, 0, this.foto, 0, 8);
+		for (int i = 8; i < this.foto.length; i++)
+		{
+			this.foto[i] = (byte) i;
+		}
+		this.adjunto = servicio.adjunta(7L, "proyector \"aula\" 1.1 – señal.png", new ByteArrayInputStream(this.foto));
+
+		AdjuntoController controlador = new AdjuntoController();
+		ReflectionTestUtils.setField(controlador, "adjuntoService", servicio);
+		ReflectionTestUtils.setField(controlador, "adjuntoContentStore", almacen);
+		this.mockMvc = MockMvcBuilders.standaloneSetup(controlador).build();
+	}
+
+	@Test
+	void sirveElContenidoCompletoConCacheInmutable() throws Exception
+	{
+		this.mockMvc.perform(get(this.url()))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_TYPE, "image/png"))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, this.foto.length))
+				.andExpect(header().string(HttpHeaders.ETAG, "\"" + this.adjunto.getHash() + "\""))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, max-age=31536000, immutable"))
+				.andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+				.andExpect(content().bytes(this.foto));
+	}
+
+	@Test
+	void respondeNoModificadoSiElClienteTieneLaMismaVersion() throws Exception
+	{
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.IF_NONE_MATCH, "\"" + this.adjunto.getHash() + "\""))
+				.andExpect(status().isNotModified())
+				.andExpect(content().bytes(new byte[0]));
+	}
+
+	@Test
+	void sirveUnRangoCerradoUnoAbiertoYUnSufijo() throws Exception
+	{
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=10-14"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-14/28"))
+				.andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 5))
+				.andExpect(content().bytes(Arrays.copyOfRange(this.foto, 10, 15)));
+
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=20-"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 20-27/28"))
+				.andExpect(content().bytes(Arrays.copyOfRange(this.foto, 20, 28)));
+
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=-3"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 25-27/28"))
+				.andExpect(content().bytes(Arrays.copyOfRange(this.foto, 25, 28)));
+
+		// El fin se recorta al tamaño del contenido.
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=26-1000"))
+				.andExpect(status().isPartialContent())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 26-27/28"));
+	}
+
+	@Test
+	void losRangosImposiblesDevuelven416YLosMalFormadosElContenidoCompleto() throws Exception
+	{
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=28-"))
+				.andExpect(status().isRequestedRangeNotSatisfiable())
+				.andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */28"));
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=9-3"))
+				.andExpect(status().isRequestedRangeNotSatisfiable());
+
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=a-b"))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(this.foto));
+		this.mockMvc.perform(get(this.url()).header(HttpHeaders.RANGE, "bytes=0-1,4-5"))
+				.andExpect(status().isOk())
+				.andExpect(content().bytes(this.foto));
+	}
+
+	@Test
+	void elNombreDelFicheroSeCodificaSinRomperLaCabecera() throws Exception
+	{
+		String disposicion = this.mockMvc.perform(get(this.url())).andReturn().getResponse()
+				.getHeader(HttpHeaders.CONTENT_DISPOSITION);
+
+		assertThat(disposicion).startsWith("inline; ")
+				.contains("filename*=UTF-8''proyector%20%22aula%22%201.1%20%E2%80%93%20se%C3%B1al.png");
+	}
+
+	@Test
+	void unAdjuntoDeOtraIncidenciaNoSeEncuentra() throws Exception
+	{
+		this.mockMvc.perform(get("/incidencias/8/adjuntos/" + this.adjunto.getId()))
+				.andExpect(status().isNotFound());
+	}
+
+	/**
+	 * @return La ruta de descarga del adjunto de la prueba.
+	 */
+	private String url()
+	{
+		return "/incidencias/7/adjuntos/" + this.adjunto.getId();
+	}
+}
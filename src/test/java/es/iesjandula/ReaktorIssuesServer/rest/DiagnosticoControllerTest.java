@@ -0,0 +1,140 @@
+package es.iesjandula.ReaktorIssuesServer.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.diagnostico.GrabacionJfrService;
+
+/**
+ * Acceso a los endpoints de diagnóstico: sin clave configurada no existen, y con ella rechazan las
+ * peticiones sin la cabecera {@code Clave-Diagnostico} o con otro valor antes de tocar la grabación.
+ */
+class DiagnosticoControllerTest
+{
+	/** Ruta de los endpoints. */
+	private static final String RUTA = "/admin/diagnostico/grabacion";
+
+	/** Clave configurada en la prueba. */
+	private static final String CLAVE = "clave-de-prueba";
+
+	@TempDir
+	Path directorio;
+
+	/** Servicio de grabaciones. */
+	private GrabacionJfrService servicio;
+
+	/** Controlador de la prueba. */
+	private DiagnosticoController controlador;
+
+	/** Cliente del controlador. */
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void crea()
+	{
+		this.servicio = new GrabacionJfrService("default", Duration.ofMinutes(10), DataSize.ofMegabytes(20),
+				Duration.ofHours(1), this.directorio.toString());
+		this.controlador = new DiagnosticoController();
+		ReflectionTestUtils.setField(this.controlador, "grabacionJfrService", this.servicio);
+		ReflectionTestUtils.setField(this.controlador, "clave", CLAVE);
+		this.mockMvc = MockMvcBuilders.standaloneSetup(this.controlador).build();
+	}
+
+	@AfterEach
+	void descarta()
+	{
+		this.servicio.descarta();
+	}
+
+	@Test
+	void sinClaveConfiguradaLosEndpointsNoExisten() throws Exception
+	{
+		ReflectionTestUtils.setField(this.controlador, "clave", "");
+
+		for (MockHttpServletRequestBuilder peticion : peticiones())
+		{
+			this.mockMvc.perform(peticion.header("Clave-Diagnostico", ""))
+					.andExpect(status().isNotFound())
+					.andExpect(jsonPath("$.id").value("18"));
+		}
+	}
+
+	@Test
+	void rechazaLasPeticionesSinLaClaveOConOtra() throws Exception
+	{
+		for (MockHttpServletRequestBuilder peticion : peticiones())
+		{
+			this.mockMvc.perform(peticion).andExpect(status().isForbidden()).andExpect(jsonPath("$.id").value("19"));
+		}
+		for (String clave : List.of("", "clave-de-prueb", "clave-de-prueba ", "CLAVE-DE-PRUEBA"))
+		{
+			for (MockHttpServletRequestBuilder peticion : peticiones())
+			{
+				this.mockMvc.perform(peticion.header("Clave-Diagnostico", clave))
+						.andExpect(status().isForbidden())
+						.andExpect(jsonPath("$.id").value("19"));
+			}
+		}
+
+		// Ninguna petición rechazada ha iniciado una grabación.
+		this.mockMvc.perform(get(RUTA).header("Clave-Diagnostico", CLAVE))
+				.andExpect(status().isNotFound())
+				.andExpect(jsonPath("$.id").value("21"));
+	}
+
+	@Test
+	void conLaClaveIniciaYDetieneLaGrabacion() throws Exception
+	{
+		this.mockMvc.perform(post(RUTA).header("Clave-Diagnostico", CLAVE).param("ventana", "1m"))
+				.andExpect(status().isCreated())
+				.andExpect(jsonPath("$.estado").value("RUNNING"))
+				.andExpect(jsonPath("$.ventana").value("PT1M"));
+		this.mockMvc.perform(post(RUTA).header("Clave-Diagnostico", CLAVE))
+				.andExpect(status().isConflict())
+				.andExpect(jsonPath("$.id").value("20"));
+
+		byte[] fichero = this.mockMvc.perform(delete(RUTA).header("Clave-Diagnostico", CLAVE))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+						matchesPattern("attachment; filename=\"reaktor-.*\\.jfr\"")))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		// Los ficheros de JFR empiezan por "FLR\0", y el volcado se borra al enviarlo.
+		assertThat(fichero).startsWith(new byte[] { 'F', 'L', 'R', 0 });
+		try (Stream<Path> volcados = Files.list(this.directorio))
+		{
+			assertThat(volcados).isEmpty();
+		}
+	}
+
+	/**
+	 * @return Una petición a cada endpoint, sin cabecera de clave.
+	 */
+	private static List<MockHttpServletRequestBuilder> peticiones()
+	{
+		return List.of(post(RUTA), get(RUTA), get(RUTA + "/descarga"), delete(RUTA));
+	}
+}
@@ -0,0 +1,111 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Cubetas, percentiles y representación en texto del histograma de tiempos de resolución.
+ */
+class HistogramaResolucionTest
+{
+	@Test
+	void reparteLosTiemposEnCubetasLogaritmicas()
+	{
+		HistogramaResolucion histograma = new HistogramaResolucion();
+		// Menos de un minuto, [1, 1.41) y [2, 2.83).
+		histograma.registra(0);
+		histograma.registra(1);
+		histograma.registra(2);
+
+		assertThat(histograma.aTexto()).isEqualTo("1,1,0,1");
+		assertThat(histograma.getTotal()).isEqualTo(3);
+	}
+
+	@Test
+	void losTiemposEnormesVanALaUltimaCubeta()
+	{
+		HistogramaResolucion histograma = new HistogramaResolucion();
+		histograma.registra(Long.MAX_VALUE);
+
+		assertThat(histograma.aTexto().split(",")).hasSize(48).endsWith("1");
+	}
+
+	@Test
+	void unHistogramaVacioNoTienePercentilesNiTexto()
+	{
+		HistogramaResolucion histograma = new HistogramaResolucion();
+
+		assertThat(histograma.aTexto()).isNull();
+		assertThat(histograma.percentilHoras(0.5)).isNull();
+		assertThat(histograma.getTotal()).isZero();
+	}
+
+	@Test
+	void estimaLosPercentilesConLaMediaGeometricaDeSuCubeta()
+	{
+		HistogramaResolucion histograma = new HistogramaResolucion();
+		for (int i = 0; i < 9; i++)
+		{
+			histograma.registra(60);
+		}
+		histograma.registra(1000);
+
+		// 60 minutos caen en [45.25, 64), estimada en 2^5.75 = 53.8 minutos; 1000 en [724, 1024), en 861 minutos.
+		assertThat(histograma.percentilHoras(0.5)).isEqualTo(0.9);
+		assertThat(histograma.percentilHoras(0.9)).isEqualTo(0.9);
+		assertThat(histograma.percentilHoras(0.99)).isEqualTo(14.35);
+		assertThat(histograma.percentilHoras(0)).isEqualTo(0.9);
+		assertThat(histograma.percentilHoras(1)).isEqualTo(14.35);
+	}
+
+	@Test
+	void elErrorRelativoNoSuperaEl19PorCiento()
+	{
+		for (long minutos = 60; minutos < 10_000_000; minutos = minutos * 21 / 20 + 1)
+		{
+			HistogramaResolucion histograma = new HistogramaResolucion();
+			histograma.registra(minutos);
+
+			double estimado = histograma.percentilHoras(0.5) * 60;
+			assertThat(estimado / minutos).as("%d minutos", minutos).isCloseTo(1.0, within(0.195));
+		}
+	}
+
+	@Test
+	void sumarElTextoEquivaleARegistrarLosMismosTiempos()
+	{
+		HistogramaResolucion dia1 = new HistogramaResolucion();
+		dia1.registra(5);
+		dia1.registra(300);
+		HistogramaResolucion dia2 = new HistogramaResolucion();
+		dia2.registra(300);
+		dia2.registra(20000);
+
+		HistogramaResolucion periodo = new HistogramaResolucion();
+		periodo.suma(dia1.aTexto());
+		periodo.suma(dia2.aTexto());
+		periodo.suma(null);
+		periodo.suma("");
+
+		HistogramaResolucion directo = new HistogramaResolucion();
+		for (long minutos : new long[] { 5, 300, 300, 20000 })
+		{
+			directo.registra(minutos);
+		}
+		assertThat(periodo.aTexto()).isEqualTo(directo.aTexto());
+		assertThat(periodo.getTotal()).isEqualTo(4);
+		assertThat(periodo.percentilHoras(0.5)).isEqualTo(directo.percentilHoras(0.5));
+	}
+
+	@Test
+	void ignoraLasCubetasQueSobranEnElTexto()
+	{
+		HistogramaResolucion histograma = new HistogramaResolucion();
+		histograma.suma("1," + "0,".repeat(47) + "5");
+
+		assertThat(histograma.getTotal()).isEqualTo(1);
+		assertThat(histograma.aTexto()).isEqualTo("1");
+	}
+}
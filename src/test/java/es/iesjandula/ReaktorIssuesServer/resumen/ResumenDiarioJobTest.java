@@ -0,0 +1,162 @@
+package es.iesjandula.ReaktorIssuesServer.resumen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenDiarioEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.ResumenPendienteEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResolucionRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenDiarioRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenHistoricoRepository;
+import es.iesjandula.ReaktorIssuesServer.repository.IResumenPendienteRepository;
+
+/**
+ * Construcción del histórico y recálculo de los días pendientes sobre H2. Cada prueba crea el proceso como
+ * al arrancar, con lotes de dos días para recorrer varias páginas.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ResumenDiarioJobTest
+{
+	/** Primer día con incidencias de la prueba. */
+	private static final LocalDate DIA = LocalDate.of(2023, 3, 1);
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private IResumenDiarioRepository iResumenDiarioRepository;
+
+	@Autowired
+	private IResumenPendienteRepository iResumenPendienteRepository;
+
+	@Autowired
+	private IResumenHistoricoRepository iResumenHistoricoRepository;
+
+	@Autowired
+	private IResolucionRepository iResolucionRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@BeforeEach
+	void vaciaTablas()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+		this.iResolucionRepository.deleteAllInBatch();
+		this.iResumenDiarioRepository.deleteAllInBatch();
+		this.iResumenPendienteRepository.deleteAllInBatch();
+		this.iResumenHistoricoRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void construyeElHistoricoAunqueYaHayaDiasPendientes()
+	{
+		this.guarda("1.1", 0, "PENDIENTE");
+		this.guarda("1.1", 2, "RESUELTA");
+		this.guarda("2.1", 4, "PENDIENTE");
+		// Un cambio confirmado antes de la primera ejecución ya ha anotado su día.
+		this.iResumenPendienteRepository.save(new ResumenPendienteEntity(null, DIA.plusDays(4)));
+
+		this.arranca().actualiza();
+
+		assertThat(this.iResumenDiarioRepository.findByDiaBetween(DIA, DIA.plusDays(4)))
+				.extracting(ResumenDiarioEntity::getDia)
+				.containsExactlyInAnyOrder(DIA, DIA.plusDays(2), DIA.plusDays(4));
+		assertThat(this.iResumenPendienteRepository.count()).isZero();
+		assertThat(this.iResumenHistoricoRepository.findAll()).singleElement()
+				.satisfies(marca -> assertThat(marca.getHasta()).isEqualTo(DIA.plusDays(4)));
+	}
+
+	@Test
+	void noVuelveAConstruirElHistoricoEnElSiguienteArranque()
+	{
+		this.guarda("1.1", 0, "PENDIENTE");
+		this.arranca().actualiza();
+
+		// Se pierden los resúmenes: solo se recalculan los días anotados, no todo el histórico.
+		this.iResumenDiarioRepository.deleteAllInBatch();
+		this.guarda("1.1", 1, "PENDIENTE");
+		this.iResumenPendienteRepository.save(new ResumenPendienteEntity(null, DIA.plusDays(1)));
+
+		this.arranca().actualiza();
+
+		assertThat(this.iResumenDiarioRepository.findAll()).extracting(ResumenDiarioEntity::getDia)
+				.containsExactly(DIA.plusDays(1));
+	}
+
+	@Test
+	void recalculaLosDiasPendientesSustituyendoSusResumenes()
+	{
+		IncidenciaEntity incidencia = this.guarda("1.1", 0, "PENDIENTE");
+		this.guarda("1.1", 0, "PENDIENTE", "luis@iesjandula.es");
+		this.guarda("1.2", 0, "PENDIENTE");
+		ResumenDiarioJob job = this.arranca();
+		job.actualiza();
+
+		incidencia.setEstadoIncidencia("RESUELTA");
+		this.iIncidenciaRepository.save(incidencia);
+		this.iResumenPendienteRepository.save(new ResumenPendienteEntity(null, DIA));
+		this.iResumenPendienteRepository.save(new ResumenPendienteEntity(null, DIA));
+		job.actualiza();
+
+		List<ResumenDiarioEntity> resumenes = this.iResumenDiarioRepository.findByDiaBetweenAndNumeroAula(DIA, DIA, "1.1");
+		assertThat(resumenes).extracting(resumen -> resumen.getEstadoIncidencia() + ":" + resumen.getIncidencias())
+				.containsExactlyInAnyOrder("PENDIENTE:1", "RESUELTA:1");
+		assertThat(this.iResumenDiarioRepository.findByDiaBetweenAndNumeroAula(DIA, DIA, "1.2"))
+				.extracting(ResumenDiarioEntity::getIncidencias).containsExactly(1L);
+		assertThat(this.iResumenPendienteRepository.count()).isZero();
+	}
+
+	/**
+	 * @return Un proceso de resúmenes nuevo, como el de un arranque, con lotes de dos días.
+	 */
+	private ResumenDiarioJob arranca()
+	{
+		return new ResumenDiarioJob(this.iResumenDiarioRepository, this.iResumenPendienteRepository,
+				this.iResumenHistoricoRepository, this.transactionManager, true, 2);
+	}
+
+	/**
+	 * @param numeroAula Aula.
+	 * @param dias       Días tras {@link #DIA}.
+	 * @param estado     Estado.
+	 * @return La incidencia guardada, creada a mediodía de ese día.
+	 */
+	private IncidenciaEntity guarda(String numeroAula, int dias, String estado)
+	{
+		return this.guarda(numeroAula, dias, estado, "ana@iesjandula.es");
+	}
+
+	/**
+	 * @param numeroAula    Aula.
+	 * @param dias          Días tras {@link #DIA}.
+	 * @param estado        Estado.
+	 * @param correoDocente Docente.
+	 * @return La incidencia guardada, creada a mediodía de ese día.
+	 */
+	private IncidenciaEntity guarda(String numeroAula, int dias, String estado, String correoDocente)
+	{
+		Date fecha = Date.from(DIA.plusDays(dias).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant());
+		return this.iIncidenciaRepository.save(new IncidenciaEntity(null, numeroAula, correoDocente, fecha,
+				"El proyector no enciende.", estado, null, fecha));
+	}
+}
@@ -0,0 +1,160 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import es.iesjandula.ReaktorIssuesServer.dto.AdjuntoDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.AdjuntoEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IAdjuntoRepository;
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore;
+import es.iesjandula.ReaktorIssuesServer.utils.IssuesServerError;
+
+/**
+ * Subida deduplicada y borrado de adjuntos sobre H2: el contenido solo se borra del disco cuando se
+ * confirma el borrado de su última referencia.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AdjuntoServiceTest
+{
+	/** Contenido de las pruebas: una cabecera PNG basta para que se acepte. */
+	private static final byte[] FOTO = { (byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A, 1, 2, 3 };
+
+	@TempDir
+	Path directorio;
+
+	@Autowired
+	private IAdjuntoRepository iAdjuntoRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	/** Almacén de contenido de la prueba. */
+	private AdjuntoContentStore almacen;
+
+	/** Servicio de la prueba, con un máximo de 1 KB. */
+	private AdjuntoService servicio;
+
+	@BeforeEach
+	void abre()
+	{
+		this.iAdjuntoRepository.deleteAllInBatch();
+		this.almacen = new AdjuntoContentStore(this.directorio.toString(), 64);
+		this.servicio = new AdjuntoService(this.iAdjuntoRepository, this.almacen, DataSize.ofKilobytes(1));
+	}
+
+	@Test
+	void dosSubidasIgualesCompartenElContenidoHastaBorrarLaUltima() throws Exception
+	{
+		AdjuntoDTO primero = this.adjunta(1L, "proyector.png");
+		AdjuntoDTO segundo = this.adjunta(2L, "otro.png");
+		Path contenido = this.almacen.ruta(primero.getHash());
+
+		assertThat(segundo.getHash()).isEqualTo(primero.getHash());
+		assertThat(segundo.getId()).isNotEqualTo(primero.getId());
+
+		this.servicio.borra(this.busca(primero));
+		assertThat(contenido).exists();
+
+		this.servicio.borra(this.busca(segundo));
+		assertThat(contenido).doesNotExist();
+	}
+
+	@Test
+	void siLaTransaccionSeDeshaceElContenidoSigueEnDisco() throws Exception
+	{
+		AdjuntoDTO adjunto = this.adjunta(1L, "proyector.png");
+		Path contenido = this.almacen.ruta(adjunto.getHash());
+
+		new TransactionTemplate(this.transactionManager).executeWithoutResult(estado -> {
+			this.borraSinExcepciones(this.busca(adjunto));
+			// El fichero no se toca hasta confirmar.
+			assertThat(contenido).exists();
+			estado.setRollbackOnly();
+		});
+
+		assertThat(this.iAdjuntoRepository.existsById(adjunto.getId())).isTrue();
+		assertThat(contenido).exists();
+	}
+
+	@Test
+	void elContenidoSeBorraAlConfirmarLaTransaccion() throws Exception
+	{
+		AdjuntoDTO adjunto = this.adjunta(1L, "proyector.png");
+		Path contenido = this.almacen.ruta(adjunto.getHash());
+
+		new TransactionTemplate(this.transactionManager).executeWithoutResult(estado -> {
+			this.borraSinExcepciones(this.busca(adjunto));
+			assertThat(contenido).exists();
+		});
+
+		assertThat(contenido).doesNotExist();
+	}
+
+	@Test
+	void rechazaLosFicherosGrandesYLosQueNoSonImagenes()
+	{
+		byte[] grande = new byte[1025];
+		System.arraycopy(FOTO, 0, grande, 0, FOTO.length);
+
+		assertThatThrownBy(() -> this.servicio.adjunta(1L, "grande.png", new ByteArrayInputStream(grande)))
+				.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(14));
+		assertThatThrownBy(() -> this.servicio.adjunta(1L, "nota.txt", new ByteArrayInputStream("hola".getBytes())))
+				.isInstanceOfSatisfying(IssuesServerError.class, error -> assertThat(error.getId()).isEqualTo(13));
+		assertThat(this.iAdjuntoRepository.count()).isZero();
+	}
+
+	/**
+	 * @param incidenciaId La incidencia.
+	 * @param nombre       El nombre del fichero.
+	 * @return El adjunto creado con {@link #FOTO}.
+	 * @throws Exception Si falla la subida.
+	 */
+	private AdjuntoDTO adjunta(Long incidenciaId, String nombre) throws Exception
+	{
+		return this.servicio.adjunta(incidenciaId, nombre, new ByteArrayInputStream(FOTO));
+	}
+
+	/**
+	 * @param adjunto Los metadatos de un adjunto.
+	 * @return Su entidad.
+	 */
+	private AdjuntoEntity busca(AdjuntoDTO adjunto)
+	{
+		return this.servicio.busca(adjunto.getIncidenciaId(), adjunto.getId()).orElseThrow();
+	}
+
+	/**
+	 * @param adjunto El adjunto que se borra dentro de una transacción.
+	 */
+	private void borraSinExcepciones(AdjuntoEntity adjunto)
+	{
+		try
+		{
+			this.servicio.borra(adjunto);
+		}
+		catch (IOException exception)
+		{
+			throw new IllegalStateException(exception);
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaMemoryStorage;
+
+/**
+ * Desbordamiento y reconstrucción del tablero de incidencias abiertas sobre el motor en memoria, con un
+ * límite de 4 incidencias: un tablero desbordado se reconstruye al bajar de 3.
+ */
+class IncidenciaBoardServiceTest
+{
+	@TempDir
+	Path directorio;
+
+	/** Almacén de la prueba; publica sus eventos al tablero. */
+	private IncidenciaMemoryStorage almacen;
+
+	/** Tablero de la prueba. */
+	private IncidenciaBoardService tablero;
+
+	@BeforeEach
+	void abre() throws IOException
+	{
+		this.almacen = new IncidenciaMemoryStorage(this.directorio.toString(), false, 10000, evento -> {
+			if (this.tablero != null)
+			{
+				this.tablero.onIncidenciaEvent((IncidenciaEvent) evento);
+			}
+		});
+		this.almacen.inicia();
+	}
+
+	@AfterEach
+	void detiene() throws IOException
+	{
+		this.almacen.detiene();
+	}
+
+	@Test
+	void seReconstruyeCuandoLasAbiertasBajanDelUmbral()
+	{
+		this.cargaTablero();
+		IncidenciaEntity[] abiertas = new IncidenciaEntity[5];
+		for (int i = 0; i < abiertas.length; i++)
+		{
+			abiertas[i] = this.almacen.guarda(nueva("1." + i));
+		}
+
+		// La quinta no cabe: el tablero se vacía y se consulta el almacén.
+		assertThat(this.tablero.estadisticas()).containsEntry("desbordado", true).containsEntry("incidencias", 0);
+		assertThat(this.tablero.abiertasPorAula("1.4")).hasSize(1);
+
+		// Con 4 abiertas sigue por encima del umbral.
+		this.cierra(abiertas[0]);
+		this.tablero.compruebaDesbordamiento();
+		assertThat(this.tablero.estadisticas()).containsEntry("desbordado", true);
+
+		// Con 3 se reconstruye y vuelve a seguir los cambios.
+		this.almacen.borra(abiertas[1]);
+		this.tablero.compruebaDesbordamiento();
+		assertThat(this.tablero.estadisticas()).containsEntry("desbordado", false).containsEntry("incidencias", 3);
+
+		this.almacen.guarda(nueva("2.1"));
+		assertThat(this.tablero.abiertasPorAula("2.1")).hasSize(1);
+		assertThat(this.tablero.estadisticas()).containsEntry("incidencias", 4);
+	}
+
+	@Test
+	void lasAltasNoProvocanReconstrucciones()
+	{
+		this.cargaTablero();
+		for (int i = 0; i < 5; i++)
+		{
+			this.almacen.guarda(nueva("1." + i));
+		}
+		IncidenciaEntity otra = this.almacen.guarda(nueva("2.1"));
+		otra.setEstadoIncidencia("EN PROGRESO");
+		this.almacen.guarda(otra);
+
+		this.tablero.compruebaDesbordamiento();
+
+		assertThat(this.tablero.estadisticas()).containsEntry("desbordado", true);
+	}
+
+	@Test
+	void noCargaAlArrancarSiHayMasAbiertasQueElLimite()
+	{
+		for (int i = 0; i < 5; i++)
+		{
+			this.almacen.guarda(nueva("1." + i));
+		}
+
+		this.cargaTablero();
+
+		assertThat(this.tablero.estadisticas()).containsEntry("desbordado", true).containsEntry("incidencias", 0);
+		assertThat(this.tablero.abiertasPorAula("1.0")).hasSize(1);
+	}
+
+	/**
+	 * Crea y carga el tablero sobre el almacén de la prueba.
+	 */
+	private void cargaTablero()
+	{
+		this.tablero = new IncidenciaBoardService(this.almacen, 4);
+		this.tablero.carga();
+	}
+
+	/**
+	 * @param incidencia Incidencia a resolver.
+	 */
+	private void cierra(IncidenciaEntity incidencia)
+	{
+		incidencia.setEstadoIncidencia("RESUELTA");
+		this.almacen.guarda(incidencia);
+	}
+
+	/**
+	 * @param numeroAula Aula.
+	 * @return Una incidencia pendiente nueva.
+	 */
+	private static IncidenciaEntity nueva(String numeroAula)
+	{
+		return new IncidenciaEntity(null, numeroAula, "ana@iesjandula.es", new Date(), "El proyector no enciende.",
+				"PENDIENTE", null, null);
+	}
+}
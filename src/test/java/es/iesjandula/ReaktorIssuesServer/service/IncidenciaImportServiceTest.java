@@ -0,0 +1,172 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.dto.ResultadoImportacionDTO;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.storage.IIncidenciaStorage;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaJpaStorage;
+import es.iesjandula.ReaktorIssuesServer.utils.CsvReader;
+
+/**
+ * Importación de un CSV con el motor JPA sobre H2: las filas inválidas y las duplicadas se rechazan una a
+ * una, en el informe y sin deshacer el resto del lote.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(IncidenciaJpaStorage.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IncidenciaImportServiceTest
+{
+	/**
+	 * Fichero de la prueba, en lotes de dos registros: el segundo lote tiene una fila sin aula y un duplicado
+	 * del primero, y el tercero un duplicado dentro del propio lote. La última línea no termina en salto y
+	 * todas las descripciones cumplen la longitud mínima de crear_incidencia.
+	 */
+	private static final String CSV = String.join("\r\n",
+			"numeroAula,correoDocente,fechaIncidencia,descripcionIncidencia,estadoIncidencia,comentario",
+			"1.1,ana@iesjandula.es,2024-03-01 10:00,\"Proyector, sin señal\",,",
+			"1.2,ana@iesjandula.es,2024-03-01 10:00,\"Pizarra \"\"digital\"\"\nno enciende\",EN PROGRESO,Revisado",
+			",ana@iesjandula.es,2024-03-01,Sin aula",
+			"1.1,ana@iesjandula.es,2024-03-01 10:00,Repetida del primer lote",
+			"1.3,luis@iesjandula.es,01/03/2024,Teclado sin respuesta",
+			"1.3,luis@iesjandula.es,1/3/2024,\"Repetida, en el mismo lote\"",
+			"2.1,luis@iesjandula.es,2024-03-02,Estado que no existe,ABIERTA",
+			"",
+			"2.2,luis@iesjandula.es,2024-03-02,Ultima sin salto de linea");
+
+	@TempDir
+	Path directorio;
+
+	@Autowired
+	private IIncidenciaStorage iIncidenciaStorage;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	/** Servicio de la prueba, con lotes de dos registros. */
+	private IncidenciaImportService servicio;
+
+	@BeforeEach
+	void abre()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+		this.servicio = new IncidenciaImportService(this.iIncidenciaStorage, this.directorio.toString(), 2, 2, 1,
+				Duration.ofHours(1));
+	}
+
+	@AfterEach
+	void cierra()
+	{
+		this.servicio.detiene();
+	}
+
+	@Test
+	void insertaLasFilasValidasYRechazaLasDemasUnaAUna() throws IOException
+	{
+		ResultadoImportacionDTO resultado = this.importa(CSV);
+
+		assertThat(resultado.getLeidas()).isEqualTo(8);
+		assertThat(resultado.getInsertadas()).isEqualTo(4);
+		assertThat(resultado.getRechazadas()).isEqualTo(4);
+		assertThat(resultado.getInformeErrores())
+				.isEqualTo("/incidencias/importaciones/" + resultado.getIdImportacion() + "/errores");
+
+		List<IncidenciaEntity> guardadas = this.iIncidenciaRepository.findAll();
+		assertThat(guardadas).extracting(IncidenciaEntity::getNumeroAula)
+				.containsExactlyInAnyOrder("1.1", "1.2", "1.3", "2.2");
+		IncidenciaEntity pizarra = guardadas.stream().filter(incidencia -> "1.2".equals(incidencia.getNumeroAula()))
+				.findFirst().orElseThrow();
+		assertThat(pizarra.getDescripcionIncidencia()).isEqualTo("Pizarra \"digital\"\nno enciende");
+		assertThat(pizarra.getEstadoIncidencia()).isEqualTo("EN PROGRESO");
+		assertThat(pizarra.getComentario()).isEqualTo("Revisado");
+		IncidenciaEntity teclado = guardadas.stream().filter(incidencia -> "1.3".equals(incidencia.getNumeroAula()))
+				.findFirst().orElseThrow();
+		assertThat(teclado.getDescripcionIncidencia()).isEqualTo("Teclado sin respuesta");
+	}
+
+	@Test
+	void elInformeIndicaLineaMotivoYRegistroOriginal() throws IOException
+	{
+		ResultadoImportacionDTO resultado = this.importa(CSV);
+
+		List<List<String>> informe = this.informe(resultado);
+		assertThat(informe.get(0)).containsExactly("linea", "motivo", "registro");
+		assertThat(informe.subList(1, informe.size())).extracting(fila -> fila.get(0))
+				.containsExactly("5", "6", "8", "9");
+		assertThat(informe.get(1).get(1)).isEqualTo("El número de aula es obligatorio.");
+		assertThat(informe.get(2).get(1)).contains(IncidenciaEntity.UK_CLAVE_NATURAL);
+		assertThat(informe.get(3).get(1)).contains(IncidenciaEntity.UK_CLAVE_NATURAL);
+		assertThat(informe.get(4).get(1)).startsWith("Estado de incidencia no valido: ABIERTA");
+
+		// El registro se vuelve a escribir con el separador original y sus comillas.
+		assertThat(informe.get(3).get(2)).isEqualTo("1.3,luis@iesjandula.es,1/3/2024,\"Repetida, en el mismo lote\"");
+	}
+
+	@Test
+	void sinRechazosNoQuedaInforme() throws IOException
+	{
+		ResultadoImportacionDTO resultado = this.importa("1.1;ana@iesjandula.es;2024-03-01;\"Proyector; sin señal\"\n");
+
+		assertThat(resultado.getInsertadas()).isEqualTo(1);
+		assertThat(resultado.getRechazadas()).isZero();
+		assertThat(resultado.getInformeErrores()).isNull();
+		assertThat(this.servicio.informeErrores(resultado.getIdImportacion())).isEmpty();
+		assertThat(this.iIncidenciaRepository.findAll()).extracting(IncidenciaEntity::getDescripcionIncidencia)
+				.containsExactly("Proyector; sin señal");
+	}
+
+	/**
+	 * @param contenido Contenido del fichero.
+	 * @return El resumen de importarlo con ',' o ';' según la primera línea.
+	 * @throws IOException Si falla la importación.
+	 */
+	private ResultadoImportacionDTO importa(String contenido) throws IOException
+	{
+		char separador = contenido.indexOf(';') >= 0 && contenido.indexOf(';') < contenido.indexOf('\n') ? ';' : ',';
+		return this.servicio.importa(new ByteArrayInputStream(contenido.getBytes(StandardCharsets.UTF_8)), separador);
+	}
+
+	/**
+	 * @param resultado Resumen de una importación con rechazos.
+	 * @return Los registros de su informe de errores.
+	 * @throws IOException Si falla la lectura.
+	 */
+	private List<List<String>> informe(ResultadoImportacionDTO resultado) throws IOException
+	{
+		Path ruta = this.servicio.informeErrores(resultado.getIdImportacion()).orElseThrow();
+		List<List<String>> registros = new ArrayList<List<String>>();
+		try (CsvReader lector = new CsvReader(Files.newBufferedReader(ruta, StandardCharsets.UTF_8), ','))
+		{
+			List<String> registro;
+			while ((registro = lector.siguiente()) != null)
+			{
+				registros.add(registro);
+			}
+		}
+		return registros;
+	}
+}
@@ -0,0 +1,132 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEscaladaEvent;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaMemoryStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Plazos de atención sobre el motor en memoria, con umbrales de 7 días en "PENDIENTE" y 30 en
+ * "EN PROGRESO": el plazo se cuenta desde que la incidencia entró en su estado, no desde su fecha.
+ */
+class IncidenciaSlaServiceTest
+{
+	/** Un día en milisegundos. */
+	private static final long DIA = Duration.ofDays(1).toMillis();
+
+	@TempDir
+	Path directorio;
+
+	/** Almacén de la prueba; publica sus eventos al servicio. */
+	private IncidenciaMemoryStorage almacen;
+
+	/** Servicio de la prueba. */
+	private IncidenciaSlaService sla;
+
+	/** Escalados publicados por el servicio. */
+	private final List<IncidenciaEscaladaEvent> escalados = new ArrayList<IncidenciaEscaladaEvent>();
+
+	@BeforeEach
+	void abre() throws IOException
+	{
+		this.almacen = new IncidenciaMemoryStorage(this.directorio.toString(), false, 10000, evento -> {
+			if (this.sla != null)
+			{
+				this.sla.onIncidenciaEvent((IncidenciaEvent) evento);
+			}
+		});
+		this.almacen.inicia();
+	}
+
+	@AfterEach
+	void detiene() throws IOException
+	{
+		this.almacen.detiene();
+	}
+
+	@Test
+	void unaIncidenciaAntiguaQuePasaAEnProgresoNoVenceAlMomento()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("1.1", 40));
+		this.cargaServicio();
+
+		// Lleva 40 días pendiente: ya estaba vencida al arrancar y no se notifica.
+		assertThat(this.sla.escaladas()).extracting(escalada -> escalada.getId()).containsExactly(incidencia.getId());
+
+		incidencia.setEstadoIncidencia("EN PROGRESO");
+		this.almacen.guarda(incidencia);
+		this.sla.revisa();
+
+		// Contado desde su fecha superaría también los 30 días de "EN PROGRESO".
+		assertThat(this.sla.escaladas()).isEmpty();
+		assertThat(this.escalados).isEmpty();
+
+		// Al arrancar de nuevo el plazo se reconstruye desde el cambio de estado.
+		this.cargaServicio();
+		this.sla.revisa();
+
+		assertThat(this.sla.escaladas()).isEmpty();
+		assertThat(this.escalados).isEmpty();
+	}
+
+	@Test
+	void unCambioQueConservaElEstadoMantieneElPlazo()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("1.1", 10));
+		IncidenciaEntity reciente = this.almacen.guarda(nueva("1.2", 1));
+		this.cargaServicio();
+
+		incidencia.setComentario("Avisado el técnico");
+		this.almacen.guarda(incidencia);
+		reciente.setComentario("Avisado el técnico");
+		this.almacen.guarda(reciente);
+		this.sla.revisa();
+
+		assertThat(this.sla.escaladas()).extracting(escalada -> escalada.getId()).containsExactly(incidencia.getId());
+		assertThat(this.escalados).isEmpty();
+	}
+
+	/**
+	 * Crea y carga el servicio sobre el almacén de la prueba.
+	 */
+	private void cargaServicio()
+	{
+		IncidenciaSlaProperties properties = new IncidenciaSlaProperties();
+		properties.getUmbrales().put("PENDIENTE", Duration.ofDays(7));
+		properties.getUmbrales().put("EN PROGRESO", Duration.ofDays(30));
+
+		this.sla = new IncidenciaSlaService(this.almacen, evento -> {
+			if (evento instanceof IncidenciaEscaladaEvent escalado)
+			{
+				this.escalados.add(escalado);
+			}
+		}, properties, new SimpleMeterRegistry());
+		this.sla.carga();
+	}
+
+	/**
+	 * @param numeroAula Aula.
+	 * @param dias       Días transcurridos desde la fecha de la incidencia.
+	 * @return Una incidencia pendiente nueva.
+	 */
+	private static IncidenciaEntity nueva(String numeroAula, int dias)
+	{
+		return new IncidenciaEntity(null, numeroAula, "ana@iesjandula.es",
+				new Date(System.currentTimeMillis() - dias * DIA), "El proyector no enciende.", "PENDIENTE", null, null);
+	}
+}
@@ -0,0 +1,247 @@
+package es.iesjandula.ReaktorIssuesServer.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import es.iesjandula.ReaktorIssuesServer.dto.SugerenciaDTO;
+
+/**
+ * Orden de las sugerencias al incrementar y decrementar valores, poda de nodos, mayúsculas y límite del
+ * árbol de prefijos.
+ */
+class TrieSugerenciasTest
+{
+	@Test
+	void ordenaPorIncidenciasYAIgualdadAlfabeticamente()
+	{
+		TrieSugerencias trie = new TrieSugerencias(3);
+		trie.suma("1.2", 5);
+		trie.suma("1.10", 7);
+		trie.suma("1.1", 5);
+		trie.suma("2.1", 9);
+
+		assertThat(textos(trie.sugiere("1", 10))).containsExactly("1.10:7", "1.1:5", "1.2:5");
+		assertThat(textos(trie.sugiere("", 10))).containsExactly("2.1:9", "1.10:7", "1.1:5");
+		assertThat(textos(trie.sugiere("1.1", 10))).containsExactly("1.10:7", "1.1:5");
+	}
+
+	@Test
+	void unIncrementoSubeElValorAunqueEstuvieraFueraDeLosMejores()
+	{
+		TrieSugerencias trie = new TrieSugerencias(2);
+		trie.suma("a1", 3);
+		trie.suma("a2", 2);
+		trie.suma("a3", 1);
+		assertThat(textos(trie.sugiere("a", 10))).containsExactly("a1:3", "a2:2");
+
+		trie.suma("a3", 5);
+
+		assertThat(textos(trie.sugiere("a", 10))).containsExactly("a3:6", "a1:3");
+		assertThat(textos(trie.sugiere("", 10))).containsExactly("a3:6", "a1:3");
+	}
+
+	@Test
+	void unDecrementoRecuperaLosValoresQueHabianQuedadoFuera()
+	{
+		TrieSugerencias trie = new TrieSugerencias(2);
+		trie.suma("a1", 3);
+		trie.suma("a2", 2);
+		trie.suma("b1", 1);
+
+		trie.suma("a1", -3);
+
+		assertThat(textos(trie.sugiere("", 10))).containsExactly("a2:2", "b1:1");
+		assertThat(textos(trie.sugiere("a", 10))).containsExactly("a2:2");
+		assertThat(trie.valores()).isEqualTo(2);
+	}
+
+	@Test
+	void losValoresACeroSeRetiranYSusNodosSePodan()
+	{
+		TrieSugerencias trie = new TrieSugerencias(5);
+		trie.suma("abc", 2);
+		trie.suma("ab", 1);
+
+		trie.suma("abc", -5);
+
+		assertThat(textos(trie.sugiere("abc", 10))).isEmpty();
+		assertThat(textos(trie.sugiere("a", 10))).containsExactly("ab:1");
+		assertThat(letras(trie, "ab")).isEmpty();
+
+		trie.suma("ab", -1);
+
+		assertThat(trie.valores()).isZero();
+		assertThat(trie.sugiere("", 10)).isEmpty();
+		assertThat((char[]) ReflectionTestUtils.getField(ReflectionTestUtils.getField(trie, "raiz"), "letras")).isEmpty();
+	}
+
+	@Test
+	void decrementarUnValorInexistenteNoCreaNodos()
+	{
+		TrieSugerencias trie = new TrieSugerencias(5);
+		trie.suma("ab", 1);
+
+		trie.suma("abc", -1);
+		trie.suma("a", -1);
+		trie.suma("xyz", -1);
+
+		assertThat(trie.valores()).isEqualTo(1);
+		assertThat(letras(trie, "ab")).isEmpty();
+		assertThat((char[]) ReflectionTestUtils.getField(ReflectionTestUtils.getField(trie, "raiz"), "letras"))
+				.containsExactly('a');
+		assertThat(textos(trie.sugiere("", 10))).containsExactly("ab:1");
+	}
+
+	@Test
+	void noDistingueMayusculasYConservaLaPrimeraForma()
+	{
+		TrieSugerencias trie = new TrieSugerencias(5);
+		trie.suma("Ana@IESJandula.es", 1);
+		trie.suma("ana@iesjandula.es", 2);
+		trie.suma("ANA@IESJANDULA.ES", -1);
+
+		assertThat(trie.valores()).isEqualTo(1);
+		assertThat(textos(trie.sugiere("ANA@", 10))).containsExactly("Ana@IESJandula.es:2");
+		assertThat(textos(trie.sugiere("ana@iesj", 10))).containsExactly("Ana@IESJandula.es:2");
+	}
+
+	@Test
+	void respetaElLimiteYElMaximoDelArbol()
+	{
+		TrieSugerencias trie = new TrieSugerencias(3);
+		for (int i = 1; i <= 5; i++)
+		{
+			trie.suma("1." + i, i);
+		}
+
+		assertThat(textos(trie.sugiere("1", 2))).containsExactly("1.5:5", "1.4:4");
+		assertThat(trie.sugiere("1", 10)).hasSize(3);
+		assertThat(trie.sugiere("1", 0)).isEmpty();
+		assertThat(trie.sugiere("2", 10)).isEmpty();
+	}
+
+	@Test
+	void coincideConUnRecuentoDirectoTrasCambiosAleatorios()
+	{
+		Random aleatorio = new Random(42);
+		TrieSugerencias trie = new TrieSugerencias(4);
+		Map<String, Long> cuentas = new TreeMap<String, Long>();
+		String[] valores = new String[40];
+		for (int i = 0; i < valores.length; i++)
+		{
+			StringBuilder valor = new StringBuilder();
+			for (int j = 0; j <= aleatorio.nextInt(4); j++)
+			{
+				valor.append("abC".charAt(aleatorio.nextInt(3)));
+			}
+			valores[i] = valor.toString();
+		}
+
+		for (int paso = 0; paso < 5000; paso++)
+		{
+			String valor = valores[aleatorio.nextInt(valores.length)];
+			long cantidad = aleatorio.nextInt(3) == 0 ? -1 - aleatorio.nextInt(3) : 1 + aleatorio.nextInt(3);
+			trie.suma(valor, cantidad);
+
+			String clave = valor.toLowerCase(Locale.ROOT);
+			long cuenta = Math.max(0, cuentas.getOrDefault(clave, 0L) + (cuentas.containsKey(clave) || cantidad > 0 ? cantidad : 0));
+			if (cuenta == 0)
+			{
+				cuentas.remove(clave);
+			}
+			else
+			{
+				cuentas.put(clave, cuenta);
+			}
+
+			if (paso % 50 == 0)
+			{
+				for (String prefijo : List.of("", "a", "b", "c", "ab", "ca", "bcb", "aaaa"))
+				{
+					assertThat(cuentasDe(trie.sugiere(prefijo, 4))).as("paso %d, prefijo '%s'", paso, prefijo)
+							.isEqualTo(esperadas(cuentas, prefijo, 4));
+				}
+				assertThat(trie.valores()).isEqualTo(cuentas.size());
+			}
+		}
+	}
+
+	/**
+	 * @param cuentas Incidencias por valor en minúsculas.
+	 * @param prefijo Prefijo.
+	 * @param limite  Número máximo de resultados.
+	 * @return Las sugerencias calculadas recorriendo todos los valores, como "valor:cuenta".
+	 */
+	private static List<String> esperadas(Map<String, Long> cuentas, String prefijo, int limite)
+	{
+		List<Map.Entry<String, Long>> candidatos = new ArrayList<Map.Entry<String, Long>>();
+		for (Map.Entry<String, Long> cuenta : cuentas.entrySet())
+		{
+			if (cuenta.getKey().startsWith(prefijo))
+			{
+				candidatos.add(cuenta);
+			}
+		}
+		candidatos.sort(Comparator.comparingLong((Map.Entry<String, Long> cuenta) -> -cuenta.getValue())
+				.thenComparing(Map.Entry::getKey));
+		List<String> resultado = new ArrayList<String>();
+		for (Map.Entry<String, Long> cuenta : candidatos.subList(0, Math.min(limite, candidatos.size())))
+		{
+			resultado.add(cuenta.getKey() + ":" + cuenta.getValue());
+		}
+		return resultado;
+	}
+
+	/**
+	 * @param sugerencias Sugerencias.
+	 * @return Cada sugerencia como "valor:incidencias", con el valor en minúsculas.
+	 */
+	private static List<String> cuentasDe(List<SugerenciaDTO> sugerencias)
+	{
+		List<String> resultado = new ArrayList<String>();
+		for (String texto : textos(sugerencias))
+		{
+			resultado.add(texto.toLowerCase(Locale.ROOT));
+		}
+		return resultado;
+	}
+
+	/**
+	 * @param sugerencias Sugerencias.
+	 * @return Cada sugerencia como "valor:incidencias".
+	 */
+	private static List<String> textos(List<SugerenciaDTO> sugerencias)
+	{
+		List<String> resultado = new ArrayList<String>();
+		for (SugerenciaDTO sugerencia : sugerencias)
+		{
+			resultado.add(sugerencia.getValor() + ":" + sugerencia.getIncidencias());
+		}
+		return resultado;
+	}
+
+	/**
+	 * @param trie    Árbol.
+	 * @param prefijo Prefijo que existe en el árbol.
+	 * @return Los caracteres de los hijos del nodo del prefijo.
+	 */
+	private static char[] letras(TrieSugerencias trie, String prefijo)
+	{
+		Object nodo = ReflectionTestUtils.getField(trie, "raiz");
+		for (char letra : prefijo.toCharArray())
+		{
+			nodo = ReflectionTestUtils.invokeMethod(nodo, "hijo", letra);
+		}
+		return (char[]) ReflectionTestUtils.getField(nodo, "letras");
+	}
+}
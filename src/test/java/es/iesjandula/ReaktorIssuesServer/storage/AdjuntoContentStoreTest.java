@@ -0,0 +1,162 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import es.iesjandula.ReaktorIssuesServer.storage.AdjuntoContentStore.ContenidoSubido;
+
+/**
+ * Deduplicación, límite de tamaño, detección del tipo y miniaturas del almacén de adjuntos.
+ */
+class AdjuntoContentStoreTest
+{
+	@TempDir
+	Path directorio;
+
+	/** Almacén de la prueba, con miniaturas de 64 píxeles. */
+	private AdjuntoContentStore almacen;
+
+	@BeforeEach
+	void abre()
+	{
+		this.almacen = new AdjuntoContentStore(this.directorio.toString(), 64);
+	}
+
+	@Test
+	void elMismoContenidoSeGuardaUnaSolaVez() throws IOException
+	{
+		byte[] foto = png(10, 10);
+
+		ContenidoSubido primero = this.sube(foto);
+		ContenidoSubido segundo = this.sube(foto);
+
+		assertThat(segundo.getHash()).isEqualTo(primero.getHash());
+		assertThat(primero.getTamano()).isEqualTo(foto.length);
+		assertThat(primero.getTipoContenido()).isEqualTo("image/png");
+		assertThat(Files.readAllBytes(this.almacen.ruta(primero.getHash()))).isEqualTo(foto);
+		assertThat(this.ficheros("objetos")).hasSize(1);
+		assertThat(this.ficheros("tmp")).isEmpty();
+	}
+
+	@Test
+	void rechazaLoQueSuperaElTamanoMaximoSinDejarTemporales() throws IOException
+	{
+		byte[] foto = png(10, 10);
+
+		assertThat(this.almacen.recibe(new ByteArrayInputStream(foto), foto.length - 1)).isNull();
+		assertThat(this.ficheros("tmp")).isEmpty();
+
+		ContenidoSubido justo = this.almacen.recibe(new ByteArrayInputStream(foto), foto.length);
+		assertThat(justo).isNotNull();
+		assertThat(justo.getTamano()).isEqualTo(foto.length);
+		this.almacen.descarta(justo);
+	}
+
+	@Test
+	void detectaElTipoPorElContenidoYNoPorElNombre() throws IOException
+	{
+		ContenidoSubido jpeg = this.almacen.recibe(new ByteArrayInputStream(new byte[] { (byte) 0xFF, (byte) 0xD8,
+				(byte) 0xFF, (byte) 0xE0 }), 100);
+		ContenidoSubido gif = this.almacen.recibe(new ByteArrayInputStream("GIF89a".getBytes()), 100);
+		ContenidoSubido texto = this.almacen.recibe(new ByteArrayInputStream("<html>".getBytes()), 100);
+		ContenidoSubido vacio = this.almacen.recibe(new ByteArrayInputStream(new byte[0]), 100);
+
+		assertThat(jpeg.getTipoContenido()).isEqualTo("image/jpeg");
+		assertThat(gif.getTipoContenido()).isEqualTo("image/gif");
+		assertThat(texto.getTipoContenido()).isNull();
+		assertThat(vacio.getTipoContenido()).isNull();
+	}
+
+	@Test
+	void lasMiniaturasConservanLaProporcionYSeReutilizan() throws IOException
+	{
+		ContenidoSubido foto = this.sube(png(1000, 500));
+
+		Path miniatura = this.almacen.miniatura(foto.getHash());
+		BufferedImage imagen = ImageIO.read(miniatura.toFile());
+		assertThat(imagen.getWidth()).isEqualTo(64);
+		assertThat(imagen.getHeight()).isEqualTo(32);
+
+		long modificada = Files.getLastModifiedTime(miniatura).toMillis();
+		assertThat(this.almacen.miniatura(foto.getHash())).isEqualTo(miniatura);
+		assertThat(Files.getLastModifiedTime(miniatura).toMillis()).isEqualTo(modificada);
+	}
+
+	@Test
+	void lasImagenesPequenasNoSeAmplian() throws IOException
+	{
+		ContenidoSubido foto = this.sube(png(20, 10));
+
+		BufferedImage imagen = ImageIO.read(this.almacen.miniatura(foto.getHash()).toFile());
+		assertThat(imagen.getWidth()).isEqualTo(20);
+		assertThat(imagen.getHeight()).isEqualTo(10);
+	}
+
+	@Test
+	void borrarQuitaElContenidoYSuMiniatura() throws IOException
+	{
+		ContenidoSubido foto = this.sube(png(100, 100));
+		Path miniatura = this.almacen.miniatura(foto.getHash());
+
+		this.almacen.borra(foto.getHash());
+
+		assertThat(this.almacen.ruta(foto.getHash())).doesNotExist();
+		assertThat(miniatura).doesNotExist();
+	}
+
+	/**
+	 * Recibe y publica un contenido como una subida.
+	 *
+	 * @param contenido El contenido.
+	 * @return El contenido subido.
+	 * @throws IOException Si falla la escritura.
+	 */
+	private ContenidoSubido sube(byte[] contenido) throws IOException
+	{
+		ContenidoSubido subido = this.almacen.recibe(new ByteArrayInputStream(contenido), 1024 * 1024);
+		synchronized (this.almacen.bloqueo(subido.getHash()))
+		{
+			this.almacen.publica(subido);
+		}
+		return subido;
+	}
+
+	/**
+	 * @param subdirectorio Subdirectorio del almacén.
+	 * @return Los ficheros que contiene, a cualquier profundidad.
+	 * @throws IOException Si falla el recorrido.
+	 */
+	private Stream<Path> ficheros(String subdirectorio) throws IOException
+	{
+		try (Stream<Path> rutas = Files.walk(this.directorio.resolve(subdirectorio)))
+		{
+			return rutas.filter(Files::isRegularFile).toList().stream();
+		}
+	}
+
+	/**
+	 * @param ancho Ancho en píxeles.
+	 * @param alto  Alto en píxeles.
+	 * @return Una imagen PNG de ese tamaño.
+	 * @throws IOException Si falla la codificación.
+	 */
+	static byte[] png(int ancho, int alto) throws IOException
+	{
+		ByteArrayOutputStream salida = new ByteArrayOutputStream();
+		ImageIO.write(new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB), "png", salida);
+		return salida.toByteArray();
+	}
+}
@@ -0,0 +1,307 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.storage.IncidenciaFragmentadaStorage.Fragmento;
+
+/**
+ * Contrato de almacenamiento y reparto entre fragmentos del motor fragmentado sobre tres bases de datos H2
+ * en memoria.
+ * <p>
+ * Con tres fragmentos y sin asignaciones, los prefijos "1", "2" y "3" van por hash a los fragmentos 1, 2
+ * y 0. El prefijo "A", que por hash iría al 2, está asignado al 0.
+ * </p>
+ */
+class IncidenciaFragmentadaStorageTest extends IncidenciaStorageContratoTest
+{
+	/** Prefijo común de las bases de datos de la prueba, distinto en cada una. */
+	private final String nombreBase = "fragmento-" + UUID.randomUUID();
+
+	/** Eventos publicados por todos los almacenes abiertos en la prueba. */
+	private final List<IncidenciaEvent> eventos = Collections.synchronizedList(new ArrayList<IncidenciaEvent>());
+
+	/** Almacenes abiertos en la prueba, para detenerlos al terminar. */
+	private final List<IncidenciaFragmentadaStorage> abiertos = new ArrayList<IncidenciaFragmentadaStorage>();
+
+	/** Almacén de la prueba. */
+	private IncidenciaFragmentadaStorage almacen;
+
+	@BeforeEach
+	void abreAlmacen()
+	{
+		this.almacen = this.abre(Map.of("A", 0));
+	}
+
+	@AfterEach
+	void detieneAlmacenes()
+	{
+		// El último en cerrarse es el primero en abrirse, que mantiene vivas las bases de datos hasta el final.
+		for (int i = this.abiertos.size() - 1; i >= 0; i--)
+		{
+			this.abiertos.get(i).detiene();
+		}
+	}
+
+	@Override
+	protected IIncidenciaStorage almacen()
+	{
+		return this.almacen;
+	}
+
+	@Override
+	protected List<IncidenciaEvent> eventos()
+	{
+		return this.eventos;
+	}
+
+	@Test
+	void repartePorHashSalvoLosPrefijosAsignados()
+	{
+		assertThat(this.almacen.fragmentoDe("1.1")).isEqualTo(Math.floorMod("1".hashCode(), 3)).isEqualTo(1);
+		assertThat(this.almacen.fragmentoDe("2.7")).isEqualTo(2);
+		assertThat(this.almacen.fragmentoDe("3")).isEqualTo(0);
+		assertThat(Math.floorMod("A".hashCode(), 3)).isEqualTo(2);
+		assertThat(this.almacen.fragmentoDe("A.1")).isEqualTo(0);
+
+		IncidenciaEntity porHash = this.almacen.guarda(nueva("2.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		IncidenciaEntity asignada = this.almacen.guarda(nueva("A.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		assertThat(this.fragmentosCon(porHash.getId())).containsExactly(2);
+		assertThat(this.fragmentosCon(asignada.getId())).containsExactly(0);
+	}
+
+	@Test
+	void mueveLaIncidenciaAlCambiarDeAula()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		assertThat(this.fragmentosCon(incidencia.getId())).containsExactly(1);
+
+		incidencia.setNumeroAula("2.1");
+		incidencia.setEstadoIncidencia("EN PROGRESO");
+		this.almacen.guarda(incidencia);
+
+		assertThat(this.fragmentosCon(incidencia.getId())).containsExactly(2);
+		assertThat(this.almacen.buscaPorId(incidencia.getId())).hasValueSatisfying(
+				movida -> assertThat(movida.getNumeroAula()).isEqualTo("2.1"));
+		IncidenciaEvent ultimo = this.eventos.get(this.eventos.size() - 1);
+		assertThat(ultimo.getTipo()).isEqualTo(IncidenciaEvent.Tipo.ACTUALIZADA);
+		assertThat(ultimo.getEstadoAnterior()).isEqualTo("PENDIENTE");
+
+		// Se borra aunque la copia que se entrega sea la del aula anterior.
+		incidencia.setNumeroAula("1.1");
+		this.almacen.borra(incidencia);
+		assertThat(this.fragmentosCon(incidencia.getId())).isEmpty();
+	}
+
+	@Test
+	void siFallaElBorradoDelOrigenLaCopiaQuedaFueraDeSitioYLaQuitaElRebalanceo()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		Fragmento origen = this.almacen.getFragmentos().get(1);
+		origen.jdbcTemplate.execute("CREATE TRIGGER borrado_fallido BEFORE DELETE ON incidencias FOR EACH ROW CALL \""
+				+ BorradoFallido.class.getName() + "\"");
+		BorradoFallido.intentos.set(0);
+
+		incidencia.setNumeroAula("2.1");
+		incidencia.setEstadoIncidencia("EN PROGRESO");
+		this.almacen.guarda(incidencia);
+
+		// La copia de origen ya tiene el aula nueva, así que no compite con la del destino.
+		assertThat(BorradoFallido.intentos).hasValue(3);
+		assertThat(this.fragmentosCon(incidencia.getId())).containsExactly(1, 2);
+		assertThat(origen.jdbcTemplate.query(IncidenciaFragmentadaStorage.SQL_POR_ID, IncidenciaFragmentadaStorage.MAPEADOR,
+				incidencia.getId())).singleElement().satisfies(copia -> assertThat(copia.getNumeroAula()).isEqualTo("2.1"));
+		assertThat(this.almacen.buscaPorId(incidencia.getId())).hasValueSatisfying(
+				movida -> assertThat(movida.getEstadoIncidencia()).isEqualTo("EN PROGRESO"));
+
+		origen.jdbcTemplate.execute("DROP TRIGGER borrado_fallido");
+		new IncidenciaFragmentadaRebalanceador(this.almacen, 2).rebalancea();
+		assertThat(this.fragmentosCon(incidencia.getId())).containsExactly(2);
+	}
+
+	@Test
+	void buscaPorIdPrefiereLaCopiaDelFragmentoDeSuAula()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("2.1", "ana@iesjandula.es", 0, "RESUELTA"));
+		IncidenciaEntity sobrante = nueva("2.1", "ana@iesjandula.es", 0, "PENDIENTE");
+		sobrante.setId(incidencia.getId());
+		this.inserta(this.almacen.getFragmentos().get(0), sobrante);
+
+		assertThat(this.almacen.buscaPorId(incidencia.getId())).hasValueSatisfying(
+				encontrada -> assertThat(encontrada.getEstadoIncidencia()).isEqualTo("RESUELTA"));
+	}
+
+	@Test
+	void siNoSePuedeInsertarEnElDestinoElOrigenQuedaComoEstaba()
+	{
+		IncidenciaEntity incidencia = this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		// En el aula de destino ya hay una incidencia con la misma clave natural.
+		this.almacen.guarda(nueva("2.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		incidencia.setNumeroAula("2.1");
+		incidencia.setEstadoIncidencia("EN PROGRESO");
+		assertThatThrownBy(() -> this.almacen.guarda(incidencia)).isInstanceOf(DataIntegrityViolationException.class);
+
+		assertThat(this.fragmentosCon(incidencia.getId())).containsExactly(1);
+		assertThat(this.almacen.buscaPorId(incidencia.getId())).hasValueSatisfying(original -> {
+			assertThat(original.getNumeroAula()).isEqualTo("1.1");
+			assertThat(original.getEstadoIncidencia()).isEqualTo("PENDIENTE");
+		});
+	}
+
+	@Test
+	void elRebalanceoMueveLasMalUbicadasYBorraLasCopiasSobrantes()
+	{
+		// Sin la asignación, "A.1" va por hash al fragmento 2.
+		IncidenciaFragmentadaStorage sinAsignar = this.abre(Map.of());
+		IncidenciaEntity reasignada = sinAsignar.guarda(nueva("A.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		assertThat(this.fragmentosCon(reasignada.getId())).containsExactly(2);
+
+		// Un cambio de aula cuyo borrado en el origen falló deja una copia en el fragmento 1.
+		IncidenciaEntity copiada = this.almacen.guarda(nueva("2.1", "luis@iesjandula.es", 0, "PENDIENTE"));
+		this.inserta(this.almacen.getFragmentos().get(1), copiada);
+		for (int i = 0; i < 3; i++)
+		{
+			this.almacen.guarda(nueva("3." + i, "ana@iesjandula.es", i, "PENDIENTE"));
+		}
+
+		// Páginas de dos filas para recorrer varias por fragmento.
+		new IncidenciaFragmentadaRebalanceador(this.almacen, 2).rebalancea();
+
+		assertThat(this.fragmentosCon(reasignada.getId())).containsExactly(0);
+		assertThat(this.fragmentosCon(copiada.getId())).containsExactly(2);
+		assertThat(this.almacen.cuentaPorAula()).containsEntry("A.1", 1L).containsEntry("2.1", 1L)
+				.containsEntry("3.0", 1L).containsEntry("3.1", 1L).containsEntry("3.2", 1L);
+	}
+
+	@Test
+	void insertaLoteTraduceLosRechazosDeCadaFragmentoALasPosicionesDelLote()
+	{
+		this.almacen.guarda(nueva("2.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		int eventosPrevios = this.eventos.size();
+
+		Map<Integer, String> rechazos = this.almacen.insertaLote(new ArrayList<IncidenciaEntity>(List.of(
+				nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("2.1", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("3.1", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("2.2", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("3.1", "ana@iesjandula.es", 0, "PENDIENTE"))));
+
+		assertThat(rechazos).containsOnlyKeys(1, 3, 5);
+		assertThat(this.almacen.cuentaPorAula()).containsOnly(Map.entry("1.1", 1L), Map.entry("2.1", 1L),
+				Map.entry("2.2", 1L), Map.entry("3.1", 1L));
+		assertThat(this.eventos.subList(eventosPrevios, this.eventos.size())).hasSize(3)
+				.allSatisfy(evento -> assertThat(evento.getTipo()).isEqualTo(IncidenciaEvent.Tipo.CREADA));
+	}
+
+	@Test
+	void mezclaLosListadosDeTodosLosFragmentosPorFecha()
+	{
+		this.almacen.guarda(nueva("3.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 1, "PENDIENTE"));
+		this.almacen.guarda(nueva("2.1", "ana@iesjandula.es", 2, "PENDIENTE"));
+		this.almacen.guarda(nueva("3.2", "ana@iesjandula.es", 3, "PENDIENTE"));
+		this.almacen.guarda(nueva("2.2", "ana@iesjandula.es", 5, "PENDIENTE"));
+		this.almacen.guarda(nueva("1.2", "ana@iesjandula.es", 5, "PENDIENTE"));
+		this.almacen.guarda(nueva("1.3", "ana@iesjandula.es", 6, "PENDIENTE"));
+
+		List<Map<String, Object>> filas = this.almacen.buscaProyeccion(List.of("numeroAula"), null, null, null, null,
+				null, null, null);
+
+		// A igual fecha va primero el fragmento menor.
+		assertThat(filas).extracting(fila -> fila.get("numeroAula"))
+				.containsExactly("1.3", "1.2", "2.2", "3.2", "2.1", "1.1", "3.1");
+	}
+
+	/**
+	 * Abre un almacén sobre los tres fragmentos de la prueba.
+	 *
+	 * @param asignaciones Fragmento asignado a cada prefijo.
+	 * @return El almacén iniciado.
+	 */
+	private IncidenciaFragmentadaStorage abre(Map<String, Integer> asignaciones)
+	{
+		IncidenciaFragmentadaProperties properties = new IncidenciaFragmentadaProperties();
+		for (int i = 0; i < 3; i++)
+		{
+			IncidenciaFragmentadaProperties.Fragmento fragmento = new IncidenciaFragmentadaProperties.Fragmento();
+			fragmento.setUrl("jdbc:h2:mem:" + this.nombreBase + "-" + i + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+			fragmento.setUsername("sa");
+			fragmento.setPassword("");
+			fragmento.setMaximoConexiones(2);
+			properties.getFragmentos().add(fragmento);
+		}
+		properties.getAsignaciones().putAll(asignaciones);
+
+		IncidenciaFragmentadaStorage nuevo = new IncidenciaFragmentadaStorage(properties,
+				evento -> this.eventos.add((IncidenciaEvent) evento));
+		nuevo.inicia();
+		this.abiertos.add(nuevo);
+		return nuevo;
+	}
+
+	/**
+	 * @param id Identificador de una incidencia.
+	 * @return Los fragmentos en los que está.
+	 */
+	private List<Integer> fragmentosCon(Long id)
+	{
+		List<Integer> con = new ArrayList<Integer>();
+		for (Fragmento fragmento : this.almacen.getFragmentos())
+		{
+			if (!fragmento.jdbcTemplate.query(IncidenciaFragmentadaStorage.SQL_POR_ID,
+					IncidenciaFragmentadaStorage.MAPEADOR, id).isEmpty())
+			{
+				con.add(fragmento.indice);
+			}
+		}
+		return con;
+	}
+
+	/**
+	 * Inserta una copia de una incidencia directamente en un fragmento.
+	 *
+	 * @param fragmento  El fragmento.
+	 * @param incidencia La incidencia.
+	 */
+	private void inserta(Fragmento fragmento, IncidenciaEntity incidencia)
+	{
+		fragmento.jdbcTemplate.update(IncidenciaLoteJdbc.SQL_INSERTA,
+				sentencia -> IncidenciaLoteJdbc.asignaParametros(sentencia, incidencia));
+	}
+
+	/**
+	 * Disparador de H2 que hace fallar todos los borrados de un fragmento y cuenta los intentos.
+	 */
+	public static class BorradoFallido implements Trigger
+	{
+		/** Borrados intentados. */
+		static final AtomicInteger intentos = new AtomicInteger();
+
+		@Override
+		public void fire(Connection conexion, Object[] antes, Object[] despues) throws SQLException
+		{
+			intentos.incrementAndGet();
+			throw new SQLException("Fragmento no disponible");
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+
+/**
+ * Contrato de almacenamiento del motor JPA sobre H2 en modo MySQL.
+ * <p>
+ * Las pruebas no se ejecutan en una transacción propia: cada operación del motor abre y confirma la suya,
+ * como en las peticiones reales, y la tabla se vacía antes de cada prueba.
+ * </p>
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(IncidenciaJpaStorage.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@RecordApplicationEvents
+class IncidenciaJpaStorageTest extends IncidenciaStorageContratoTest
+{
+	@Autowired
+	private IIncidenciaStorage iIncidenciaStorage;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@Autowired
+	private ApplicationEvents applicationEvents;
+
+	@BeforeEach
+	void vaciaTabla()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+	}
+
+	@Override
+	protected IIncidenciaStorage almacen()
+	{
+		return this.iIncidenciaStorage;
+	}
+
+	@Override
+	protected List<IncidenciaEvent> eventos()
+	{
+		return this.applicationEvents.stream(IncidenciaEvent.class).toList();
+	}
+}
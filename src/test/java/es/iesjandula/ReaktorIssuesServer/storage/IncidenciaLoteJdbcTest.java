@@ -0,0 +1,130 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.repository.IIncidenciaRepository;
+import es.iesjandula.ReaktorIssuesServer.utils.TsidGenerator;
+
+/**
+ * Inserción por lotes sobre H2: los puntos de guardado deshacen solo las filas rechazadas, sin perder
+ * lo que la transacción ya había escrito.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IncidenciaLoteJdbcTest
+{
+	/** Fecha de las incidencias de la prueba. */
+	private static final long FECHA = 1_700_000_000_000L;
+
+	@Autowired
+	private DataSource dataSource;
+
+	@Autowired
+	private IIncidenciaRepository iIncidenciaRepository;
+
+	@BeforeEach
+	void vaciaTabla()
+	{
+		this.iIncidenciaRepository.deleteAllInBatch();
+	}
+
+	@Test
+	void unLoteSinConflictosSeInsertaCompleto() throws SQLException
+	{
+		try (Connection conexion = this.transaccion())
+		{
+			Map<Integer, String> rechazos = IncidenciaLoteJdbc.inserta(conexion,
+					List.of(nueva("1.1"), nueva("1.2"), nueva("1.3")));
+			conexion.commit();
+
+			assertThat(rechazos).isEmpty();
+		}
+		assertThat(this.iIncidenciaRepository.count()).isEqualTo(3);
+	}
+
+	@Test
+	void soloSeRechazanLasFilasDuplicadasYSeConservaLoAnteriorDeLaTransaccion() throws SQLException
+	{
+		IncidenciaEntity existente = nueva("1.1");
+		try (Connection conexion = this.transaccion())
+		{
+			// Escrito en la misma transacción antes del lote: ni el fallo del lote ni los de las filas lo deshacen.
+			IncidenciaLoteJdbc.inserta(conexion, List.of(existente));
+
+			Map<Integer, String> rechazos = IncidenciaLoteJdbc.inserta(conexion,
+					List.of(nueva("1.2"), nueva("1.1"), nueva("1.3"), nueva("1.2"), nueva("1.4")));
+
+			assertThat(rechazos).containsOnlyKeys(1, 3);
+			assertThat(rechazos.get(1)).contains(IncidenciaEntity.UK_CLAVE_NATURAL);
+
+			// La transacción sigue siendo utilizable tras los rechazos.
+			try (PreparedStatement sentencia = conexion.prepareStatement(IncidenciaLoteJdbc.SQL_INSERTA))
+			{
+				IncidenciaLoteJdbc.asignaParametros(sentencia, nueva("1.5"));
+				sentencia.executeUpdate();
+			}
+			conexion.commit();
+		}
+
+		assertThat(this.iIncidenciaRepository.findAll()).extracting(IncidenciaEntity::getNumeroAula)
+				.containsExactlyInAnyOrder("1.1", "1.2", "1.3", "1.4", "1.5");
+		assertThat(this.iIncidenciaRepository.findById(existente.getId())).isPresent();
+	}
+
+	@Test
+	void losErroresQueNoSonDeRestriccionSePropagan() throws SQLException
+	{
+		IncidenciaEntity demasiadoLarga = nueva("1".repeat(300));
+		try (Connection conexion = this.transaccion())
+		{
+			assertThatThrownBy(() -> IncidenciaLoteJdbc.inserta(conexion, List.of(nueva("1.1"), demasiadoLarga)))
+					.isInstanceOfSatisfying(SQLException.class,
+							exception -> assertThat(IncidenciaLoteJdbc.esViolacionRestriccion(exception)).isFalse());
+			conexion.rollback();
+		}
+		assertThat(this.iIncidenciaRepository.count()).isZero();
+	}
+
+	/**
+	 * @return Una conexión con una transacción abierta.
+	 * @throws SQLException Si falla la conexión.
+	 */
+	private Connection transaccion() throws SQLException
+	{
+		Connection conexion = this.dataSource.getConnection();
+		conexion.setAutoCommit(false);
+		return conexion;
+	}
+
+	/**
+	 * @param numeroAula Aula.
+	 * @return Una incidencia con identificador, siempre del mismo docente y fecha.
+	 */
+	private static IncidenciaEntity nueva(String numeroAula)
+	{
+		return new IncidenciaEntity(TsidGenerator.siguiente(), numeroAula, "ana@iesjandula.es", new Date(FECHA),
+				"Proyector", "PENDIENTE", null, null);
+	}
+}
@@ -0,0 +1,163 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+
+/**
+ * Contrato de almacenamiento y recuperación tras caídas del motor en memoria.
+ * <p>
+ * Una caída se simula abriendo un segundo almacén sobre el mismo directorio sin detener el primero, de
+ * modo que solo cuenta lo que ya se había escrito en la instantánea y en el registro.
+ * </p>
+ */
+class IncidenciaMemoryStorageTest extends IncidenciaStorageContratoTest
+{
+	@TempDir
+	Path directorio;
+
+	/** Eventos publicados por todos los almacenes abiertos en la prueba. */
+	private final List<IncidenciaEvent> eventos = Collections.synchronizedList(new ArrayList<IncidenciaEvent>());
+
+	/** Almacenes abiertos en la prueba, para detenerlos al terminar. */
+	private final List<IncidenciaMemoryStorage> abiertos = new ArrayList<IncidenciaMemoryStorage>();
+
+	/** Almacén de la prueba. */
+	private IncidenciaMemoryStorage almacen;
+
+	@BeforeEach
+	void abreAlmacen() throws IOException
+	{
+		this.almacen = this.abre(10000);
+	}
+
+	@AfterEach
+	void detieneAlmacenes() throws IOException
+	{
+		for (int i = this.abiertos.size() - 1; i >= 0; i--)
+		{
+			this.abiertos.get(i).detiene();
+		}
+	}
+
+	@Override
+	protected IIncidenciaStorage almacen()
+	{
+		return this.almacen;
+	}
+
+	@Override
+	protected List<IncidenciaEvent> eventos()
+	{
+		return this.eventos;
+	}
+
+	@Test
+	void recuperaLasEscriturasDelRegistroTrasUnaCaida() throws IOException
+	{
+		IncidenciaEntity primera = this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		IncidenciaEntity segunda = this.almacen.guarda(nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"));
+		primera.setEstadoIncidencia("RESUELTA");
+		this.almacen.guarda(primera);
+		this.almacen.borra(segunda);
+
+		IncidenciaMemoryStorage recuperado = this.abre(10000);
+
+		assertThat(recuperado.buscaPorId(primera.getId())).hasValueSatisfying(
+				incidencia -> assertThat(incidencia.getEstadoIncidencia()).isEqualTo("RESUELTA"));
+		assertThat(recuperado.buscaPorId(segunda.getId())).isEmpty();
+		assertThat(recuperado.cuentaPorAula()).containsOnlyKeys("1.1");
+	}
+
+	@Test
+	void descartaUnaUltimaLineaIncompletaDelRegistro() throws IOException
+	{
+		IncidenciaEntity guardada = this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		// Caída a mitad de la escritura de la siguiente entrada.
+		Files.writeString(this.wal(), "{\"operacion\":\"G\",\"incidencia\":{\"id\":12", StandardCharsets.UTF_8,
+				StandardOpenOption.APPEND);
+
+		IncidenciaMemoryStorage recuperado = this.abre(10000);
+		assertThat(recuperado.buscaPorId(guardada.getId())).isPresent();
+		assertThat(recuperado.cuentaPorAula()).containsOnlyKeys("1.1");
+
+		// El registro queda limpio y admite nuevas escrituras que sobreviven a otra caída.
+		IncidenciaEntity posterior = recuperado.guarda(nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"));
+		assertThat(this.abre(10000).buscaPorId(posterior.getId())).isPresent();
+	}
+
+	@Test
+	void detieneElArranqueConUnaLineaIlegibleEnMitadDelRegistro() throws IOException
+	{
+		this.almacen.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		this.almacen.guarda(nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		List<String> lineas = new ArrayList<String>(Files.readAllLines(this.wal(), StandardCharsets.UTF_8));
+		lineas.set(0, lineas.get(0).substring(0, 20));
+		Files.write(this.wal(), lineas, StandardCharsets.UTF_8);
+		byte[] registro = Files.readAllBytes(this.wal());
+
+		assertThatThrownBy(() -> this.abre(10000)).isInstanceOf(IOException.class)
+				.hasMessageContaining("línea 1");
+
+		// El registro se conserva para poder repararlo.
+		assertThat(Files.readAllBytes(this.wal())).isEqualTo(registro);
+	}
+
+	@Test
+	void compactaSinPerderLaEntradaQueLoProvoca() throws IOException
+	{
+		IncidenciaMemoryStorage pequeno = this.abre(2);
+		List<Long> ids = new ArrayList<Long>();
+		ids.add(pequeno.guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE")).getId());
+		ids.add(pequeno.guarda(nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE")).getId());
+		ids.add(pequeno.guarda(nueva("1.3", "ana@iesjandula.es", 0, "PENDIENTE")).getId());
+
+		IncidenciaMemoryStorage recuperado = this.abre(2);
+		for (Long id : ids)
+		{
+			assertThat(recuperado.buscaPorId(id)).isPresent();
+		}
+	}
+
+	/**
+	 * Abre un almacén sobre el directorio de la prueba.
+	 *
+	 * @param maxEntradasWal Entradas del registro a partir de las cuales se compacta.
+	 * @return El almacén iniciado.
+	 * @throws IOException Si falla la carga.
+	 */
+	private IncidenciaMemoryStorage abre(int maxEntradasWal) throws IOException
+	{
+		IncidenciaMemoryStorage nuevo = new IncidenciaMemoryStorage(this.directorio.toString(), true, maxEntradasWal,
+				evento -> this.eventos.add((IncidenciaEvent) evento));
+		nuevo.inicia();
+		this.abiertos.add(nuevo);
+		return nuevo;
+	}
+
+	/**
+	 * @return El fichero de registro de escritura anticipada.
+	 */
+	private Path wal()
+	{
+		return this.directorio.resolve("incidencias.wal");
+	}
+}
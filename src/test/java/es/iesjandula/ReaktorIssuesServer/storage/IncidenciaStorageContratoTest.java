@@ -0,0 +1,213 @@
+package es.iesjandula.ReaktorIssuesServer.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntity;
+import es.iesjandula.ReaktorIssuesServer.entity.IncidenciaEntityId;
+import es.iesjandula.ReaktorIssuesServer.event.IncidenciaEvent;
+import es.iesjandula.ReaktorIssuesServer.utils.Constants;
+
+/**
+ * Contrato de {@link IIncidenciaStorage} que deben cumplir todos los motores de almacenamiento.
+ * <p>
+ * Cada motor tiene una subclase que proporciona una instancia vacía y los eventos que ha publicado.
+ * </p>
+ */
+abstract class IncidenciaStorageContratoTest
+{
+	/** Fecha base de las incidencias de prueba (sin milisegundos, que algunas bases de datos truncan). */
+	protected static final long FECHA_BASE = 1_700_000_000_000L;
+
+	/**
+	 * @return El motor a probar, sin incidencias.
+	 */
+	protected abstract IIncidenciaStorage almacen();
+
+	/**
+	 * @return Los eventos de incidencias publicados por el motor durante la prueba, en orden.
+	 */
+	protected abstract List<IncidenciaEvent> eventos();
+
+	@Test
+	void guardaAsignaIdentificadorYPublicaCreacion()
+	{
+		IncidenciaEntity guardada = this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		assertThat(guardada.getId()).isNotNull();
+		assertThat(this.almacen().buscaPorId(guardada.getId()))
+				.hasValueSatisfying(incidencia -> assertThat(incidencia.getNumeroAula()).isEqualTo("1.1"));
+		assertThat(this.eventos()).singleElement()
+				.satisfies(evento -> assertThat(evento.getTipo()).isEqualTo(IncidenciaEvent.Tipo.CREADA));
+	}
+
+	@Test
+	void buscaPorClaveNatural()
+	{
+		IncidenciaEntity guardada = this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 1, "PENDIENTE"));
+
+		assertThat(this.almacen().buscaPorClave(
+				new IncidenciaEntityId("1.1", "ana@iesjandula.es", new Date(FECHA_BASE))))
+				.hasValueSatisfying(incidencia -> assertThat(incidencia.getId()).isEqualTo(guardada.getId()));
+		assertThat(this.almacen().buscaPorClave(
+				new IncidenciaEntityId("1.1", "otro@iesjandula.es", new Date(FECHA_BASE)))).isEmpty();
+	}
+
+	@Test
+	void guardaActualizaLaIncidenciaExistente()
+	{
+		Long id = this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE")).getId();
+
+		IncidenciaEntity cambio = this.almacen().buscaPorId(id).orElseThrow();
+		cambio.setEstadoIncidencia("EN PROGRESO");
+		cambio.setComentario("Avisado el técnico");
+		this.almacen().guarda(cambio);
+
+		IncidenciaEntity leida = this.almacen().buscaPorId(id).orElseThrow();
+		assertThat(leida.getEstadoIncidencia()).isEqualTo("EN PROGRESO");
+		assertThat(leida.getComentario()).isEqualTo("Avisado el técnico");
+		assertThat(this.almacen().cuentaPorAula()).containsEntry("1.1", 1L);
+
+		IncidenciaEvent evento = this.eventos().get(this.eventos().size() - 1);
+		assertThat(evento.getTipo()).isEqualTo(IncidenciaEvent.Tipo.ACTUALIZADA);
+		assertThat(evento.getEstadoAnterior()).isEqualTo("PENDIENTE");
+	}
+
+	@Test
+	void guardaElMomentoDelUltimoCambioDeEstado()
+	{
+		Long id = this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE")).getId();
+		assertThat(this.almacen().buscaPorId(id).orElseThrow().getFechaEstado()).hasTime(FECHA_BASE);
+
+		// Un cambio que conserva el estado no mueve la fecha, aunque la petición no la traiga.
+		IncidenciaEntity comentada = this.almacen().buscaPorId(id).orElseThrow();
+		comentada.setComentario("Avisado el técnico");
+		comentada.setFechaEstado(null);
+		this.almacen().guarda(comentada);
+		assertThat(this.almacen().buscaPorId(id).orElseThrow().getFechaEstado()).hasTime(FECHA_BASE);
+
+		long antes = System.currentTimeMillis();
+		IncidenciaEntity enProgreso = this.almacen().buscaPorId(id).orElseThrow();
+		enProgreso.setEstadoIncidencia("EN PROGRESO");
+		this.almacen().guarda(enProgreso);
+
+		IncidenciaEntity leida = this.almacen().buscaPorId(id).orElseThrow();
+		assertThat(leida.getFechaEstado().getTime()).isBetween(antes, System.currentTimeMillis());
+		assertThat(leida.getFechaIncidencia()).hasTime(FECHA_BASE);
+		assertThat(this.almacen().buscaProyeccion(List.of("fechaEstado"), "1.1", null, null, null, null, null, null))
+				.extracting(fila -> ((Date) fila.get("fechaEstado")).getTime()).containsExactly(leida.getFechaEstado().getTime());
+	}
+
+	@Test
+	void rechazaClaveNaturalDuplicada()
+	{
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		assertThatThrownBy(() -> this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE")))
+				.isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	@Test
+	void borraLaIncidencia()
+	{
+		IncidenciaEntity guardada = this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		this.almacen().borra(guardada);
+
+		assertThat(this.almacen().buscaPorId(guardada.getId())).isEmpty();
+		assertThat(this.almacen().buscaPorClave(
+				new IncidenciaEntityId("1.1", "ana@iesjandula.es", new Date(FECHA_BASE)))).isEmpty();
+		assertThat(this.almacen().cuentaPorAula()).doesNotContainKey("1.1");
+		assertThat(this.eventos().get(this.eventos().size() - 1).getTipo()).isEqualTo(IncidenciaEvent.Tipo.BORRADA);
+	}
+
+	@Test
+	void proyeccionOrdenadaPorFechaDescendente()
+	{
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 2, "PENDIENTE"));
+		this.almacen().guarda(nueva("1.1", "luis@iesjandula.es", 0, "RESUELTA"));
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 1, "PENDIENTE"));
+		this.almacen().guarda(nueva("2.1", "ana@iesjandula.es", 3, "PENDIENTE"));
+
+		List<String> campos = List.of("fechaIncidencia", "correoDocente", Constants.CAMPO_RESUMEN_DESCRIPCION);
+		List<Map<String, Object>> filas = this.almacen().buscaProyeccion(campos, "1.1", null, null, null, null,
+				null, null);
+
+		assertThat(filas).hasSize(3);
+		assertThat(filas).allSatisfy(fila -> assertThat(fila.keySet()).containsExactlyElementsOf(campos));
+		assertThat(fechas(filas)).containsExactly(FECHA_BASE + 2000, FECHA_BASE + 1000, FECHA_BASE);
+		assertThat(filas.get(0).get(Constants.CAMPO_RESUMEN_DESCRIPCION))
+				.isEqualTo(descripcion().substring(0, Constants.LONG_RESUMEN_DESCRIPCION));
+
+		// Los filtros se combinan y el rango de fechas es inclusivo.
+		List<Map<String, Object>> filtradas = this.almacen().buscaProyeccion(List.of("fechaIncidencia"), null,
+				"ana@iesjandula.es", new Date(FECHA_BASE + 1000), new Date(FECHA_BASE + 2000), null, "PENDIENTE", null);
+		assertThat(fechas(filtradas)).containsExactly(FECHA_BASE + 2000, FECHA_BASE + 1000);
+	}
+
+	@Test
+	void insertaLoteRechazaSoloLosDuplicados()
+	{
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+
+		Map<Integer, String> rechazos = this.almacen().insertaLote(new ArrayList<IncidenciaEntity>(List.of(
+				nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"),
+				nueva("1.3", "ana@iesjandula.es", 0, "PENDIENTE"))));
+
+		assertThat(rechazos).containsOnlyKeys(0, 2);
+		assertThat(this.almacen().cuentaPorAula()).containsEntry("1.1", 1L).containsEntry("1.2", 1L)
+				.containsEntry("1.3", 1L);
+	}
+
+	@Test
+	void cuentaLasIncidenciasPorEstado()
+	{
+		this.almacen().guarda(nueva("1.1", "ana@iesjandula.es", 0, "PENDIENTE"));
+		this.almacen().guarda(nueva("1.2", "ana@iesjandula.es", 0, "PENDIENTE"));
+		this.almacen().guarda(nueva("2.1", "luis@iesjandula.es", 0, "RESUELTA"));
+
+		assertThat(this.almacen().cuentaPorEstado()).containsOnly(Map.entry("PENDIENTE", 2L),
+				Map.entry("RESUELTA", 1L));
+	}
+
+	/**
+	 * @param numeroAula    Aula.
+	 * @param correoDocente Docente.
+	 * @param segundos      Segundos tras {@link #FECHA_BASE}.
+	 * @param estado        Estado.
+	 * @return Una incidencia nueva sin identificador.
+	 */
+	protected static IncidenciaEntity nueva(String numeroAula, String correoDocente, int segundos, String estado)
+	{
+		return new IncidenciaEntity(null, numeroAula, correoDocente, new Date(FECHA_BASE + segundos * 1000L),
+				descripcion(), estado, null, null);
+	}
+
+	/**
+	 * @return Una descripción más larga que el resumen de los listados.
+	 */
+	private static String descripcion()
+	{
+		return "El proyector no enciende. ".repeat(5);
+	}
+
+	/**
+	 * @param filas Filas de una proyección.
+	 * @return La fecha de cada fila en milisegundos.
+	 */
+	private static List<Long> fechas(List<Map<String, Object>> filas)
+	{
+		return filas.stream().map(fila -> ((Date) fila.get("fechaIncidencia")).getTime()).toList();
+	}
+}
@@ -0,0 +1,148 @@
+package es.iesjandula.ReaktorIssuesServer.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lectura de CSV según RFC 4180: comillas, separadores y saltos de línea dentro de los campos, comillas
+ * escapadas, finales de línea y número de línea de cada registro.
+ */
+class CsvReaderTest
+{
+	@Test
+	void leeCamposSimplesYVacios() throws IOException
+	{
+		assertThat(lee("a,b,c\n,,\nd\n", ',')).containsExactly(List.of("a", "b", "c"), List.of("", "", ""), List.of("d"));
+	}
+
+	@Test
+	void elSeparadorEntreComillasEsParteDelCampo() throws IOException
+	{
+		assertThat(lee("\"1,1\";\"ana;luis\";x\n", ';')).containsExactly(List.of("1,1", "ana;luis", "x"));
+		assertThat(lee("\"1,1\",b\n", ',')).containsExactly(List.of("1,1", "b"));
+	}
+
+	@Test
+	void losSaltosDeLineaEntreComillasSonParteDelCampoYCuentanLineas() throws IOException
+	{
+		CsvReader lector = new CsvReader(new StringReader("a,\"linea 1\nlinea 2\r\nlinea 3\"\nb,c\n"), ',');
+
+		assertThat(lector.siguiente()).containsExactly("a", "linea 1\nlinea 2\r\nlinea 3");
+		assertThat(lector.getLineaRegistro()).isEqualTo(1);
+		assertThat(lector.siguiente()).containsExactly("b", "c");
+		assertThat(lector.getLineaRegistro()).isEqualTo(4);
+		assertThat(lector.siguiente()).isNull();
+	}
+
+	@Test
+	void lasComillasDoblesSeDesescapan() throws IOException
+	{
+		assertThat(lee("\"el \"\"proyector\"\"\",\"\"\"\",\"\"\n", ','))
+				.containsExactly(List.of("el \"proyector\"", "\"", ""));
+	}
+
+	@Test
+	void elUltimoRegistroNoNecesitaSaltoDeLinea() throws IOException
+	{
+		assertThat(lee("a,b\nc,d", ',')).containsExactly(List.of("a", "b"), List.of("c", "d"));
+		assertThat(lee("a,\"b\"", ',')).containsExactly(List.of("a", "b"));
+		assertThat(lee("a,", ',')).containsExactly(List.of("a", ""));
+	}
+
+	@Test
+	void admiteFinalesDeLineaWindowsYDescartaLaMarcaBom() throws IOException
+	{
+		CsvReader lector = new CsvReader(new StringReader("\uFEFFa,b\r\nc,d\r\n\r\ne\r"), ',');
+
+		assertThat(lector.siguiente()).containsExactly("a", "b");
+		assertThat(lector.siguiente()).containsExactly("c", "d");
+		assertThat(lector.siguiente()).containsExactly("");
+		assertThat(lector.siguiente()).containsExactly("e");
+		assertThat(lector.getLineaRegistro()).isEqualTo(4);
+		assertThat(lector.siguiente()).isNull();
+	}
+
+	@Test
+	void unasComillasSinCerrarSonUnError() throws IOException
+	{
+		CsvReader lector = new CsvReader(new StringReader("a,b\nc,\"sin cerrar\nd\n"), ',');
+		lector.siguiente();
+
+		assertThatThrownBy(lector::siguiente).isInstanceOf(IOException.class).hasMessageContaining("línea 2");
+	}
+
+	@Test
+	void losRegistrosPuedenCruzarElBufferDeLectura() throws IOException
+	{
+		// Un lector que entrega un carácter cada vez obliga a recargar el buffer en cualquier punto.
+		Reader lento = new StringReader("\"a,\"\"b\"\"\",c\r\nd,\"e\nf\"")
+		{
+			@Override
+			public int read(char[] destino, int desde, int longitud) throws IOException
+			{
+				return super.read(destino, desde, Math.min(longitud, 1));
+			}
+		};
+
+		assertThat(lee(lento, ',')).containsExactly(List.of("a,\"b\"", "c"), List.of("d", "e\nf"));
+	}
+
+	@Test
+	void escapaSoloLosCamposQueLoNecesitanYSeLeenIgual() throws IOException
+	{
+		List<String> campos = List.of("1.1", "a,b", "el \"proyector\"", "dos\nlineas", "");
+		StringBuilder linea = new StringBuilder();
+		for (String campo : campos)
+		{
+			if (linea.length() > 0)
+			{
+				linea.append(',');
+			}
+			linea.append(CsvReader.escapa(campo, ','));
+		}
+
+		assertThat(CsvReader.escapa("1.1", ',')).isEqualTo("1.1");
+		assertThat(CsvReader.escapa("a;b", ',')).isEqualTo("a;b");
+		assertThat(CsvReader.escapa(null, ',')).isEmpty();
+		assertThat(lee(linea.toString(), ',')).containsExactly(campos);
+	}
+
+	/**
+	 * @param contenido Contenido del fichero.
+	 * @param separador Separador de campos.
+	 * @return Todos sus registros.
+	 * @throws IOException Si falla la lectura.
+	 */
+	private static List<List<String>> lee(String contenido, char separador) throws IOException
+	{
+		return lee(new StringReader(contenido), separador);
+	}
+
+	/**
+	 * @param origen    Origen de caracteres.
+	 * @param separador Separador de campos.
+	 * @return Todos sus registros.
+	 * @throws IOException Si falla la lectura.
+	 */
+	private static List<List<String>> lee(Reader origen, char separador) throws IOException
+	{
+		List<List<String>> registros = new ArrayList<List<String>>();
+		try (CsvReader lector = new CsvReader(origen, separador))
+		{
+			List<String> registro;
+			while ((registro = lector.siguiente()) != null)
+			{
+				registros.add(registro);
+			}
+		}
+		return registros;
+	}
+}